@@ -29,10 +29,12 @@ import org.luaj.vm2.LuaValue;
 import engine.io.Load;
 import engine.io.Save;
 import engine.lua.LuaEngine;
+import engine.lua.ScriptActor;
 import engine.lua.history.HistoryChange;
 import engine.lua.history.HistorySnapshot;
+import engine.lua.type.DataModel;
 import engine.lua.type.LuaEvent;
-import engine.lua.type.ScriptRunner;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.Service;
 import engine.lua.type.object.insts.Camera;
@@ -79,6 +81,7 @@ public class Game implements Tickable {
 	public static boolean changes;
 	public static boolean internalTesting;
 	private static boolean running;
+	private static boolean headless;
 	
 	public static final String VERSION = "0.7a";
 
@@ -292,22 +295,22 @@ public class Game implements Tickable {
 		return servs;
 	}
 
-	private static final LuaValue C_GAME = LuaValue.valueOf("game");
-	private static final LuaValue C_PROJECT = LuaValue.valueOf("project");
-	private static final LuaValue C_WORKSPACE = LuaValue.valueOf("Workspace");
-	private static final LuaValue C_LIGHTING = LuaValue.valueOf("Lighting");
-	private static final LuaValue C_RUNSERVICE = LuaValue.valueOf("RunService");
-	private static final LuaValue C_USERINPUTSERVICE = LuaValue.valueOf("UserInputService");
-	private static final LuaValue C_SCRIPTSERVICE = LuaValue.valueOf("ScriptService");
-	private static final LuaValue C_STARTERPLAYER = LuaValue.valueOf("StarterPlayer");
-	private static final LuaValue C_PLAYERS = LuaValue.valueOf("Players");
-	private static final LuaValue C_CONNECTIONS = LuaValue.valueOf("Connections");
-	private static final LuaValue C_STORAGE = LuaValue.valueOf("Storage");
-	private static final LuaValue C_SOUNDSERVICE = LuaValue.valueOf("SoundService");
-	private static final LuaValue C_CORE = LuaValue.valueOf("Core");
-	private static final LuaValue C_HISTORYSERVICE = LuaValue.valueOf("HistoryService");
-	private static final LuaValue C_WELDSERVICE = LuaValue.valueOf("WeldService");
-	private static final LuaValue C_ASSETS = LuaValue.valueOf("Assets");
+	private static final LuaValue C_GAME = LuaKeys.of("game");
+	private static final LuaValue C_PROJECT = LuaKeys.of("project");
+	private static final LuaValue C_WORKSPACE = LuaKeys.of("Workspace");
+	private static final LuaValue C_LIGHTING = LuaKeys.of("Lighting");
+	private static final LuaValue C_RUNSERVICE = LuaKeys.of("RunService");
+	private static final LuaValue C_USERINPUTSERVICE = LuaKeys.of("UserInputService");
+	private static final LuaValue C_SCRIPTSERVICE = LuaKeys.of("ScriptService");
+	private static final LuaValue C_STARTERPLAYER = LuaKeys.of("StarterPlayer");
+	private static final LuaValue C_PLAYERS = LuaKeys.of("Players");
+	private static final LuaValue C_CONNECTIONS = LuaKeys.of("Connections");
+	private static final LuaValue C_STORAGE = LuaKeys.of("Storage");
+	private static final LuaValue C_SOUNDSERVICE = LuaKeys.of("SoundService");
+	private static final LuaValue C_CORE = LuaKeys.of("Core");
+	private static final LuaValue C_HISTORYSERVICE = LuaKeys.of("HistoryService");
+	private static final LuaValue C_WELDSERVICE = LuaKeys.of("WeldService");
+	private static final LuaValue C_ASSETS = LuaKeys.of("Assets");
 
 	public static GameECS game() {
 		LuaValue game = LuaEngine.globals.get(C_GAME);
@@ -387,12 +390,36 @@ public class Game implements Tickable {
 		return game;
 	}
 
+	/**
+	 * Runs the supplied code as one hierarchy batch. Reparenting inside it fires ChildAdded/ChildRemoved,
+	 * DescendantAdded/DescendantRemoved and Parent changes once per object when the batch finishes, followed by a single hierarchy update.
+	 * See {@link DataModel#beginHierarchyBatch()}.
+	 * @param runnable
+	 */
+	public static void batchHierarchy(Runnable runnable) {
+		DataModel.beginHierarchyBatch();
+		try {
+			runnable.run();
+		} finally {
+			DataModel.endHierarchyBatch();
+		}
+	}
+
 	public void gameUpdate(boolean important) {
 		for (int i = 0; i < subscribers.size(); i++) {
 			subscribers.get(i).gameUpdateEvent(important);
 		}
 	}
 	
+	/**
+	 * Notifies subscribers that Instances were reparented or renamed. See {@link GameSubscriber#hierarchyUpdateEvent()}.
+	 */
+	public void hierarchyUpdate() {
+		for (int i = 0; i < subscribers.size(); i++) {
+			subscribers.get(i).hierarchyUpdateEvent();
+		}
+	}
+	
 	public void subscribe( GameSubscriber sub ) {
 		synchronized(subscribers) {
 			this.subscribers.add(sub);
@@ -430,7 +457,7 @@ public class Game implements Tickable {
 		}
 		
 		clearServices();
-		ScriptRunner.cleanup();
+		ScriptActor.stopAll();
 		
 		game.unsavedScenes.clear();
 		game().uniqueInstances.clear();
@@ -540,8 +567,8 @@ public class Game implements Tickable {
 		return null;
 	}
 	
-	private static final LuaValue C_RUNNING = LuaValue.valueOf("Running");
-	private static final LuaValue C_ISSERVER = LuaValue.valueOf("IsServer");
+	private static final LuaValue C_RUNNING = LuaKeys.of("Running");
+	private static final LuaValue C_ISSERVER = LuaKeys.of("IsServer");
 	
 	@Override
 	public void tick() {
@@ -612,10 +639,9 @@ public class Game implements Tickable {
 	}
 	
 	public static boolean isDescendantSelected(Instance inst) {
-		List<Instance> desc = inst.getDescendantsUnsafe();
-		synchronized(desc) {
-			for (Instance descendant : desc ) {
-				if ( isSelected(descendant) )
+		synchronized(selectedInstances) {
+			for (Instance selected : selectedInstances ) {
+				if ( selected.isDescendantOf(inst) )
 					return true;
 			}
 		}
@@ -715,6 +741,19 @@ public class Game implements Tickable {
 		this.isServer = b;
 	}
 	
+	/**
+	 * Returns whether the game runs without a window, renderer or sound. Rendering and sound dependent objects keep their data, but never
+	 * touch OpenGL or OpenAL. See {@link HeadlessServerRunner}.
+	 * @return
+	 */
+	public static boolean isHeadless() {
+		return headless;
+	}
+	
+	public static void setHeadless(boolean headless) {
+		Game.headless = headless;
+	}
+	
 	public static String version() {
 		return VERSION;
 	}
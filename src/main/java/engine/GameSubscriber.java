@@ -12,4 +12,13 @@ package engine;
 
 public interface GameSubscriber {
 	public void gameUpdateEvent(boolean important);
+	
+	/**
+	 * Called after Instances are reparented or renamed. Does nothing by default.<br>
+	 * Only subscribers that depend on the shape of the whole tree should override this. Instances that only care about their
+	 * own ancestry should override {@link engine.lua.type.DataModel#onAncestryChanged()} instead.
+	 */
+	public default void hierarchyUpdateEvent() {
+		//
+	}
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine;
+
+import engine.io.Load;
+import engine.tasks.TaskManager;
+
+/**
+ * Runs a project as a dedicated server, without a window. GLFW, OpenGL and OpenAL are never initialized, and the JVM is not restarted,
+ * so it runs on machines with no display or GPU, and many can share a host.<br>
+ * Only the update thread runs: lua, physics, scripts and the network server. Objects that depend on rendering or sound
+ * (textures, skyboxes, lights, guis, sounds) keep their properties but skip their GPU and audio work. See {@link Game#isHeadless()}.
+ * <br><br>
+ * Usage: <code>HeadlessServerRunner &lt;project.json&gt;</code>
+ */
+public class HeadlessServerRunner {
+	private final String[] args;
+	private InternalGameThread gameThread;
+
+	public HeadlessServerRunner(String... args) {
+		this.args = args;
+	}
+
+	public void start() {
+		Game.setHeadless(true);
+		TaskManager.setRenderThreadsEnabled(false);
+		ClientEngine.game = new Game();
+
+		gameThread = new InternalGameThread(null);
+		ClientEngine.gameThread = gameThread;
+
+		// Runs on the update thread, after the blank project is set up
+		InternalGameThread.runLater(() -> {
+			if (args.length >= 1)
+				Load.load(args[0]);
+			Game.load();
+			Game.getGame().gameUpdate(true);
+			Game.setRunning(true);
+			System.out.println("Headless server running" + (args.length >= 1 ? " " + args[0] : ""));
+		});
+
+		Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "Server Shutdown"));
+		gameThread.start();
+	}
+
+	/**
+	 * Stops the update thread, and waits for it to clean up.
+	 */
+	public void stop() {
+		ClientEngine.stop();
+		if (gameThread == null || Thread.currentThread() == gameThread)
+			return;
+
+		try {
+			gameThread.join();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static void main(String[] args) {
+		new HeadlessServerRunner(args).start();
+	}
+}
@@ -11,10 +11,15 @@
 package engine;
 
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.luaj.vm2.LuaValue;
 
 import engine.lua.LuaEngine;
+import engine.lua.type.DataModel;
+import engine.lua.ScriptActor;
+import engine.lua.type.ScriptScheduler;
 import engine.lua.type.ScriptRunner;
 import engine.lua.type.object.Service;
 import engine.lua.type.object.services.GameECS;
@@ -22,7 +27,10 @@ import engine.lua.type.object.services.ProjectECS;
 import engine.lua.type.object.services.RunService;
 import engine.tasks.TaskManager;
 import engine.tasks.ThreadUtils;
-import engine.util.Sync;
+import engine.util.FixedStepScheduler;
+import engine.util.FixedStepScheduler.Clock;
+import engine.util.FixedStepScheduler.Policy;
+import engine.util.FramePacer;
 import lwjgui.LWJGUI;
 
 public class InternalGameThread extends Thread implements IEngineThread {
@@ -30,22 +38,64 @@ public class InternalGameThread extends Thread implements IEngineThread {
 	public static float delta;
 
 	public static int desiredTPS = 60;
+	
+	/**
+	 * Most simulation steps run in one frame. Time beyond that is handled by {@link #stepPolicy}.
+	 */
+	public static int maxStepsPerFrame = 5;
+	public static Policy stepPolicy = Policy.DROP;
+	
+	/**
+	 * How the loop waits between frames. With {@link FramePacer.Mode#NONE} it does not run on its own: each frame waits for a call to
+	 * {@link #frame()}, for loops driven by an external clock (see {@link #InternalGameThread(ClientEngine, Clock)}).
+	 */
+	public static FramePacer.Mode pacing = FramePacer.Mode.PACED;
+	
+	/**
+	 * How far real time is past the last simulation step, as a fraction of a step. For interpolating render state.
+	 */
+	public static volatile float alpha;
 
 	public static void runLater(Runnable runnable) {
 		TaskManager.addTaskMainThread(runnable);
 	}
 
 	private ClientEngine client;
+	private final Clock clock;
+	private final Semaphore frames = new Semaphore(0);
 
+	/**
+	 * Creates the update thread.
+	 * @param client the client it updates alongside, or null to run without a window (see {@link HeadlessServerRunner}).
+	 */
 	public InternalGameThread(ClientEngine client) {
+		this(client, FixedStepScheduler.SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Creates the update thread, with simulation time read from the supplied clock.
+	 * @param client the client it updates alongside, or null to run without a window.
+	 * @param clock source of simulation time. Together with {@link FramePacer.Mode#NONE} and {@link #frame()}, lets something else drive the ticks.
+	 */
+	public InternalGameThread(ClientEngine client, Clock clock) {
 		this.client = client;
+		this.clock = clock;
 		super.setName("Update Thread");
 	}
 
+	/**
+	 * Lets the loop run one frame while pacing is {@link FramePacer.Mode#NONE}. The frame runs as many steps as the clock has advanced.
+	 * Calls made faster than the loop keeps up are queued, not lost.
+	 */
+	public void frame() {
+		frames.release();
+	}
+
 	@Override
 	public void init() {
 		TaskManager.init();
-		LWJGUI.setThreadWindow(ClientEngine.renderThread.getWindow());
+		if (client != null)
+			LWJGUI.setThreadWindow(ClientEngine.renderThread.getWindow());
 		// Turn on lua
 		LuaEngine.initialize();
 
@@ -61,44 +111,76 @@ public class InternalGameThread extends Thread implements IEngineThread {
 	@Override
 	public void run() {
 		init();
-		ClientEngine.updateReady = true;
-		while (!ClientEngine.waitThreads)
-			ThreadUtils.sleep(1);
-		ClientEngine.updateReady = false;
+		if (client != null) {
+			ClientEngine.updateReady = true;
+			while (!ClientEngine.waitThreads)
+				ThreadUtils.sleep(1);
+			ClientEngine.updateReady = false;
+		}
 
 		int ups = desiredTPS;
-		float accumulator = 0f;
-		float interval = 1f / ups;
+		FixedStepScheduler scheduler = new FixedStepScheduler(ups, maxStepsPerFrame, stepPolicy, clock);
+		delta = scheduler.getStepSeconds();
 
-		Sync sync = new Sync();
+		FramePacer pacer = new FramePacer(pacing);
 		while (ClientEngine.isRunning()) {
-			TaskManager.updateMainThread();
-
-			delta = sync.getDelta();
-			accumulator += delta;
-			while (accumulator >= interval) {
-				if (Game.game() == null)
-					continue;
-
-				if (!Game.isLoaded())
-					continue;
+			// Driven from outside. Wait for the next frame without spinning.
+			if (pacing == FramePacer.Mode.NONE && !awaitFrame())
+				continue;
 
-				if (Game.core() == null)
-					continue;
+			TaskManager.updateMainThread();
 
-				RunService runService = Game.runService();
-				if (runService != null && Game.isRunning()) {
-					runService.heartbeatEvent().fire(LuaValue.valueOf(delta));
-				}
-				client.update();
-				Game.getGame().tick();
-				accumulator -= interval;
+			scheduler.setMaxSteps(maxStepsPerFrame);
+			scheduler.setPolicy(stepPolicy);
+			int steps = scheduler.advance();
+			for (int i = 0; i < steps; i++) {
+				step();
+			}
+			alpha = scheduler.getAlpha();
+			
+			if (pacing != FramePacer.Mode.NONE) {
+				pacer.setMode(pacing);
+				pacer.sync(ups);
 			}
-			sync.sync(ups);
 		}
 		dispose();
 	}
 
+	/**
+	 * Waits for a call to {@link #frame()}. Gives up now and then, so the loop notices when the engine stops.
+	 * @return whether a frame was requested.
+	 */
+	private boolean awaitFrame() {
+		try {
+			return frames.tryAcquire(50, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Runs one simulation step of {@link #delta} seconds. While no game is loaded only the script scheduler is stepped,
+	 * so coroutines started before a load (console commands, delay timers) still run.
+	 */
+	private void step() {
+		boolean loaded = Game.game() != null && Game.isLoaded() && Game.core() != null;
+		if (loaded) {
+			RunService runService = Game.runService();
+			if (runService != null && Game.isRunning()) {
+				runService.heartbeatEvent().fire(LuaValue.valueOf(delta));
+			}
+			if (client != null)
+				client.update();
+			Game.getGame().tick();
+		}
+
+		ScriptScheduler.main().step();
+
+		if (loaded)
+			ScriptActor.stepAll();
+		DataModel.flushChanges();
+	}
+
 	@Override
 	public void dispose() {
 		TaskManager.stopMainThread();
@@ -118,7 +200,8 @@ public class InternalGameThread extends Thread implements IEngineThread {
 		// Turn off lua
 		LuaEngine.cleanup();
 		ScriptRunner.shutdown();
-		LWJGUI.removeThreadWindow();
+		if (client != null)
+			LWJGUI.removeThreadWindow();
 		ClientEngine.updateReady = true;
 	}
 
@@ -28,6 +28,7 @@ import engine.gl.entities.LayeredCubeCamera;
 import engine.gl.lights.DirectionalLightCamera;
 import engine.gl.lights.SpotLightCamera;
 import engine.gl.renderers.InstanceRenderer;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.insts.animation.AnimationController;
 import engine.observer.RenderableInstance;
@@ -35,7 +36,7 @@ import engine.observer.RenderableInstance;
 public class RenderingManager {
 
 	// TODO: this should NOT be here
-	private static final LuaValue C_ANIMATIONCONTROLLER = LuaValue.valueOf("AnimationController");
+	private static final LuaValue C_ANIMATIONCONTROLLER = LuaKeys.of("AnimationController");
 
 	private final IntMap<IObjectRenderer> objectRenderers = new IntMap<>();
 	private final ObjectIntMap<List<Instance>> entitiesToRenderers = new ObjectIntMap<>();
@@ -48,11 +49,9 @@ public class RenderingManager {
 	}
 
 	public void preProcess(Instance world) {
-		List<Instance> instances = world.getDescendantsUnsafe();
-		synchronized (instances) {
-			for (Instance entity : instances)
-				process(entity);
-		}
+		world.forEachDescendantOfClass(RenderableInstance.class, (renderable)->{
+			process((Instance) renderable);
+		});
 		for (Entry<IObjectRenderer> rendererEntry : objectRenderers) {
 			IObjectRenderer objectRenderer = rendererEntry.value;
 			List<Instance> batch = entitiesToRenderers.findKey(objectRenderer.getID());
@@ -22,6 +22,7 @@ import org.luaj.vm2.LuaValue;
 import org.lwjgl.system.MemoryUtil;
 
 import engine.gl.mesh.BufferedMesh;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.insts.GameObject;
@@ -56,7 +57,7 @@ public class AnimatedModel {
 		this.tempMat = new Matrix4f();
 	}
 	
-	private static final LuaValue C_BONETREE = LuaValue.valueOf("BoneTree");
+	private static final LuaValue C_BONETREE = LuaKeys.of("BoneTree");
 	
 	private void rebuild() {
 		meshes.clear();
@@ -43,6 +43,7 @@ import engine.gl.mesh.animation.AnimatedModel;
 import engine.gl.mesh.animation.AnimatedModelSubMesh;
 import engine.gl.objects.MaterialGL;
 import engine.gl.renderers.shaders.AnimInstanceCubeShader;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.PrefabRenderer;
 import engine.lua.type.object.insts.GameObject;
@@ -55,7 +56,7 @@ public class AnimInstanceCubeRenderer {
 	private AnimInstanceCubeShader shader;
 
 	// TODO: this should NOT be here
-	private static final LuaValue C_ANIMATIONCONTROLLER = LuaValue.valueOf("AnimationController");
+	private static final LuaValue C_ANIMATIONCONTROLLER = LuaKeys.of("AnimationController");
 
 	public AnimInstanceCubeRenderer() {
 		shader = new AnimInstanceCubeShader();
@@ -35,6 +35,7 @@ import engine.gl.mesh.animation.AnimatedModel;
 import engine.gl.mesh.animation.AnimatedModelSubMesh;
 import engine.gl.objects.MaterialGL;
 import engine.gl.renderers.shaders.AnimInstanceDeferredShader;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.PrefabRenderer;
 import engine.lua.type.object.insts.GameObject;
@@ -53,7 +54,7 @@ public class AnimInstanceRenderer implements IObjectRenderer {
 	private AnimInstanceCubeRenderer cubeRenderer;
 
 	// TODO: this should NOT be here
-	private static final LuaValue C_ANIMATIONCONTROLLER = LuaValue.valueOf("AnimationController");
+	private static final LuaValue C_ANIMATIONCONTROLLER = LuaKeys.of("AnimationController");
 
 	private Matrix4f temp = new Matrix4f();
 
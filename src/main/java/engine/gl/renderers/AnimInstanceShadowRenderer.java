@@ -29,6 +29,7 @@ import engine.gl.renderers.shaders.AnimInstanceBaseShadowShader;
 import engine.gl.renderers.shaders.AnimInstanceDirectionalShadowShader;
 import engine.gl.renderers.shaders.AnimInstancePointShadowShader;
 import engine.gl.renderers.shaders.AnimInstanceSpotShadowShader;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.PrefabRenderer;
 import engine.lua.type.object.insts.GameObject;
@@ -43,7 +44,7 @@ public class AnimInstanceShadowRenderer {
 	private AnimInstancePointShadowShader pointShader;
 
 	// TODO: this should NOT be here
-	private static final LuaValue C_ANIMATIONCONTROLLER = LuaValue.valueOf("AnimationController");
+	private static final LuaValue C_ANIMATIONCONTROLLER = LuaKeys.of("AnimationController");
 
 	public AnimInstanceShadowRenderer() {
 		directionalShader = new AnimInstanceDirectionalShadowShader();
@@ -39,6 +39,7 @@ import org.lwjgl.util.nfd.NativeFileDialog;
 
 import engine.Game;
 import engine.InternalGameThread;
+import engine.lua.type.DataModel;
 import engine.lua.type.LuaValuetype;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.Service;
@@ -348,6 +349,30 @@ public class Load {
 			loadObject(instancesMap, inst);
 		}
 		
+		// Reparent everything as one batch
+		DataModel.beginHierarchyBatch();
+		try {
+			parentLoadedInstances(instances, services, rootInstance, unmodifiedInstances, removeUnusedInstances);
+		} finally {
+			DataModel.endHierarchyBatch();
+		}
+		
+		// Delete unused instances
+		if ( removeUnusedInstances ) {
+			Set<Entry<UUID, Instance>> insts = unmodifiedInstances.entrySet();
+			Iterator<Entry<UUID, Instance>> iterator = insts.iterator();
+			while ( iterator.hasNext() ) {
+				Entry<UUID, Instance> entry = iterator.next();
+				Instance t = entry.getValue();
+				if ( !t.isDestroyed() )
+					t.destroy();
+			}
+		}
+		
+		return instances.get(0).instance;
+	}
+	
+	private static void parentLoadedInstances(List<LoadedInstance> instances, List<LoadedInstance> services, Instance rootInstance, Map<UUID, Instance> unmodifiedInstances, boolean removeUnusedInstances) {
 		// Force set parents (of non services)
 		for (int i = 0; i < instances.size(); i++) {
 			LoadedInstance inst = instances.get(i);
@@ -369,21 +394,6 @@ public class Load {
 				inst.instance.forceSetParent(rootInstance);
 			}
 		}
-
-		
-		// Delete unused instances
-		if ( removeUnusedInstances ) {
-			Set<Entry<UUID, Instance>> insts = unmodifiedInstances.entrySet();
-			Iterator<Entry<UUID, Instance>> iterator = insts.iterator();
-			while ( iterator.hasNext() ) {
-				Entry<UUID, Instance> entry = iterator.next();
-				Instance t = entry.getValue();
-				if ( !t.isDestroyed() )
-					t.destroy();
-			}
-		}
-		
-		return instances.get(0).instance;
 	}
 
 	private static void loadObject(HashMap<UUID, LoadedInstance> instancesMap, LoadedInstance inst) {
@@ -19,9 +19,11 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Set;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -36,11 +38,13 @@ import engine.Game;
 import engine.InternalGameThread;
 import engine.InternalRenderThread;
 import engine.gl.mesh.BufferedMesh;
+import engine.lua.LuaChunkCache;
 import engine.lua.network.internal.JSONUtil;
 import engine.lua.network.internal.NonReplicatable;
 import engine.lua.type.LuaValuetype;
 import engine.lua.type.object.AssetLoadable;
 import engine.lua.type.object.Instance;
+import engine.lua.type.object.ScriptBase;
 import engine.lua.type.object.TreeInvisible;
 import engine.lua.type.object.insts.Mesh;
 import engine.lua.type.object.insts.Scene;
@@ -233,6 +237,7 @@ public class Save {
 		
 		// Write scripts
 		writeScripts(resourcesFolder);
+		pruneChunkCache();
 
 		// Start saving process	
 		JSONObject projectJSONInternal = getProjectJSON(true);
@@ -613,6 +618,21 @@ public class Save {
 		}
 	}
 
+	/**
+	 * Deletes compiled chunks of scripts that were edited or removed from the project's lua cache.
+	 */
+	private static void pruneChunkCache() {
+		Set<String> keep = new HashSet<String>();
+		List<Instance> descendents = Game.game().getDescendants();
+		for (int i = 0; i < descendents.size(); i++) {
+			Instance t = descendents.get(i);
+			if ( t instanceof ScriptBase )
+				keep.add(LuaChunkCache.getKey(t.getName(), ((ScriptBase)t).getChunkSource()));
+		}
+		
+		LuaChunkCache.prune(keep);
+	}
+
 	private static void writeResources(File resourcesFolder) {
 		String resourcesPath = resourcesFolder.getAbsolutePath();
 		if ( !Game.isLoaded() )
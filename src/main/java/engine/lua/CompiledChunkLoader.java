@@ -0,0 +1,90 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.luajc.LuaJC;
+
+/**
+ * Loader that compiles chunks to JVM classes with luajc, and falls back to the interpreter if that fails.<br>
+ * The generated class is kept per {@link Prototype}, so a chunk from {@link LuaChunkCache} is only compiled once no matter how often it is loaded.<br>
+ * <br>
+ * Compiled code does not run the debug hooks, so the instruction watchdog can not stop a compiled script that never yields, and
+ * scripts are resumed from the update thread: one that loops forever hangs the game. Only scripts that opt in are compiled
+ * (see {@link engine.lua.type.object.ScriptBase#isCompiled()}). Interrupts still apply whenever it yields.
+ */
+public class CompiledChunkLoader implements Globals.Loader {
+	private final Map<Prototype, Class<?>> classes = Collections.synchronizedMap(new WeakHashMap<Prototype, Class<?>>());
+	private volatile boolean available = true;
+	private final AtomicInteger compiled = new AtomicInteger();
+	private final AtomicInteger fallbacks = new AtomicInteger();
+
+	@Override
+	public LuaFunction load(Prototype prototype, String chunkname, LuaValue env) throws IOException {
+		if ( available ) {
+			try {
+				Class<?> cls = classes.get(prototype);
+				if ( cls == null ) {
+					LuaFunction function = LuaJC.instance.load(prototype, chunkname, env);
+					classes.put(prototype, function.getClass());
+					compiled.incrementAndGet();
+					return function;
+				}
+
+				LuaFunction function = (LuaFunction) cls.newInstance();
+				function.initupvalue1(env);
+				return function;
+			} catch(LinkageError e) {
+				// luajc needs BCEL on the classpath
+				System.err.println("Lua compilation unavailable, using the interpreter: " + e);
+				available = false;
+			} catch(Exception e) {
+				fallbacks.incrementAndGet();
+			}
+		}
+
+		return new LuaClosure(prototype, env);
+	}
+
+	/**
+	 * Returns false if luajc could not run at all, in which case every chunk is interpreted.
+	 * @return
+	 */
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * Returns the amount of chunks compiled to classes.
+	 * @return
+	 */
+	public int getCompiledCount() {
+		return compiled.get();
+	}
+
+	/**
+	 * Returns the amount of chunks that failed to compile and were interpreted instead.
+	 * @return
+	 */
+	public int getFallbackCount() {
+		return fallbacks.get();
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.DumpState;
+
+import engine.Game;
+
+/**
+ * Cache of compiled lua chunks, keyed by a hash of the chunk name and source.<br>
+ * Running the same source twice (restarting a script, cloning a LocalScript for every player) only compiles it once.
+ * Compiled chunks can also be written to a directory, so they survive restarts. Off by default: enable it with
+ * {@link #setDiskCacheDirectory(File)}, or {@link #setProjectDiskCache(boolean)} for <code>Cache/Lua</code> inside the open project's
+ * directory. The project's cache is pruned of chunks its scripts no longer compile to whenever the project is saved (see {@link #prune(Set)}).
+ */
+public class LuaChunkCache {
+	private static final int MAX_ENTRIES = 4096;
+	private static final String EXTENSION = ".luac";
+	private static final String PROJECT_CACHE = "Cache" + File.separator + "Lua";
+
+	private static final Map<String, Prototype> prototypes = new LinkedHashMap<String, Prototype>(256, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Prototype> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static volatile File diskCache;
+	private static volatile boolean projectDiskCache;
+	private static final AtomicInteger hits = new AtomicInteger();
+	private static final AtomicInteger diskHits = new AtomicInteger();
+	private static final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Returns a function running the supplied source, with globals as its environment. Compiles it only if it is not cached.
+	 * @param globals
+	 * @param source
+	 * @param chunkname
+	 * @return
+	 * @throws LuaError if the source does not compile.
+	 */
+	public static LuaValue load(Globals globals, String source, String chunkname) {
+		return load(globals, source, chunkname, globals.loader);
+	}
+
+	/**
+	 * Returns a function running the supplied source, with globals as its environment, created by the supplied loader.
+	 * Compiles it only if it is not cached.
+	 * @param globals
+	 * @param source
+	 * @param chunkname
+	 * @param loader turns the compiled chunk into a function (the interpreter, or {@link CompiledChunkLoader}).
+	 * @return
+	 * @throws LuaError if the source does not compile.
+	 */
+	public static LuaValue load(Globals globals, String source, String chunkname, Globals.Loader loader) {
+		Prototype prototype = getPrototype(globals, source, chunkname);
+		try {
+			return loader.load(prototype, chunkname, globals);
+		} catch (IOException e) {
+			throw new LuaError(e);
+		}
+	}
+
+	/**
+	 * Returns the compiled form of the supplied source. Looks in memory, then on disk, and compiles it if neither has it.
+	 * @param globals
+	 * @param source
+	 * @param chunkname
+	 * @return
+	 * @throws LuaError if the source does not compile.
+	 */
+	public static Prototype getPrototype(Globals globals, String source, String chunkname) {
+		String key = hash(chunkname, source);
+
+		synchronized(prototypes) {
+			Prototype prototype = prototypes.get(key);
+			if ( prototype != null ) {
+				hits.incrementAndGet();
+				return prototype;
+			}
+		}
+
+		Prototype prototype = readDisk(globals, key, chunkname);
+		if ( prototype != null ) {
+			diskHits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+			try {
+				prototype = globals.compilePrototype(new StringReader(source), chunkname);
+			} catch (IOException e) {
+				throw new LuaError(e);
+			}
+			writeDisk(key, prototype);
+		}
+
+		synchronized(prototypes) {
+			prototypes.put(key, prototype);
+		}
+		return prototype;
+	}
+
+	/**
+	 * Sets the directory compiled chunks are stored in. Null (the default) uses the project's cache directory if it is enabled, and
+	 * otherwise only caches chunks in memory. This directory is never pruned, so it can be shared.
+	 * @param directory
+	 */
+	public static void setDiskCacheDirectory(File directory) {
+		if ( directory != null )
+			directory.mkdirs();
+
+		diskCache = directory;
+	}
+
+	/**
+	 * Enables or disables storing compiled chunks in the open project's directory. Disabled by default.
+	 * Has no effect while a directory is set through {@link #setDiskCacheDirectory(File)}.
+	 * @param enabled
+	 */
+	public static void setProjectDiskCache(boolean enabled) {
+		projectDiskCache = enabled;
+	}
+
+	/**
+	 * Returns the directory compiled chunks are stored in: the one set through {@link #setDiskCacheDirectory(File)}, otherwise
+	 * <code>Cache/Lua</code> inside the open project's directory if that is enabled. Null if there is neither (or the project is new and
+	 * unsaved), in which case chunks are only cached in memory.
+	 * @return
+	 */
+	public static File getDiskCacheDirectory() {
+		File directory = diskCache;
+		if ( directory != null )
+			return directory;
+
+		String project = Game.saveDirectory;
+		if ( !projectDiskCache || project == null || project.length() == 0 )
+			return null;
+
+		return new File(project, PROJECT_CACHE);
+	}
+
+	/**
+	 * Returns the key a chunk is cached under. See {@link #prune(Set)}.
+	 * @param chunkname
+	 * @param source
+	 * @return
+	 */
+	public static String getKey(String chunkname, String source) {
+		return hash(chunkname, source);
+	}
+
+	/**
+	 * Deletes every chunk in the project's cache directory whose key is not in the supplied set. Called with the keys of the project's
+	 * scripts when it is saved, so edited and removed scripts do not leave their chunks behind.
+	 * Does nothing while a directory is set through {@link #setDiskCacheDirectory(File)}.
+	 * @param keep keys from {@link #getKey(String, String)}.
+	 */
+	public static void prune(Set<String> keep) {
+		if ( diskCache != null )
+			return;
+
+		File directory = getDiskCacheDirectory();
+		File[] files = directory == null ? null : directory.listFiles();
+		if ( files == null )
+			return;
+
+		for (File file : files) {
+			String name = file.getName();
+			if ( !name.endsWith(EXTENSION) || !keep.contains(name.substring(0, name.length() - EXTENSION.length())) )
+				file.delete();
+		}
+	}
+
+	/**
+	 * Drops every chunk cached in memory. The disk cache is kept.
+	 */
+	public static void clear() {
+		synchronized(prototypes) {
+			prototypes.clear();
+		}
+	}
+
+	/**
+	 * Returns the amount of chunks cached in memory.
+	 * @return
+	 */
+	public static int size() {
+		synchronized(prototypes) {
+			return prototypes.size();
+		}
+	}
+
+	/**
+	 * Returns the amount of loads that were answered from memory.
+	 * @return
+	 */
+	public static int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the amount of loads that were answered from the disk cache.
+	 * @return
+	 */
+	public static int getDiskHits() {
+		return diskHits.get();
+	}
+
+	/**
+	 * Returns the amount of loads that had to compile.
+	 * @return
+	 */
+	public static int getMisses() {
+		return misses.get();
+	}
+
+	private static Prototype readDisk(Globals globals, String key, String chunkname) {
+		File directory = getDiskCacheDirectory();
+		if ( directory == null || globals.undumper == null )
+			return null;
+
+		File file = new File(directory, key + EXTENSION);
+		if ( !file.exists() )
+			return null;
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+			return globals.undumper.undump(in, chunkname);
+		} catch (Exception e) {
+			// Corrupt or from an incompatible version. It gets rewritten after compiling.
+			file.delete();
+			return null;
+		}
+	}
+
+	private static void writeDisk(String key, Prototype prototype) {
+		File directory = getDiskCacheDirectory();
+		if ( directory == null || (!directory.isDirectory() && !directory.mkdirs()) )
+			return;
+
+		// Write to a temporary file first, so a crash never leaves a half written chunk behind
+		File file = new File(directory, key + EXTENSION);
+		File temp = new File(directory, key + EXTENSION + ".tmp");
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+			DumpState.dump(prototype, out, false);
+		} catch (Exception e) {
+			temp.delete();
+			return;
+		}
+
+		if ( !temp.renameTo(file) )
+			temp.delete();
+	}
+
+	private static String hash(String chunkname, String source) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(chunkname.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+
+			StringBuilder builder = new StringBuilder(hash.length*2);
+			for (int i = 0; i < hash.length; i++) {
+				builder.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+				builder.append(Character.forDigit(hash[i] & 0xF, 16));
+			}
+			return builder.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// Every java platform ships SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+}
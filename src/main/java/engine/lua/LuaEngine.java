@@ -32,13 +32,37 @@ import engine.util.ClassFinder;
 
 public class LuaEngine {
 	public static Globals globals;
+	
+	private static CompiledChunkLoader compiledLoader;
 
 	public static void initialize() {
 		if ( globals != null )
 			return;
 
+		globals = createGlobals();
+		
+		// Preload object types. They run code to attach themselves to the lua engine.
+		{
+			// load Data types (color/vector/ect)
+			loadDataTypes("engine.lua.type.data");
+			
+			// Register instance types (GameObject/Camera/Etc)
+			loadDataTypes("engine.lua.type.object.insts");
+			loadDataTypes("engine.lua.type.object.insts.ui");
+			loadDataTypes("engine.lua.type.object.insts.animation");
+			loadDataTypes("engine.lua.type.object.insts.values");
+			loadDataTypes("engine.lua.type.object.insts.script");
+			loadDataTypes("engine.lua.type.object.insts.light");
+		}
+	}
+	
+	/**
+	 * Creates globals with the standard libraries and the engine's base library (wait, spawn, delay, print...), but no object types.
+	 * @return
+	 */
+	public static Globals createGlobals() {
 		// Normal Lua defaults
-		globals = new Globals();
+		Globals globals = new Globals();
 		globals.load(new JseBaseLib());
 		globals.load(new PackageLib());
 		globals.load(new Bit32Lib());
@@ -53,20 +77,7 @@ public class LuaEngine {
 		globals.load(new Enums());
 		LoadState.install(globals);
 		LuaC.install(globals);
-		
-		// Preload object types. They run code to attach themselves to the lua engine.
-		{
-			// load Data types (color/vector/ect)
-			loadDataTypes("engine.lua.type.data");
-			
-			// Register instance types (GameObject/Camera/Etc)
-			loadDataTypes("engine.lua.type.object.insts");
-			loadDataTypes("engine.lua.type.object.insts.ui");
-			loadDataTypes("engine.lua.type.object.insts.animation");
-			loadDataTypes("engine.lua.type.object.insts.values");
-			loadDataTypes("engine.lua.type.object.insts.script");
-			loadDataTypes("engine.lua.type.object.insts.light");
-		}
+		return globals;
 	}
 	
 	/**
@@ -103,6 +114,17 @@ public class LuaEngine {
 		}
 	}
 	
+	/**
+	 * Returns the loader that compiles chunks to JVM classes (luajc), used for scripts that set Compiled.
+	 * See {@link ScriptBase#isCompiled()}.
+	 * @return
+	 */
+	public static synchronized CompiledChunkLoader getCompiledLoader() {
+		if ( compiledLoader == null )
+			compiledLoader = new CompiledChunkLoader();
+		return compiledLoader;
+	}
+	
 	public static ScriptRunner runLua(String source) {
 		return runLua(source, null);
 	}
@@ -117,7 +139,8 @@ public class LuaEngine {
 		}
 		
 		try{
-			LuaValue currentChunk = LuaEngine.globals.load(source, name);
+			Globals.Loader loader = owner != null && owner.isCompiled() ? getCompiledLoader() : globals.loader;
+			LuaValue currentChunk = LuaChunkCache.load(globals, source, name, loader);
 			return (ScriptRunner) globals.get("spawn").call(currentChunk, owner); // Run spawn class from GameEngineLib
 		}catch(LuaError e) {
 			// This will only run for syntax errors. Not logical errors.
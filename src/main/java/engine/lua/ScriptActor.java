@@ -0,0 +1,326 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+
+import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
+import engine.lua.type.LuaValuetype;
+import engine.lua.type.ScriptRunner;
+import engine.lua.type.ScriptScheduler;
+
+/**
+ * An isolated lua VM with its own globals, scheduler and thread, for CPU heavy script work that should run in parallel with the game.<br>
+ * <br>
+ * Actors can not see the game. Their globals only hold the standard libraries and the engine's base library (wait, spawn, delay, print, tick).
+ * They talk to the game by message:
+ * <ul>
+ * <li>Game side: {@link #send(Varargs)} (lua: <code>actor:Send(...)</code>) and the {@link #messageEvent()} (lua: <code>actor.Message</code>).</li>
+ * <li>Actor side: <code>actor:Send(...)</code> and <code>actor:OnMessage(function(...) end)</code> on the actor's own <code>actor</code> global.</li>
+ * </ul>
+ * Messages may hold nil, booleans, numbers, strings, value types (Vector3, Color3...) and tables of those. They are copied when sent,
+ * so no lua value is ever shared between two VMs.<br>
+ * <br>
+ * The game thread starts a step of every actor once per tick through {@link #stepAll()}, and never waits for one to finish. An actor whose
+ * step is still running when the next tick comes is skipped, so a CPU heavy actor only slows itself down, never physics, scripts or networking.<br>
+ * Messages sent during a step are held back until the whole step is done, and delivered together on the tick after that. Within a tick,
+ * actors are delivered in the order they were created. The messages (and their order) are therefore the same no matter how many cores run the
+ * actors. Only the tick a step's messages arrive on depends on how long the step took.
+ */
+public class ScriptActor {
+	private static final List<ScriptActor> ACTORS = new CopyOnWriteArrayList<ScriptActor>();
+	private static final AtomicInteger IDS = new AtomicInteger();
+	private static final LuaValue C_ACTOR = LuaKeys.of("actor");
+	private static final LuaValue C_MESSAGE = LuaKeys.of("Message");
+
+	private final Globals globals;
+	private final ScriptScheduler scheduler;
+	private final Thread thread;
+	private final Semaphore stepStart = new Semaphore(0);
+	private volatile boolean stepping;
+
+	private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<Runnable>();
+
+	/**
+	 * Messages sent by the step that is running now. Only touched by the actor's thread (and the coroutines it resumes).
+	 */
+	private List<LuaValue[]> sent = new ArrayList<LuaValue[]>();
+
+	/**
+	 * Messages of finished steps, one list per step, waiting to be delivered on the game thread.
+	 */
+	private final Queue<List<LuaValue[]>> outbox = new ConcurrentLinkedQueue<List<LuaValue[]>>();
+	private final List<LuaValue> handlers = new ArrayList<LuaValue>();
+	private final LuaEvent message = new LuaEvent();
+	private volatile boolean running = true;
+
+	/**
+	 * Creates an actor that runs the supplied source. The source starts on the actor's first step.
+	 * @param source
+	 * @param name chunk name used in errors.
+	 * @return
+	 */
+	public static ScriptActor create(String source, String name) {
+		ScriptActor actor = new ScriptActor();
+		actor.run(source, name);
+		ACTORS.add(actor);
+		return actor;
+	}
+
+	private ScriptActor() {
+		this.globals = LuaEngine.createGlobals();
+		this.scheduler = new ScriptScheduler(globals);
+		this.globals.set(C_ACTOR, createActorTable());
+
+		this.thread = new Thread(this::loop, "ScriptActor-" + IDS.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Called by the game thread every tick. For every actor that finished its last step, in the order the actors were created:
+	 * fires the messages of that step on the calling thread, then starts the actor's next step. Actors still running are skipped.
+	 * Never waits for an actor.
+	 */
+	public static void stepAll() {
+		for (ScriptActor actor : ACTORS) {
+			if ( actor.stepping )
+				continue;
+
+			actor.deliver();
+			actor.stepping = true;
+			actor.stepStart.release();
+		}
+	}
+
+	/**
+	 * Stops every actor.
+	 */
+	public static void stopAll() {
+		for (ScriptActor actor : ACTORS)
+			actor.stop();
+	}
+
+	/**
+	 * Returns the amount of live actors.
+	 * @return
+	 */
+	public static int getActorCount() {
+		return ACTORS.size();
+	}
+
+	/**
+	 * Returns whether the actor is in the middle of a step.
+	 * @return
+	 */
+	public boolean isStepping() {
+		return stepping;
+	}
+
+	/**
+	 * Runs more source inside this actor, on its next step.
+	 * @param source
+	 * @param name chunk name used in errors.
+	 */
+	public void run(String source, String name) {
+		inbox.add(()->{
+			try {
+				LuaValue chunk = LuaChunkCache.load(globals, source, name);
+				ScriptRunner.create(globals, chunk, null, LuaValue.NONE).start();
+			} catch(LuaError e) {
+				LuaEngine.error("[Actor " + name + "], " + e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Sends a message to the actor's OnMessage handlers. The arguments are copied now; the handlers run on the actor's next step.
+	 * @param args
+	 */
+	public void send(Varargs args) {
+		final Varargs copy = LuaValue.varargsOf(copyArgs(args));
+		inbox.add(()->{
+			for (int i = 0; i < handlers.size(); i++)
+				ScriptRunner.create(globals, handlers.get(i), null, copy).start();
+		});
+	}
+
+	/**
+	 * Fired on the game thread with the arguments of every actor:Send(...) made inside the actor.
+	 * @return
+	 */
+	public LuaEvent messageEvent() {
+		return message;
+	}
+
+	/**
+	 * Stops the actor's thread and drops its coroutines.
+	 */
+	public void stop() {
+		if ( !running )
+			return;
+
+		running = false;
+		ACTORS.remove(this);
+		stepStart.release();
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns the lua handle the game uses for this actor: <code>Send</code>, <code>Stop</code> and the <code>Message</code> event.
+	 * @return
+	 */
+	public LuaTable getHandle() {
+		LuaTable handle = new LuaTable();
+		handle.set("Send", new VarArgFunction() {
+			@Override
+			public Varargs invoke(Varargs args) {
+				send(args.subargs(2));
+				return LuaValue.NONE;
+			}
+		});
+		handle.set("Stop", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				stop();
+				return LuaValue.NIL;
+			}
+		});
+		handle.set(C_MESSAGE, message);
+		return handle;
+	}
+
+	private LuaTable createActorTable() {
+		LuaTable table = new LuaTable();
+		table.set("Send", new VarArgFunction() {
+			@Override
+			public Varargs invoke(Varargs args) {
+				sent.add(copyArgs(args.subargs(2)));
+				return LuaValue.NONE;
+			}
+		});
+		table.set("OnMessage", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue function) {
+				handlers.add(function.checkfunction());
+				return LuaValue.NIL;
+			}
+		});
+		return table;
+	}
+
+	private void loop() {
+		while ( true ) {
+			stepStart.acquireUninterruptibly();
+			if ( !running )
+				break;
+
+			try {
+				Runnable runnable;
+				while ( (runnable = inbox.poll()) != null )
+					runnable.run();
+
+				scheduler.step();
+			} catch(Exception e) {
+				e.printStackTrace();
+			}
+
+			// Publish the step's messages before the game thread can see the step as finished
+			if ( !sent.isEmpty() ) {
+				outbox.add(sent);
+				sent = new ArrayList<LuaValue[]>();
+			}
+			stepping = false;
+		}
+
+		scheduler.dispose();
+	}
+
+	private void deliver() {
+		List<LuaValue[]> step;
+		while ( (step = outbox.poll()) != null ) {
+			for (int i = 0; i < step.size(); i++)
+				message.fire(step.get(i));
+		}
+	}
+
+	/**
+	 * Copies message arguments so they can cross into another VM.
+	 */
+	private static LuaValue[] copyArgs(Varargs args) {
+		int amount = args.narg();
+		LuaValue[] values = new LuaValue[amount];
+		for (int i = 0; i < amount; i++)
+			values[i] = copy(args.arg(i+1), new IdentityHashMap<LuaTable, LuaTable>());
+
+		return values;
+	}
+
+	private static LuaValue copy(LuaValue value, Map<LuaTable, LuaTable> copied) {
+		switch(value.type()) {
+			case LuaValue.TNIL:
+			case LuaValue.TBOOLEAN:
+			case LuaValue.TNUMBER:
+			case LuaValue.TSTRING:
+				return value;
+			case LuaValue.TTABLE:
+				if ( value instanceof LuaTable && value.getClass() == LuaTable.class ) {
+					LuaTable table = (LuaTable) value;
+					LuaTable copy = copied.get(table);
+					if ( copy != null )
+						return copy;
+
+					copy = new LuaTable();
+					copied.put(table, copy);
+
+					LuaValue key = LuaValue.NIL;
+					while ( true ) {
+						Varargs next = table.next(key);
+						key = next.arg1();
+						if ( key.isnil() )
+							break;
+
+						copy.rawset(copy(key, copied), copy(next.arg(2), copied));
+					}
+					return copy;
+				}
+				break;
+			default:
+				break;
+		}
+
+		if ( value instanceof LuaValuetype )
+			return ((LuaValuetype) value).clone();
+
+		throw new LuaError("Actor messages can only hold nil, booleans, numbers, strings, value types and tables of those. Got: " + value.typename());
+	}
+}
@@ -10,6 +10,7 @@
 
 package engine.lua.lib;
 
+import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaString;
 import org.luaj.vm2.LuaValue;
@@ -22,6 +23,7 @@ import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.LuaEngine;
 import engine.lua.type.ScriptRunner;
+import engine.lua.type.ScriptScheduler;
 import engine.lua.type.object.ScriptBase;
 
 public class GameEngineLib extends TwoArgFunction {
@@ -34,8 +36,10 @@ public class GameEngineLib extends TwoArgFunction {
 
 	public LuaValue call(LuaValue modname, LuaValue env) {
 		env.set("tick", new tick()); // Returns the elapsed time (seconds) since start of application
-		env.set("spawn", new spawn()); // Spawns a new thread
-		env.set("wait", new wait()); // Sleeps current thread
+		Globals globals = env.checkglobals();
+		env.set("spawn", new spawn(globals)); // Spawns a new thread
+		env.set("wait", new wait(globals)); // Yields current thread
+		env.set("delay", new delay(globals)); // Runs a function after a delay
 		env.set("print", new print(env)); // Override LuaJ's because it doesn't respect multi-threading
 		
 		// math.clamp( value, min, max )
@@ -63,19 +67,50 @@ public class GameEngineLib extends TwoArgFunction {
 	}
 	
 	static final class spawn extends TwoArgFunction {
+		private final Globals globals;
+		
+		spawn(Globals globals) {
+			this.globals = globals;
+		}
+		
 		@Override
 		public LuaValue call(LuaValue function, LuaValue script) {
 			LuaValue.assert_(function.isfunction(), "requires a function argument");
 			ScriptBase s = script instanceof ScriptBase ? (ScriptBase)script : null;
 			
-			ScriptRunner t = ScriptRunner.create(function, s, LuaValue.NONE);
+			ScriptRunner t = ScriptRunner.create(globals, function, s, LuaValue.NONE);
 			t.start();
 			
 			return t;
 		}
 	}
 	
+	static final class delay extends ThreeArgFunction {
+		private final Globals globals;
+		
+		delay(Globals globals) {
+			this.globals = globals;
+		}
+		
+		@Override
+		public LuaValue call(LuaValue time, LuaValue function, LuaValue script) {
+			LuaValue.assert_(function.isfunction(), "requires a function argument");
+			ScriptBase s = script instanceof ScriptBase ? (ScriptBase)script : null;
+			
+			ScriptRunner t = ScriptRunner.create(globals, function, s, LuaValue.NONE);
+			ScriptScheduler.of(globals).delay(time.checkdouble(), t::start);
+			
+			return t;
+		}
+	}
+	
 	static final class wait extends OneArgFunction {
+		private final Globals globals;
+		
+		wait(Globals globals) {
+			this.globals = globals;
+		}
+		
 		@Override
 		public LuaValue call(LuaValue arg) {
 			try {
@@ -83,11 +118,20 @@ public class GameEngineLib extends TwoArgFunction {
 					arg = LuaValue.valueOf(1/60d);
 				}
 				double dt = arg.checkdouble();
-				long time = (long) (dt*1000);
 				
+				// Yield to the scheduler
+				Varargs waited = ScriptScheduler.of(globals).yieldFor(dt);
+				if ( waited != null )
+					return waited.arg1();
+				
+				// Not inside a coroutine, so block the calling thread instead
+				long time = (long) (dt*1000);
 				long start = System.currentTimeMillis();
 				Thread.sleep(time);
 				return LuaValue.valueOf((System.currentTimeMillis()-start)/1000d);
+			} catch (ScriptInterruptException e) {
+				// The script was stopped while waiting
+				throw e;
 			} catch (LuaError e) {
 				e.printStackTrace();
 			} catch(Exception e) {
@@ -10,63 +10,134 @@
 
 package engine.lua.lib;
 
-import java.util.HashMap;
-
+import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaThread;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.DebugLib;
 
-import engine.lua.type.ScriptRunner;
+import engine.lua.type.ScriptScheduler;
+import engine.lua.type.ScriptThread;
 
+/**
+ * Stops coroutines that run past their time budget without yielding, or that were interrupted.<br>
+ * The budget lives on the coroutine ({@link ScriptThread}), and is only checked once every {@link #CHECK_INTERVAL} instructions.<br>
+ * Lua runs on several java threads at once (every coroutine has its own, and events fire on the render and input threads too).
+ * Instruction counts are kept per java thread, and the coroutine checked is the one bound to the executing java thread
+ * ({@link ScriptScheduler#current()}), never the shared {@link Globals#running}, so one thread's work is never charged to another.
+ */
 public class PreventInfiniteInstructions extends DebugLib {
-	private HashMap<Thread,LuaThreadInstructions> instructions;
-	
-	public PreventInfiniteInstructions() {
-		this.instructions = new HashMap<Thread,LuaThreadInstructions>();
+	/**
+	 * Instructions between two checks. Must be a power of two.
+	 */
+	public static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * Coroutines not created by the engine (coroutine.create, the main thread) have no budget of their own.
+	 * They are stopped after this many instructions without a function call instead.
+	 */
+	private static final int UNTRACKED_LIMIT = 100000000;
+
+	/**
+	 * Instruction counters of one java thread. Only ever touched by that thread.
+	 */
+	private static class Counters {
+		private final Thread owner = Thread.currentThread();
+		private int counter;
+		private int lastCall;
+		private int lastSample;
+		private long lastSampleTime = System.nanoTime();
 	}
-	
-	private void check() {
-		Thread c = Thread.currentThread();
-		if ( !instructions.containsKey(c) ) {
-			instructions.put(c, new LuaThreadInstructions());
+
+	private final ThreadLocal<Counters> threadCounters = ThreadLocal.withInitial(Counters::new);
+
+	/**
+	 * Counters of the thread that ran lua last. Saves the thread local lookup while the same thread keeps running.
+	 */
+	private Counters last = new Counters();
+
+	private Globals globals;
+
+	@Override
+	public LuaValue call(LuaValue modname, LuaValue env) {
+		this.globals = env.checkglobals();
+		return super.call(modname, env);
+	}
+
+	private Counters counters() {
+		Counters counters = this.last;
+		if ( counters.owner != Thread.currentThread() ) {
+			counters = threadCounters.get();
+			this.last = counters;
 		}
+		return counters;
 	}
 
 	@Override
 	public void onCall(LuaClosure c, Varargs varargs, LuaValue[] stack) {
-		check();
-		instructions.get(Thread.currentThread()).instructions = 0;
-		
+		Counters counters = counters();
+		counters.lastCall = counters.counter;
 		super.onCall(c, varargs, stack);
 	}
-	
+
 	@Override
 	public void onInstruction(int pc, Varargs v, int top) {
-		check();
-		LuaThreadInstructions inst = instructions.get(Thread.currentThread());
-		
-		// If this thread was interrupted (see below conditional) then throw exception to stop code from running.
-		if (inst.interrupted) {
-			System.out.println("Throwing error on thread: " + Thread.currentThread());
-			instructions.remove(Thread.currentThread());
-			throw new ScriptInterruptException();
+		Counters counters = counters();
+		if ( (++counters.counter & (CHECK_INTERVAL-1)) == 0 )
+			check(counters);
+
+		super.onInstruction(pc, v, top);
+	}
+
+	private void check(Counters counters) {
+		LuaThread current = ScriptScheduler.current();
+
+		// Profiler. Instructions since the last sample on this thread are charged to this one.
+		// LuaJ reads call stacks through the shared globals.running, so skip the sample if another thread moved it.
+		long requested = ScriptProfiler.requestTime;
+		if ( requested != 0 && (current == null || globals.running == current) ) {
+			sample(counters, current, requested);
+		} else if ( !ScriptProfiler.isRunning() ) {
+			counters.lastSample = counters.counter;
 		}
-		
-		// Check if the thread was interrupted or we have too many instructions looping (100 million).
-		if ( inst.instructions > 1.0e8 || ScriptRunner.isInterrupted(Thread.currentThread())) {
-			System.out.println("Cancelling the current closure");
-			inst.interrupted = true;
+
+		if ( current instanceof ScriptThread ) {
+			ScriptThread thread = (ScriptThread)current;
+			if ( thread.checkBudget(System.nanoTime()) ) {
+				System.out.println("Cancelling the current closure on thread: " + Thread.currentThread());
+				throw new ScriptInterruptException();
+			}
+			return;
+		}
+
+		if ( counters.counter - counters.lastCall > UNTRACKED_LIMIT ) {
+			System.out.println("Cancelling the current closure on thread: " + Thread.currentThread());
+			counters.lastCall = counters.counter;
+			throw new ScriptInterruptException();
 		}
-		
-		// Increment instructions by 1
-		inst.instructions++;
-		
-		super.onInstruction(pc, v, top);
 	}
-	
-	static class LuaThreadInstructions {
-		int instructions;
-		boolean interrupted;
+
+	/**
+	 * Takes the profiler's pending sample, charged with the time this thread ran since its last sample.
+	 * Engine coroutines only count from their last resume; a request raised before that was meant for whatever ran then, so it is dropped.
+	 * Other threads have no known start, so they are charged one sampling interval at most.
+	 */
+	private void sample(Counters counters, LuaThread current, long requested) {
+		long now = System.nanoTime();
+		long start;
+		if ( current instanceof ScriptThread ) {
+			start = Math.max(counters.lastSampleTime, ((ScriptThread)current).getSliceStart());
+			if ( requested < start ) {
+				ScriptProfiler.requestTime = 0;
+				return;
+			}
+		} else {
+			start = Math.max(counters.lastSampleTime, now - ScriptProfiler.getInterval());
+		}
+
+		ScriptProfiler.sample(this, current, counters.counter - counters.lastSample, now - start);
+		counters.lastSample = counters.counter;
+		counters.lastSampleTime = now;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,304 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.lib.DebugLib;
+
+import engine.lua.type.ScriptRunner;
+import engine.lua.type.ScriptThread;
+
+/**
+ * Sampling profiler for lua scripts.<br>
+ * A background thread requests a sample every interval. The watchdog ({@link PreventInfiniteInstructions}) takes it at its next check,
+ * and charges the time the taking thread ran since its last sample (or since its coroutine was resumed), plus the instructions run since
+ * the last sample, to the current script, call stack and line. A request raised before the coroutine was resumed is dropped, so a short
+ * script is never charged for time lua spent idle.<br>
+ * Compiled scripts (see {@link engine.lua.type.object.ScriptBase#isCompiled()}) do not run the watchdog, so they are not sampled.
+ */
+public class ScriptProfiler {
+	private static final String JAVA_FRAME = "[Java]";
+
+	/**
+	 * When the pending sample was requested (System.nanoTime()), or 0 if none is pending.
+	 */
+	static volatile long requestTime;
+
+	private static volatile Thread sampler;
+	private static volatile long intervalNanos = 1000000;
+
+	private static final Map<String, Entry> stacks = new HashMap<String, Entry>();
+	private static final Map<String, Entry> lines = new HashMap<String, Entry>();
+
+	/**
+	 * Samples charged to one call stack, or to one line.
+	 */
+	public static class Entry {
+		private final String script;
+		private final String function;
+		private final int line;
+		private long samples;
+		private long instructions;
+		private long nanos;
+
+		private Entry(String script, String function, int line) {
+			this.script = script;
+			this.function = function;
+			this.line = line;
+		}
+
+		public String getScript() {
+			return script;
+		}
+
+		public String getFunction() {
+			return function;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public long getSamples() {
+			return samples;
+		}
+
+		/**
+		 * Estimated instructions run here. Instructions between two samples are charged to the second one.
+		 * @return
+		 */
+		public long getInstructions() {
+			return instructions;
+		}
+
+		/**
+		 * Estimated wall-clock time spent running here, in seconds. Each sample is charged the time its thread ran since the one before.
+		 * @return
+		 */
+		public double getTime() {
+			return nanos / 1.0e9;
+		}
+	}
+
+	/**
+	 * Starts sampling every millisecond.
+	 */
+	public static void start() {
+		start(0.001);
+	}
+
+	/**
+	 * Starts sampling at the supplied interval, in seconds. Does nothing if already running.
+	 * @param interval
+	 */
+	public static synchronized void start(double interval) {
+		if ( sampler != null )
+			return;
+
+		intervalNanos = Math.max(100000, (long)(interval * 1.0e9));
+		sampler = new Thread(()->{
+			while ( sampler == Thread.currentThread() ) {
+				requestTime = System.nanoTime();
+				try {
+					Thread.sleep(intervalNanos / 1000000, (int) (intervalNanos % 1000000));
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}, "ScriptProfiler");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	/**
+	 * Stops sampling. Collected samples are kept.
+	 */
+	public static synchronized void stop() {
+		Thread thread = sampler;
+		sampler = null;
+		requestTime = 0;
+		if ( thread != null )
+			thread.interrupt();
+	}
+
+	public static boolean isRunning() {
+		return sampler != null;
+	}
+
+	/**
+	 * Drops every collected sample.
+	 */
+	public static void reset() {
+		synchronized(stacks) {
+			stacks.clear();
+			lines.clear();
+		}
+	}
+
+	/**
+	 * Returns the maximum time a single sample is charged when the start of the run it measures is not known, in nanoseconds.
+	 * @return
+	 */
+	static long getInterval() {
+		return intervalNanos;
+	}
+
+	/**
+	 * Returns the samples per script, function and line, most expensive first.
+	 * @return
+	 */
+	public static List<Entry> getLines() {
+		List<Entry> result;
+		synchronized(stacks) {
+			result = new ArrayList<Entry>(lines.values());
+		}
+
+		Collections.sort(result, (a, b) -> Long.compare(b.nanos, a.nanos));
+		return result;
+	}
+
+	/**
+	 * Returns the samples in collapsed stack format: one line per call stack, frames from the script down separated by semicolons,
+	 * followed by the microseconds charged to it. This is the input format of the common flame graph tools.
+	 * @return
+	 */
+	public static String toCollapsed() {
+		StringBuilder builder = new StringBuilder();
+		synchronized(stacks) {
+			for (Map.Entry<String, Entry> entry : stacks.entrySet()) {
+				builder.append(entry.getKey());
+				builder.append(' ');
+				builder.append(entry.getValue().nanos / 1000);
+				builder.append('\n');
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Writes {@link #toCollapsed()} to a file.
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void writeCollapsed(File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+			writer.print(toCollapsed());
+		}
+	}
+
+	/**
+	 * Takes the requested sample. Called by the watchdog on the thread running lua.
+	 * @param nanos time the thread ran since its previous sample.
+	 */
+	static void sample(DebugLib debug, LuaThread running, long instructions, long nanos) {
+		requestTime = 0;
+
+		// Frames, innermost first: "chunk:line: in function 'name'"
+		String[] trace = debug.traceback(1).split("\n");
+		List<String> frames = new ArrayList<String>(trace.length);
+		String topFunction = null;
+		String topChunk = null;
+		int topLine = -1;
+		String rootChunk = null;
+		for (int i = 1; i < trace.length; i++) {
+			String frame = trace[i].trim();
+			int split = frame.indexOf(": in ");
+			if ( split == -1 )
+				continue;
+
+			String location = frame.substring(0, split);
+			if ( location.equals(JAVA_FRAME) )
+				continue;
+
+			String function = frame.substring(split+5);
+			if ( function.startsWith("function ") )
+				function = function.substring(9);
+			function = function.replace("'", "");
+
+			int lineSplit = location.lastIndexOf(':');
+			String chunk = lineSplit == -1 ? location : location.substring(0, lineSplit);
+			if ( topFunction == null ) {
+				topFunction = function;
+				topChunk = chunk;
+				topLine = parseLine(location, lineSplit);
+			}
+			rootChunk = chunk;
+
+			frames.add(function + " (" + location + ")");
+		}
+
+		if ( frames.isEmpty() )
+			return;
+
+		String script = getScriptName(running, rootChunk);
+
+		StringBuilder key = new StringBuilder(script.replace(';', ':'));
+		for (int i = frames.size()-1; i >= 0; i--) {
+			key.append(';');
+			key.append(frames.get(i).replace(';', ':'));
+		}
+
+		synchronized(stacks) {
+			String stackKey = key.toString();
+			Entry stack = stacks.get(stackKey);
+			if ( stack == null ) {
+				stack = new Entry(script, topFunction, topLine);
+				stacks.put(stackKey, stack);
+			}
+			stack.samples++;
+			stack.instructions += instructions;
+			stack.nanos += nanos;
+
+			String lineKey = script + "\0" + topChunk + "\0" + topFunction + "\0" + topLine;
+			Entry line = lines.get(lineKey);
+			if ( line == null ) {
+				line = new Entry(script, topFunction, topLine);
+				lines.put(lineKey, line);
+			}
+			line.samples++;
+			line.instructions += instructions;
+			line.nanos += nanos;
+		}
+	}
+
+	/**
+	 * Scripts are named by their full name. Coroutines that do not belong to a script runner (event listeners) fall back to the name of their outermost chunk.
+	 */
+	private static String getScriptName(LuaThread running, String rootChunk) {
+		if ( running instanceof ScriptThread ) {
+			ScriptRunner runner = ((ScriptThread)running).getRunner();
+			if ( runner != null && runner.getScript() != null )
+				return runner.getScript().getFullName();
+		}
+
+		return rootChunk == null ? "?" : rootChunk;
+	}
+
+	private static int parseLine(String location, int split) {
+		if ( split == -1 )
+			return -1;
+
+		try {
+			return Integer.parseInt(location.substring(split+1));
+		} catch(NumberFormatException e) {
+			return -1;
+		}
+	}
+}
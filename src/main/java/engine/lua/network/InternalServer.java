@@ -36,12 +36,17 @@ import engine.lua.network.internal.protocol.ClientLoadMapTCP;
 import engine.lua.network.internal.protocol.InstanceCreateTCP;
 import engine.lua.network.internal.protocol.InstanceDestroyTCP;
 import engine.lua.network.internal.protocol.InstanceUpdateUDP;
+import engine.lua.type.DataModel;
+import engine.lua.type.LuaKeys;
+import engine.lua.type.PropertyChange;
 import engine.lua.type.object.Instance;
+import engine.lua.type.object.PropertyChangeBatchSubscriber;
 import engine.lua.type.object.insts.Player;
 import engine.lua.type.object.services.Connections;
 
 public class InternalServer extends Server {
 	public static Connection syncConnectionException;
+	private PropertyChangeBatchSubscriber changeSubscriber;
 	
 	public InternalServer(int port) {
 		this.start();
@@ -179,9 +184,6 @@ public class InternalServer extends Server {
 			// Create instance packet
 			InstanceCreateTCP sendObject = new InstanceCreateTCP(instance);
 			sendAllTCP(sendObject);
-			
-			// Sync event. If instance changes, send a update packet.
-			syncInstances( instance );
 		});
 		
 		Game.game().descendantRemovedEvent().connect((args) -> {
@@ -193,32 +195,47 @@ public class InternalServer extends Server {
 			});
 		});
 		
-		// This should be replaced in the future. Inherent problem with ALREADY existent instances (bandaid)
-		List<Instance> objects = Game.game().getDescendants();
-		for (int i = 0; i < objects.size(); i++) {
-			syncInstances(objects.get(i));
-		}
+		// Sync changes. One subscriber receives the changes of every instance (coalesced per tick when changes are deferred).
+		changeSubscriber = (changes) -> {
+			syncInstances(changes);
+		};
+		DataModel.attachBatchSubscriber(changeSubscriber);
+	}
+	
+	@Override
+	public void stop() {
+		super.stop();
+		
+		if ( changeSubscriber != null )
+			DataModel.detachBatchSubscriber(changeSubscriber);
+		changeSubscriber = null;
 	}
 
-	private static final LuaValue C_NAME = LuaValue.valueOf("Name");
-	private static final LuaValue C_PARENT = LuaValue.valueOf("Parent");
+	private static final LuaValue C_NAME = LuaKeys.of("Name");
+	private static final LuaValue C_PARENT = LuaKeys.of("Parent");
 	
-	private void syncInstances(Instance instance) {
-		instance.changedEvent().connect((cargs) -> {
-			LuaValue key = cargs[0];
+	private void syncInstances(List<PropertyChange> changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			PropertyChange change = changes.get(i);
+			Instance instance = change.getInstance();
+			LuaValue key = change.getField();
 			if ( instance instanceof NonReplicatable ) {
 				if ( !key.eq_b(C_NAME) && !key.eq_b(C_PARENT) ) {
-					return;
+					continue;
 				}
 			}
 			
+			// Only replicate instances inside the game
+			if ( !instance.isDescendantOf(Game.game()) )
+				continue;
+			
 			InstanceUpdateUDP updateObject = new InstanceUpdateUDP(instance, key);
 			
 			if ( syncConnectionException == null )
 				sendAllUDP(updateObject);
 			else
 				sendAllUDPExcept(updateObject, Game.connections().getConnectionFromKryo(syncConnectionException));
-		});
+		}
 	}
 	
 	public static void sendAllTCP(Object packet) {
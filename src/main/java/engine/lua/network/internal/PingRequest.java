@@ -14,6 +14,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.Game;
 import engine.lua.network.UUIDSerializable;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.insts.Connection;
 
@@ -22,7 +23,7 @@ public class PingRequest {
 	public UUIDSerializable instanceId;
 	public boolean ack;
 	
-	private static final LuaValue C_PING = LuaValue.valueOf("Ping");
+	private static final LuaValue C_PING = LuaKeys.of("Ping");
 	
 	public PingRequest() {
 		originalSendTime = System.currentTimeMillis();
@@ -23,6 +23,7 @@ import engine.lua.network.UUIDSerializable;
 import engine.lua.network.internal.ClientProcessable;
 import engine.lua.network.internal.JSONUtil;
 import engine.lua.network.internal.NonReplicatable;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 
 public class InstanceCreateTCP implements ClientProcessable {
@@ -31,8 +32,8 @@ public class InstanceCreateTCP implements ClientProcessable {
 	public UUIDSerializable instanceUUID;
 
 	private static final String C_PARENTs = "Parent";
-	private static final LuaValue C_CLASSNAME = LuaValue.valueOf("ClassName");
-	private static final LuaValue C_NAME = LuaValue.valueOf("Name");
+	private static final LuaValue C_CLASSNAME = LuaKeys.of("ClassName");
+	private static final LuaValue C_NAME = LuaKeys.of("Name");
 	private static final LuaValue C_PARENT = LuaValue.valueOf(C_PARENTs);
 	
 	public InstanceCreateTCP() {
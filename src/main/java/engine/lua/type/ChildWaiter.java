@@ -0,0 +1,91 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.type.object.Instance;
+
+/**
+ * Waits for a child with a given name or class to appear under a {@link DataModel}. See {@link DataModel#addChildWaiter(ChildWaiter)}.<br>
+ * The parent checks its waiters when a child is added or renamed. A waiter completes exactly once: with the matching child,
+ * or with null through {@link #complete(Instance)} when its owner gives up (timeout).
+ */
+public abstract class ChildWaiter {
+	private final String name;
+	private final LuaValue className;
+	private final AtomicBoolean done = new AtomicBoolean();
+	private volatile DataModel parent;
+
+	/**
+	 * @param name child name to wait for, or null.
+	 * @param className child class to wait for, or null.
+	 */
+	public ChildWaiter(String name, LuaValue className) {
+		this.name = name;
+		this.className = className;
+	}
+
+	/**
+	 * Called once, with the child that matched, or null.
+	 * @param child
+	 */
+	protected abstract void onComplete(Instance child);
+
+	public boolean matches(Instance child) {
+		if ( name != null )
+			return name.equals(child.getName());
+
+		return child.getClassName().eq_b(className);
+	}
+
+	/**
+	 * Completes the waiter and unregisters it. Returns false if it already completed.
+	 * @param child the child that matched, or null.
+	 * @return
+	 */
+	public boolean complete(Instance child) {
+		if ( !done.compareAndSet(false, true) )
+			return false;
+
+		unregister();
+		onComplete(child);
+		return true;
+	}
+
+	/**
+	 * Unregisters the waiter without completing it. Returns false if it already completed.
+	 * @return
+	 */
+	public boolean cancel() {
+		if ( !done.compareAndSet(false, true) )
+			return false;
+
+		unregister();
+		return true;
+	}
+
+	public boolean isDone() {
+		return done.get();
+	}
+
+	void setParent(DataModel parent) {
+		this.parent = parent;
+	}
+
+	private void unregister() {
+		DataModel p = parent;
+		if ( p != null )
+			p.removeChildWaiter(this);
+	}
+}
@@ -10,42 +10,64 @@
 
 package engine.lua.type;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaNumber;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
 import engine.Game;
+import engine.lua.LuaEngine;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.InstancePropertySubscriber;
+import engine.lua.type.object.PropertyChangeBatchSubscriber;
 
 public abstract class DataModel extends LuaDatatype {
 	protected List<Instance> children = Collections.synchronizedList(new ArrayList<Instance>());
-	protected HashSet<Instance> descendents = new HashSet<Instance>();
-	protected List<Instance> descendentsList = Collections.synchronizedList(new ArrayList<Instance>());
+	protected DescendantIndex descendantIndex;
 	protected List<InstancePropertySubscriber> propertySubscribers = Collections.synchronizedList(new ArrayList<InstancePropertySubscriber>());
 	protected HashMap<LuaValue, DataModel> cachedChildrenOfClass = new HashMap<LuaValue, DataModel>();
 	
-	protected static HashMap<String,LuaInstancetypeData> TYPES = new HashMap<String,LuaInstancetypeData>();
+	protected static Map<String,LuaInstancetypeData> TYPES = new ConcurrentHashMap<String,LuaInstancetypeData>();
+	private static Map<String,LuaTable> METHOD_TABLES = new ConcurrentHashMap<String,LuaTable>();
+	
+	private static volatile boolean deferChanges;
+	private static final PropertyChangeQueue CHANGE_QUEUE = new PropertyChangeQueue();
+	private static volatile PropertyChangeBatchSubscriber[] batchSubscribers = new PropertyChangeBatchSubscriber[0];
+	private static final ThreadLocal<HierarchyBatch> HIERARCHY_BATCH = new ThreadLocal<HierarchyBatch>();
 
-	private static final LuaValue C_CHANGED = LuaValue.valueOf("Changed");
-	private static final LuaValue C_DESTROYED = LuaValue.valueOf("Destroyed");
-	private static final LuaValue C_CREATED = LuaValue.valueOf("Created");
-	private static final LuaValue C_CHILDADDED = LuaValue.valueOf("ChildAdded");
-	private static final LuaValue C_CHILDREMOVED = LuaValue.valueOf("ChildRemoved");
-	private static final LuaValue C_DESCENDANTADDED = LuaValue.valueOf("DescendantAdded");
-	private static final LuaValue C_DESCENDANTREMOVED = LuaValue.valueOf("DescendantRemoved");
-	private static final LuaValue C_ARCHIVABLE = LuaValue.valueOf("Archivable");
+	private static final LuaValue C_CHANGED = LuaKeys.of("Changed");
+	private static final LuaValue C_DESTROYED = LuaKeys.of("Destroyed");
+	private static final LuaValue C_CREATED = LuaKeys.of("Created");
+	private static final LuaValue C_CHILDADDED = LuaKeys.of("ChildAdded");
+	private static final LuaValue C_CHILDREMOVED = LuaKeys.of("ChildRemoved");
+	private static final LuaValue C_DESCENDANTADDED = LuaKeys.of("DescendantAdded");
+	private static final LuaValue C_DESCENDANTREMOVED = LuaKeys.of("DescendantRemoved");
+	private static final LuaValue C_ARCHIVABLE = LuaKeys.of("Archivable");
 
-	private static final LuaValue C_CLASSNAME = LuaValue.valueOf("ClassName");
-	private static final LuaValue C_NAME = LuaValue.valueOf("Name");
-	private static final LuaValue C_PARENT = LuaValue.valueOf("Parent");
+	private static final LuaValue C_CLASSNAME = LuaKeys.of("ClassName");
+	private static final LuaValue C_NAME = LuaKeys.of("Name");
+	private static final LuaValue C_PARENT = LuaKeys.of("Parent");
+	private static final LuaValue C_ENUM = LuaKeys.of("Enum");
+	
+	/**
+	 * Upper bound when walking parent pointers. Guards against cycles in a corrupt hierarchy.
+	 */
+	private static final int MAX_DEPTH = 4096;
+	private static final ChildWaiter[] NO_WAITERS = new ChildWaiter[0];
 	
 	protected UUID uuid;
 	
@@ -54,18 +76,41 @@ public abstract class DataModel extends LuaDatatype {
 	protected boolean created;
 	
 	private String internalName;
+	private LuaInstancetypeData typeData;
+	private volatile PropertyChangeQueue coalesced;
+	private volatile ChildWaiter[] childWaiters = NO_WAITERS;
 	
 	public class LuaInstancetypeData {
 		public Class<?> instanceableClass;
 		boolean instanceable = true;
+		private final Set<String> ancestors;
 
-		LuaInstancetypeData( Class<?> cls ) {
+		LuaInstancetypeData( String name, Class<?> cls ) {
 			this.instanceableClass = cls;
+			
+			// Record every class-name this type "IsA". Abstract bases are never registered themselves, so use their java names.
+			Set<String> t = new HashSet<String>();
+			t.add(name);
+			Class<?> current = cls.getSuperclass();
+			while ( current != null && current != DataModel.class ) {
+				t.add(current.getSimpleName());
+				current = current.getSuperclass();
+			}
+			this.ancestors = Collections.unmodifiableSet(t);
 		}
 
 		public boolean isInstanceable() {
 			return this.instanceable;
 		}
+		
+		/**
+		 * Returns whether this type is, or extends, the supplied class-name.
+		 * @param className
+		 * @return
+		 */
+		public boolean isA(String className) {
+			return ancestors.contains(className);
+		}
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -84,11 +129,10 @@ public abstract class DataModel extends LuaDatatype {
 
 	public DataModel(String name) {
 		if ( !TYPES.containsKey(name) ) {
-			TYPES.put(name, new LuaInstancetypeData(this.getClass()));
+			TYPES.putIfAbsent(name, new LuaInstancetypeData(name, this.getClass()));
 		}
-		LuaTable table = new LuaTable();
-		table.set(LuaValue.INDEX, table);
-		this.setmetatable(table);
+		this.typeData = TYPES.get(name);
+		this.setmetatable(getMethodTable(name));
 
 		this.defineField(C_NAME,		LuaValue.valueOf(name), false).addFlag(LuaFieldFlag.CORE_FIELD);
 		this.defineField(C_CLASSNAME,	LuaValue.valueOf(name), true).addFlag(LuaFieldFlag.CORE_FIELD);
@@ -113,6 +157,60 @@ public abstract class DataModel extends LuaDatatype {
 		return super.setmetatable(metatable);
 	}
 	
+	/**
+	 * Returns the metatable shared by every DataModel with the given class-name.<br>
+	 * The table is built the first time the class is constructed, via {@link #onRegisterMethods(LuaTable)}.
+	 * @param className
+	 * @return
+	 */
+	private LuaTable getMethodTable(String className) {
+		LuaTable table = METHOD_TABLES.get(className);
+		if ( table != null )
+			return table;
+		
+		LuaTable methods = new LuaTable();
+		this.onRegisterMethods(methods);
+		
+		// Store the interned method names
+		table = new LuaTable();
+		LuaValue key = LuaValue.NIL;
+		while ( true ) {
+			Varargs next = methods.next(key);
+			key = next.arg1();
+			if ( key.isnil() )
+				break;
+			
+			table.rawset(LuaKeys.intern(key), next.arg(2));
+		}
+		table.set(LuaValue.INDEX, table);
+		
+		LuaTable existing = METHOD_TABLES.putIfAbsent(className, table);
+		return existing != null ? existing : table;
+	}
+	
+	/**
+	 * Register the lua methods for this class. This is called once per class-name, and the resulting table is shared by all DataModels of that class.<br>
+	 * Methods must not capture the object being constructed. The calling DataModel is passed in as the first argument (self).<br>
+	 * Subclasses should call super to inherit the methods of their parent class.
+	 * @param methods
+	 */
+	protected void onRegisterMethods(LuaTable methods) {
+		//
+	}
+
+	/**
+	 * Returns the self argument of a shared lua method as the supplied type.<br>
+	 * Raises a lua error if the method was not called on an object of that type, e.g. <code>obj.Method()</code> instead of <code>obj:Method()</code>.
+	 * @param myself
+	 * @param type
+	 * @return
+	 */
+	protected static <T extends DataModel> T checkInstance(LuaValue myself, Class<T> type) {
+		if ( !type.isInstance(myself) )
+			LuaValue.error("Expected ':' not '.' calling member function (self is " + myself.typename() + ", expected " + type.getSimpleName() + ")");
+		return type.cast(myself);
+	}
+	
 	/**
 	 * Returns whether or not the DataModel is archivable. An archivable DataModel will not be written to disk when saved.
 	 * @return
@@ -174,7 +272,7 @@ public abstract class DataModel extends LuaDatatype {
 
 	@Override
 	public void set(String key, LuaValue value) {
-		this.set(LuaValue.valueOf(key), value);
+		this.set(LuaKeys.get(key), value);
 	}
 	
 	@Override
@@ -182,23 +280,32 @@ public abstract class DataModel extends LuaDatatype {
 		if ( this.destroyed )
 			return;
 		
-		LuaValue oldValue = this.rawget(key);
-		boolean changed = !checkEquals( value, oldValue);
+		if ( key.eq_b(C_PARENT) )
+			checkParent(value);
 		
+		setCheckedValue(key, checkValue(key, value, null));
+	}
+	
+	private void checkParent(LuaValue value) {
 		// Prevent setting parent to self
-		if ( key.eq_b(C_PARENT) && value == this ) {
+		if ( value == this ) {
 			throw new LuaError("Instance cannot be its own parent.");
 		}
 		
 		// Prevent setting parent to its child
-		if ( key.eq_b(C_PARENT) && value instanceof DataModel ) {
+		if ( value instanceof DataModel ) {
 			DataModel t = (DataModel)value;
-			if ( this.descendents.contains(t) ) {
+			if ( t.isDescendantOf(this) ) {
 				throw new LuaError("Instance cannot become its childs' child.");
 			}
 		}
+	}
+	
+	private void setCheckedValue(LuaValue key, LuaValue value) {
+		LuaValue oldValue = this.rawget(key);
+		boolean changed = !checkEquals( value, oldValue);
 		
-		super.set( key, value );
+		setChecked( key, value );
 		
 		checkSetParent(key, oldValue, value); // value may have changed
 		checkSetName(key, oldValue, value); // value may have changed
@@ -212,6 +319,111 @@ public abstract class DataModel extends LuaDatatype {
 		}
 	}
 	
+	/**
+	 * Sets many fields from a table of field name to value.<br>
+	 * Every entry is validated before anything is written, so one bad entry leaves the object untouched. Parent is set last.<br>
+	 * The changes are dispatched together, once every field is written. In deferred mode (see {@link #setDeferChanges(boolean)}) they go
+	 * into the per-tick dirty set instead, like any other change.
+	 * @param properties
+	 */
+	public void setProperties(LuaTable properties) {
+		setCheckedProperties(checkProperties(properties));
+	}
+	
+	/**
+	 * Validates a table of field name to value against this object. See {@link #setProperties(LuaTable)}.
+	 * @param properties
+	 * @return alternating names and checked values, Parent last. Can be applied to any object of the same class through {@link #setCheckedProperties(LuaValue[])}.
+	 */
+	protected LuaValue[] checkProperties(LuaTable properties) {
+		LuaValue enums = LuaEngine.globals.get(C_ENUM);
+		List<LuaValue> checked = new ArrayList<LuaValue>();
+		LuaValue parent = null;
+		
+		LuaValue key = LuaValue.NIL;
+		while ( true ) {
+			Varargs next = properties.next(key);
+			key = next.arg1();
+			if ( key.isnil() )
+				break;
+			
+			LuaValue value = next.arg(2);
+			if ( key.eq_b(C_PARENT) ) {
+				checkParent(value);
+				parent = checkValue(key, value, enums);
+				continue;
+			}
+			
+			checked.add(key);
+			checked.add(checkValue(key, value, enums));
+		}
+		
+		if ( parent != null ) {
+			checked.add(C_PARENT);
+			checked.add(parent);
+		}
+		
+		return checked.toArray(new LuaValue[checked.size()]);
+	}
+	
+	/**
+	 * Writes the result of {@link #checkProperties(LuaTable)}, then dispatches the changes as one batch. See {@link #setProperties(LuaTable)}.
+	 * @param checked
+	 */
+	protected void setCheckedProperties(LuaValue[] checked) {
+		setCheckedProperties(Collections.singletonList(this), checked);
+	}
+	
+	/**
+	 * Writes the result of {@link #checkProperties(LuaTable)} to every object, then dispatches all of their changes as one batch.
+	 * In deferred mode the changes go into the per-tick dirty set instead.
+	 * @param objects
+	 * @param checked
+	 */
+	protected static void setCheckedProperties(List<? extends DataModel> objects, LuaValue[] checked) {
+		PropertyChangeQueue batch = deferChanges ? CHANGE_QUEUE : new PropertyChangeQueue();
+		for (int i = 0; i < objects.size(); i++) {
+			DataModel object = objects.get(i);
+			if ( object.destroyed )
+				continue;
+			
+			object.coalesced = batch;
+			try {
+				for (int j = 0; j < checked.length; j += 2) {
+					object.setCheckedValue(checked[j], checked[j+1]);
+				}
+			} finally {
+				object.coalesced = null;
+			}
+		}
+		
+		if ( batch != CHANGE_QUEUE )
+			dispatchChanges(batch.drain());
+	}
+	
+	/**
+	 * Returns a table of field name to value.
+	 * @param names list of field names, or nil for every field.
+	 * @return
+	 */
+	public LuaTable getProperties(LuaValue names) {
+		LuaTable result = new LuaTable();
+		if ( names.isnil() ) {
+			LuaValue[] fields = this.getFieldNamesOrdered();
+			for (int i = 0; i < fields.length; i++) {
+				result.rawset(fields[i], this.get(fields[i]));
+			}
+			return result;
+		}
+		
+		LuaTable list = names.checktable();
+		for (int i = 1; i <= list.length(); i++) {
+			LuaValue name = list.get(i);
+			result.rawset(name, this.get(name));
+		}
+		return result;
+	}
+	
 	@Override
 	public void rawset(LuaValue key, LuaValue value) {
 		super.rawset(key, value);
@@ -221,7 +433,7 @@ public abstract class DataModel extends LuaDatatype {
 	}
 	
 	public void forceset(String key, LuaValue value) {
-		forceset(LuaValue.valueOf(key),value);
+		forceset(LuaKeys.get(key),value);
 	}
 	
 	public void forceset(LuaValue key, LuaValue value) {
@@ -267,32 +479,120 @@ public abstract class DataModel extends LuaDatatype {
 		if ( object.isnil() && this.getParent().isnil() )
 			return true;
 		
-		if ( object.isnil() )
+		if ( object.isnil() || object == this )
 			return false;
 		
-		DataModel inst = (DataModel)object;
-		return inst.descendents.contains(this);
+		// Walk up our parent pointers looking for the object
+		LuaValue current = this.rawget(C_PARENT);
+		int tries = 0;
+		while ( current instanceof DataModel && tries < MAX_DEPTH ) {
+			if ( current == object )
+				return true;
+			
+			current = current.rawget(C_PARENT);
+			tries++;
+		}
+		
+		return false;
 	}
 	
 	/**
-	 * Returns an un-modifyable list of descendants.
+	 * Returns a new list containing all descendants, in depth-first order (parents before their children).
 	 * @return
 	 */
 	public List<Instance> getDescendants() {
-		/*ArrayList<Instance> d = new ArrayList<Instance>();
-		synchronized(descendents) {
-			Iterator<Instance> it = descendents.iterator();
-			while ( it.hasNext() ) {
-				d.add(it.next());
-			}
+		final List<Instance> ret = new ArrayList<Instance>();
+		forEachDescendant((descendant)->{
+			ret.add(descendant);
+		});
+		
+		return ret;
+	}
+	
+	/**
+	 * Runs the consumer for every descendant of this DataModel, in depth-first order (parents before their children).<br>
+	 * Descendants are read straight from the children lists, so no list of descendants is built.
+	 * @param consumer
+	 */
+	public void forEachDescendant(Consumer<Instance> consumer) {
+		ArrayDeque<Instance> stack = new ArrayDeque<Instance>();
+		pushChildren(this, stack);
+		
+		while ( !stack.isEmpty() ) {
+			Instance current = stack.pop();
+			consumer.accept(current);
+			pushChildren(current, stack);
 		}
-		return d;*/
+	}
+	
+	/**
+	 * Start maintaining a class index of this DataModels descendants. Used by subtree roots (game, services) that are
+	 * queried every frame. See {@link #forEachDescendantOfClass(Class, Consumer)}.
+	 */
+	protected void enableDescendantIndex() {
+		if ( this.descendantIndex != null )
+			return;
 		
-		return new ArrayList<Instance>(descendentsList);
+		final DescendantIndex index = new DescendantIndex();
+		forEachDescendant((descendant)->{
+			index.add(descendant);
+		});
+		this.descendantIndex = index;
 	}
 	
-	public List<Instance> getDescendantsUnsafe() {
-		return this.descendentsList;
+	/**
+	 * Runs the consumer for every descendant that is an instance of the supplied class (or interface).<br>
+	 * If this DataModel keeps a descendant index only matching instances are visited, from a snapshot of the index (see {@link DescendantIndex#forEach(Class, Consumer)}).
+	 * Otherwise this falls back to a walk of the whole subtree.
+	 * @param type
+	 * @param consumer
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void forEachDescendantOfClass(final Class<T> type, final Consumer<? super T> consumer) {
+		DescendantIndex index = this.descendantIndex;
+		if ( index != null ) {
+			index.forEach(type, consumer);
+			return;
+		}
+		
+		forEachDescendant((descendant)->{
+			if ( type.isInstance(descendant) )
+				consumer.accept((T) descendant);
+		});
+	}
+	
+	/**
+	 * Returns a list of descendants whos class name matches the desired class name.
+	 * @param className
+	 * @return
+	 */
+	public List<Instance> getDescendantsOfClass(LuaValue className) {
+		final List<Instance> ret = new ArrayList<Instance>();
+		
+		DescendantIndex index = this.descendantIndex;
+		LuaInstancetypeData type = TYPES.get(className.toString());
+		if ( index != null && type != null ) {
+			index.getExact(type.instanceableClass, ret);
+			return ret;
+		}
+		
+		forEachDescendant((descendant)->{
+			if ( descendant.getClassName().eq_b(className) )
+				ret.add(descendant);
+		});
+		
+		return ret;
+	}
+	
+	private static void pushChildren(DataModel parent, ArrayDeque<Instance> stack) {
+		List<Instance> children = parent.children;
+		synchronized(children) {
+			for (int i = children.size()-1; i >= 0; i--) {
+				Instance child = children.get(i);
+				if ( child != null )
+					stack.push(child);
+			}
+		}
 	}
 	
 	/**
@@ -317,33 +617,171 @@ public abstract class DataModel extends LuaDatatype {
 		if ( this.destroyed )
 			return;
 		
+		// Parent changes are dispatched once when the hierarchy batch closes
+		if ( key.eq_b(C_PARENT) && HIERARCHY_BATCH.get() != null )
+			return;
+		
 		this.onValueUpdated(key, value);
 		Game.changes = true;
 		
+		// Inside setProperties: dispatched with the rest of the batch
+		PropertyChangeQueue coalesced = this.coalesced;
+		if ( coalesced != null ) {
+			coalesced.record((Instance) this, key, value, oldValue);
+			return;
+		}
+		
+		// Deferred mode: dispatched with the rest of the tick's changes
+		if ( deferChanges ) {
+			CHANGE_QUEUE.record((Instance) this, key, value, oldValue);
+			return;
+		}
+		
 		LuaEvent event = this.changedEvent();
 		if ( event != null ) {
 			event.fire(key, value, oldValue);
 			notifyPropertySubscribers(key, value);
 		}
+		
+		PropertyChangeBatchSubscriber[] subscribers = batchSubscribers;
+		if ( subscribers.length > 0 ) {
+			List<PropertyChange> changes = Collections.singletonList(new PropertyChange((Instance) this, key, value, oldValue));
+			for (int i = 0; i < subscribers.length; i++) {
+				subscribers[i].onPropertyChanges(changes);
+			}
+		}
 	}
 	
-	private boolean computeDescendant( LuaValue arg ) {
-
-		int tries = 0;
-		LuaValue current = this;
-		if ( current.equals(arg) ) {
-			return false;
+	/**
+	 * Enables or disables deferred change dispatch.<br>
+	 * While enabled, the Changed event and property subscribers are not called on every set. Instead each changed field is
+	 * recorded once per Instance (last value wins) and dispatched in {@link #flushChanges()}, which the game thread calls once per tick.
+	 * Disabling flushes anything still pending.
+	 * @param defer
+	 */
+	public static void setDeferChanges(boolean defer) {
+		deferChanges = defer;
+		if ( !defer )
+			flushChanges();
+	}
+	
+	public static boolean isDeferringChanges() {
+		return deferChanges;
+	}
+	
+	/**
+	 * Dispatches every change recorded since the last flush. Changes whose final value equals their original value are dropped.
+	 */
+	public static void flushChanges() {
+		dispatchChanges(CHANGE_QUEUE.drain());
+	}
+	
+	/**
+	 * Fires the Changed events and property subscribers of each change, then hands the ones that happened to the batch subscribers.
+	 */
+	private static void dispatchChanges(List<PropertyChange> changes) {
+		if ( changes == null )
+			return;
+		
+		List<PropertyChange> dispatched = new ArrayList<PropertyChange>(changes.size());
+		for (int i = 0; i < changes.size(); i++) {
+			PropertyChange change = changes.get(i);
+			Instance instance = change.getInstance();
+			if ( instance.destroyed || instance.checkEquals(change.getValue(), change.getOldValue()) )
+				continue;
+			
+			LuaEvent event = instance.changedEvent();
+			if ( event != null ) {
+				event.fire(change.getField(), change.getValue(), change.getOldValue());
+				instance.notifyPropertySubscribers(change.getField(), change.getValue());
+			}
+			dispatched.add(change);
 		}
-
-		while ( !current.isnil() && tries < 64 ) {
-			tries++;
-			if ( current.equals(arg) ) {
-				return true;
+		
+		PropertyChangeBatchSubscriber[] subscribers = batchSubscribers;
+		if ( dispatched.size() == 0 )
+			return;
+		
+		for (int i = 0; i < subscribers.length; i++) {
+			subscribers[i].onPropertyChanges(dispatched);
+		}
+	}
+	
+	/**
+	 * Attaches a subscriber that receives the field changes of every Instance. See {@link PropertyChangeBatchSubscriber}.
+	 * @param subscriber
+	 */
+	public static void attachBatchSubscriber(PropertyChangeBatchSubscriber subscriber) {
+		synchronized(CHANGE_QUEUE) {
+			PropertyChangeBatchSubscriber[] old = batchSubscribers;
+			PropertyChangeBatchSubscriber[] t = new PropertyChangeBatchSubscriber[old.length+1];
+			System.arraycopy(old, 0, t, 0, old.length);
+			t[old.length] = subscriber;
+			batchSubscribers = t;
+		}
+	}
+	
+	public static void detachBatchSubscriber(PropertyChangeBatchSubscriber subscriber) {
+		synchronized(CHANGE_QUEUE) {
+			List<PropertyChangeBatchSubscriber> t = new ArrayList<PropertyChangeBatchSubscriber>();
+			for (PropertyChangeBatchSubscriber s : batchSubscribers) {
+				if ( s != subscriber )
+					t.add(s);
 			}
-			current = current.rawget(C_PARENT);
+			batchSubscribers = t.toArray(new PropertyChangeBatchSubscriber[t.size()]);
+		}
+	}
+	
+	/**
+	 * Registers a waiter that is completed the next time a matching child is added to this object, or a child is renamed to match.
+	 * Children that already exist are not checked; look for them after registering.
+	 * @param waiter
+	 */
+	public void addChildWaiter(ChildWaiter waiter) {
+		waiter.setParent(this);
+		synchronized(this) {
+			ChildWaiter[] old = childWaiters;
+			ChildWaiter[] t = new ChildWaiter[old.length+1];
+			System.arraycopy(old, 0, t, 0, old.length);
+			t[old.length] = waiter;
+			childWaiters = t;
+		}
+	}
+	
+	protected void removeChildWaiter(ChildWaiter waiter) {
+		synchronized(this) {
+			ChildWaiter[] old = childWaiters;
+			for (int i = 0; i < old.length; i++) {
+				if ( old[i] != waiter )
+					continue;
+				
+				if ( old.length == 1 ) {
+					childWaiters = NO_WAITERS;
+				} else {
+					ChildWaiter[] t = new ChildWaiter[old.length-1];
+					System.arraycopy(old, 0, t, 0, i);
+					System.arraycopy(old, i+1, t, i, old.length-i-1);
+					childWaiters = t;
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the amount of waiters registered through {@link #addChildWaiter(ChildWaiter)}.
+	 * @return
+	 */
+	public int getChildWaiterCount() {
+		return childWaiters.length;
+	}
+	
+	private void notifyChildWaiters(Instance child) {
+		ChildWaiter[] waiters = childWaiters;
+		for (int i = 0; i < waiters.length; i++) {
+			if ( waiters[i].matches(child) )
+				waiters[i].complete(child);
 		}
-
-		return false;
 	}
 	
 	private void checkSetName(LuaValue key, LuaValue oldName, LuaValue newName) {
@@ -364,9 +802,11 @@ public abstract class DataModel extends LuaDatatype {
 				if ( currentParent.rawget(newName).isnil() ) {
 					((DataModel)currentParent).updateChildPointer(newName, this);
 				}
+				
+				((DataModel)currentParent).notifyChildWaiters((Instance) this);
 			}
 			
-			Game.getGame().gameUpdate(false);
+			requestHierarchyUpdate();
 		}
 	}
 
@@ -385,10 +825,23 @@ public abstract class DataModel extends LuaDatatype {
 			
 			String name = this.getName();
 			
+			// Inside a hierarchy batch, events and descendant bookkeeping wait until the batch closes
+			HierarchyBatch batch = HIERARCHY_BATCH.get();
+			if ( batch != null )
+				batch.recordMove(this, oldParent);
+			boolean dispatch = batch == null;
+			
+			// Ancestors we leave, and ancestors we join. Ancestors in both chains see no change.
+			List<DataModel> oldAncestors = dispatch ? getAncestorChain(oldParent) : null;
+			List<DataModel> newAncestors = dispatch ? getAncestorChain(newParent) : null;
+			List<Instance> subtree = null;
+			
 			// Check for descendant removed
-			descendantRemoved(oldParent);
-			for (int i = 0; i < descendentsList.size(); i++) {
-				((DataModel)descendentsList.get(i)).descendantRemoved(oldParent);
+			if ( dispatch && hasAncestorNotIn(oldAncestors, newAncestors) ) {
+				subtree = getSubtree();
+				for (int i = 0; i < subtree.size(); i++) {
+					((DataModel)subtree.get(i)).descendantRemoved(oldAncestors, newAncestors);
+				}
 			}
 			
 			// Add self to new parent
@@ -408,13 +861,16 @@ public abstract class DataModel extends LuaDatatype {
 				//}
 				
 				// Fire added event
-				newParInst.childAddedEvent().fire(this);
+				if ( dispatch )
+					newParInst.childAddedEvent().fire(this);
 	
 				// Fire descendant added event
-				boolean forceAdd = oldParent.isnil();
-				descendantAdded(newParInst, forceAdd);
-				for (int i = 0; i < descendentsList.size(); i++) {
-					((DataModel)descendentsList.get(i)).descendantAdded(newParInst, forceAdd);
+				if ( dispatch && hasAncestorNotIn(newAncestors, oldAncestors) ) {
+					if ( subtree == null )
+						subtree = getSubtree();
+					for (int i = 0; i < subtree.size(); i++) {
+						((DataModel)subtree.get(i)).descendantAdded(newAncestors, oldAncestors);
+					}
 				}
 				
 				// Set cached children of class lookup table FOR this class
@@ -425,6 +881,8 @@ public abstract class DataModel extends LuaDatatype {
 				// Add new reference
 				if ( newParInst.rawget(name).isnil() )
 					newParInst.updateChildPointer( LuaValue.valueOf(name), this );
+				
+				((DataModel)newParInst).notifyChildWaiters((Instance) this);
 			}
 			
 			// Delete self from old parent reference
@@ -456,55 +914,242 @@ public abstract class DataModel extends LuaDatatype {
 				}
 				
 				// Child has finished being removed. Fire event.
-				((Instance) oldParent).childRemovedEvent().fire(this);
+				if ( dispatch )
+					((Instance) oldParent).childRemovedEvent().fire(this);
 			}
-			Game.getGame().gameUpdate(true);
+			
+			// Let everything that moved react to its new ancestry
+			if ( dispatch ) {
+				if ( subtree == null )
+					subtree = getSubtree();
+				for (int i = 0; i < subtree.size(); i++) {
+					((DataModel)subtree.get(i)).onAncestryChanged();
+				}
+			}
+			
+			requestHierarchyUpdate();
 		}
 	}
-
-	private void descendantRemoved(LuaValue root) {
-		if ( root == null || root.isnil() || !(root instanceof Instance) )
+	
+	/**
+	 * Notifies {@link Game#hierarchyUpdate()} subscribers, or marks the open hierarchy batch to do so when it closes.
+	 */
+	private static void requestHierarchyUpdate() {
+		HierarchyBatch batch = HIERARCHY_BATCH.get();
+		if ( batch != null ) {
+			batch.hierarchyUpdate = true;
 			return;
+		}
 		
-		DataModel r = (Instance)root;
-		if ( r.descendents.contains(this) ) {
-			boolean isStillDescendent = this.computeDescendant(r);
-			
-			if (!isStillDescendent) {
-				if ( !r.destroyed ) {
-					r.descendantRemovedEvent().fire(this);
-					r.descendents.remove(this);
-					r.descendentsList.remove(this);
-					descendantRemoved(r.getParent());
-				}
-			}
+		Game.getGame().hierarchyUpdate();
+	}
+	
+	/**
+	 * Opens a hierarchy batch on the current thread. Batches may be nested; only the outermost {@link #endHierarchyBatch()} applies it.<br>
+	 * While open, reparenting still updates children lists and name pointers immediately, but ChildAdded/ChildRemoved,
+	 * DescendantAdded/DescendantRemoved, Parent changes, descendant indices and hierarchy updates are held back.
+	 * Other threads may see stale descendant indices until the batch closes.
+	 */
+	public static void beginHierarchyBatch() {
+		HierarchyBatch batch = HIERARCHY_BATCH.get();
+		if ( batch == null ) {
+			batch = new HierarchyBatch();
+			HIERARCHY_BATCH.set(batch);
 		}
+		batch.depth++;
 	}
-
+	
 	/**
-	 * add THIS datamodel as a descendant of all its ancestors recursively.
-	 * @param root
+	 * Closes the current hierarchy batch. When the outermost batch closes, every moved object is compared against the parent
+	 * it had when the batch opened, and events are fired once for the net change.
 	 */
-	private void descendantAdded(LuaValue root, boolean force) {
-		if ( root == null || root.isnil() || !(root instanceof Instance) )
+	public static void endHierarchyBatch() {
+		HierarchyBatch batch = HIERARCHY_BATCH.get();
+		if ( batch == null )
 			return;
 		
-		DataModel r = (DataModel)root;
-		if ( r.destroyed )
+		if ( --batch.depth > 0 )
 			return;
 		
-		if ( force || !r.descendents.contains(this) ) {
-			r.descendantAddedEvent().fire(this);
-			r.descendents.add((Instance) this);
-			r.descendentsList.add((Instance) this);
-			//System.out.println(this.getName() + " was added as descendent to " + r.getFullName());
+		HIERARCHY_BATCH.remove();
+		applyHierarchyBatch(batch);
+	}
+	
+	private static void applyHierarchyBatch(HierarchyBatch batch) {
+		List<DataModel> moved = batch.getMoved();
+		
+		// Everything whose ancestry may have changed: the current subtree of each moved object. Parents before children.
+		List<Instance> affected = new ArrayList<Instance>();
+		Map<Instance, Boolean> seen = new IdentityHashMap<Instance, Boolean>();
+		for (int i = 0; i < moved.size(); i++) {
+			List<Instance> subtree = moved.get(i).getSubtree();
+			for (int j = 0; j < subtree.size(); j++) {
+				Instance t = subtree.get(j);
+				if ( seen.put(t, Boolean.TRUE) == null )
+					affected.add(t);
+			}
 		}
 		
-		LuaValue parent = r.getParent();
-		if ( parent == root )
-			return;
+		// Ancestor chains before and after the batch
+		List<List<DataModel>> oldChains = new ArrayList<List<DataModel>>(affected.size());
+		List<List<DataModel>> newChains = new ArrayList<List<DataModel>>(affected.size());
+		for (int i = 0; i < affected.size(); i++) {
+			DataModel t = affected.get(i);
+			oldChains.add(getOriginalAncestorChain(batch, batch.getOriginalParent(t)));
+			newChains.add(getAncestorChain(t.rawget(C_PARENT)));
+		}
+		
+		// Child removed / added, once per object whose parent actually changed
+		for (int i = 0; i < moved.size(); i++) {
+			DataModel t = moved.get(i);
+			LuaValue oldParent = batch.getOriginalParent(t);
+			LuaValue newParent = t.rawget(C_PARENT);
+			if ( oldParent == newParent )
+				continue;
+			
+			if ( oldParent instanceof Instance && !((Instance) oldParent).destroyed )
+				((Instance) oldParent).childRemovedEvent().fire(t);
+		}
+		
+		for (int i = 0; i < affected.size(); i++) {
+			((DataModel)affected.get(i)).descendantRemoved(oldChains.get(i), newChains.get(i));
+		}
 		
-		descendantAdded(parent, force);
+		for (int i = 0; i < moved.size(); i++) {
+			DataModel t = moved.get(i);
+			LuaValue oldParent = batch.getOriginalParent(t);
+			LuaValue newParent = t.rawget(C_PARENT);
+			if ( oldParent == newParent )
+				continue;
+			
+			if ( newParent instanceof Instance && !((Instance) newParent).destroyed )
+				((Instance) newParent).childAddedEvent().fire(t);
+		}
+		
+		for (int i = 0; i < affected.size(); i++) {
+			((DataModel)affected.get(i)).descendantAdded(newChains.get(i), oldChains.get(i));
+		}
+		
+		// Parent changed
+		for (int i = 0; i < moved.size(); i++) {
+			DataModel t = moved.get(i);
+			LuaValue oldParent = batch.getOriginalParent(t);
+			LuaValue newParent = t.rawget(C_PARENT);
+			if ( oldParent != newParent )
+				t.onKeyChange(C_PARENT, newParent, oldParent);
+		}
+		
+		for (int i = 0; i < affected.size(); i++) {
+			((DataModel)affected.get(i)).onAncestryChanged();
+		}
+		
+		if ( batch.hierarchyUpdate )
+			Game.getGame().hierarchyUpdate();
+	}
+	
+	/**
+	 * Same as {@link #getAncestorChain(LuaValue)}, but follows the parents objects had when the batch was opened.
+	 */
+	private static List<DataModel> getOriginalAncestorChain(HierarchyBatch batch, LuaValue parent) {
+		List<DataModel> chain = new ArrayList<DataModel>();
+		LuaValue current = parent;
+		while ( current instanceof Instance && chain.size() < MAX_DEPTH ) {
+			chain.add((DataModel) current);
+			current = batch.getOriginalParent((DataModel) current);
+		}
+		
+		return chain;
+	}
+
+	/**
+	 * Called on a DataModel and on each of its descendants after it is reparented (or, inside a hierarchy batch, when the batch closes).
+	 */
+	protected void onAncestryChanged() {
+		//
+	}
+	
+	/**
+	 * Returns this DataModel followed by all of its descendants.
+	 * @return
+	 */
+	private List<Instance> getSubtree() {
+		List<Instance> subtree = this.getDescendants();
+		subtree.add(0, (Instance) this);
+		return subtree;
+	}
+	
+	/**
+	 * Returns the list of ancestors starting at (and including) the supplied parent, ending at the root.
+	 * @param parent
+	 * @return
+	 */
+	private static List<DataModel> getAncestorChain(LuaValue parent) {
+		List<DataModel> chain = new ArrayList<DataModel>();
+		LuaValue current = parent;
+		while ( current instanceof Instance && chain.size() < MAX_DEPTH ) {
+			chain.add((DataModel) current);
+			current = current.rawget(C_PARENT);
+		}
+		
+		return chain;
+	}
+	
+	private static boolean hasAncestorNotIn(List<DataModel> ancestors, List<DataModel> exclude) {
+		for (int i = 0; i < ancestors.size(); i++) {
+			if ( !containsIdentity(exclude, ancestors.get(i)) )
+				return true;
+		}
+		return false;
+	}
+	
+	private static boolean containsIdentity(List<DataModel> list, DataModel object) {
+		for (int i = 0; i < list.size(); i++) {
+			if ( list.get(i) == object )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Fire the descendant removed event for THIS datamodel on every old ancestor it is no longer under.
+	 * @param oldAncestors
+	 * @param newAncestors
+	 */
+	private void descendantRemoved(List<DataModel> oldAncestors, List<DataModel> newAncestors) {
+		for (int i = 0; i < oldAncestors.size(); i++) {
+			DataModel r = oldAncestors.get(i);
+			if ( containsIdentity(newAncestors, r) )
+				continue;
+			
+			if ( r.descendantIndex != null )
+				r.descendantIndex.remove((Instance) this);
+			
+			if ( r.destroyed )
+				continue;
+			
+			r.descendantRemovedEvent().fire(this);
+		}
+	}
+
+	/**
+	 * Fire the descendant added event for THIS datamodel on every new ancestor it was not already under.
+	 * @param newAncestors
+	 * @param oldAncestors
+	 */
+	private void descendantAdded(List<DataModel> newAncestors, List<DataModel> oldAncestors) {
+		for (int i = 0; i < newAncestors.size(); i++) {
+			DataModel r = newAncestors.get(i);
+			if ( r.destroyed )
+				return;
+			
+			if ( containsIdentity(oldAncestors, r) )
+				continue;
+			
+			if ( r.descendantIndex != null )
+				r.descendantIndex.add((Instance) this);
+			
+			r.descendantAddedEvent().fire(this);
+		}
 	}
 	
 	protected void updateChildPointer( LuaValue childName, LuaValue instanceReference ) {
@@ -519,15 +1164,17 @@ public abstract class DataModel extends LuaDatatype {
 	 * @param name
 	 */
 	public void forceSetName(String name) {
-		boolean l = this.locked;
-		boolean l2 = !this.getField(C_NAME).canModify();
-		
-		this.getField(C_NAME).setLocked(false);
-		this.setLocked(false);
-		this.set(C_NAME, LuaValue.valueOf(name));
-		//this.rawset(nameField, name);
-		this.setLocked(l);
-		this.getField(C_NAME).setLocked(l2);
+		synchronized(this) {
+			boolean l = this.locked;
+			boolean l2 = this.isFieldLocked(C_NAME);
+			
+			this.setFieldLocked(C_NAME, false);
+			this.setLocked(false);
+			this.set(C_NAME, LuaValue.valueOf(name));
+			//this.rawset(nameField, name);
+			this.setLocked(l);
+			this.setFieldLocked(C_NAME, l2);
+		}
 		
 		this.internalName = name;
 	}
@@ -559,6 +1206,15 @@ public abstract class DataModel extends LuaDatatype {
 		
 		return this.get(C_CLASSNAME);
 	}
+	
+	/**
+	 * Returns whether this DataModel is of the supplied class-name, or extends it.
+	 * @param className
+	 * @return
+	 */
+	public boolean isA(String className) {
+		return this.typeData.isA(className);
+	}
 
 	/**
 	 * Returns the parent of the DataModel. Normally this returns an Instance, but nil works too.<br>
@@ -712,13 +1368,13 @@ public abstract class DataModel extends LuaDatatype {
 		this.setLocked(false);
 		
 		if ( this.containsField(C_PARENT) ) {
-			this.getField(C_PARENT).setLocked(false);
+			this.setFieldLocked(C_PARENT, false);
 			this.set(C_PARENT, LuaValue.NIL);
 		}
 		
 		this.children.clear();
-		this.descendents.clear();
-		this.descendentsList.clear();
+		if ( this.descendantIndex != null )
+			this.descendantIndex.clear();
 		this.destroyed = true;
 		this.propertySubscribers.clear();
 		this.cachedChildrenOfClass.clear();
@@ -0,0 +1,189 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import engine.lua.type.object.Instance;
+
+/**
+ * Index of the descendants of a single DataModel, grouped by their java class.<br>
+ * Maintained incrementally as instances enter and leave the subtree, so systems can visit only the instances they care about.
+ */
+public class DescendantIndex {
+	private final Map<Class<?>, Bucket> buckets = new HashMap<Class<?>, Bucket>();
+	private final List<Bucket> bucketList = new ArrayList<Bucket>();
+	private final Map<Class<?>, Bucket[]> queryCache = new HashMap<Class<?>, Bucket[]>();
+
+	private static final Bucket[] NO_BUCKETS = new Bucket[0];
+	private static final Instance[] NO_INSTANCES = new Instance[0];
+
+	/**
+	 * All descendants which share one exact java class. Removal swaps the last element into the hole.<br>
+	 * Readers never see the working array. They iterate a snapshot copy, which writers throw away (copy on write) rather than modify.
+	 */
+	private static class Bucket {
+		private final Class<?> type;
+		private final Map<Instance, Integer> positions = new IdentityHashMap<Instance, Integer>();
+		private Instance[] items = new Instance[8];
+		private int size;
+		private Instance[] snapshot = NO_INSTANCES;
+
+		Bucket(Class<?> type) {
+			this.type = type;
+		}
+
+		void add(Instance instance) {
+			if ( positions.containsKey(instance) )
+				return;
+
+			if ( size == items.length ) {
+				Instance[] t = new Instance[size*2];
+				System.arraycopy(items, 0, t, 0, size);
+				items = t;
+			}
+
+			positions.put(instance, size);
+			items[size++] = instance;
+			snapshot = null;
+		}
+
+		void remove(Instance instance) {
+			Integer position = positions.remove(instance);
+			if ( position == null )
+				return;
+
+			int index = position.intValue();
+			Instance last = items[--size];
+			items[size] = null;
+			if ( last != instance ) {
+				items[index] = last;
+				positions.put(last, index);
+			}
+			snapshot = null;
+		}
+
+		/**
+		 * Returns the contents of the bucket. The array is never modified after it is returned, so it may be read without the lock.
+		 * It is only copied again after the bucket changes.
+		 */
+		Instance[] snapshot() {
+			if ( snapshot == null )
+				snapshot = Arrays.copyOf(items, size);
+			return snapshot;
+		}
+	}
+
+	public synchronized void add(Instance instance) {
+		Class<?> type = instance.getClass();
+		Bucket bucket = buckets.get(type);
+		if ( bucket == null ) {
+			bucket = new Bucket(type);
+			buckets.put(type, bucket);
+			bucketList.add(bucket);
+			queryCache.clear();
+		}
+
+		bucket.add(instance);
+	}
+
+	public synchronized void remove(Instance instance) {
+		Bucket bucket = buckets.get(instance.getClass());
+		if ( bucket != null )
+			bucket.remove(instance);
+	}
+
+	public synchronized void clear() {
+		buckets.clear();
+		bucketList.clear();
+		queryCache.clear();
+	}
+
+	/**
+	 * Runs the consumer for every indexed instance that is an instance of the supplied class or interface.<br>
+	 * Each bucket is iterated from a snapshot, and the index is not locked while the consumer runs, so other threads may reparent
+	 * instances under this root in the meantime. The consumer may reparent or destroy instances too. Every instance that was indexed
+	 * when its bucket was reached is visited exactly once, including ones removed since.<br>
+	 * Nothing is allocated unless the index changed since the last iteration.
+	 * @param type
+	 * @param consumer
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void forEach(Class<T> type, Consumer<? super T> consumer) {
+		Bucket[] matching;
+		synchronized(this) {
+			matching = getBuckets(type);
+		}
+
+		for (int i = 0; i < matching.length; i++) {
+			Instance[] items;
+			synchronized(this) {
+				items = matching[i].snapshot();
+			}
+
+			for (int j = 0; j < items.length; j++) {
+				consumer.accept((T) items[j]);
+			}
+		}
+	}
+
+	/**
+	 * Adds every indexed instance whose java class is exactly the supplied class into the list.
+	 * @param type
+	 * @param list
+	 */
+	public synchronized void getExact(Class<?> type, List<Instance> list) {
+		Bucket bucket = buckets.get(type);
+		if ( bucket == null )
+			return;
+
+		for (int i = 0; i < bucket.size; i++) {
+			list.add(bucket.items[i]);
+		}
+	}
+
+	/**
+	 * Returns how many indexed instances are an instance of the supplied class or interface.
+	 * @param type
+	 * @return
+	 */
+	public synchronized int count(Class<?> type) {
+		Bucket[] matching = getBuckets(type);
+		int amount = 0;
+		for (int i = 0; i < matching.length; i++) {
+			amount += matching[i].size;
+		}
+		return amount;
+	}
+
+	private Bucket[] getBuckets(Class<?> type) {
+		Bucket[] matching = queryCache.get(type);
+		if ( matching != null )
+			return matching;
+
+		List<Bucket> t = new ArrayList<Bucket>();
+		for (int i = 0; i < bucketList.size(); i++) {
+			Bucket bucket = bucketList.get(i);
+			if ( type.isAssignableFrom(bucket.type) )
+				t.add(bucket);
+		}
+
+		matching = t.size() == 0 ? NO_BUCKETS : t.toArray(new Bucket[t.size()]);
+		queryCache.put(type, matching);
+		return matching;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.luaj.vm2.LuaValue;
+
+/**
+ * Reparents made on one thread while a hierarchy batch is open. Only the parent each DataModel had before its first move is kept,
+ * so an object moved several times is handled once when the batch closes.
+ */
+class HierarchyBatch {
+	private static final LuaValue C_PARENT = LuaKeys.of("Parent");
+	
+	int depth;
+	boolean hierarchyUpdate;
+	
+	private final Map<DataModel, LuaValue> originalParents = new IdentityHashMap<DataModel, LuaValue>();
+	private final List<DataModel> moved = new ArrayList<DataModel>();
+	
+	void recordMove(DataModel object, LuaValue oldParent) {
+		if ( originalParents.containsKey(object) )
+			return;
+		
+		originalParents.put(object, oldParent);
+		moved.add(object);
+	}
+	
+	/**
+	 * Returns every moved DataModel, in the order it was first moved.
+	 * @return
+	 */
+	List<DataModel> getMoved() {
+		return moved;
+	}
+	
+	/**
+	 * Returns the parent the DataModel had when the batch was opened.
+	 * @param object
+	 * @return
+	 */
+	LuaValue getOriginalParent(DataModel object) {
+		LuaValue parent = originalParents.get(object);
+		if ( parent != null )
+			return parent;
+		
+		return object.rawget(C_PARENT);
+	}
+}
@@ -10,20 +10,36 @@
 
 package engine.lua.type;
 
-import java.util.List;
-
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
+import engine.lua.RunnableArgs;
 import engine.lua.type.object.insts.script.Script;
 
 public class LuaConnection extends LuaDatatype {
 	private LuaValue function;
+	private RunnableArgs listener;
 	private LuaEvent event;
+	private ScriptContext context;
 	public Script script;
 
 	public LuaConnection(LuaValue arg, LuaEvent event) {
+		this(arg, null, event);
+	}
+
+	/**
+	 * Creates a connection whose listener is plain java. It is invoked directly when the event fires.
+	 * @param listener
+	 * @param event
+	 */
+	public LuaConnection(RunnableArgs listener, LuaEvent event) {
+		this(LuaValue.NIL, listener, event);
+	}
+
+	private LuaConnection(LuaValue arg, RunnableArgs listener, LuaEvent event) {
 		this.function = arg;
+		this.listener = listener;
+		this.event = event;
 
 		this.rawset("Disconnect", new ZeroArgFunction() {
 			@Override
@@ -40,16 +56,34 @@ public class LuaConnection extends LuaDatatype {
 		return this.function;
 	}
 
+	/**
+	 * Returns the java listener of this connection, or null if it is connected to a lua function.
+	 * @return
+	 */
+	public RunnableArgs getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * Returns the script context that made this connection, or null. Its listener runs inside that context.
+	 * @return
+	 */
+	public ScriptContext getContext() {
+		return this.context;
+	}
+	
+	protected void setContext(ScriptContext context) {
+		this.context = context;
+	}
+
 	public void disconnect() {
 		function = null;
+		listener = null;
 
-		if ( event != null ) {
-			List<LuaConnection> con = event.connections;
-			event = null;
-			
-			if ( con != null ) {
-				con.remove(this);
-			}
+		LuaEvent e = event;
+		event = null;
+		if ( e != null ) {
+			e.removeConnection(this);
 		}
 	}
 
@@ -10,21 +10,28 @@
 
 package engine.lua.type;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
 
 import engine.Game;
 import engine.lua.LuaEngine;
 import engine.lua.type.object.Instance;
 
 public abstract class LuaDatatype extends LuaTable {
-	private HashMap<LuaValue,LuaField> fields = new HashMap<LuaValue,LuaField>();
-	private ArrayList<LuaField> fieldsOrdered = new ArrayList<LuaField>();
+	private static final LuaField[] NO_FIELDS = new LuaField[0];
+	private static final LuaValue[] NO_FIELD_NAMES = new LuaValue[0];
+	
+	/**
+	 * Fields are described once per class by a {@link LuaFieldSchema}. Each object only stores its values, indexed by slot.
+	 * A null slot is a field that this object has not defined.
+	 */
+	private LuaFieldSchema schema;
+	private LuaValue[] values;
+	private BitSet lockedSlots;
 	
 	protected boolean locked = false;
 
@@ -48,20 +55,24 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaField defineField(LuaValue fieldName, LuaValue fieldValue, boolean isFinal) {
-		LuaField ret = this.getField(fieldName);
-		if ( ret == null ) {
-			// Create new field
-			ret = new LuaField(fieldName.toString(), fieldValue.getClass(), isFinal);
-			fields.put(fieldName, ret);
-			fieldsOrdered.add(ret);
-			
-			if ( fieldValue.equals(LuaValue.NIL) || fieldValue instanceof Instance )
-				ret.isInstance = true;
+		if ( schema == null )
+			schema = LuaFieldSchema.getSchema(this.getClass());
+		
+		// Find (or create) the slot for this field
+		int slot = schema.define(fieldName, fieldValue, isFinal);
+		if ( values == null ) {
+			values = new LuaValue[Math.max(schema.size(), slot+1)];
+		} else if ( slot >= values.length ) {
+			values = Arrays.copyOf(values, Math.max(schema.size(), slot+1));
+		}
+		
+		// Set its value in the table. Anything stored under the same key before it was a field moves out of the hash part.
+		if ( values[slot] == null ) {
+			super.rawset(fieldName, LuaValue.NIL);
+			values[slot] = LuaValue.NIL;
 		}
-
-		// Set its value in the table
 		this.rawset(fieldName, fieldValue);
-		return ret;
+		return schema.getField(slot);
 	}
 	
 	/**
@@ -69,17 +80,36 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @param fieldName
 	 */
 	public void undefineField(LuaValue fieldName) {
-		if ( !this.containsField(fieldName) )
+		int slot = getSlot(fieldName);
+		if ( slot == -1 )
 			return;
 
-		LuaField lf = fields.get(fieldName);
-		lf.cleanup();
-		this.fieldsOrdered.remove(lf);
-		fields.remove(fieldName);
+		values[slot] = null;
+		if ( lockedSlots != null )
+			lockedSlots.clear(slot);
 		
-		this.rawset(fieldName, LuaValue.NIL);
 		try{ this.set(fieldName, LuaValue.NIL); }catch(Exception e) {}
 	}
+	
+	/**
+	 * Returns the slot of a field defined in this Datatype, or -1.
+	 * @param key
+	 * @return
+	 */
+	private int getSlot(LuaValue key) {
+		return getSlot(this.values, key);
+	}
+	
+	private int getSlot(LuaValue[] values, LuaValue key) {
+		if ( values == null )
+			return -1;
+		
+		int slot = schema.getSlot(key);
+		if ( slot == -1 || slot >= values.length || values[slot] == null )
+			return -1;
+		
+		return slot;
+	}
 
 	/**
 	 * Returns whether a field is defined in this Datatype.
@@ -87,7 +117,7 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public boolean containsField(LuaValue key) {
-		return fields.containsKey(key);
+		return getSlot(key) != -1;
 	}
 	
 	/**
@@ -96,7 +126,11 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaField getField(LuaValue key) {
-		return fields.get(key);
+		int slot = getSlot(key);
+		if ( slot == -1 )
+			return null;
+		
+		return schema.getField(slot);
 	}
 	
 	/**
@@ -105,7 +139,48 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaField getField(String key) {
-		return fields.get(LuaValue.valueOf(key));
+		return getField(LuaKeys.get(key));
+	}
+	
+	/**
+	 * Locks or unlocks a field for this object only. The field stays unmodifiable if it is locked for the whole class.
+	 * @param key
+	 * @param locked
+	 */
+	public void setFieldLocked(LuaValue key, boolean locked) {
+		int slot = getSlot(key);
+		if ( slot == -1 )
+			return;
+		
+		if ( lockedSlots == null )
+			lockedSlots = new BitSet();
+		lockedSlots.set(slot, locked);
+	}
+	
+	/**
+	 * Returns whether a field was locked for this object only, through {@link #setFieldLocked(LuaValue, boolean)}.
+	 * @param key
+	 * @return
+	 */
+	public boolean isFieldLocked(LuaValue key) {
+		int slot = getSlot(key);
+		return slot != -1 && lockedSlots != null && lockedSlots.get(slot);
+	}
+	
+	/**
+	 * Returns whether the specified field exists and can be modified on this object.
+	 * @param key
+	 * @return
+	 */
+	public boolean canModifyField(LuaValue key) {
+		int slot = getSlot(key);
+		if ( slot == -1 )
+			return false;
+		
+		if ( lockedSlots != null && lockedSlots.get(slot) )
+			return false;
+		
+		return schema.getField(slot).canModify();
 	}
 	
 	/**
@@ -113,8 +188,14 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaField[] getFields() {
-		Collection<LuaField> keys = fields.values();
-		LuaField[] f = keys.toArray(new LuaField[keys.size()]);
+		if ( values == null )
+			return NO_FIELDS;
+		
+		LuaField[] f = new LuaField[countFields()];
+		for (int i = 0, j = 0; i < values.length; i++) {
+			if ( values[i] != null )
+				f[j++] = schema.getField(i);
+		}
 		return f;
 	}
 	
@@ -123,9 +204,7 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaValue[] getFieldNames() {
-		Set<LuaValue> keys = fields.keySet();
-		LuaValue[] f = keys.toArray(new LuaValue[keys.size()]);
-		return f;
+		return getFieldNamesOrdered();
 	}
 	
 	/**
@@ -133,16 +212,110 @@ public abstract class LuaDatatype extends LuaTable {
 	 * @return
 	 */
 	public LuaValue[] getFieldNamesOrdered() {
-		LuaValue[] t = new LuaValue[fieldsOrdered.size()];
-		synchronized(fieldsOrdered) {
-			for (int i = 0; i < t.length; i++) {
-				t[i] = fieldsOrdered.get(i).getName();
-			}
+		if ( values == null )
+			return NO_FIELD_NAMES;
+		
+		LuaValue[] t = new LuaValue[countFields()];
+		for (int i = 0, j = 0; i < values.length; i++) {
+			if ( values[i] != null )
+				t[j++] = schema.getField(i).getName();
+		}
+		
+		return t;
+	}
+	
+	private int countFields() {
+		int amount = 0;
+		for (int i = 0; i < values.length; i++) {
+			if ( values[i] != null )
+				amount++;
+		}
+		return amount;
+	}
+	
+	@Override
+	public LuaValue rawget(LuaValue key) {
+		LuaValue[] values = this.values;
+		int slot = getSlot(values, key);
+		if ( slot != -1 ) {
+			LuaValue v = values[slot];
+			if ( v != null )
+				return v;
+		}
+		
+		return super.rawget(key);
+	}
+	
+	@Override
+	public void rawset(LuaValue key, LuaValue value) {
+		LuaValue[] values = this.values;
+		int slot = getSlot(values, key);
+		if ( slot != -1 ) {
+			values[slot] = value == null ? LuaValue.NIL : value;
+			return;
 		}
 		
+		super.rawset(key, value);
+	}
+	
+	@Override
+	public LuaValue get(String key) {
+		return get(LuaKeys.get(key));
+	}
+	
+	@Override
+	public LuaValue rawget(String key) {
+		return rawget(LuaKeys.get(key));
+	}
+	
+	@Override
+	public void set(String key, LuaValue value) {
+		set(LuaKeys.get(key), value);
+	}
+	
+	@Override
+	public void rawset(String key, LuaValue value) {
+		rawset(LuaKeys.get(key), value);
+	}
+	
+	@Override
+	public LuaValue[] keys() {
+		LuaValue[] fieldNames = getFieldNamesOrdered();
+		LuaValue[] tableKeys = super.keys();
+		if ( fieldNames.length == 0 )
+			return tableKeys;
+		
+		LuaValue[] t = Arrays.copyOf(fieldNames, fieldNames.length + tableKeys.length);
+		System.arraycopy(tableKeys, 0, t, fieldNames.length, tableKeys.length);
 		return t;
 	}
 
+	/**
+	 * Iterates the fields of this Datatype (in the order they are defined), then the rest of the table.
+	 * Fields set to nil are skipped, as they would be in a plain table.
+	 */
+	@Override
+	public Varargs next(LuaValue key) {
+		LuaValue[] values = this.values;
+		int start = 0;
+		if ( !key.isnil() ) {
+			int slot = getSlot(values, key);
+			if ( slot == -1 )
+				return super.next(key);
+			start = slot + 1;
+		}
+		
+		if ( values != null ) {
+			for (int i = start; i < values.length; i++) {
+				LuaValue v = values[i];
+				if ( v != null && !v.isnil() )
+					return varargsOf(schema.getField(i).getName(), v);
+			}
+		}
+		
+		return super.next(NIL);
+	}
+
 	@Override
 	public int type() {
 		return LuaValue.TUSERDATA;
@@ -172,9 +345,9 @@ public abstract class LuaDatatype extends LuaTable {
 		return this.locked;
 	}
 
-	private static final LuaValue C_NAME = LuaValue.valueOf("Name");
-	private static final LuaValue C_PARENT = LuaValue.valueOf("Parent");
-	private static final LuaValue C_ENUM = LuaValue.valueOf("Enum");
+	private static final LuaValue C_NAME = LuaKeys.of("Name");
+	private static final LuaValue C_PARENT = LuaKeys.of("Parent");
+	private static final LuaValue C_ENUM = LuaKeys.of("Enum");
 	
 	@Override
 	public LuaValue setmetatable(LuaValue metatable) {
@@ -191,23 +364,17 @@ public abstract class LuaDatatype extends LuaTable {
 			return NIL;
 		}
 		
-		// If you're getting an instance field, but that instance is no longer in the game, return nil
-		if ( Game.isLoaded() ) {
-			LuaField field = this.getField(key);
-			if ( field != null ) {
-				if ( field.isInstance ) {
-					LuaValue v = super.get(key);
-					if ( v instanceof Instance ) {
-						Instance inst = (Instance)v;
-						if ( inst.destroyed )
-							return NIL;
-						//if ( !inst.getName().equals("game") && inst.getParent().equals(NIL) ) {
-						//if ( !inst.equals(Game.game()) && inst.rawget(C_PARENT).eq_b(LuaValue.NIL) ) {
-							//return NIL;
-						//}
-					}
-				}
-			}
+		LuaValue[] values = this.values;
+		int slot = getSlot(values, key);
+		if ( slot != -1 ) {
+			LuaValue v = values[slot];
+			
+			// If you're getting an instance field, but that instance is no longer in the game, return nil
+			if ( v instanceof Instance && ((Instance)v).destroyed && Game.isLoaded() && schema.getField(slot).isInstance )
+				return NIL;
+			
+			if ( v != null && !v.isnil() )
+				return v;
 		}
 		
 		// Super get
@@ -216,26 +383,38 @@ public abstract class LuaDatatype extends LuaTable {
 
 	@Override
 	public void set(LuaValue key, LuaValue value) {
+		setChecked(key, checkValue(key, value, null));
+	}
+	
+	/**
+	 * Validates a value for a field without setting it. Errors if the field does not exist, is locked, or does not accept the value.
+	 * @param key
+	 * @param value
+	 * @param enums the Enum table. Pass null to look it up, or pass it in when checking many fields at once.
+	 * @return the value to store; clamped if the field has a clamp.
+	 */
+	protected LuaValue checkValue(LuaValue key, LuaValue value, LuaValue enums) {
 		if (locked) {
 			//LuaValue.error("Cannot set field " + key.toString() + " in type " + this.typename() + ". Table is locked.");
 			//return;
 			if ( key.eq_b(C_NAME) || key.eq_b(C_PARENT) ) {
 				LuaValue.error("Cannot set field " + key.toString() + " in type " + this.typename() + ". Table is locked.");
-				return;	
+				return value;
 			}
 		}
 
 		// Check for fields
-		LuaField f = this.getField(key);
+		int slot = getSlot(key);
+		LuaField f = slot == -1 ? null : schema.getField(slot);
 		if ( f == null) {
 			LuaValue.error("Cannot create new field " + key.toString() + " in type " + this.typename());
 		} else {
 			boolean typeMismatch = true;
 			
 			// Cant be modified
-			if ( !f.canModify() ) {
+			if ( !f.canModify() || (lockedSlots != null && lockedSlots.get(slot)) ) {
 				LuaValue.error("Cannot set field " + key.toString() + ". Field is locked.");
-				return;
+				return value;
 			}
 			
 			// Check if its the right datatype
@@ -247,7 +426,7 @@ public abstract class LuaDatatype extends LuaTable {
 			// Type mismatch? Or missing field
 			if ( typeMismatch ) {
 				LuaValue.error("Cannot set field " + key.toString() + ". Type mismatch. Expects: " + f.getType().getSimpleName());
-				return;
+				return value;
 			}
 			
 			// Clamp the value (will only clamp if a clamp was defined)
@@ -258,16 +437,25 @@ public abstract class LuaDatatype extends LuaTable {
 			
 			// If it needs to be an enum, check here
 			if ( f.getEnumType() != null ) {
-				LuaValue tab = LuaEngine.globals.get(C_ENUM);
+				LuaValue tab = enums != null ? enums : LuaEngine.globals.get(C_ENUM);
 				LuaValue enu = tab.get(f.getEnumType().getType());
 				
 				if ( enu.get(value).isnil() ) {
 					LuaValue.error("Cannot set field " + key.toString() + ". Enum type mismatch.");
-					return;
+					return value;
 				}
 			}
 		}
-
+		
+		return value;
+	}
+	
+	/**
+	 * Stores a value returned by {@link #checkValue(LuaValue, LuaValue, LuaValue)}.
+	 * @param key
+	 * @param value
+	 */
+	protected void setChecked(LuaValue key, LuaValue value) {
 		LuaValue newSet = value;
 		if ( !key.eq_b(C_NAME) && !key.eq_b(C_PARENT) ) {
 			newSet = onValueSet(key,value);
@@ -284,15 +472,13 @@ public abstract class LuaDatatype extends LuaTable {
 		
 		// Lock it, can no longer be modified.
 		this.setLocked(true);
-		fields.clear();
 		
 		// Delete all its keys
 		LuaValue[] keys = keys();
+		values = null;
+		lockedSlots = null;
 		for (int i = keys.length-1; i >= 0; i--) {
 			this.rawset(keys[i], LuaValue.NIL);
 		}
-		
-		// Force it to be weak (garbage collection)
-		this.getmetatable().set( LuaValue.MODE, LuaValue.valueOf("kv") );
 	}
 }
@@ -10,15 +10,19 @@
 
 package engine.lua.type;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaUserdata;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
-import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
 
@@ -28,8 +32,24 @@ import engine.lua.type.object.ScriptBase;
 
 public class LuaEvent extends LuaDatatype {
 
-	protected List<LuaConnection> connections = Collections.synchronizedList(new ArrayList<LuaConnection>());
-	protected List<LuaConnection> disconnectQueue = Collections.synchronizedList(new ArrayList<LuaConnection>());
+	private static final LuaConnection[] NO_CONNECTIONS = new LuaConnection[0];
+	
+	/**
+	 * Value a coroutine runner yields once it has finished its listener and is ready for another one.
+	 */
+	private static final LuaValue RUNNER_IDLE = new LuaUserdata(new Object());
+	
+	/**
+	 * Maximum amount of idle runners kept for reuse.
+	 */
+	private static final int MAX_IDLE_RUNNERS = 32;
+	private static final Deque<Runner> IDLE_RUNNERS = new ArrayDeque<Runner>();
+
+	/**
+	 * Copy-on-write array of connections. Replaced (never modified) when connecting or disconnecting, so fire() can read it without locking.
+	 */
+	private volatile LuaConnection[] connections = NO_CONNECTIONS;
+	private final Object connectionLock = new Object();
 	protected List<LuaThread> waitingThreads = Collections.synchronizedList(new ArrayList<LuaThread>());
 
 	public LuaEvent() {
@@ -57,38 +77,30 @@ public class LuaEvent extends LuaDatatype {
 	}
 	
 	/**
-	 * The same as the Lua version of connect(). Lambda friendly for java-use. CANNOT RETURN VALUE TO LUA.
+	 * The same as the Lua version of connect(). Lambda friendly for java-use. CANNOT RETURN VALUE TO LUA.<br>
+	 * The listener is called directly on the firing thread; no coroutine is created for it.
 	 * @param runnableArgs
 	 * @return 
 	 */
 	public LuaConnection connect(RunnableArgs runnableArgs) {
-		VarArgFunction f = new VarArgFunction() {
-			@Override
-			public Varargs invoke(Varargs args) {
-				LuaValue[] arr = new LuaValue[args.narg()];
-				for (int i = 0; i < arr.length; i++) {
-					arr[i] = args.arg(i+1);
-				}
-				runnableArgs.run(arr);
-				return LuaValue.NIL;
-			}
-		};
-		LuaValue t = connectLua(f);
-		if ( t instanceof LuaConnection )
-			return (LuaConnection) t;
-		return null;
+		LuaConnection cnt = new LuaConnection(runnableArgs, LuaEvent.this);
+		addConnection(cnt);
+		return cnt;
 	}
 
 	public LuaValue connectLua(LuaValue function) {
 		if ( function instanceof LuaFunction ) {
 			LuaConnection cnt = new LuaConnection((LuaFunction) function, LuaEvent.this);
-			synchronized(connections) {
-				connections.add(cnt);
-			}
+			addConnection(cnt);
 			
-			ScriptBase runningScript = ScriptRunner.getScript(Thread.currentThread());
-			if ( runningScript != null && runningScript.isRunning() ) {
-				runningScript.connections.put(LuaEvent.this,cnt);
+			ScriptContext context = ScriptContext.current();
+			if ( context != null ) {
+				cnt.setContext(context);
+				
+				ScriptBase runningScript = context.getScript();
+				if ( runningScript != null && runningScript.isRunning() ) {
+					runningScript.connections.put(LuaEvent.this,cnt);
+				}
 			}
 			//cnt.script = ScriptData.getScript(Thread.currentThread());
 			return cnt;
@@ -98,54 +110,181 @@ public class LuaEvent extends LuaDatatype {
 		return LuaValue.NIL;
 	}
 	
+	private void addConnection(LuaConnection connection) {
+		synchronized(connectionLock) {
+			LuaConnection[] old = connections;
+			LuaConnection[] t = new LuaConnection[old.length+1];
+			System.arraycopy(old, 0, t, 0, old.length);
+			t[old.length] = connection;
+			connections = t;
+		}
+	}
+	
+	protected void removeConnection(LuaConnection connection) {
+		synchronized(connectionLock) {
+			LuaConnection[] old = connections;
+			for (int i = 0; i < old.length; i++) {
+				if ( old[i] != connection )
+					continue;
+				
+				if ( old.length == 1 ) {
+					connections = NO_CONNECTIONS;
+				} else {
+					LuaConnection[] t = new LuaConnection[old.length-1];
+					System.arraycopy(old, 0, t, 0, i);
+					System.arraycopy(old, i+1, t, i, old.length-i-1);
+					connections = t;
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the amount of connections currently listening to this event.
+	 * @return
+	 */
+	public int getConnectionCount() {
+		return connections.length;
+	}
+	
 	public void fire() {
 		fire(new LuaValue[] {});
 	}
 
 	public void fire(LuaValue...args) {
-		Varargs vargs = LuaValue.varargsOf(args);
+		LuaConnection[] current = connections;
+		Varargs vargs = null;
 		
-		synchronized(connections) {
-			// Remove the queued connections
-			synchronized( disconnectQueue ) {
-				while ( disconnectQueue.size() > 0 ) {
-					LuaConnection c = disconnectQueue.get(0);
-					connections.remove(c);
-					disconnectQueue.remove(c);
+		for (int i = 0; i < current.length; i++) {
+			LuaConnection temp = current[i];
+			
+			// Java listeners are called directly
+			RunnableArgs listener = temp.getListener();
+			if ( listener != null ) {
+				try {
+					listener.run(args);
+				} catch(Exception e) {
+					e.printStackTrace();
 				}
+				continue;
 			}
 			
-			// Fire remaining connections
-			int len = connections.size();
-			for (int i = 0; i < len; i++) {
-				if ( i >= connections.size() )
-					continue;
-				LuaConnection temp = connections.get(i);
-				if ( temp == null )
-					continue;
-
-				LuaThread lt = (LuaThread) LuaEngine.globals.get("coroutine").get("create").call(temp.getFunction());
-				LuaEngine.globals.get("coroutine").get("resume").invoke(LuaValue.varargsOf( lt, vargs ));
-				
-				//LuaEngine.globals.get("spawn").call(temp.getFunction());
-				//LuaEngine.spawn(temp.getFunction(), null, vargs);
-				
-				/*try {
-					ScriptRunner t = ScriptRunner.create(temp.getFunction(), null, vargs);
-					t.run();
-				}catch(Exception e) {
-					//
-				}*/
+			LuaValue function = temp.getFunction();
+			if ( function == null || function.isnil() )
+				continue;
+			
+			if ( vargs == null )
+				vargs = LuaValue.varargsOf(args);
+			
+			// Only lua closures can yield, so only they need a coroutine
+			if ( function instanceof LuaClosure ) {
+				resumeOnRunner(function, vargs, temp.getContext());
+			} else {
+				try {
+					function.invoke(vargs);
+				} catch(LuaError e) {
+					LuaEngine.error(e.getMessage());
+				}
 			}
 		}
 		
+		if ( waitingThreads.size() == 0 )
+			return;
+		
 		synchronized(waitingThreads) {
 			for (LuaThread thread : waitingThreads) {
-				thread.state.lua_resume(thread, LuaValue.NIL);
+				thread.resume(LuaValue.NIL);
 			}
 			waitingThreads.clear();
 		}
 	}
+	
+	/**
+	 * Runs the function inside a pooled coroutine. The coroutine goes back in the pool once the function finishes, whether it finished
+	 * during this resume or during a later one (after wait, Event:Wait, ...).<br>
+	 * While the function runs, the coroutine is part of the context of the script that connected it.
+	 */
+	private static void resumeOnRunner(LuaValue function, Varargs args, ScriptContext context) {
+		// The script that connected it was stopped
+		if ( context != null && context.isStopped() )
+			return;
+		
+		Runner runner;
+		synchronized(IDLE_RUNNERS) {
+			runner = IDLE_RUNNERS.pollFirst();
+		}
+		if ( runner == null )
+			runner = new Runner();
+		
+		runner.thread.setContext(context);
+		runner.thread.resume(LuaValue.varargsOf(function, args));
+	}
+	
+	/**
+	 * Puts an idle runner back in the pool, or ends its coroutine if the pool is full.
+	 */
+	private static void release(Runner runner) {
+		synchronized(IDLE_RUNNERS) {
+			if ( IDLE_RUNNERS.size() < MAX_IDLE_RUNNERS ) {
+				IDLE_RUNNERS.addFirst(runner);
+				return;
+			}
+		}
+		
+		runner.thread.resume(LuaValue.NONE);
+	}
+	
+	/**
+	 * A coroutine that runs one listener per resume, then yields {@link #RUNNER_IDLE} and waits for the next listener.
+	 * Resuming it without a listener ends it.
+	 */
+	private static class Runner extends VarArgFunction {
+		private final RunnerThread thread;
+		
+		Runner() {
+			this.thread = new RunnerThread(this);
+			this.thread.setBudget(ScriptRunner.getBudget(null));
+		}
+		
+		@Override
+		public Varargs invoke(Varargs job) {
+			while ( !job.arg1().isnil() ) {
+				try {
+					job.arg1().invoke(job.subargs(2));
+				} catch(LuaError e) {
+					LuaEngine.error(e.getMessage());
+				}
+				thread.clearInterrupt();
+				thread.setContext(null);
+				job = thread.state.lua_yield(RUNNER_IDLE);
+			}
+			
+			return LuaValue.NONE;
+		}
+	}
+	
+	/**
+	 * Coroutine of a {@link Runner}. Every resume that ends with the listener finished releases the runner, no matter who resumed it
+	 * (the event, or the scheduler after a wait).
+	 */
+	private static class RunnerThread extends ScriptThread {
+		private final Runner runner;
+		
+		RunnerThread(Runner runner) {
+			super(LuaEngine.globals, runner, null);
+			this.runner = runner;
+		}
+		
+		@Override
+		public Varargs resume(Varargs args) {
+			Varargs result = super.resume(args);
+			if ( result.arg1().toboolean() && result.arg(2) == RUNNER_IDLE )
+				release(runner);
+			
+			return result;
+		}
+	}
 
 	@Override
 	protected LuaValue onValueSet(LuaValue key, LuaValue value) {
@@ -158,13 +297,12 @@ public class LuaEvent extends LuaDatatype {
 	}
 
 	public void disconnect(LuaConnection value) {
-		disconnectQueue.add(value);
+		removeConnection(value);
 	}
 
 	public void disconnectAll() {
-		synchronized(connections) {
-			connections.clear();
-			disconnectQueue.clear();
+		synchronized(connectionLock) {
+			connections = NO_CONNECTIONS;
 		}
 	}
 
@@ -29,7 +29,7 @@ public class LuaField {
 	private int flags;
 
 	public LuaField(String fieldName, Class<?> fieldType, boolean isFinal) {
-		this.fieldName = LuaValue.valueOf(fieldName);
+		this.fieldName = LuaKeys.of(fieldName);
 		this.fieldType = fieldType;
 		this.canModify = !isFinal;
 	}
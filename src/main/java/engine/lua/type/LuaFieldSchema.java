@@ -0,0 +1,107 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.type.object.Instance;
+
+/**
+ * The set of fields shared by every object of a class.<br>
+ * Each field is given a slot index the first time it is defined. Objects only store an array of values indexed by slot,
+ * while the {@link LuaField} (type, clamp, enum, flags) exists once per class.
+ */
+public class LuaFieldSchema {
+	private static final Map<Class<?>, LuaFieldSchema> SCHEMAS = new ConcurrentHashMap<Class<?>, LuaFieldSchema>();
+
+	private final Map<LuaValue, Integer> slots = new ConcurrentHashMap<LuaValue, Integer>();
+	private volatile LuaField[] fields = new LuaField[0];
+
+	/**
+	 * Returns the schema for the desired class. Created on first use.
+	 * @param type
+	 * @return
+	 */
+	public static LuaFieldSchema getSchema(Class<?> type) {
+		LuaFieldSchema schema = SCHEMAS.get(type);
+		if ( schema != null )
+			return schema;
+
+		schema = new LuaFieldSchema();
+		LuaFieldSchema existing = SCHEMAS.putIfAbsent(type, schema);
+		return existing != null ? existing : schema;
+	}
+
+	/**
+	 * Returns the slot index for the desired field name, or -1 if no object of this class has defined it.
+	 * @param fieldName
+	 * @return
+	 */
+	public int getSlot(LuaValue fieldName) {
+		Integer slot = slots.get(fieldName);
+		if ( slot == null )
+			return -1;
+
+		return slot.intValue();
+	}
+
+	/**
+	 * Returns the field stored in the desired slot.
+	 * @param slot
+	 * @return
+	 */
+	public LuaField getField(int slot) {
+		return fields[slot];
+	}
+
+	/**
+	 * Returns the amount of slots currently in this schema.
+	 * @return
+	 */
+	public int size() {
+		return fields.length;
+	}
+
+	/**
+	 * Returns the slot for the desired field, adding it to the schema if it is not yet defined.
+	 * @param fieldName
+	 * @param fieldValue
+	 * @param isFinal
+	 * @return
+	 */
+	protected int define(LuaValue fieldName, LuaValue fieldValue, boolean isFinal) {
+		int slot = getSlot(fieldName);
+		if ( slot != -1 )
+			return slot;
+
+		synchronized(this) {
+			slot = getSlot(fieldName);
+			if ( slot != -1 )
+				return slot;
+
+			LuaField field = new LuaField(fieldName.toString(), fieldValue.getClass(), isFinal);
+			if ( fieldValue.equals(LuaValue.NIL) || fieldValue instanceof Instance )
+				field.isInstance = true;
+
+			LuaField[] newFields = new LuaField[fields.length+1];
+			System.arraycopy(fields, 0, newFields, 0, fields.length);
+			newFields[fields.length] = field;
+
+			slot = fields.length;
+			fields = newFields;
+			slots.put(field.getName(), slot); // interned, so lookups with interned keys compare by identity
+			return slot;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaValue;
+
+/**
+ * Interned lua strings for field and method names.<br>
+ * {@link LuaValue#valueOf(String)} allocates and hashes a new {@link LuaString} on every call. Keys taken from here are created once,
+ * and since every field schema and method table stores the interned key, lookups with them are settled by an identity compare.<br>
+ * Only intern names from a fixed set (fields, methods, enums). Strings that come from user data would grow the table forever.
+ */
+public class LuaKeys {
+	private static final Map<String, LuaString> KEYS = new ConcurrentHashMap<String, LuaString>();
+
+	/**
+	 * Returns the interned lua string for the desired name.
+	 * @param name
+	 * @return
+	 */
+	public static LuaString of(String name) {
+		LuaString key = KEYS.get(name);
+		if ( key != null )
+			return key;
+
+		key = LuaString.valueOf(name);
+		LuaString existing = KEYS.putIfAbsent(name, key);
+		return existing != null ? existing : key;
+	}
+
+	/**
+	 * Returns the interned lua string for the desired name if there is one, otherwise a new lua string. Never adds to the table, so it
+	 * is safe for names that come from user data (instance names, table keys).
+	 * @param name
+	 * @return
+	 */
+	public static LuaString get(String name) {
+		LuaString key = KEYS.get(name);
+		return key != null ? key : LuaString.valueOf(name);
+	}
+
+	/**
+	 * Returns the interned version of a key. Values that are not strings are returned as is.
+	 * @param key
+	 * @return
+	 */
+	public static LuaValue intern(LuaValue key) {
+		if ( !(key instanceof LuaString) )
+			return key;
+
+		LuaString interned = of(key.tojstring());
+		return interned.raweq((LuaString) key) ? interned : key;
+	}
+
+	/**
+	 * Returns the amount of interned keys.
+	 * @return
+	 */
+	public static int size() {
+		return KEYS.size();
+	}
+}
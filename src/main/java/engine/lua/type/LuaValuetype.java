@@ -11,6 +11,8 @@
 package engine.lua.type;
 
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
@@ -21,14 +23,58 @@ import engine.lua.LuaEngine;
 public abstract class LuaValuetype extends LuaDatatype {
 	public static HashMap<String, Class<? extends LuaValuetype>> DATA_TYPES = new HashMap<String,Class<? extends LuaValuetype>>();
 
+	private static Map<String,LuaTable> METATABLES = new ConcurrentHashMap<String,LuaTable>();
+
 	public LuaValuetype() {
-		LuaTable table = new LuaTable();
+		this.setmetatable(getSharedMetatable());
+	}
+	
+	/**
+	 * Returns the metatable shared by every value of this type. It is built (and the type
+	 * registered in the lua globals) the first time a value of the type is created.
+	 */
+	private LuaTable getSharedMetatable() {
+		String typeName = typename();
+		LuaTable table = METATABLES.get(typeName);
+		if ( table != null )
+			return table;
+		
+		table = new LuaTable();
 		table.set(LuaValue.INDEX, table);
-		this.setmetatable(table);
+		this.onRegisterMethods(table);
+		
+		LuaTable existing = METATABLES.putIfAbsent(typeName, table);
+		if ( existing != null )
+			return existing;
 		
-		if ( LuaEngine.globals.get(typename()).isnil() ) {
+		if ( LuaEngine.globals.get(typeName).isnil() ) {
 			register(this);
 		}
+		
+		return table;
+	}
+	
+	/**
+	 * Called once per value type to fill in its shared metatable (ToString, __add, __eq...).<br>
+	 * Functions placed here are shared by every value of the type, so they must operate on
+	 * their arguments (self is passed as the first argument) rather than capturing this object.
+	 * @param metatable
+	 */
+	protected void onRegisterMethods(LuaTable metatable) {
+		//
+	}
+
+	/**
+	 * Returns the self argument of a shared method as the supplied type.<br>
+	 * Raises a lua error if the method was not called on a value of that type, e.g. <code>v.Method()</code> instead of <code>v:Method()</code>.
+	 * @param myself
+	 * @param type
+	 * @return
+	 */
+	protected static <T extends LuaValuetype> T checkValue(LuaValue myself, Class<T> type) {
+		if ( !type.isInstance(myself) )
+			LuaValue.error("Expected ':' not '.' calling member function (self is " + myself.typename() + ", expected " + type.getSimpleName() + ")");
+		return type.cast(myself);
 	}
 
 	public static void register(LuaValuetype type) {
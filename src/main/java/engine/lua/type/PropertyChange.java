@@ -0,0 +1,53 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.type.object.Instance;
+
+/**
+ * A single field change of an Instance. When changes are deferred, repeated changes of the same field within a tick
+ * are merged: the value is the last one written, and the old value is the one from before the first write.
+ */
+public class PropertyChange {
+	private final Instance instance;
+	private final LuaValue field;
+	private final LuaValue oldValue;
+	private LuaValue value;
+	
+	public PropertyChange(Instance instance, LuaValue field, LuaValue value, LuaValue oldValue) {
+		this.instance = instance;
+		this.field = field;
+		this.value = value;
+		this.oldValue = oldValue;
+	}
+	
+	public Instance getInstance() {
+		return this.instance;
+	}
+	
+	public LuaValue getField() {
+		return this.field;
+	}
+	
+	public LuaValue getValue() {
+		return this.value;
+	}
+	
+	public LuaValue getOldValue() {
+		return this.oldValue;
+	}
+	
+	protected void setValue(LuaValue value) {
+		this.value = value;
+	}
+}
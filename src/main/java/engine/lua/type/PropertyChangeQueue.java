@@ -0,0 +1,66 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.type.object.Instance;
+
+/**
+ * Dirty set of Instance field changes collected during one tick. Keyed by instance and field, the last written value wins.
+ */
+class PropertyChangeQueue {
+	private Map<Instance, Map<LuaValue, PropertyChange>> pending = new IdentityHashMap<Instance, Map<LuaValue, PropertyChange>>();
+	private List<PropertyChange> order = new ArrayList<PropertyChange>();
+	
+	public synchronized void record(Instance instance, LuaValue field, LuaValue value, LuaValue oldValue) {
+		Map<LuaValue, PropertyChange> fields = pending.get(instance);
+		if ( fields == null ) {
+			fields = new HashMap<LuaValue, PropertyChange>();
+			pending.put(instance, fields);
+		}
+		
+		PropertyChange change = fields.get(field);
+		if ( change != null ) {
+			change.setValue(value);
+			return;
+		}
+		
+		change = new PropertyChange(instance, field, value, oldValue);
+		fields.put(field, change);
+		order.add(change);
+	}
+	
+	/**
+	 * Returns every recorded change in the order it was first made, and empties the queue.
+	 * @return
+	 */
+	public synchronized List<PropertyChange> drain() {
+		if ( order.size() == 0 )
+			return null;
+		
+		List<PropertyChange> changes = order;
+		order = new ArrayList<PropertyChange>();
+		pending.clear();
+		return changes;
+	}
+	
+	public synchronized void clear() {
+		order.clear();
+		pending.clear();
+	}
+}
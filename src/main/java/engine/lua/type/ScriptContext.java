@@ -0,0 +1,93 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.luaj.vm2.LuaThread;
+
+import engine.lua.LuaEngine;
+import engine.lua.type.object.ScriptBase;
+
+/**
+ * One run of a script: the script itself, and every coroutine working on its behalf.<br>
+ * The context is carried by each {@link ScriptThread}, so finding the script of the running coroutine is a field read.
+ * Coroutines started from inside a context (spawn, delay, event listeners connected by it) join it, and {@link #stop()} interrupts all of them.
+ */
+public class ScriptContext {
+	private final ScriptBase script;
+	private final Set<ScriptThread> threads = ConcurrentHashMap.newKeySet();
+	private volatile boolean stopped;
+
+	public ScriptContext(ScriptBase script) {
+		this.script = script;
+	}
+
+	/**
+	 * Returns the context of the coroutine running on the calling thread, or null if it does not run for a script.
+	 * @return
+	 */
+	public static ScriptContext current() {
+		LuaThread running = ScriptScheduler.current();
+		if ( running == null )
+			running = LuaEngine.globals.running;
+
+		if ( running instanceof ScriptThread )
+			return ((ScriptThread)running).getContext();
+
+		return null;
+	}
+
+	public ScriptBase getScript() {
+		return script;
+	}
+
+	/**
+	 * Returns whether {@link #stop()} was called.
+	 * @return
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	/**
+	 * Returns the amount of live coroutines in this context.
+	 * @return
+	 */
+	public int getThreadCount() {
+		return threads.size();
+	}
+
+	/**
+	 * Adds a coroutine. It is interrupted right away if the context is already stopped.
+	 * @param thread
+	 */
+	void add(ScriptThread thread) {
+		threads.add(thread);
+		if ( stopped )
+			thread.stop();
+	}
+
+	void remove(ScriptThread thread) {
+		threads.remove(thread);
+	}
+
+	/**
+	 * Interrupts every coroutine of this context, and any that join it later.
+	 */
+	public void stop() {
+		stopped = true;
+		for (ScriptThread thread : threads) {
+			thread.stop();
+		}
+	}
+}
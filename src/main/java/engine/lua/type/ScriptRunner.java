@@ -10,40 +10,32 @@
 
 package engine.lua.type;
 
-import java.util.HashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
+import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaError;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
 
+import engine.Game;
 import engine.lua.LuaEngine;
+import engine.lua.lib.ScriptInterruptException;
 import engine.lua.type.object.ScriptBase;
+import engine.lua.type.object.services.ScriptService;
 
+/**
+ * Runs a function on its own engine coroutine ({@link ScriptThread}), scheduled by the {@link ScriptScheduler} of its globals.<br>
+ * The coroutine carries its {@link ScriptContext}, so nothing about a running script is kept in shared maps.
+ */
 public class ScriptRunner extends LuaValue implements Runnable {
-	private static ScheduledExecutorService THREAD_POOL;
-	private static HashMap<Thread,ScriptRunner> threadToScriptData;
-	private static HashMap<ScriptRunner,Thread> scriptDataToThread;
-	private static HashMap<ScriptRunner,Boolean> interruptedClosures;
-	//private static List<LuaThread> THREAD_POOL = Collections.synchronizedList(new ArrayList<LuaThread>());
-
 	private LuaValue function;
 	private Varargs arguments;
 	private ScriptBase script;
+	private ScriptThread coroutine;
+	private ScriptScheduler scheduler;
+	private ScriptContext context;
 	
-	private static final LuaValue C_LASTSCRIPT = LuaValue.valueOf("last_script");
-	
-	//private Thread thread;
+	private static final LuaValue C_LASTSCRIPT = LuaKeys.of("last_script");
 
-	static {
-		THREAD_POOL = Executors.newScheduledThreadPool(2048);
-		interruptedClosures = new HashMap<ScriptRunner,Boolean>();
-		threadToScriptData = new HashMap<Thread,ScriptRunner>();
-		scriptDataToThread = new HashMap<ScriptRunner,Thread>();
-	}
-	
 	private ScriptRunner(ScriptBase script) {
 		this.function = null;
 		this.arguments = null;
@@ -51,9 +43,34 @@ public class ScriptRunner extends LuaValue implements Runnable {
 	}
 
 	public static ScriptRunner create( LuaValue function, ScriptBase script, Varargs vargs ) {
+		return create(LuaEngine.globals, function, script, vargs);
+	}
+
+	/**
+	 * Creates a runner whose coroutine belongs to the supplied globals, and is run by their scheduler. See {@link ScriptScheduler#of(Globals)}.<br>
+	 * The coroutine joins the context of the calling coroutine when it runs for the same script (or no script is given).
+	 * Otherwise a script starts a new context.
+	 * @param globals
+	 * @param function
+	 * @param script
+	 * @param vargs
+	 * @return
+	 */
+	public static ScriptRunner create( Globals globals, LuaValue function, ScriptBase script, Varargs vargs ) {
 		ScriptRunner deadThread = new ScriptRunner(script);
 		deadThread.function = function;
 		deadThread.arguments = vargs;
+		deadThread.scheduler = ScriptScheduler.of(globals);
+		deadThread.coroutine = new ScriptThread(globals, new VarArgFunction() {
+			@Override
+			public Varargs invoke(Varargs args) {
+				deadThread.run();
+				return LuaValue.NONE;
+			}
+		}, deadThread);
+		deadThread.coroutine.setBudget(getBudget(script));
+		deadThread.context = getContext(script);
+		deadThread.coroutine.setContext(deadThread.context);
 
 		return deadThread;
 	}
@@ -68,72 +85,146 @@ public class ScriptRunner extends LuaValue implements Runnable {
 		return "Thread";
 	}
 
+	/**
+	 * Queues this runner's coroutine to start on the next scheduler step. See {@link ScriptScheduler}.
+	 */
 	public void start() {
-		//this.thread = new Thread(this);//LuaEngine.globals,function);
-		//this.thread.start();
-		//this.thread.resume(LuaValue.NONE);
-		if ( THREAD_POOL.isShutdown() )
-			return;
-		THREAD_POOL.schedule(this, 0, TimeUnit.MILLISECONDS);
+		scheduler.resume(coroutine, LuaValue.NONE);
+	}
+	
+	private static ScriptContext getContext(ScriptBase script) {
+		ScriptContext current = ScriptContext.current();
+		if ( current != null && (script == null || current.getScript() == script) )
+			return current;
+		
+		if ( script == null )
+			return null;
+		
+		return new ScriptContext(script);
+	}
+	
+	/**
+	 * Returns the wall-clock time a script may run for without yielding. Its own Timeout if set, otherwise ScriptService's ScriptTimeout.
+	 * @param script
+	 * @return
+	 */
+	public static double getBudget(ScriptBase script) {
+		if ( script != null && script.getTimeout() > 0 )
+			return script.getTimeout();
+		
+		ScriptService service = Game.scriptService();
+		if ( service != null )
+			return service.getScriptTimeout();
+		
+		return ScriptThread.DEFAULT_BUDGET;
+	}
+	
+	/**
+	 * Returns the script this runner belongs to, or null if it runs code that did not come from a script.
+	 * @return
+	 */
+	public ScriptBase getScript() {
+		return script;
+	}
+	
+	/**
+	 * Returns the coroutine this runner runs on.
+	 * @return
+	 */
+	public ScriptThread getCoroutine() {
+		return coroutine;
 	}
 	
+	/**
+	 * Returns the context this runner was created in, or null if it does not run for a script. Stays set after the coroutine finishes.
+	 * @return
+	 */
+	public ScriptContext getContext() {
+		return context;
+	}
+	
+	/**
+	 * Interrupts this runner's coroutine. To stop the whole script, stop its context ({@link ScriptContext#stop()}).
+	 */
 	public void interrupt() {
-		interruptedClosures.put(ScriptRunner.this, true);
-		System.out.println("Attempting to interrupt closure: " + script+"/"+function);
+		coroutine.stop();
+	}
+	
+	/**
+	 * Resumes the coroutine on the next scheduler step, so an interrupted coroutine that is waiting stops now instead of when its wait ends.
+	 */
+	void wake() {
+		scheduler.resume(coroutine, LuaValue.NONE);
 	}
 
+	/**
+	 * Body of the coroutine. Runs on the coroutine's own java thread, whenever the scheduler resumes it.
+	 */
 	@Override
 	public void run() {
+		// Stopped before it got to start
+		if ( isInterrupted() ) {
+			coroutine.setContext(null);
+			return;
+		}
+		
 		String fullName = "CMD";
 		if ( script != null )
 			fullName = script.getFullName();
+		else if ( context != null && context.getScript() != null )
+			fullName = context.getScript().getFullName();
 		
 		try {
 			if ( script != null ) {
 				System.out.println("Running data: " + this + " on thread: " + Thread.currentThread());
 				LuaEngine.globals.set(C_LASTSCRIPT, script);
-				threadToScriptData.put(Thread.currentThread(),ScriptRunner.this);
-				scriptDataToThread.put(ScriptRunner.this, Thread.currentThread());
 			}
 			if ( function != null ) {
 				function.invoke(arguments);
 			}
+		}catch(ScriptInterruptException e) {
+			// Thrown directly by compiled code, which does not wrap java exceptions
+			reportInterrupt(fullName);
 		}catch(LuaError e) {
 			
 			if ( e.getMessage().contains("ScriptInterruptException") ) {
-				interruptedClosures.remove(ScriptRunner.this);
-				threadToScriptData.remove(Thread.currentThread(), ScriptRunner.this);
-				scriptDataToThread.remove(ScriptRunner.this);
-				LuaEngine.error( "[" + fullName + "], Interrupted. Infinite Loop?" );
+				reportInterrupt(fullName);
 				return;
 			}
 			
 			LuaEngine.parseError(e, fullName);
+		} finally {
+			coroutine.setContext(null);
 		}
 	}
 
-	public static boolean isInterrupted(Thread thread) {
-		return interruptedClosures.containsKey(threadToScriptData.get(thread));
+	private void reportInterrupt(String fullName) {
+		if ( coroutine.isTimedOut() )
+			LuaEngine.error( "[" + fullName + "], Script ran for longer than " + coroutine.getBudget() + " seconds without yielding. Infinite Loop?" );
+		else if ( script != null || context == null )
+			LuaEngine.error( "[" + fullName + "], Interrupted." ); // Once per script, not once per coroutine
 	}
-	
+
 	public boolean isInterrupted() {
-		return interruptedClosures.containsKey(this);
-	}
-	
-	public static void cleanup() {
-		threadToScriptData.clear();
-		interruptedClosures.clear();
+		return coroutine.isInterrupted();
 	}
 	
+	/**
+	 * Stops scheduling coroutines. Suspended coroutines are interrupted and end where they yielded.
+	 */
 	public static void shutdown() {
-		THREAD_POOL.shutdown();
+		ScriptScheduler.main().clear();
 	}
 
-	public static ScriptBase getScript(Thread thread) {
-		ScriptRunner data = threadToScriptData.get(thread);
-		if ( data == null ) {
+	/**
+	 * Returns the script the calling coroutine runs for, or null. See {@link ScriptContext#current()}.
+	 * @return
+	 */
+	public static ScriptBase getCurrentScript() {
+		ScriptContext context = ScriptContext.current();
+		if ( context == null )
 			return null;
-		}
-		return data.script;
+		
+		return context.getScript();
 	}
 }
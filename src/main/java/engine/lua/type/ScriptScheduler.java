@@ -0,0 +1,339 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import engine.lua.LuaEngine;
+import engine.lua.lib.ScriptInterruptException;
+import engine.util.TimerWheel;
+import engine.util.TimerWheel.Timer;
+
+/**
+ * Cooperative scheduler for lua coroutines.<br>
+ * Scripts, spawn and delay run as coroutines that are resumed one at a time from {@link #step()}, which the game thread calls every tick.
+ * wait() yields the current coroutine and schedules it on a timer wheel instead of sleeping a thread.<br>
+ * Every {@link Globals} has its own scheduler. The engine's globals use {@link #main()}, script actors register their own (see {@link engine.lua.ScriptActor}).
+ */
+public class ScriptScheduler {
+	/**
+	 * Resolution of wait() and delay(). One game tick.
+	 */
+	private static final long TICK_NANOS = 1000000000L / 60;
+	private static final int WHEEL_SLOTS = 512;
+
+	private static final ScriptScheduler MAIN = new ScriptScheduler();
+	private static final Map<Globals, ScriptScheduler> SCHEDULERS = Collections.synchronizedMap(new IdentityHashMap<Globals, ScriptScheduler>());
+
+	/**
+	 * The coroutine bound to each coroutine's java thread. LuaJ runs every coroutine on its own java thread, so this never changes once set.
+	 */
+	private static final ThreadLocal<LuaThread> CURRENT = new ThreadLocal<LuaThread>();
+
+	private final Globals globals;
+	private final TimerWheel wheel = new TimerWheel(WHEEL_SLOTS, TICK_NANOS, System.nanoTime());
+	private final Queue<Runnable> ready = new ConcurrentLinkedQueue<Runnable>();
+	private final List<Timer> expired = new ArrayList<Timer>();
+	private final Set<ScriptThread> suspended = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<ScriptThread, Boolean>()));
+
+	private ScriptScheduler() {
+		this.globals = null;
+	}
+
+	/**
+	 * Creates a scheduler for coroutines of the supplied globals. It is returned by {@link #of(Globals)} until it is disposed.
+	 * @param globals
+	 */
+	public ScriptScheduler(Globals globals) {
+		this.globals = globals;
+		SCHEDULERS.put(globals, this);
+	}
+
+	/**
+	 * Returns the scheduler of the engine's globals. Stepped by the game thread.
+	 * @return
+	 */
+	public static ScriptScheduler main() {
+		return MAIN;
+	}
+
+	/**
+	 * Returns the scheduler that runs coroutines of the supplied globals.
+	 * @param globals
+	 * @return
+	 */
+	public static ScriptScheduler of(Globals globals) {
+		ScriptScheduler scheduler = SCHEDULERS.get(globals);
+		return scheduler != null ? scheduler : MAIN;
+	}
+
+	/**
+	 * Returns the globals this scheduler runs coroutines for.
+	 * @return
+	 */
+	public Globals getGlobals() {
+		return globals != null ? globals : LuaEngine.globals;
+	}
+
+	/**
+	 * Drops all work, stops every engine coroutine suspended in this scheduler (see {@link #clear()}) and stops {@link #of(Globals)}
+	 * from returning this scheduler.
+	 */
+	public void dispose() {
+		clear();
+		if ( globals != null )
+			SCHEDULERS.remove(globals);
+	}
+
+	/**
+	 * Queues the runnable to run on the next step.
+	 * @param runnable
+	 */
+	public void schedule(Runnable runnable) {
+		ready.add(runnable);
+	}
+
+	/**
+	 * Queues the coroutine to be resumed with the supplied arguments on the next step.
+	 * @param thread
+	 * @param args
+	 */
+	public void resume(LuaThread thread, Varargs args) {
+		ready.add(()->resumeNow(thread, args));
+	}
+
+	/**
+	 * Runs the action after the supplied amount of seconds, on the scheduler's thread.
+	 * @param seconds
+	 * @param action
+	 * @return the timer, which may be passed to {@link #cancel(Timer)}.
+	 */
+	public Timer delay(double seconds, Runnable action) {
+		Timer timer = new Timer(action);
+		wheel.schedule(timer, System.nanoTime() + (long)(Math.max(0, seconds) * 1.0e9));
+		return timer;
+	}
+
+	/**
+	 * Cancels a timer created by {@link #delay(double, Runnable)}. Returns false if it already ran.
+	 * @param timer
+	 * @return
+	 */
+	public boolean cancel(Timer timer) {
+		return wheel.cancel(timer);
+	}
+
+	/**
+	 * Binds the coroutine to the calling java thread. Called at the start of every coroutine body the engine creates (see {@link ScriptThread}).
+	 * @param thread
+	 */
+	public static void bindCurrent(LuaThread thread) {
+		CURRENT.set(thread);
+	}
+
+	/**
+	 * Unbinds the calling java thread from its coroutine. Called when the coroutine body returns.
+	 */
+	public static void unbindCurrent() {
+		CURRENT.remove();
+	}
+
+	/**
+	 * Returns the engine coroutine bound to the calling thread through {@link #bindCurrent(LuaThread)}, or null.
+	 * @return
+	 */
+	public static LuaThread current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Returns the coroutine running on the calling thread, or null if the caller is not inside a coroutine.
+	 * @return
+	 */
+	public LuaThread getCurrent() {
+		LuaThread thread = current();
+		if ( thread != null )
+			return thread;
+
+		// Coroutines created from lua (coroutine.create/wrap)
+		Globals globals = getGlobals();
+		if ( globals == null )
+			return null;
+
+		LuaThread running = globals.running;
+		if ( running == null || running.isMainThread() )
+			return null;
+
+		return running;
+	}
+
+	/**
+	 * Yields the current coroutine for the supplied amount of seconds.
+	 * @param seconds
+	 * @return the seconds actually waited, or null if the caller is not inside a coroutine (and therefore can not yield).
+	 */
+	public Varargs yieldFor(double seconds) {
+		LuaThread thread = getCurrent();
+		if ( thread == null )
+			return null;
+
+		final long start = System.nanoTime();
+		delay(seconds, ()->{
+			resumeNow(thread, LuaValue.valueOf((System.nanoTime()-start)/1.0e9));
+		});
+
+		return suspend(thread);
+	}
+
+	/**
+	 * Yields the current coroutine until something resumes it (see {@link #resume(LuaThread, Varargs)}).
+	 * @return the values it was resumed with, or null if the caller is not inside a coroutine.
+	 */
+	public Varargs yieldUntilResumed() {
+		LuaThread thread = getCurrent();
+		if ( thread == null )
+			return null;
+
+		return suspend(thread);
+	}
+
+	/**
+	 * Yields the coroutine. Engine coroutines are tracked while suspended, so {@link #clear()} can stop them.
+	 */
+	private Varargs suspend(LuaThread thread) {
+		if ( !(thread instanceof ScriptThread) )
+			return thread.state.lua_yield(LuaValue.NONE);
+
+		ScriptThread script = (ScriptThread) thread;
+		suspended.add(script);
+		try {
+			return checkInterrupted(thread, thread.state.lua_yield(LuaValue.NONE));
+		} finally {
+			suspended.remove(script);
+		}
+	}
+
+	/**
+	 * Runs every expired timer, then everything that was queued before this step started.
+	 * Work queued while stepping runs on the next step.
+	 */
+	public void step() {
+		// Expired timers
+		synchronized(expired) {
+			wheel.advance(System.nanoTime(), expired);
+			for (int i = 0; i < expired.size(); i++) {
+				runSafe(expired.get(i));
+			}
+			expired.clear();
+		}
+
+		// Queued work
+		int amount = ready.size();
+		for (int i = 0; i < amount; i++) {
+			Runnable runnable = ready.poll();
+			if ( runnable == null )
+				break;
+
+			runSafe(runnable);
+		}
+	}
+
+	/**
+	 * Returns the amount of coroutines and actions waiting on a timer.
+	 * @return
+	 */
+	public int getWaitingCount() {
+		return wheel.size();
+	}
+
+	/**
+	 * Returns the amount of work queued for the next step.
+	 * @return
+	 */
+	public int getQueuedCount() {
+		return ready.size();
+	}
+
+	/**
+	 * Drops all queued work and timers, then stops every engine coroutine suspended in this scheduler. Each is interrupted and resumed
+	 * once, so it throws where it yielded and its java thread ends. Nothing else would ever resume it, and its java thread keeps it
+	 * reachable, so it would never be collected either.
+	 */
+	public void clear() {
+		ready.clear();
+		wheel.clear();
+
+		ScriptThread[] threads;
+		synchronized(suspended) {
+			threads = suspended.toArray(new ScriptThread[suspended.size()]);
+			suspended.clear();
+		}
+
+		for (ScriptThread thread : threads) {
+			thread.interrupt();
+			if ( "suspended".equals(thread.getStatus()) )
+				runSafe(()->thread.resume(LuaValue.NONE));
+		}
+	}
+
+	/**
+	 * Stops a coroutine that was interrupted while it was suspended, before it runs any further.
+	 */
+	private static Varargs checkInterrupted(LuaThread thread, Varargs args) {
+		if ( thread instanceof ScriptThread && ((ScriptThread)thread).isInterrupted() )
+			throw new ScriptInterruptException();
+		
+		return args;
+	}
+
+	private void resumeNow(LuaThread thread, Varargs args) {
+		String status = thread.getStatus();
+		
+		// Resumed by another thread and has not yielded yet. Try again next step.
+		if ( "running".equals(status) || "normal".equals(status) ) {
+			resume(thread, args);
+			return;
+		}
+		
+		if ( !"suspended".equals(status) )
+			return;
+
+		thread.resume(args);
+	}
+
+	private static void runSafe(Runnable runnable) {
+		try {
+			runnable.run();
+		} catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void runSafe(Timer timer) {
+		try {
+			timer.run();
+		} catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
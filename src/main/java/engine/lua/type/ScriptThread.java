@@ -0,0 +1,198 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+
+/**
+ * Coroutine created by the engine. Carries the state the instruction watchdog needs, so checking it never has to look anything up.<br>
+ * The budget is the wall-clock time the coroutine may run for between two yields, measured from its last resume (time the
+ * java thread is descheduled by the OS counts too). See {@link engine.lua.lib.PreventInfiniteInstructions}.<br>
+ * The body binds the coroutine to its java thread before it runs (see {@link ScriptScheduler#current()}), so the watchdog can tell
+ * which coroutine an instruction belongs to without reading the shared {@link Globals#running}.
+ */
+public class ScriptThread extends LuaThread {
+	/**
+	 * Budget used when none is set on the thread, in seconds.
+	 */
+	public static final double DEFAULT_BUDGET = 10;
+
+	private final ScriptRunner runner;
+	private volatile ScriptContext context;
+	private volatile long budgetNanos;
+	private volatile long sliceStart;
+	private volatile boolean interrupted;
+	private volatile boolean timedOut;
+
+	public ScriptThread(Globals globals, LuaValue function, ScriptRunner runner) {
+		this(globals, new Body(function), runner);
+	}
+	
+	private ScriptThread(Globals globals, Body body, ScriptRunner runner) {
+		super(globals, body);
+		body.thread = this;
+		this.runner = runner;
+		this.setBudget(DEFAULT_BUDGET);
+	}
+	
+	/**
+	 * Binds the coroutine to the java thread LuaJ starts for it, then runs the real body. Unbinds it when the body returns.
+	 */
+	private static class Body extends VarArgFunction {
+		private final LuaValue function;
+		private ScriptThread thread;
+		
+		Body(LuaValue function) {
+			this.function = function;
+		}
+		
+		@Override
+		public Varargs invoke(Varargs args) {
+			ScriptScheduler.bindCurrent(thread);
+			try {
+				return function.invoke(args);
+			} finally {
+				ScriptScheduler.unbindCurrent();
+			}
+		}
+	}
+
+	/**
+	 * Starts a new time slice, then resumes the coroutine.
+	 */
+	@Override
+	public Varargs resume(Varargs args) {
+		sliceStart = System.nanoTime();
+		return super.resume(args);
+	}
+
+	/**
+	 * Returns the runner this coroutine belongs to, or null if it runs event listeners.
+	 * @return
+	 */
+	public ScriptRunner getRunner() {
+		return runner;
+	}
+
+	/**
+	 * Returns the script context this coroutine works for, or null.
+	 * @return
+	 */
+	public ScriptContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Moves the coroutine into another context (or none). Pooled coroutines switch context with every job.
+	 * @param context
+	 */
+	void setContext(ScriptContext context) {
+		ScriptContext old = this.context;
+		if ( old == context )
+			return;
+
+		if ( old != null )
+			old.remove(this);
+
+		this.context = context;
+		if ( context != null )
+			context.add(this);
+	}
+
+	/**
+	 * Sets the wall-clock time this coroutine may run for without yielding, in seconds. 0 or less disables the limit.
+	 * @param seconds
+	 */
+	public void setBudget(double seconds) {
+		this.budgetNanos = seconds <= 0 ? Long.MAX_VALUE : (long)(seconds * 1.0e9);
+	}
+
+	/**
+	 * Returns the wall-clock time this coroutine may run for without yielding, in seconds. 0 if unlimited.
+	 * @return
+	 */
+	public double getBudget() {
+		return budgetNanos == Long.MAX_VALUE ? 0 : budgetNanos / 1.0e9;
+	}
+
+	/**
+	 * Returns how long the coroutine has been running since it was last resumed, in seconds.
+	 * @return
+	 */
+	public double getSliceTime() {
+		return (System.nanoTime() - sliceStart) / 1.0e9;
+	}
+
+	/**
+	 * Returns when the coroutine was last resumed, from System.nanoTime().
+	 * @return
+	 */
+	public long getSliceStart() {
+		return sliceStart;
+	}
+
+	/**
+	 * Asks the coroutine to stop. It throws the next time the watchdog checks it.
+	 */
+	public void interrupt() {
+		interrupted = true;
+	}
+
+	public boolean isInterrupted() {
+		return interrupted;
+	}
+
+	/**
+	 * Interrupts the coroutine, and wakes it if it belongs to a runner, so a waiting coroutine stops now instead of when its wait ends.
+	 */
+	void stop() {
+		interrupt();
+		if ( runner != null )
+			runner.wake();
+	}
+
+	/**
+	 * Lets a pooled coroutine run the next job after the previous one was stopped.
+	 */
+	void clearInterrupt() {
+		interrupted = false;
+		timedOut = false;
+	}
+
+	/**
+	 * Returns whether the coroutine was stopped for running past its budget.
+	 * @return
+	 */
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * Called by the watchdog. Interrupts the coroutine if it has run past its budget, and returns whether it should stop.
+	 * @param now
+	 * @return
+	 */
+	public boolean checkBudget(long now) {
+		if ( interrupted )
+			return true;
+
+		if ( now - sliceStart > budgetNanos ) {
+			timedOut = true;
+			interrupted = true;
+		}
+
+		return interrupted;
+	}
+}
@@ -15,39 +15,55 @@ import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.ThreeArgFunction;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 import lwjgui.paint.Color;
 
 public class Color3 extends ColorBase {
 
+	protected static final LuaValue C_R = LuaKeys.of("R");
+	protected static final LuaValue C_G = LuaKeys.of("G");
+	protected static final LuaValue C_B = LuaKeys.of("B");
+
 	private Color internal;
+	private int r;
+	private int g;
+	private int b;
 	
 	public Color3(Color color) {
-		this();
-		
-		this.rawset("R", LuaValue.valueOf(color.getRed()));
-		this.rawset("G", LuaValue.valueOf(color.getGreen()));
-		this.rawset("B", LuaValue.valueOf(color.getBlue()));
+		this(color.getRed(), color.getGreen(), color.getBlue());
 	}
 	
 	public Color3(Color3 color) {
-		this(color.internal);
+		this(color.r, color.g, color.b);
+	}
+	
+	private Color3(int r, int g, int b) {
+		this.r = r;
+		this.g = g;
+		this.b = b;
 	}
 	
 	public Color3() {
+		this(0, 0, 0);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
 		
 		// Create ToString function
-		this.getmetatable().set("ToString", new ZeroArgFunction() {
+		metatable.set("ToString", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(Color3.this.toString());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(myself.toString());
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.ADD, new TwoArgFunction() {
+		metatable.set(LuaValue.ADD, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color3 left2 = getColor(left);
 				Color3 right2 = getColor(right);
@@ -55,7 +71,7 @@ public class Color3 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.SUB, new TwoArgFunction() {
+		metatable.set(LuaValue.SUB, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color3 left2 = getColor(left);
 				Color3 right2 = getColor(right);
@@ -63,7 +79,7 @@ public class Color3 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.MUL, new TwoArgFunction() {
+		metatable.set(LuaValue.MUL, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color3 left2 = getColor(left);
 				Color3 right2 = getColor(right);
@@ -75,7 +91,7 @@ public class Color3 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.DIV, new TwoArgFunction() {
+		metatable.set(LuaValue.DIV, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color3 left2 = getColor(left);
 				Color3 right2 = getColor(right);
@@ -86,14 +102,9 @@ public class Color3 extends ColorBase {
 					);
 			}
 		});
-		
-		// Define fields
-		defineField("R", LuaValue.valueOf(0), true);
-		defineField("G", LuaValue.valueOf(0), true);
-		defineField("B", LuaValue.valueOf(0), true);
 	}
 	
-	private Color3 getColor(LuaValue value) {
+	private static Color3 getColor(LuaValue value) {
 		if ( value instanceof Color3 )
 			return ((Color3)value);
 		
@@ -200,15 +211,15 @@ public class Color3 extends ColorBase {
 	}
 
 	public int getR() {
-		return Math.max(0, Math.min(255, this.get("R").checkint() ));
+		return Math.max(0, Math.min(255, r));
 	}
 
 	public int getG() {
-		return Math.max(0, Math.min(255, this.get("G").checkint() ));
+		return Math.max(0, Math.min(255, g));
 	}
 
 	public int getB() {
-		return Math.max(0, Math.min(255, this.get("B").checkint() ));
+		return Math.max(0, Math.min(255, b));
 	}
 
 	protected LuaValue newInstanceFunction() {
@@ -221,11 +232,7 @@ public class Color3 extends ColorBase {
 	}
 
 	public static Color3 newInstance(int r, int g, int b) {
-		Color3 inst = new Color3();
-		inst.rawset("R", LuaValue.valueOf(r));
-		inst.rawset("G", LuaValue.valueOf(g));
-		inst.rawset("B", LuaValue.valueOf(b));
-		return inst;
+		return new Color3(r, g, b);
 	}
 
 	@Override
@@ -246,9 +253,9 @@ public class Color3 extends ColorBase {
 		String[] t = input.replace(" ", "").split(",");
 		if ( t.length != 3 )
 			return this;
-		this.rawset("R", LuaValue.valueOf(Integer.parseInt(t[0])));
-		this.rawset("G", LuaValue.valueOf(Integer.parseInt(t[1])));
-		this.rawset("B", LuaValue.valueOf(Integer.parseInt(t[2])));
+		this.r = Integer.parseInt(t[0]);
+		this.g = Integer.parseInt(t[1]);
+		this.b = Integer.parseInt(t[2]);
 		internal = null;
 		return this;
 	}
@@ -262,6 +269,19 @@ public class Color3 extends ColorBase {
 	protected boolean onValueGet(LuaValue key) {
 		return true;
 	}
+	
+	@Override
+	public LuaValue get(LuaValue key) {
+		// Components are served straight from the fields. No per-object table entries.
+		if ( key.eq_b(C_R) )
+			return LuaValue.valueOf(r);
+		if ( key.eq_b(C_G) )
+			return LuaValue.valueOf(g);
+		if ( key.eq_b(C_B) )
+			return LuaValue.valueOf(b);
+		
+		return super.get(key);
+	}
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -287,6 +307,15 @@ public class Color3 extends ColorBase {
 	}
 
 	public Vector3f toJOML() {
-		return new Vector3f( getR()/255f, getG()/255f, getB()/255f );
+		return toJOML(new Vector3f());
+	}
+	
+	/**
+	 * Writes this color (0-1 range) into the supplied Vector3f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Vector3f toJOML(Vector3f dest) {
+		return dest.set( getR()/255f, getG()/255f, getB()/255f );
 	}
 }
@@ -14,41 +14,59 @@ import org.joml.Vector4f;
 import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.lib.FourArgFunction;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 import lwjgui.paint.Color;
 
 public class Color4 extends ColorBase {
 
+	protected static final LuaValue C_R = LuaKeys.of("R");
+	protected static final LuaValue C_G = LuaKeys.of("G");
+	protected static final LuaValue C_B = LuaKeys.of("B");
+	protected static final LuaValue C_A = LuaKeys.of("A");
+
 	private Color internal;
+	private int r;
+	private int g;
+	private int b;
+	private float a;
 	
 	public Color4(Color color) {
-		this();
-		
-		this.rawset("R", LuaValue.valueOf(color.getRed()));
-		this.rawset("G", LuaValue.valueOf(color.getGreen()));
-		this.rawset("B", LuaValue.valueOf(color.getBlue()));
-		this.rawset("A", LuaValue.valueOf(color.getAlphaF()));
+		this(color.getRed(), color.getGreen(), color.getBlue(), color.getAlphaF());
 	}
 	
 	public Color4(Color4 color) {
-		this(color.internal);
+		this(color.r, color.g, color.b, color.a);
+	}
+	
+	private Color4(int r, int g, int b, float a) {
+		this.r = r;
+		this.g = g;
+		this.b = b;
+		this.a = a;
 	}
 	
 	public Color4() {
+		this(0, 0, 0, 0);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
 		
 		// Create ToString function
-		this.getmetatable().set("ToString", new ZeroArgFunction() {
+		metatable.set("ToString", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(Color4.this.toString());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(myself.toString());
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.ADD, new TwoArgFunction() {
+		metatable.set(LuaValue.ADD, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color4 left2 = getColor(left);
 				Color4 right2 = getColor(right);
@@ -56,7 +74,7 @@ public class Color4 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.SUB, new TwoArgFunction() {
+		metatable.set(LuaValue.SUB, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color4 left2 = getColor(left);
 				Color4 right2 = getColor(right);
@@ -64,7 +82,7 @@ public class Color4 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.MUL, new TwoArgFunction() {
+		metatable.set(LuaValue.MUL, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color4 left2 = getColor(left);
 				Color4 right2 = getColor(right);
@@ -77,7 +95,7 @@ public class Color4 extends ColorBase {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.DIV, new TwoArgFunction() {
+		metatable.set(LuaValue.DIV, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Color4 left2 = getColor(left);
 				Color4 right2 = getColor(right);
@@ -89,15 +107,9 @@ public class Color4 extends ColorBase {
 					);
 			}
 		});
-		
-		// Define fields
-		defineField("R", LuaValue.valueOf(0), true);
-		defineField("G", LuaValue.valueOf(0), true);
-		defineField("B", LuaValue.valueOf(0), true);
-		defineField("A", LuaValue.valueOf(0), true);
 	}
 	
-	private Color4 getColor(LuaValue value) {
+	private static Color4 getColor(LuaValue value) {
 		if ( value instanceof Color4 )
 			return ((Color4)value);
 		
@@ -107,7 +119,7 @@ public class Color4 extends ColorBase {
 		}
 		
 		// Cant get color...
-		LuaValue.error("Error casting value to type " + this.typename());
+		LuaValue.error("Error casting value to type Color4");
 		return null;
 	}
 
@@ -204,19 +216,19 @@ public class Color4 extends ColorBase {
 	}
 
 	public int getR() {
-		return Math.max(0, Math.min(255, this.get("R").checkint() ));
+		return Math.max(0, Math.min(255, r));
 	}
 
 	public int getG() {
-		return Math.max(0, Math.min(255, this.get("G").checkint() ));
+		return Math.max(0, Math.min(255, g));
 	}
 
 	public int getB() {
-		return Math.max(0, Math.min(255, this.get("B").checkint() ));
+		return Math.max(0, Math.min(255, b));
 	}
 
 	public float getA() {
-		return Math.max(0, Math.min(1, this.get("A").tofloat() ));
+		return Math.max(0, Math.min(1, a));
 	}
 
 	protected LuaValue newInstanceFunction() {
@@ -229,12 +241,7 @@ public class Color4 extends ColorBase {
 	}
 
 	public static Color4 newInstance(int r, int g, int b, float a) {
-		Color4 inst = new Color4();
-		inst.rawset("R", LuaValue.valueOf(r));
-		inst.rawset("G", LuaValue.valueOf(g));
-		inst.rawset("B", LuaValue.valueOf(b));
-		inst.rawset("A", LuaValue.valueOf(a));
-		return inst;
+		return new Color4(r, g, b, a);
 	}
 
 	@Override
@@ -255,10 +262,10 @@ public class Color4 extends ColorBase {
 		String[] t = input.replace(" ", "").split(",");
 		if ( t.length != 4 )
 			return this;
-		this.rawset("R", LuaValue.valueOf(Integer.parseInt(t[0])));
-		this.rawset("G", LuaValue.valueOf(Integer.parseInt(t[1])));
-		this.rawset("B", LuaValue.valueOf(Integer.parseInt(t[2])));
-		this.rawset("A", LuaValue.valueOf(Float.parseFloat(t[3])));
+		this.r = Integer.parseInt(t[0]);
+		this.g = Integer.parseInt(t[1]);
+		this.b = Integer.parseInt(t[2]);
+		this.a = Float.parseFloat(t[3]);
 		internal = null;
 		return this;
 	}
@@ -272,6 +279,21 @@ public class Color4 extends ColorBase {
 	protected boolean onValueGet(LuaValue key) {
 		return true;
 	}
+	
+	@Override
+	public LuaValue get(LuaValue key) {
+		// Components are served straight from the fields. No per-object table entries.
+		if ( key.eq_b(C_R) )
+			return LuaValue.valueOf(r);
+		if ( key.eq_b(C_G) )
+			return LuaValue.valueOf(g);
+		if ( key.eq_b(C_B) )
+			return LuaValue.valueOf(b);
+		if ( key.eq_b(C_A) )
+			return LuaValue.valueOf(a);
+		
+		return super.get(key);
+	}
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -299,6 +321,15 @@ public class Color4 extends ColorBase {
 	}
 
 	public Vector4f toJOML() {
-		return new Vector4f( getR()/255f, getG()/255f, getB()/255f, getA() );
+		return toJOML(new Vector4f());
+	}
+	
+	/**
+	 * Writes this color (0-1 range) into the supplied Vector4f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Vector4f toJOML(Vector4f dest) {
+		return dest.set( getR()/255f, getG()/255f, getB()/255f, getA() );
 	}
 }
@@ -17,9 +17,9 @@ import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.network.internal.JSONUtil;
 import engine.lua.type.LuaValuetype;
@@ -30,44 +30,47 @@ public class List extends LuaValuetype {
 	
 	public List() {
 		this.internal = new ArrayList<>();
-		
-		this.getmetatable().set("Size", new ZeroArgFunction() {
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
+		metatable.set("Size", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(size());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(checkValue(myself, List.class).size());
 			}
 		});
 		
-		this.getmetatable().set("Clear", new ZeroArgFunction() {
+		metatable.set("Clear", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				clear();
+			public LuaValue call(LuaValue myself) {
+				checkValue(myself, List.class).clear();
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set("Add", new TwoArgFunction() {
+		metatable.set("Add", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue object1) {
-				addElement(object1);
+				checkValue(myself, List.class).addElement(object1);
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set("Remove", new TwoArgFunction() {
+		metatable.set("Remove", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue object1) {
-				removeElement(object1);
+				checkValue(myself, List.class).removeElement(object1);
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set("Get", new TwoArgFunction() {
+		metatable.set("Get", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue object1) {
 				if ( !object1.isnumber() )
 					return LuaValue.NIL;
-				return getElement(object1.checkint());
+				return checkValue(myself, List.class).getElement(object1.checkint());
 			}
 		});
 	}
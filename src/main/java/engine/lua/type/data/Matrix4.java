@@ -16,73 +16,76 @@ import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 
 public class Matrix4 extends LuaValuetype {
 	
 	private Matrix4f internal;
+	private Vector3 position;
 	
-	protected static final LuaValue C_P = LuaValue.valueOf("P");
+	protected static final LuaValue C_P = LuaKeys.of("P");
 
 	public Matrix4() {
 		this(0, 0, 0);
 	}
 	
 	public Matrix4(Matrix4 old) {
-		this(new Matrix4f(old.internal));
+		this(old.internal);
 	}
 	
 	public Matrix4(Vector3 old) {
-		this(old.toJoml());
+		this(old.getX(), old.getY(), old.getZ());
 	}
 	
 	public Matrix4( double x, double y, double z ) {
-		this(new Vector3f((float)x,(float)y,(float)z));
+		this.internal = new Matrix4f().translation((float)x, (float)y, (float)z);
 	}
 	
 	public Matrix4( Vector3f vector ) {
-		this(new Matrix4f().identity().translate(vector));
+		this.internal = new Matrix4f().translation(vector);
 	}
 	
 	public Matrix4(Matrix4f internal) {
 		this.internal = new Matrix4f(internal);
-		
-		this.defineField("P", new Vector3(internal.getTranslation(new Vector3f())), false);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
 
 		// Create ToString function
-		this.getmetatable().set("ToString", new ZeroArgFunction() {
+		metatable.set("ToString", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				return LuaValue.valueOf("Matrix4f()");
 			}
 		});
 		
-		this.getmetatable().set("Inverse", new ZeroArgFunction() {
+		metatable.set("Inverse", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return new Matrix4(new Matrix4f(internal).invert());
+			public LuaValue call(LuaValue myself) {
+				return new Matrix4(new Matrix4f(checkValue(myself, Matrix4.class).internal).invert());
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.MUL, new TwoArgFunction() {
+		metatable.set(LuaValue.MUL, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				if ( left instanceof Matrix4 && right instanceof Matrix4 ) {
 					Matrix4 left2 = (Matrix4)left;
 					Matrix4 right2 = (Matrix4)right;
 					Matrix4 newMat = new Matrix4();
-					newMat.internal = left2.internal.mul(right2.internal, newMat.internal);
-					newMat.update();
+					left2.internal.mul(right2.internal, newMat.internal);
 					return newMat;
 				}
 				if ( left instanceof Matrix4 && right instanceof Vector3 ) {
 					Matrix4 left2 = (Matrix4)left;
 					Vector3 right2 = (Vector3)right;
 					
-					Vector3f vec = new Vector3f(right2.toJoml()).mulProject(left2.internal);
+					Vector3f vec = right2.toJoml().mulProject(left2.internal);
 					Vector3 newVec = new Vector3(vec);
 					return newVec;
 				}
@@ -91,7 +94,7 @@ public class Matrix4 extends LuaValuetype {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.ADD, new TwoArgFunction() {
+		metatable.set(LuaValue.ADD, new TwoArgFunction() {
 
 			@Override
 			public LuaValue call(LuaValue left, LuaValue right) {
@@ -100,8 +103,7 @@ public class Matrix4 extends LuaValuetype {
 					Vector3 right2 = (Vector3)right;
 					
 					Matrix4 newMat = new Matrix4(left2.internal);
-					newMat.internal.translate(right2.toJoml());
-					newMat.update();
+					newMat.internal.translate(right2.getX(), right2.getY(), right2.getZ());
 					
 					return newMat;
 				}
@@ -111,7 +113,7 @@ public class Matrix4 extends LuaValuetype {
 			}
 		});
 		
-		this.getmetatable().set(LuaValue.SUB, new TwoArgFunction() {
+		metatable.set(LuaValue.SUB, new TwoArgFunction() {
 
 			@Override
 			public LuaValue call(LuaValue left, LuaValue right) {
@@ -120,8 +122,7 @@ public class Matrix4 extends LuaValuetype {
 					Vector3 right2 = (Vector3)right;
 					
 					Matrix4 newMat = new Matrix4(left2.internal);
-					newMat.internal.translate(right2.toJoml().negate());
-					newMat.update();
+					newMat.internal.translate(-right2.getX(), -right2.getY(), -right2.getZ());
 					
 					return newMat;
 				}
@@ -132,10 +133,18 @@ public class Matrix4 extends LuaValuetype {
 		});
 	}
 
-	private void update() {
-		Vector3f translation = internal.getTranslation(new Vector3f());
-		Vector3 pos = (Vector3) this.rawget(C_P);
-		pos.setInternal(translation);
+	/**
+	 * Returns the translation of this matrix as a Vector3. The vector is cached, and only
+	 * replaced when the translation changes.
+	 */
+	private Vector3 getTranslation() {
+		Vector3 pos = this.position;
+		if ( pos == null || pos.getX() != internal.m30() || pos.getY() != internal.m31() || pos.getZ() != internal.m32() ) {
+			pos = new Vector3(internal.m30(), internal.m31(), internal.m32());
+			this.position = pos;
+		}
+		
+		return pos;
 	}
 
 	@Override
@@ -162,6 +171,15 @@ public class Matrix4 extends LuaValuetype {
 		return new Matrix4f(internal);
 	}
 	
+	/**
+	 * Copies the internal matrix into the supplied Matrix4f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Matrix4f toJoml(Matrix4f dest) {
+		return dest.set(internal);
+	}
+	
 	/**
 	 * Returns the raw internal matrix.
 	 * @return
@@ -175,7 +193,16 @@ public class Matrix4 extends LuaValuetype {
 	 * @return
 	 */
 	public Vector3 getPosition() { 
-		return (Vector3) this.get(C_P);
+		return getTranslation();
+	}
+	
+	/**
+	 * Copies this matrix's translation into the supplied Vector3f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Vector3f getPosition(Vector3f dest) {
+		return internal.getTranslation(dest);
 	}
 	
 	/**
@@ -183,7 +210,6 @@ public class Matrix4 extends LuaValuetype {
 	 * @param value
 	 */
 	public void setPosition(Vector3 value) {
-		this.rawset(C_P, value);
 		this.set(C_P, value);
 	}
 	
@@ -193,7 +219,6 @@ public class Matrix4 extends LuaValuetype {
 	 */
 	public void setInternal(Matrix4f matrix) {
 		this.internal.set(matrix);
-		update();
 	}
 	
 	public boolean eq_b(LuaValue value) {
@@ -286,17 +311,6 @@ public class Matrix4 extends LuaValuetype {
 
 	@Override
 	protected LuaValue onValueSet(LuaValue key, LuaValue value) {
-		if ( key.eq_b(C_P) ) {
-			if ( value instanceof Vector3 ) {
-				//this.setLocked(false);
-				Vector3 vector = (Vector3)value;
-				internal.m30(vector.getX());
-				internal.m31(vector.getY());
-				internal.m32(vector.getZ());
-				//this.setLocked(true);
-			}
-		}
-
 		return value;
 	}
 
@@ -305,6 +319,34 @@ public class Matrix4 extends LuaValuetype {
 		return true;
 	}
 	
+	@Override
+	public LuaValue get(LuaValue key) {
+		// Translation is read straight out of the matrix. No per-object table entries.
+		if ( key.eq_b(C_P) )
+			return getTranslation();
+		
+		return super.get(key);
+	}
+	
+	@Override
+	public void set(LuaValue key, LuaValue value) {
+		if ( !key.eq_b(C_P) ) {
+			super.set(key, value);
+			return;
+		}
+		
+		if ( !(value instanceof Vector3) ) {
+			LuaValue.error("Cannot set field " + key.toString() + ". Type mismatch. Expects: Vector3");
+			return;
+		}
+		
+		Vector3 vector = (Vector3)value;
+		internal.m30(vector.getX());
+		internal.m31(vector.getY());
+		internal.m32(vector.getZ());
+		this.position = vector;
+	}
+	
 
 	@SuppressWarnings("unchecked")
 	@Override
@@ -14,12 +14,13 @@ import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.TwoArgFunction;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 
 public class Ray extends LuaValuetype {
-	protected static final LuaValue C_ORIGIN = LuaValue.valueOf("Origin");
-	protected static final LuaValue C_DIRECTION = LuaValue.valueOf("Direction");
-	protected static final LuaValue C_UNIT = LuaValue.valueOf("Unit");
+	protected static final LuaValue C_ORIGIN = LuaKeys.of("Origin");
+	protected static final LuaValue C_DIRECTION = LuaKeys.of("Direction");
+	protected static final LuaValue C_UNIT = LuaKeys.of("Unit");
 	
 	@Override
 	public String typename() {
@@ -14,20 +14,24 @@ import org.joml.Vector2f;
 import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 import engine.util.Misc;
 
 public class Vector2 extends LuaValuetype {
-	protected static final LuaValue C_X = LuaValue.valueOf("X");
-	protected static final LuaValue C_Y = LuaValue.valueOf("Y");
-	protected static final LuaValue C_UNIT = LuaValue.valueOf("Unit");
-	protected static final LuaValue C_MAGNITUDE = LuaValue.valueOf("Magnitude");
+	protected static final LuaValue C_X = LuaKeys.of("X");
+	protected static final LuaValue C_Y = LuaKeys.of("Y");
+	protected static final LuaValue C_UNIT = LuaKeys.of("Unit");
+	protected static final LuaValue C_MAGNITUDE = LuaKeys.of("Magnitude");
 	
 	private Vector2f internal;
-	private boolean modified;
+	private boolean modified = true;
+	private float magnitude;
+	private Vector2 unit;
 	
 	@Override
 	public String typename() {
@@ -35,40 +39,41 @@ public class Vector2 extends LuaValuetype {
 	}
 	
 	public Vector2(float x, float y) {
-		this(new Vector2f(x, y));
+		this.internal = new Vector2f(x, y);
 	}
 	
 	public Vector2(Vector2f internal) {
-		this();
-		setInternal(internal);
+		this(internal.x, internal.y);
 	}
 	
-	public Vector2() {		
-		// Define fields
-		defineField(C_X.toString(), LuaValue.valueOf(0), true);
-		defineField(C_Y.toString(), LuaValue.valueOf(0), true);
-		this.internal = new Vector2f();
+	public Vector2() {
+		this(0, 0);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
 		
 		// Create ToString function
-		this.getmetatable().set("ToString", new ZeroArgFunction() {
+		metatable.set("ToString", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(Vector2.this.toString());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(myself.toString());
 			}
 		});
 
 		// Create Dot function
-		this.getmetatable().set("Dot", new TwoArgFunction() {
+		metatable.set("Dot", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue left, LuaValue right) {
-				if (right instanceof Vector2) {
+				if (left instanceof Vector2 && right instanceof Vector2) {
+					Vector2 left2 = (Vector2)left;
 					Vector2 vec = (Vector2)right;
-					return LuaValue.valueOf(getX() * vec.getX() + getY() * vec.getY());
+					return LuaValue.valueOf(left2.getX() * vec.getX() + left2.getY() * vec.getY());
 				}
 				return LuaValue.valueOf(0);
 			}
 		});
-		this.getmetatable().set(LuaValue.EQ, new TwoArgFunction() {
+		metatable.set(LuaValue.EQ, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector2 left2 = getVector(left);
 				Vector2 right2 = getVector(right);
@@ -76,7 +81,7 @@ public class Vector2 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.ADD, new TwoArgFunction() {
+		metatable.set(LuaValue.ADD, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector2 left2 = getVector(left);
 				Vector2 right2 = getVector(right);
@@ -84,7 +89,7 @@ public class Vector2 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.SUB, new TwoArgFunction() {
+		metatable.set(LuaValue.SUB, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector2 left2 = getVector(left);
 				Vector2 right2 = getVector(right);
@@ -92,7 +97,7 @@ public class Vector2 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.MUL, new TwoArgFunction() {
+		metatable.set(LuaValue.MUL, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector2 left2 = getVector(left);
 				Vector2 right2 = getVector(right);
@@ -100,7 +105,7 @@ public class Vector2 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.DIV, new TwoArgFunction() {
+		metatable.set(LuaValue.DIV, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector2 left2 = getVector(left);
 				Vector2 right2 = getVector(right);
@@ -109,7 +114,7 @@ public class Vector2 extends LuaValuetype {
 		});
 	}
 	
-	protected Vector2 getVector(LuaValue value) {
+	protected static Vector2 getVector(LuaValue value) {
 		if ( value instanceof Vector2 ) {
 			return (Vector2)value;
 		} else {
@@ -176,8 +181,7 @@ public class Vector2 extends LuaValuetype {
 	}
 
 	private static Vector2 newInstance(double x, double y) {
-		Vector2f internal = new Vector2f((float)x, (float)y);
-		return new Vector2(internal);
+		return new Vector2((float)x, (float)y);
 	}
 
 	@Override
@@ -246,10 +250,10 @@ public class Vector2 extends LuaValuetype {
 		if ( t.length != 2 )
 			return this;
 		
-		Vector2 vec = new Vector2(new Vector2f(
+		Vector2 vec = new Vector2(
 				(float) Double.parseDouble(t[0]),
 				(float) Double.parseDouble(t[1])
-		));
+		);
 		return vec;
 	}
 
@@ -265,38 +269,66 @@ public class Vector2 extends LuaValuetype {
 
 	@Override
 	protected boolean onValueGet(LuaValue key) {
-		String keyName = key.toString();
-		if ( keyName.equals(C_UNIT.toString()) || keyName.equals(C_MAGNITUDE.toString()) ) {
-			if ( modified ) {
-				modified = false;
-				
-				// Compute magnitude
-				float magnitude = internal.length();
-				this.rawset(C_MAGNITUDE, LuaValue.valueOf(magnitude));
-				
-				// Compute unit vector
-				this.rawset(C_UNIT, new Vector2(new Vector2f(
-						getX() / magnitude,
-						getY() / magnitude
-				)));
-			}
+		return true;
+	}
+	
+	@Override
+	public LuaValue get(LuaValue key) {
+		// Components are served straight from the internal vector. No per-object table entries.
+		if ( key.eq_b(C_X) )
+			return LuaValue.valueOf(internal.x);
+		if ( key.eq_b(C_Y) )
+			return LuaValue.valueOf(internal.y);
+		if ( key.eq_b(C_MAGNITUDE) )
+			return LuaValue.valueOf(computeMagnitude());
+		if ( key.eq_b(C_UNIT) )
+			return getUnit();
+		
+		return super.get(key);
+	}
+	
+	private float computeMagnitude() {
+		if ( modified ) {
+			modified = false;
+			unit = null;
+			magnitude = internal.length();
 		}
 		
-		return true;
+		return magnitude;
 	}
 
 	public Vector2f toJoml() {
 		return new Vector2f(internal);
 	}
+	
+	/**
+	 * Copies this vector into the supplied Vector2f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Vector2f toJoml(Vector2f dest) {
+		return dest.set(internal);
+	}
 
 	public void setInternal(Vector2f internal) {
-		this.rawset(C_X, LuaValue.valueOf(internal.x));
-		this.rawset(C_Y, LuaValue.valueOf(internal.y));
-		this.internal.set(internal);
+		this.setInternal(internal.x, internal.y);
+	}
+	
+	/**
+	 * Overwrites this vector in place. Intended for engine code which owns the value.
+	 * @param x
+	 * @param y
+	 */
+	public void setInternal(float x, float y) {
+		this.internal.set(x, y);
 		modified = true;
 	}
 
 	public Vector2 getUnit() {
-		return (Vector2)this.get(C_UNIT);
+		float magnitude = computeMagnitude();
+		if ( unit == null )
+			unit = new Vector2(getX() / magnitude, getY() / magnitude);
+		
+		return unit;
 	}
 }
@@ -14,22 +14,26 @@ import org.joml.Vector3f;
 import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.ThreeArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 import engine.util.Misc;
 
 public class Vector3 extends LuaValuetype {
-	protected static final LuaValue C_X = LuaValue.valueOf("X");
-	protected static final LuaValue C_Y = LuaValue.valueOf("Y");
-	protected static final LuaValue C_Z = LuaValue.valueOf("Z"); 
-	protected static final LuaValue C_UNIT = LuaValue.valueOf("Unit");
-	protected static final LuaValue C_MAGNITUDE = LuaValue.valueOf("Magnitude");
+	protected static final LuaValue C_X = LuaKeys.of("X");
+	protected static final LuaValue C_Y = LuaKeys.of("Y");
+	protected static final LuaValue C_Z = LuaKeys.of("Z"); 
+	protected static final LuaValue C_UNIT = LuaKeys.of("Unit");
+	protected static final LuaValue C_MAGNITUDE = LuaKeys.of("Magnitude");
 	
 	private Vector3f internal;
 	private boolean modified = true;
+	private float magnitude;
+	private Vector3 unit;
 	
 	@Override
 	public String typename() {
@@ -37,57 +41,57 @@ public class Vector3 extends LuaValuetype {
 	}
 	
 	public Vector3(float x, float y, float z) {
-		this(new Vector3f(x, y, z));
+		this.internal = new Vector3f(x, y, z);
 	}
 	
 	public Vector3(Vector3f internal) {
-		this();
-		setInternal(internal);
+		this(internal.x, internal.y, internal.z);
 	}
 	
-	public Vector3() {		
-		// Define fields
-		defineField(C_X.toString(), LuaValue.valueOf(0), true);
-		defineField(C_Y.toString(), LuaValue.valueOf(0), true);
-		defineField(C_Z.toString(), LuaValue.valueOf(0), true);
-		this.rawset(C_MAGNITUDE, LuaValue.valueOf(0));
-		this.internal = new Vector3f();
+	public Vector3() {
+		this(0, 0, 0);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable metatable) {
 		
 		// Create ToString function
-		this.getmetatable().set("ToString", new ZeroArgFunction() {
+		metatable.set("ToString", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(Vector3.this.toString());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(myself.toString());
 			}
 		});
 
 		// Create Dot function
-		this.getmetatable().set("Dot", new TwoArgFunction() {
+		metatable.set("Dot", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue left, LuaValue right) {
-				if (right instanceof Vector3) {
+				if (left instanceof Vector3 && right instanceof Vector3) {
+					Vector3 left2 = (Vector3)left;
 					Vector3 vec = (Vector3)right;
-					return LuaValue.valueOf(getX() * vec.getX() + getY() * vec.getY() + getZ() * vec.getZ());
+					return LuaValue.valueOf(left2.getX() * vec.getX() + left2.getY() * vec.getY() + left2.getZ() * vec.getZ());
 				}
 				return LuaValue.valueOf(0);
 			}
 		});
 
 		// Create Cross function
-		this.getmetatable().set("Cross", new TwoArgFunction() {
+		metatable.set("Cross", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue left, LuaValue right) {
-				if (right instanceof Vector3) {
-					Vector3 right2 = getVector(right);
-					return newInstance( getY() * right2.getZ() - getZ() * right2.getZ(),
-										getZ() * right2.getX() - getX() * right2.getZ(),
-										getX() * right2.getY() - getY() * right2.getX());
+				if (left instanceof Vector3 && right instanceof Vector3) {
+					Vector3 left2 = (Vector3)left;
+					Vector3 right2 = (Vector3)right;
+					return newInstance( left2.getY() * right2.getZ() - left2.getZ() * right2.getY(),
+										left2.getZ() * right2.getX() - left2.getX() * right2.getZ(),
+										left2.getX() * right2.getY() - left2.getY() * right2.getX());
 				}
 				return LuaValue.NIL;
 			}
 		});
 
-		this.getmetatable().set(LuaValue.EQ, new TwoArgFunction() {
+		metatable.set(LuaValue.EQ, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector3 left2 = getVector(left);
 				Vector3 right2 = getVector(right);
@@ -95,7 +99,7 @@ public class Vector3 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.ADD, new TwoArgFunction() {
+		metatable.set(LuaValue.ADD, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector3 left2 = getVector(left);
 				Vector3 right2 = getVector(right);
@@ -103,7 +107,7 @@ public class Vector3 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.SUB, new TwoArgFunction() {
+		metatable.set(LuaValue.SUB, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector3 left2 = getVector(left);
 				Vector3 right2 = getVector(right);
@@ -111,7 +115,7 @@ public class Vector3 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.MUL, new TwoArgFunction() {
+		metatable.set(LuaValue.MUL, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector3 left2 = getVector(left);
 				Vector3 right2 = getVector(right);
@@ -119,7 +123,7 @@ public class Vector3 extends LuaValuetype {
 			}
 		});
 
-		this.getmetatable().set(LuaValue.DIV, new TwoArgFunction() {
+		metatable.set(LuaValue.DIV, new TwoArgFunction() {
 			public LuaValue call(LuaValue left, LuaValue right) {
 				Vector3 left2 = getVector(left);
 				Vector3 right2 = getVector(right);
@@ -128,7 +132,7 @@ public class Vector3 extends LuaValuetype {
 		});
 	}
 	
-	protected Vector3 getVector(LuaValue value) {
+	protected static Vector3 getVector(LuaValue value) {
 		if ( value instanceof Vector3 ) {
 			return (Vector3)value;
 		} else {
@@ -217,8 +221,7 @@ public class Vector3 extends LuaValuetype {
 	}
 
 	private static Vector3 newInstance(double x, double y, double z) {
-		Vector3f internal = new Vector3f((float)x, (float)y, (float)z);
-		return new Vector3(internal);
+		return new Vector3((float)x, (float)y, (float)z);
 	}
 
 	@Override
@@ -301,11 +304,11 @@ public class Vector3 extends LuaValuetype {
 		if ( t.length != 3 )
 			return this;
 		
-		Vector3 vec = new Vector3(new Vector3f(
+		Vector3 vec = new Vector3(
 				(float) Double.parseDouble(t[0]),
 				(float) Double.parseDouble(t[1]),
 				(float) Double.parseDouble(t[2])
-		));
+		);
 		return vec;
 	}
 
@@ -321,32 +324,36 @@ public class Vector3 extends LuaValuetype {
 
 	@Override
 	protected boolean onValueGet(LuaValue key) {
-		if ( key.eq_b(C_UNIT) || key.eq_b(C_MAGNITUDE) ) {
-			if ( modified || (key.eq_b(C_UNIT) && this.rawget(C_UNIT).isnil()) ) {
-				modified = false;
-				
-				// Compute magnitude
-				float magSQ = internal.lengthSquared();
-				float magnitude = 0;
-				if ( magSQ > 0 ) {
-					magnitude = (float) Math.sqrt(magSQ);
-				}
-				this.rawset(C_MAGNITUDE, LuaValue.valueOf(magnitude));
-				
-				// Compute unit vector
-				if ( magnitude > 0 ) {
-					this.rawset(C_UNIT, new Vector3(new Vector3f(
-							getX() / magnitude,
-							getY() / magnitude,
-							getZ() / magnitude
-					)));
-				} else {
-					this.rawset(C_UNIT, new Vector3());
-				}
-			}
+		return true;
+	}
+	
+	@Override
+	public LuaValue get(LuaValue key) {
+		// Components are served straight from the internal vector. No per-object table entries.
+		if ( key.eq_b(C_X) )
+			return LuaValue.valueOf(internal.x);
+		if ( key.eq_b(C_Y) )
+			return LuaValue.valueOf(internal.y);
+		if ( key.eq_b(C_Z) )
+			return LuaValue.valueOf(internal.z);
+		if ( key.eq_b(C_MAGNITUDE) )
+			return LuaValue.valueOf(computeMagnitude());
+		if ( key.eq_b(C_UNIT) )
+			return getUnit();
+		
+		return super.get(key);
+	}
+	
+	private float computeMagnitude() {
+		if ( modified ) {
+			modified = false;
+			unit = null;
+			
+			float magSQ = internal.lengthSquared();
+			magnitude = magSQ > 0 ? (float) Math.sqrt(magSQ) : 0;
 		}
 		
-		return true;
+		return magnitude;
 	}
 
 	/**
@@ -354,7 +361,16 @@ public class Vector3 extends LuaValuetype {
 	 * @return
 	 */
 	public Vector3f toJoml() {
-		return new Vector3f(this.getInternal());
+		return new Vector3f(this.internal);
+	}
+	
+	/**
+	 * Copies this vector into the supplied Vector3f.
+	 * @param dest
+	 * @return dest
+	 */
+	public Vector3f toJoml(Vector3f dest) {
+		return dest.set(this.internal);
 	}
 	
 	/**
@@ -367,14 +383,39 @@ public class Vector3 extends LuaValuetype {
 	}
 
 	public void setInternal(Vector3f internal) {
-		this.rawset(C_X, LuaValue.valueOf(internal.x));
-		this.rawset(C_Y, LuaValue.valueOf(internal.y));
-		this.rawset(C_Z, LuaValue.valueOf(internal.z));
-		this.internal.set(internal);
+		this.setInternal(internal.x, internal.y, internal.z);
+	}
+	
+	/**
+	 * Overwrites this vector in place. Intended for engine code which owns the value.
+	 * @param x
+	 * @param y
+	 * @param z
+	 */
+	public void setInternal(float x, float y, float z) {
+		this.internal.set(x, y, z);
 		modified = true;
 	}
+	
+	/**
+	 * Returns whether this vector holds exactly the supplied components.
+	 * @param vector
+	 * @return
+	 */
+	public boolean matches(Vector3f vector) {
+		return internal.x == vector.x && internal.y == vector.y && internal.z == vector.z;
+	}
 
 	public Vector3 getUnit() {
-		return (Vector3)this.get(C_UNIT);
+		float magnitude = computeMagnitude();
+		if ( unit == null ) {
+			if ( magnitude > 0 ) {
+				unit = new Vector3(getX() / magnitude, getY() / magnitude, getZ() / magnitude);
+			} else {
+				unit = new Vector3();
+			}
+		}
+		
+		return unit;
 	}
 }
@@ -14,10 +14,11 @@ import org.luaj.vm2.LuaValue;
 
 import engine.FilePath;
 import engine.io.FileResource;
+import engine.lua.type.LuaKeys;
 
 public abstract class AssetLoadable extends Asset implements FileResource {
 
-	protected final static LuaValue C_FILEPATH = LuaValue.valueOf("FilePath");
+	protected final static LuaValue C_FILEPATH = LuaKeys.of("FilePath");
 	
 	public AssetLoadable(String type) {
 		super(type);
@@ -10,18 +10,20 @@
 
 package engine.lua.type.object;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.OneArgFunction;
 
 import engine.Game;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.insts.AudioSource;
 import ide.layout.windows.icons.Icons;
 
 public class AudioPlayerBase extends Instance implements TreeViewable {
-	private static final LuaValue C_SOURCE = LuaValue.valueOf("Source");
-	private static final LuaValue C_VOLUME = LuaValue.valueOf("Volume");
-	private static final LuaValue C_PITCH = LuaValue.valueOf("Pitch");
+	private static final LuaValue C_SOURCE = LuaKeys.of("Source");
+	private static final LuaValue C_VOLUME = LuaKeys.of("Volume");
+	private static final LuaValue C_PITCH = LuaKeys.of("Pitch");
 	
 	public AudioPlayerBase(String name) {
 		super(name);
@@ -33,13 +35,18 @@ public class AudioPlayerBase extends Instance implements TreeViewable {
 		
 		this.defineField(C_PITCH.toString(), LuaValue.valueOf(1.0f), false);
 		this.getField(C_PITCH).setClamp(new NumberClampPreferred(0, 16, 0, 4));
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
 		
-		this.getmetatable().set("Play", new ZeroArgFunction() {
+		methods.set("Play", new OneArgFunction() {
 
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				try {
-					playSource();
+					checkInstance(myself, AudioPlayerBase.class).playSource();
 				} catch(Exception e) {
 					e.printStackTrace();
 				}
@@ -11,41 +11,63 @@
 package engine.lua.type.object;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaThread;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.ThreeArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.Game;
 import engine.lua.LuaEngine;
 import engine.lua.lib.LuaUtil;
+import engine.lua.type.ChildWaiter;
 import engine.lua.type.DataModel;
 import engine.lua.type.LuaField;
 import engine.lua.type.LuaFieldFlag;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
+import engine.lua.type.ScriptScheduler;
+import engine.lua.type.ScriptThread;
+import engine.util.TimerWheel.Timer;
 
 public abstract class Instance extends DataModel {
-	protected static final LuaValue C_PARENT = LuaValue.valueOf("Parent");
-	protected static final LuaValue C_CLASSNAME = LuaValue.valueOf("ClassName");
-	protected static final LuaValue C_NAME = LuaValue.valueOf("Name");
-	protected static final LuaValue C_ARCHIVABLE = LuaValue.valueOf("Archivable");
+	protected static final LuaValue C_PARENT = LuaKeys.of("Parent");
+	protected static final LuaValue C_CLASSNAME = LuaKeys.of("ClassName");
+	protected static final LuaValue C_NAME = LuaKeys.of("Name");
+	protected static final LuaValue C_ARCHIVABLE = LuaKeys.of("Archivable");
+	
+	/**
+	 * Most Instances {@link #instanceLuaMany(String, int, LuaTable)} (Instance.newMany) creates in one call.
+	 */
+	public static final int MAX_NEW_MANY = 100000;
 	
 	static {
 		LuaTable table = new LuaTable();
-		table.set("new", new OneArgFunction() {
+		table.set("new", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue arg) {
+			public LuaValue call(LuaValue arg, LuaValue properties) {
 				String searchType = arg.toString();
 				Instance inst = instanceLua(searchType);
+				if ( inst != null && !properties.isnil() )
+					inst.setProperties(properties.checktable());
 				return inst==null?LuaValue.NIL:inst;
 			}
 		});
+		table.set("newMany", new ThreeArgFunction() {
+			@Override
+			public LuaValue call(LuaValue arg, LuaValue amount, LuaValue properties) {
+				List<Instance> instances = instanceLuaMany(arg.toString(), amount.checkint(), properties.isnil()?null:properties.checktable());
+				return LuaUtil.listToTable(instances);
+			}
+		});
 		table.set(LuaValue.INDEX, table);
 		LuaEngine.globals.set("Instance", table);
 	}
@@ -56,11 +78,25 @@ public abstract class Instance extends DataModel {
 
 	public Instance(String name) {
 		super(name);
+	}
+
+	/**
+	 * Returns the self argument of a shared lua method. Raises a lua error if it is not an Instance.
+	 * @param myself
+	 * @return
+	 */
+	protected static Instance checkInstance(LuaValue myself) {
+		return checkInstance(myself, Instance.class);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
 		
-		this.getmetatable().set("GetUUID", new ZeroArgFunction() {
+		methods.set("GetUUID", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				UUID uuid = getUUID();
+			public LuaValue call(LuaValue myself) {
+				UUID uuid = checkInstance(myself).getUUID();
 				if ( uuid == null )
 					return LuaValue.NIL;
 				
@@ -68,16 +104,32 @@ public abstract class Instance extends DataModel {
 			}
 		});
 		
-		this.getmetatable().set("GetChildren", new ZeroArgFunction() {
+		methods.set("SetProperties", new TwoArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaUtil.listToTable(getChildren());
+			public LuaValue call(LuaValue myself, LuaValue properties) {
+				checkInstance(myself).setProperties(properties.checktable());
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("GetProperties", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue names) {
+				return checkInstance(myself).getProperties(names);
+			}
+		});
+		
+		methods.set("GetChildren", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				return LuaUtil.listToTable(checkInstance(myself).getChildren());
 			}
 		});
 
-		this.getmetatable().set("ClearAllChildren", new ZeroArgFunction() {
+		methods.set("ClearAllChildren", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
+				List<Instance> children = checkInstance(myself).children;
 				synchronized(children) {
 					for (int i = children.size()-1;i>=0; i--) {
 						Instance child = children.get(i);
@@ -90,78 +142,72 @@ public abstract class Instance extends DataModel {
 			}
 		});
 
-		this.getmetatable().set("GetChildrenWithName", new TwoArgFunction() {
+		methods.set("GetChildrenWithName", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue arg) {
-				return LuaUtil.listToTable(getChildrenWithName(arg.toString()));
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				return LuaUtil.listToTable(checkInstance(myself).getChildrenWithName(arg.toString()));
 			}
 		});
 
-		this.getmetatable().set("GetChildrenOfClass", new TwoArgFunction() {
+		methods.set("GetChildrenOfClass", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				return LuaUtil.listToTable(checkInstance(myself).getChildrenOfClass(arg.toString()));
+			}
+		});
+		
+		methods.set("GetDescendantsOfClass", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue arg) {
-				return LuaUtil.listToTable(getChildrenOfClass(arg.toString()));
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				return LuaUtil.listToTable(checkInstance(myself).getDescendantsOfClass(arg.checkstring()));
 			}
 		});
 		
-		this.getmetatable().set("WaitForChild", new ThreeArgFunction() {
+		methods.set("WaitForChild", new ThreeArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue child, LuaValue time) {
-				Instance c = waitForChild(child, time);
+			public LuaValue call(LuaValue myself, LuaValue child, LuaValue time) {
+				Instance c = checkInstance(myself).waitForChild(child, time);
 				return c==null?LuaValue.NIL:c;
 			}
 		});
 		
-		this.getmetatable().set("WaitForChildOfClass", new ThreeArgFunction() {
+		methods.set("WaitForChildOfClass", new ThreeArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue child, LuaValue time) {
-				long start = System.currentTimeMillis();
-				int t = (int) (time.isnil()?5000:(time.checkdouble()*1000));
-				while ( System.currentTimeMillis()-start < t ) {
-					Instance c = findFirstChildOfClass(child.toString());
-					if ( c == null ) {
-						try {
-							Thread.sleep(1);
-						} catch (InterruptedException e) {
-							//
-						}
-					} else {
-						return c;
-					}
-				}
-				LuaEngine.error("Cancelling wait for child loop. Time not specified & taking too long.");
-				return LuaValue.NIL;
+			public LuaValue call(LuaValue myself, LuaValue child, LuaValue time) {
+				Instance c = checkInstance(myself).waitForChildOfClass(child, time);
+				return c==null?LuaValue.NIL:c;
 			}
 		});
 		
-		this.getmetatable().set("FindFirstChild", new TwoArgFunction() {
+		methods.set("FindFirstChild", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue arg) {
-				Instance child = findFirstChild(arg.toString());
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				Instance child = checkInstance(myself).findFirstChild(arg.toString());
 				return child == null ? LuaValue.NIL : child;
 			}
 		});
 		
-		this.getmetatable().set("FindFirstChildOfClass", new TwoArgFunction() {
+		methods.set("FindFirstChildOfClass", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue root, LuaValue arg) {
-				Instance child = findFirstChildOfClass(arg.toString());
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				Instance child = checkInstance(myself).findFirstChildOfClass(arg.toString());
 				return child == null ? LuaValue.NIL : child;
 			}
 		});
 
-		this.getmetatable().set("IsDescendantOf", new TwoArgFunction() {
+		methods.set("IsDescendantOf", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue ignoreme, LuaValue arg) {
-				return isDescendantOf(arg)?LuaValue.TRUE:LuaValue.FALSE;
+			public LuaValue call(LuaValue myself, LuaValue arg) {
+				return checkInstance(myself).isDescendantOf(arg)?LuaValue.TRUE:LuaValue.FALSE;
 			}
 		});
 
-		this.getmetatable().set("Destroy", new ZeroArgFunction() {
+		methods.set("Destroy", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				if ( !locked ) {
-					Instance.this.destroy();
+			public LuaValue call(LuaValue myself) {
+				Instance instance = checkInstance(myself);
+				if ( !instance.locked ) {
+					instance.destroy();
 				} else {
 					LuaValue.error("This object cannot be destroyed.");
 				}
@@ -169,20 +215,20 @@ public abstract class Instance extends DataModel {
 			}
 		});
 		
-		this.getmetatable().set("IsA", new TwoArgFunction() {
+		methods.set("IsA", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue arg) {
-				String str = arg.checkjstring();
-				return Instance.AExtendsB(Instance.this,str);
+				return LuaValue.valueOf(checkInstance(myself).isA(arg.checkjstring()));
 			}
 		});
 
-		this.getmetatable().set("Clone", new ZeroArgFunction() {
+		methods.set("Clone", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				if ( !locked && isInstanceable() ) {
+			public LuaValue call(LuaValue myself) {
+				Instance instance = checkInstance(myself);
+				if ( !instance.locked && instance.isInstanceable() ) {
 					try {
-						Instance inst = Instance.this.clone();
+						Instance inst = instance.clone();
 						if ( inst == null )
 							return LuaValue.NIL;
 						
@@ -199,55 +245,6 @@ public abstract class Instance extends DataModel {
 		});
 	}
 	
-	/**
-	 * Returns if class1 comes from or is class2
-	 * @param rawget
-	 * @param str
-	 * @return
-	 */
-	protected static HashMap<String,ArrayList<String>> extends_cache = new HashMap<String,ArrayList<String>>();
-	protected static LuaValue AExtendsB(Instance instance1, String class2) {
-		String class1 = instance1.rawget(C_CLASSNAME).toString();
-		if ( class1.equals(class2) )
-			return LuaValue.TRUE;
-		
-		// Do a cache check to avoid slow code below
-		boolean contains = extends_cache.containsKey(class2);
-		if ( contains ) {
-			ArrayList<String> subclasses = extends_cache.get(class2);
-			if ( subclasses.contains(class1) )
-				return LuaValue.TRUE;
-		}
-		
-		// Create an instance of the desired class (SLOW)
-		DataModel instance2 = Instance.instance(class2);
-		if ( instance2 == null )
-			return LuaValue.FALSE;
-		if ( !(instance2 instanceof Instance) )
-			return LuaValue.FALSE;
-
-		// Get classes
-		Class<? extends Instance> c1 = instance1.getClass();
-		Class<? extends DataModel> c2 = instance2.getClass();
-		
-		// If they are the same, or parent (c2) contains this child (c1)
-		if ( c1.equals(c2) || c1.isAssignableFrom(c2) ) {
-			
-			// Update cache so it's faster next time
-			if ( !contains )
-				extends_cache.put(class2, new ArrayList<String>());
-			extends_cache.get(class2).add(class1);
-			
-			// Return
-			return LuaValue.TRUE;
-		}
-		
-		// Delete instance
-		instance2.cleanup();
-		
-		return LuaValue.FALSE;
-	}
-	
 	/**
 	 * Instantiate an Instance by type.
 	 * @param type
@@ -311,6 +308,42 @@ public abstract class Instance extends DataModel {
 		return instance;
 	}
 	
+	/**
+	 * Instantiate many Instances of one type as if they were created in lua, and give each the same properties.<br>
+	 * The properties are validated once, against the first Instance. Parents are set inside one hierarchy batch,
+	 * so each new parent gets its ChildAdded events after every Instance is in place, and every property change is dispatched in one batch.
+	 * @param type
+	 * @param amount at most {@link #MAX_NEW_MANY}.
+	 * @param properties table of field name to value, or null.
+	 * @return
+	 */
+	public static List<Instance> instanceLuaMany(String type, int amount, LuaTable properties) {
+		if ( amount > MAX_NEW_MANY )
+			LuaValue.error("Can not create more than " + MAX_NEW_MANY + " instances at once (asked for " + amount + ")");
+		
+		List<Instance> instances = new ArrayList<Instance>(Math.max(0, amount));
+		for (int i = 0; i < amount; i++) {
+			Instance instance = instanceLua(type);
+			if ( instance == null )
+				return instances;
+			
+			instances.add(instance);
+		}
+		
+		if ( properties == null || instances.size() == 0 )
+			return instances;
+		
+		LuaValue[] checked = instances.get(0).checkProperties(properties);
+		beginHierarchyBatch();
+		try {
+			setCheckedProperties(instances, checked);
+		} finally {
+			endHierarchyBatch();
+		}
+		
+		return instances;
+	}
+	
 	/**
 	 * Function that gets ran when a instance is created via Instance.new() through lua.
 	 */
@@ -329,8 +362,6 @@ public abstract class Instance extends DataModel {
 			}
 		}
 		this.children.clear();
-		this.descendents.clear();
-		this.descendentsList.clear();
 	}
 	
 	/**
@@ -347,15 +378,11 @@ public abstract class Instance extends DataModel {
 			// Create a new instance of this type
 			Instance inst = Instance.this.getClass().newInstance();
 			
-			// Copy keys into the new instance
-			LuaValue[] keys = this.keys();
+			// Copy fields into the new instance
+			LuaValue[] keys = this.getFieldNamesOrdered();
 			for (int i = 0; i < keys.length; i++) {
 				LuaValue key = keys[i];
 				
-				// Make sure to only set the fields.
-				if ( !this.containsField(key) )
-					continue;
-				
 				LuaField field = this.getField(key);
 				if ( field == null )
 					continue;
@@ -368,7 +395,7 @@ public abstract class Instance extends DataModel {
 				if ( value instanceof LuaValuetype )
 					value = (LuaValue) ((LuaValuetype)value).clone();
 				
-				inst.rawset(key.toString(),value);
+				inst.rawset(key,value);
 				//try{ inst.set(key.toString(), this.rawget(key)); } catch(Exception ee) {}
 			}
 			
@@ -479,28 +506,125 @@ public abstract class Instance extends DataModel {
 	}
 
 	/**
-	 * Pauses the thread until the child is found.
+	 * Waits until a child with the desired name exists, for up to <code>time</code> seconds (5 if nil).<br>
+	 * Inside an engine coroutine the coroutine yields, and is resumed by the scheduler when the child appears or the time runs out.
+	 * Anywhere else the calling thread blocks. Neither polls.
 	 * @param child
 	 * @param time
-	 * @return
+	 * @return the child, or null if it did not appear in time.
 	 */
 	public Instance waitForChild(LuaValue child, LuaValue time) {
-		long start = System.currentTimeMillis();
-		int t = (int) (time.isnil()?5000:(time.checkdouble()*1000));
-		while ( System.currentTimeMillis()-start < t ) {
-			Instance c = findFirstChild(child.toString());
-			if ( c == null ) {
-				try {
-					Thread.sleep(1);
-				} catch (InterruptedException e) {
-					//
-				}
-			} else {
-				return c;
+		final String name = child.toString();
+		Instance c = findFirstChild(name);
+		if ( c != null )
+			return c;
+		
+		return waitFor(name, null, time);
+	}
+	
+	/**
+	 * Waits until a child with the desired class exists. See {@link #waitForChild(LuaValue, LuaValue)}.
+	 * @param className
+	 * @param time
+	 * @return the child, or null if it did not appear in time.
+	 */
+	public Instance waitForChildOfClass(LuaValue className, LuaValue time) {
+		final LuaValue type = LuaValue.valueOf(className.toString());
+		Instance c = findFirstChildOfClass(type);
+		if ( c != null )
+			return c;
+		
+		return waitFor(null, type, time);
+	}
+	
+	private Instance waitFor(String name, LuaValue className, LuaValue time) {
+		double seconds = time.isnil()?5:time.checkdouble();
+		
+		// Resumed by the scheduler of the coroutine's own globals (actors have their own)
+		LuaThread thread = ScriptScheduler.main().getCurrent();
+		if ( thread instanceof ScriptThread )
+			return yieldFor(ScriptScheduler.of(thread.globals), thread, name, className, seconds);
+		
+		return blockFor(name, className, seconds);
+	}
+	
+	/**
+	 * Yields the coroutine until the waiter completes. The scheduler's timer completes it with null when time runs out,
+	 * and is cancelled as soon as the coroutine is resumed for any other reason.
+	 */
+	private Instance yieldFor(final ScriptScheduler scheduler, final LuaThread thread, String name, LuaValue className, double seconds) {
+		final ChildWaiter waiter = new ChildWaiter(name, className) {
+			@Override
+			protected void onComplete(Instance child) {
+				scheduler.resume(thread, child == null ? LuaValue.NIL : child);
 			}
+		};
+		this.addChildWaiter(waiter);
+		
+		// Added between the first look and registering
+		Instance c = findChild(name, className);
+		if ( c != null && waiter.cancel() )
+			return c;
+		
+		Timer timeout = scheduler.delay(seconds, ()->{
+			if ( waiter.complete(null) )
+				LuaEngine.error(timeoutMessage(name, className, seconds));
+		});
+		
+		Varargs result;
+		try {
+			result = scheduler.yieldUntilResumed();
+		} finally {
+			// Found early, or stopped while waiting. Either way the timer must not keep the waiter (and this coroutine) alive.
+			waiter.cancel();
+			scheduler.cancel(timeout);
 		}
-		LuaEngine.error("Cancelling wait for child loop. Time not specified & taking too long.");
-		return null;
+		
+		LuaValue value = result == null ? LuaValue.NIL : result.arg1();
+		return value instanceof Instance ? (Instance) value : null;
+	}
+	
+	/**
+	 * Blocks the calling thread until the waiter completes or time runs out.
+	 */
+	private Instance blockFor(String name, LuaValue className, double seconds) {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicReference<Instance> found = new AtomicReference<Instance>();
+		ChildWaiter waiter = new ChildWaiter(name, className) {
+			@Override
+			protected void onComplete(Instance child) {
+				found.set(child);
+				latch.countDown();
+			}
+		};
+		this.addChildWaiter(waiter);
+		
+		// Added between the first look and registering
+		Instance c = findChild(name, className);
+		if ( c != null && waiter.cancel() )
+			return c;
+		
+		try {
+			latch.await((long)(seconds*1000), TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			//
+		}
+		
+		if ( waiter.cancel() ) {
+			LuaEngine.error(timeoutMessage(name, className, seconds));
+			return null;
+		}
+		
+		return found.get();
+	}
+	
+	private String timeoutMessage(String name, LuaValue className, double seconds) {
+		String child = name != null ? "'" + name + "'" : "of class " + className;
+		return "Timed out after " + seconds + "s waiting for child " + child + " of " + this.getFullName();
+	}
+	
+	private Instance findChild(String name, LuaValue className) {
+		return name != null ? findFirstChild(name) : findFirstChildOfClass(className);
 	}
 	
 	/**
@@ -17,6 +17,7 @@ import engine.ClientEngine;
 import engine.Game;
 import engine.gl.IPipeline;
 import engine.gl.lights.Light;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Color3;
 import engine.lua.type.data.Matrix4;
@@ -28,11 +29,11 @@ import engine.util.Pair;
 
 public abstract class LightBase<T extends Light> extends Instance implements Positionable {
 
-	protected static final LuaValue C_POSITION = LuaValue.valueOf("Position");
-	protected static final LuaValue C_INTENSITY = LuaValue.valueOf("Intensity");
-	protected static final LuaValue C_COLOR = LuaValue.valueOf("Color");
-	protected static final LuaValue C_SHADOWS = LuaValue.valueOf("Shadows");
-	protected static final LuaValue C_VISIBLE = LuaValue.valueOf("Visible");
+	protected static final LuaValue C_POSITION = LuaKeys.of("Position");
+	protected static final LuaValue C_INTENSITY = LuaKeys.of("Intensity");
+	protected static final LuaValue C_COLOR = LuaKeys.of("Color");
+	protected static final LuaValue C_SHADOWS = LuaKeys.of("Shadows");
+	protected static final LuaValue C_VISIBLE = LuaKeys.of("Visible");
 	protected IPipeline pipeline;
 
 	protected T light;
@@ -73,6 +74,9 @@ public abstract class LightBase<T extends Light> extends Instance implements Pos
 	}
 	
 	private void onParentChange() {
+		if ( Game.isHeadless() )
+			return;
+		
 		LuaValue t = this.getParent();
 		if (t.isnil()) {
 			destroyLight(pipeline);
@@ -148,7 +152,7 @@ public abstract class LightBase<T extends Light> extends Instance implements Pos
 	}
 	
 	public void setPosition(Vector3 position) {
-		if ( !this.getField(C_POSITION).canModify() )
+		if ( !this.canModifyField(C_POSITION) )
 			return;
 		this.set(C_POSITION, position.clone());
 	}
@@ -14,6 +14,7 @@ import java.util.List;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.ThreeArgFunction;
 
@@ -27,6 +28,7 @@ import engine.lua.network.internal.protocol.InstanceUpdateUDP;
 import engine.lua.type.LuaConnection;
 import engine.lua.type.LuaField;
 import engine.lua.type.LuaFieldFlag;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Matrix4;
@@ -52,20 +54,20 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 	
 	public Player playerOwns;
 
-	protected static final LuaValue C_WORLDMATRIX = LuaValue.valueOf("WorldMatrix");
-	protected static final LuaValue C_POSITION = LuaValue.valueOf("Position");
-	protected static final LuaValue C_VELOCITY = LuaValue.valueOf("Velocity");
-	protected static final LuaValue C_ANGULARVELOCITY = LuaValue.valueOf("AngularVelocity");
-	protected static final LuaValue C_PREFAB = LuaValue.valueOf("Prefab");
-	protected static final LuaValue C_MASS = LuaValue.valueOf("Mass");
-	protected static final LuaValue C_LINKED = LuaValue.valueOf("Linked");
-	protected static final LuaValue C_FRICTION = LuaValue.valueOf("Friction");
-	protected static final LuaValue C_BOUNCINESS = LuaValue.valueOf("Bounciness");
-	protected static final LuaValue C_LINEARDAMPING = LuaValue.valueOf("LinearDamping");
-	protected static final LuaValue C_ANGULARFACTOR = LuaValue.valueOf("AngularFactor");
-	protected static final LuaValue C_SHAPE = LuaValue.valueOf("Shape");
-	protected static final LuaValue C_USECUSTOMMESH = LuaValue.valueOf("UseCustomMesh");
-	protected static final LuaValue C_CUSTOMMESH = LuaValue.valueOf("CustomMesh");
+	protected static final LuaValue C_WORLDMATRIX = LuaKeys.of("WorldMatrix");
+	protected static final LuaValue C_POSITION = LuaKeys.of("Position");
+	protected static final LuaValue C_VELOCITY = LuaKeys.of("Velocity");
+	protected static final LuaValue C_ANGULARVELOCITY = LuaKeys.of("AngularVelocity");
+	protected static final LuaValue C_PREFAB = LuaKeys.of("Prefab");
+	protected static final LuaValue C_MASS = LuaKeys.of("Mass");
+	protected static final LuaValue C_LINKED = LuaKeys.of("Linked");
+	protected static final LuaValue C_FRICTION = LuaKeys.of("Friction");
+	protected static final LuaValue C_BOUNCINESS = LuaKeys.of("Bounciness");
+	protected static final LuaValue C_LINEARDAMPING = LuaKeys.of("LinearDamping");
+	protected static final LuaValue C_ANGULARFACTOR = LuaKeys.of("AngularFactor");
+	protected static final LuaValue C_SHAPE = LuaKeys.of("Shape");
+	protected static final LuaValue C_USECUSTOMMESH = LuaKeys.of("UseCustomMesh");
+	protected static final LuaValue C_CUSTOMMESH = LuaKeys.of("CustomMesh");
 	
 	private Matrix4f lastWorldMatrix = new Matrix4f();
 	
@@ -110,22 +112,6 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 		
 		this.defineField(C_USECUSTOMMESH, LuaValue.valueOf(false), false);
 		
-		// Apply Force (FORCE, IMPULSE)
-		this.getmetatable().set("ApplyForce", new ThreeArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue arg2, LuaValue arg3) {
-				if ( !(arg2 instanceof Vector3) )
-					return LuaValue.NIL;
-				if ( !(arg3 instanceof Vector3) )
-					return LuaValue.NIL;
-				if ( physics == null )
-					return LuaValue.NIL;
-				physics.applyImpulse(((Vector3)arg2).getInternal(), ((Vector3)arg3).getInternal());
-				
-				return LuaValue.NIL;
-			}
-		});
-		
 		Game.getGame().subscribe(this);
 		
 		// Update matrices
@@ -180,6 +166,28 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 		});
 	}
 	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		// Apply Force (FORCE, IMPULSE)
+		methods.set("ApplyForce", new ThreeArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue arg2, LuaValue arg3) {
+				if ( !(arg2 instanceof Vector3) )
+					return LuaValue.NIL;
+				if ( !(arg3 instanceof Vector3) )
+					return LuaValue.NIL;
+				PhysicsObjectInternal physics = checkInstance(myself, PhysicsBase.class).physics;
+				if ( physics == null )
+					return LuaValue.NIL;
+				physics.applyImpulse(((Vector3)arg2).getInternal(), ((Vector3)arg3).getInternal());
+				
+				return LuaValue.NIL;
+			}
+		});
+	}
+	
 	@Override
 	public void onDestroy() {
 		cleanupPhysics();
@@ -240,14 +248,24 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 		}
 		
 		// Update our velocity to the physics objects velocity.
-		Vector3f pv = internalPhys.getVelocity();
-		this.rawset(C_VELOCITY, new Vector3(pv));
-		this.notifyPropertySubscribers(C_VELOCITY, this.rawget(C_VELOCITY));
+		updateVelocityField(C_VELOCITY, internalPhys.getVelocity());
 		
 		// Update our angular velocity to the physics objets angular velocity
-		Vector3f pav = internalPhys.getAngularVelocity();
-		this.rawset(C_ANGULARVELOCITY, new Vector3(pav));
-		this.notifyPropertySubscribers(C_ANGULARVELOCITY, this.rawget(C_ANGULARVELOCITY));
+		updateVelocityField(C_ANGULARVELOCITY, internalPhys.getAngularVelocity());
+	}
+	
+	/**
+	 * Mirrors a velocity from the physics body into a field. Resting bodies report the same
+	 * velocity every tick, so a new Vector3 is only created when the value actually changed.
+	 */
+	private void updateVelocityField(LuaValue field, Vector3f velocity) {
+		LuaValue current = this.rawget(field);
+		if ( current instanceof Vector3 && ((Vector3)current).matches(velocity) )
+			return;
+		
+		Vector3 newVelocity = new Vector3(velocity);
+		this.rawset(field, newVelocity);
+		this.notifyPropertySubscribers(field, newVelocity);
 	}
 	
 	/**
@@ -466,10 +484,10 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 				this.defineField(C_CUSTOMMESH.toString(), LuaValue.NIL, false);
 				this.set(C_CUSTOMMESH, LuaValue.NIL);
 				
-				this.getField(C_SHAPE).setLocked(true);
+				this.setFieldLocked(C_SHAPE, true);
 			} else {
 				this.undefineField(C_CUSTOMMESH);
-				this.getField(C_SHAPE).setLocked(false);
+				this.setFieldLocked(C_SHAPE, false);
 			}
 
 			return value;
@@ -615,6 +633,11 @@ public abstract class PhysicsBase extends Instance implements GameSubscriber,Pos
 		checkAddPhysics();
 	}
 	
+	@Override
+	protected void onAncestryChanged() {
+		checkAddPhysics();
+	}
+	
 	/**
 	 * Returns the Game Object this physics object is currently linked to.
 	 * @return
@@ -0,0 +1,23 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.lua.type.object;
+
+import java.util.List;
+
+import engine.lua.type.PropertyChange;
+
+/**
+ * Receives field changes of every Instance. While changes are deferred, this is called once per tick with the coalesced batch.
+ * Otherwise it is called with a single change right after it happens.
+ */
+public interface PropertyChangeBatchSubscriber {
+	public void onPropertyChanges(List<PropertyChange> changes);
+}
@@ -11,9 +11,13 @@
 package engine.lua.type.object;
 
 import java.io.BufferedReader;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.TwoArgFunction;
 
@@ -22,6 +26,9 @@ import engine.GameSubscriber;
 import engine.lua.LuaEngine;
 import engine.lua.type.LuaConnection;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
+import engine.lua.type.NumberClampPreferred;
+import engine.lua.type.ScriptContext;
 import engine.lua.type.ScriptRunner;
 import engine.lua.type.object.Instance;
 import engine.util.FileIO;
@@ -32,8 +39,30 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 	private AtomicBoolean running;
 	public HashMap<LuaEvent,LuaConnection> connections;
 
-	private static final LuaValue C_SOURCE = LuaValue.valueOf("Source");
-	private static final LuaValue C_DISABLED = LuaValue.valueOf("Disabled");
+	private static final LuaValue C_SOURCE = LuaKeys.of("Source");
+	private static final LuaValue C_DISABLED = LuaKeys.of("Disabled");
+	private static final LuaValue C_TIMEOUT = LuaKeys.of("Timeout");
+	private static final LuaValue C_COMPILED = LuaKeys.of("Compiled");
+	
+	/**
+	 * Every live script. Game-wide updates (load, start, stop) re-check all of them through {@link #ACTIVATOR}.
+	 * Hierarchy changes only re-check the scripts that were moved, see {@link #onAncestryChanged()}.
+	 */
+	private static final Set<ScriptBase> SCRIPTS = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<ScriptBase, Boolean>()));
+	private static final GameSubscriber ACTIVATOR = new GameSubscriber() {
+		@Override
+		public void gameUpdateEvent(boolean important) {
+			ScriptBase[] scripts;
+			synchronized(SCRIPTS) {
+				scripts = SCRIPTS.toArray(new ScriptBase[SCRIPTS.size()]);
+			}
+			
+			for (int i = 0; i < scripts.length; i++) {
+				scripts[i].gameUpdateEvent(important);
+			}
+		}
+	};
+	private static Game activatorGame;
 
 	public ScriptBase(String typename) {
 		super(typename);
@@ -41,20 +70,45 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 		this.defineField(C_SOURCE.toString(), LuaValue.valueOf(""), false);
 		this.defineField(C_DISABLED.toString(), LuaValue.valueOf(false), false);
 		
-		this.getmetatable().set("LoadFromFile", new TwoArgFunction() {
+		// Seconds the script may run without yielding. 0 uses ScriptService's ScriptTimeout.
+		this.defineField(C_TIMEOUT.toString(), LuaValue.valueOf(0), false);
+		this.getField(C_TIMEOUT).setClamp(new NumberClampPreferred(0, 600, 0, 60));
+		
+		// Runs as luajc compiled code. Skips the instruction watchdog, so only for trusted hot scripts.
+		this.defineField(C_COMPILED.toString(), LuaValue.valueOf(false), false);
+		
+		connections = new HashMap<LuaEvent,LuaConnection>();
+		running = new AtomicBoolean(false);
+		
+		SCRIPTS.add(this);
+		subscribeActivator();
+	}
+	
+	/**
+	 * Subscribes the shared activator to the current game, once.
+	 */
+	private static synchronized void subscribeActivator() {
+		Game game = Game.getGame();
+		if ( game == null || game == activatorGame )
+			return;
+		
+		game.subscribe(ACTIVATOR);
+		activatorGame = game;
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("LoadFromFile", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue file) {
 				if ( !file.isnil() ) {
-					setSourceFromFile(file.toString());
+					checkInstance(myself, ScriptBase.class).setSourceFromFile(file.toString());
 				}
 				return LuaValue.NIL;
 			}
 		});
-		
-		Game.getGame().subscribe(this);
-		
-		connections = new HashMap<LuaEvent,LuaConnection>();
-		running = new AtomicBoolean(false);
 	}
 
 	private void execute() {
@@ -65,8 +119,15 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 			return;
 
 		running.set(true);
-		String source = "local script=_G.last_script;"+(this.get(C_SOURCE).toString());
-		scriptInstance = LuaEngine.runLua(source, this);
+		scriptInstance = LuaEngine.runLua(getChunkSource(), this);
+	}
+	
+	/**
+	 * Returns the source this script runs as, with the <code>script</code> local in front of its own source.
+	 * @return
+	 */
+	public String getChunkSource() {
+		return "local script=_G.last_script;"+(this.get(C_SOURCE).toString());
 	}
 
 	public void setSource(String source) {
@@ -76,6 +137,32 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 	public String getSource() {
 		return this.get(C_SOURCE).toString();
 	}
+	
+	/**
+	 * Returns the wall-clock time this script may run for without yielding, in seconds. 0 if it uses ScriptService's ScriptTimeout.
+	 * @return
+	 */
+	public double getTimeout() {
+		return this.get(C_TIMEOUT).todouble();
+	}
+	
+	public void setTimeout(double seconds) {
+		this.set(C_TIMEOUT, LuaValue.valueOf(seconds));
+	}
+	
+	/**
+	 * Returns whether the script is compiled to JVM classes (luajc) instead of being interpreted. Applies the next time it starts.<br>
+	 * Compiled code skips the instruction watchdog, and scripts run on the update thread, so a compiled script that never yields hangs
+	 * the whole game. Only enable it for trusted scripts that need the speed.
+	 * @return
+	 */
+	public boolean isCompiled() {
+		return this.get(C_COMPILED).toboolean();
+	}
+	
+	public void setCompiled(boolean compiled) {
+		this.set(C_COMPILED, LuaValue.valueOf(compiled));
+	}
 
 	@Override
 	protected LuaValue onValueSet(LuaValue key, LuaValue value) {
@@ -83,6 +170,11 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 			stop();
 		}
 		
+		// Applies to the running coroutine right away
+		if ( key.eq_b(C_TIMEOUT) && scriptInstance != null ) {
+			scriptInstance.getCoroutine().setBudget(value.todouble() > 0 ? value.todouble() : ScriptRunner.getBudget(null));
+		}
+		
 		return value;
 	}
 
@@ -93,13 +185,23 @@ public abstract class ScriptBase extends Instance implements GameSubscriber {
 
 	@Override
 	public void onDestroy() {
+		SCRIPTS.remove(this);
 		stop();
 	}
 	
+	@Override
+	protected void onAncestryChanged() {
+		this.gameUpdateEvent(true);
+	}
+	
 	public void stop() {
-		// Interrupt script-thread
+		// Interrupt every coroutine of the script
 		if ( scriptInstance != null ) {
-			scriptInstance.interrupt();
+			ScriptContext context = scriptInstance.getContext();
+			if ( context != null )
+				context.stop();
+			else
+				scriptInstance.interrupt();
 			scriptInstance = null;
 		}
 		
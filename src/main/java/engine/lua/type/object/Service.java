@@ -16,11 +16,12 @@ public abstract class Service extends Instance {
 		super(name);
 		this.setInstanceable(false);
 		
-		this.getField(C_NAME).setLocked(true);
-		this.getField(C_PARENT).setLocked(true);
-		this.getField(C_ARCHIVABLE).setLocked(true);
+		this.setFieldLocked(C_NAME, true);
+		this.setFieldLocked(C_PARENT, true);
+		this.setFieldLocked(C_ARCHIVABLE, true);
 		
 		this.setLocked(true);
+		this.enableDescendantIndex();
 	}
 
 	public void onDestroy() {
@@ -9,11 +9,12 @@ import java.util.Map;
 import org.luaj.vm2.LuaValue;
 
 import engine.lua.type.LuaConnection;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.insts.Weld;
 
 public class WeldedStructure {
-	protected final static LuaValue C_INSTANCE_0 = LuaValue.valueOf("Instance0");
-	protected final static LuaValue C_INSTANCE_1 = LuaValue.valueOf("Instance1");
+	protected final static LuaValue C_INSTANCE_0 = LuaKeys.of("Instance0");
+	protected final static LuaValue C_INSTANCE_1 = LuaKeys.of("Instance1");
 	
 	private Instance rootInstance;
 	private List<Weld> welds;
@@ -15,6 +15,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.Game;
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.data.Vector3;
@@ -24,10 +25,10 @@ import engine.util.AABBUtil;
 import engine.util.Pair;
 
 public class AudioPlayer3D extends AudioPlayerBase implements Positionable {
-	protected static final LuaValue C_POSITION = LuaValue.valueOf("Position");
-	protected static final LuaValue C_POSITIONTYPE = LuaValue.valueOf("PositionType");
-	protected static final LuaValue C_RANGE = LuaValue.valueOf("Range");
-	protected static final LuaValue C_EMITTERSIZE = LuaValue.valueOf("EmitterSize");
+	protected static final LuaValue C_POSITION = LuaKeys.of("Position");
+	protected static final LuaValue C_POSITIONTYPE = LuaKeys.of("PositionType");
+	protected static final LuaValue C_RANGE = LuaKeys.of("Range");
+	protected static final LuaValue C_EMITTERSIZE = LuaKeys.of("EmitterSize");
 	
 	public AudioPlayer3D() {
 		super("AudioPlayer3D");
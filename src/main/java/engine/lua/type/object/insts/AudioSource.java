@@ -14,6 +14,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.FileFormats;
 import engine.Game;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.AssetLoadable;
 import engine.lua.type.object.TreeViewable;
@@ -21,9 +22,9 @@ import engine.lua.type.object.services.Assets;
 import ide.layout.windows.icons.Icons;
 
 public class AudioSource extends AssetLoadable implements TreeViewable {
-	private static final LuaValue C_PLAY = LuaValue.valueOf("Play");
-	private static final LuaValue C_VOLUME = LuaValue.valueOf("Volume");
-	private static final LuaValue C_PITCH = LuaValue.valueOf("Pitch");
+	private static final LuaValue C_PLAY = LuaKeys.of("Play");
+	private static final LuaValue C_VOLUME = LuaKeys.of("Volume");
+	private static final LuaValue C_PITCH = LuaKeys.of("Pitch");
 	
 	private String lastSource;
 	
@@ -12,13 +12,15 @@ package engine.lua.type.object.insts;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.VarArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.data.Vector3;
@@ -31,15 +33,15 @@ import ide.layout.windows.icons.Icons;
 
 public class Camera extends Instance implements TreeViewable,Positionable {
 
-	private static final LuaValue C_VIEWMATRIX = LuaValue.valueOf("ViewMatrix");
-	private static final LuaValue C_VIEWMATRIXINVERSE = LuaValue.valueOf("ViewMatrixInverse");
-	private static final LuaValue C_FOV = LuaValue.valueOf("Fov");
-	private static final LuaValue C_YAW = LuaValue.valueOf("Yaw");
-	private static final LuaValue C_PITCH = LuaValue.valueOf("Pitch");
-	private static final LuaValue C_POSITION = LuaValue.valueOf("Position");
-	private static final LuaValue C_LOOKAT = LuaValue.valueOf("LookAt");
+	private static final LuaValue C_VIEWMATRIX = LuaKeys.of("ViewMatrix");
+	private static final LuaValue C_VIEWMATRIXINVERSE = LuaKeys.of("ViewMatrixInverse");
+	private static final LuaValue C_FOV = LuaKeys.of("Fov");
+	private static final LuaValue C_YAW = LuaKeys.of("Yaw");
+	private static final LuaValue C_PITCH = LuaKeys.of("Pitch");
+	private static final LuaValue C_POSITION = LuaKeys.of("Position");
+	private static final LuaValue C_LOOKAT = LuaKeys.of("LookAt");
 
-	private static final LuaValue C_CAMERATYPE = LuaValue.valueOf("CameraType");
+	private static final LuaValue C_CAMERATYPE = LuaKeys.of("CameraType");
 	
 	private Matrix4f viewMatrix = new Matrix4f();
 	private Matrix4f viewMatrixInverse = new Matrix4f();
@@ -65,41 +67,6 @@ public class Camera extends Instance implements TreeViewable,Positionable {
 		this.set(C_LOOKAT, new Vector3(0, 0, 0));
 		this.set(C_POSITION, new Vector3(4, 4, 4));
 		
-		this.getmetatable().set("GetLookVector", new ZeroArgFunction() {
-			@Override
-			public LuaValue call() {
-				return ((Vector3) getLookAt().sub(getPosition())).getUnit();
-			}
-		});
-		
-		this.getmetatable().set("Translate", new TwoArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue arg2) {
-				Camera.this.translate((Vector3)arg2);
-				return LuaValue.NIL;
-			}
-		});
-		
-		this.getmetatable().set("MoveTo", new TwoArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue arg2) {
-				moveTo((Vector3)arg2);
-				return LuaValue.NIL;
-			}
-		});
-		
-		this.getmetatable().set("Orbit", new VarArgFunction() {
-			@Override
-			public LuaValue invoke(Varargs args) {
-				try {
-				Camera.this.orbit((Vector3)args.arg(2), (float)args.arg(3).checkdouble(), (float)args.arg(4).checkdouble(), (float)args.arg(5).checkdouble());
-				} catch(Exception e) {
-					e.printStackTrace();
-				}
-				return LuaValue.NIL;
-			}
-		});
-		
 		this.changedEvent().connect((args)->{
 			LuaValue key = args[0];
 			LuaValue value = args[1];
@@ -158,6 +125,47 @@ public class Camera extends Instance implements TreeViewable,Positionable {
 		updateMatrix();
 	}
 	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("GetLookVector", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				Camera camera = checkInstance(myself, Camera.class);
+				return ((Vector3) camera.getLookAt().sub(camera.getPosition())).getUnit();
+			}
+		});
+		
+		methods.set("Translate", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue arg2) {
+				checkInstance(myself, Camera.class).translate((Vector3)arg2);
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("MoveTo", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue arg2) {
+				checkInstance(myself, Camera.class).moveTo((Vector3)arg2);
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("Orbit", new VarArgFunction() {
+			@Override
+			public LuaValue invoke(Varargs args) {
+				try {
+				((Camera)args.arg1()).orbit((Vector3)args.arg(2), (float)args.arg(3).checkdouble(), (float)args.arg(4).checkdouble(), (float)args.arg(5).checkdouble());
+				} catch(Exception e) {
+					e.printStackTrace();
+				}
+				return LuaValue.NIL;
+			}
+		});
+	}
+	
 	/**
 	 * Moves the camera to the specified absolute position. Keeps the look-at vector relatively the same.
 	 * @param position
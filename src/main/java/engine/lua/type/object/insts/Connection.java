@@ -12,21 +12,23 @@ package engine.lua.type.object.insts;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.OneArgFunction;
 
 import engine.Game;
 import engine.lua.network.internal.PingRequest;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 
 public abstract class Connection extends Instance {
 	protected com.esotericsoftware.kryonet.Connection kryoConnection;
 
-	protected static final LuaValue C_ADDRESS = LuaValue.valueOf("Address");
-	protected static final LuaValue C_DATA = LuaValue.valueOf("Data");
-	protected static final LuaValue C_PLAYER = LuaValue.valueOf("Player");
-	protected static final LuaValue C_PING = LuaValue.valueOf("Ping");
-	protected static final LuaValue C_CONNECTION = LuaValue.valueOf("Connection");
+	protected static final LuaValue C_ADDRESS = LuaKeys.of("Address");
+	protected static final LuaValue C_DATA = LuaKeys.of("Data");
+	protected static final LuaValue C_PLAYER = LuaKeys.of("Player");
+	protected static final LuaValue C_PING = LuaKeys.of("Ping");
+	protected static final LuaValue C_CONNECTION = LuaKeys.of("Connection");
 	
 	public Connection(String objectName) {
 		super(objectName);
@@ -37,14 +39,6 @@ public abstract class Connection extends Instance {
 		
 		//this.forceSetParent(Game.getService("Connections"));
 		
-		this.getmetatable().set("Disconnect", new ZeroArgFunction() {
-			@Override
-			public LuaValue call() {
-				disconnect();
-				return LuaValue.NIL;
-			}
-		});
-		
 		this.setInstanceable(false);
 		this.setLocked(true);
 		
@@ -63,6 +57,19 @@ public abstract class Connection extends Instance {
 		});
 	}
 	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("Disconnect", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				checkInstance(myself, Connection.class).disconnect();
+				return LuaValue.NIL;
+			}
+		});
+	}
+	
 	public com.esotericsoftware.kryonet.Connection getConnection() {
 		return kryoConnection;
 	}
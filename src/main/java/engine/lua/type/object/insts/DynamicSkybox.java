@@ -12,6 +12,7 @@ package engine.lua.type.object.insts;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.Instance;
@@ -20,10 +21,10 @@ import ide.layout.windows.icons.Icons;
 
 public class DynamicSkybox extends Instance implements TreeViewable {
 
-	private static final LuaValue C_BRIGHTNESS = LuaValue.valueOf("Brightness");
-	private static final LuaValue C_TIME = LuaValue.valueOf("Time");
-	private static final LuaValue C_CLOUDHEIGHT = LuaValue.valueOf("CloudHeight");
-	private static final LuaValue C_CLOUDSPEED = LuaValue.valueOf("CloudSpeed");
+	private static final LuaValue C_BRIGHTNESS = LuaKeys.of("Brightness");
+	private static final LuaValue C_TIME = LuaKeys.of("Time");
+	private static final LuaValue C_CLOUDHEIGHT = LuaKeys.of("CloudHeight");
+	private static final LuaValue C_CLOUDSPEED = LuaKeys.of("CloudSpeed");
 
 	public DynamicSkybox() {
 		super("DynamicSkybox");
@@ -17,6 +17,7 @@ import org.luaj.vm2.LuaValue;
 import engine.Game;
 import engine.InternalGameThread;
 import engine.InternalRenderThread;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.data.Vector3;
@@ -30,11 +31,11 @@ import ide.layout.windows.icons.Icons;
 
 public class GameObject extends Instance implements RenderableInstance,TreeViewable,Positionable {
 
-	private final static LuaValue C_PREFAB = LuaValue.valueOf("Prefab");
-	private final static LuaValue C_WORLDMATRIX = LuaValue.valueOf("WorldMatrix");
-	private final static LuaValue C_POSITION = LuaValue.valueOf("Position");
-	private final static LuaValue C_TRANSPARENCY = LuaValue.valueOf("Transparency");
-	private final static LuaValue C_STATIC = LuaValue.valueOf("Static");
+	private final static LuaValue C_PREFAB = LuaKeys.of("Prefab");
+	private final static LuaValue C_WORLDMATRIX = LuaKeys.of("WorldMatrix");
+	private final static LuaValue C_POSITION = LuaKeys.of("Position");
+	private final static LuaValue C_TRANSPARENCY = LuaKeys.of("Transparency");
+	private final static LuaValue C_STATIC = LuaKeys.of("Static");
 	
 	private final static String PHYSICSOBJECT = "PhysicsObject";
 
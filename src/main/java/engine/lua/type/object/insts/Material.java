@@ -17,6 +17,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.lua.type.LuaConnection;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.data.Color3;
 import engine.lua.type.data.Vector3;
@@ -31,21 +32,21 @@ public class Material extends Asset implements TreeViewable {
 
 	private HashMap<String,LuaConnection> textureLoadsConnections = new HashMap<String,LuaConnection>();
 
-	protected static final LuaValue C_DIFFUSETEXTURE = LuaValue.valueOf("DiffuseTexture");
-	protected static final LuaValue C_NORMALTEXTURE = LuaValue.valueOf("NormalTexture");
-	protected static final LuaValue C_METALLICTEXTURE = LuaValue.valueOf("MetallicTexture");
-	protected static final LuaValue C_ROUGHNESSTEXTURE = LuaValue.valueOf("RoughnessTexture");
+	protected static final LuaValue C_DIFFUSETEXTURE = LuaKeys.of("DiffuseTexture");
+	protected static final LuaValue C_NORMALTEXTURE = LuaKeys.of("NormalTexture");
+	protected static final LuaValue C_METALLICTEXTURE = LuaKeys.of("MetallicTexture");
+	protected static final LuaValue C_ROUGHNESSTEXTURE = LuaKeys.of("RoughnessTexture");
 
-	protected static final LuaValue C_METALNESS = LuaValue.valueOf("Metalness");
-	protected static final LuaValue C_ROUGHNESS = LuaValue.valueOf("Roughness");
-	protected static final LuaValue C_REFLECTIVE = LuaValue.valueOf("Reflective");
-	protected static final LuaValue C_COLOR = LuaValue.valueOf("Color");
-	protected static final LuaValue C_EMISSIVE = LuaValue.valueOf("Emissive");
-	protected static final LuaValue C_TRANSPARENCY = LuaValue.valueOf("Transparency");
+	protected static final LuaValue C_METALNESS = LuaKeys.of("Metalness");
+	protected static final LuaValue C_ROUGHNESS = LuaKeys.of("Roughness");
+	protected static final LuaValue C_REFLECTIVE = LuaKeys.of("Reflective");
+	protected static final LuaValue C_COLOR = LuaKeys.of("Color");
+	protected static final LuaValue C_EMISSIVE = LuaKeys.of("Emissive");
+	protected static final LuaValue C_TRANSPARENCY = LuaKeys.of("Transparency");
 	
-	protected static final LuaValue C_MATERIALS = LuaValue.valueOf("Materials");
+	protected static final LuaValue C_MATERIALS = LuaKeys.of("Materials");
 	
-	protected static final LuaValue C_MATERIALUPDATEEVENT = LuaValue.valueOf("MaterialUpdateEvent");
+	protected static final LuaValue C_MATERIALUPDATEEVENT = LuaKeys.of("MaterialUpdateEvent");
 	
 	public Material() {
 		super("Material");
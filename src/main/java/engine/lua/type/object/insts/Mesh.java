@@ -10,6 +10,7 @@
 
 package engine.lua.type.object.insts;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.ThreeArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
@@ -19,6 +20,7 @@ import engine.gl.Resources;
 import engine.gl.mesh.BufferedMesh;
 import engine.lua.lib.FourArgFunction;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.AssetLoadable;
 import engine.lua.type.object.TreeViewable;
 import engine.util.MeshUtils;
@@ -28,78 +30,83 @@ public class Mesh extends AssetLoadable implements TreeViewable {
 	private BufferedMesh mesh;
 	private boolean changed;
 
-	private static final LuaValue C_CAPSULE = LuaValue.valueOf("Capsule");
-	private static final LuaValue C_SPHERE = LuaValue.valueOf("Sphere");
-	private static final LuaValue C_TEAPOT = LuaValue.valueOf("Teapot");
-	private static final LuaValue C_CUBE = LuaValue.valueOf("Cube");
-	private static final LuaValue C_BLOCK = LuaValue.valueOf("Block");
+	private static final LuaValue C_CAPSULE = LuaKeys.of("Capsule");
+	private static final LuaValue C_SPHERE = LuaKeys.of("Sphere");
+	private static final LuaValue C_TEAPOT = LuaKeys.of("Teapot");
+	private static final LuaValue C_CUBE = LuaKeys.of("Cube");
+	private static final LuaValue C_BLOCK = LuaKeys.of("Block");
 	
-	private static final LuaValue C_MESHES = LuaValue.valueOf("Meshes");
-	private static final LuaValue C_BLANK = LuaValue.valueOf("");
+	private static final LuaValue C_MESHES = LuaKeys.of("Meshes");
+	private static final LuaValue C_BLANK = LuaKeys.of("");
 	
-	private static final LuaValue C_MESHLOADED = LuaValue.valueOf("MeshLoaded");
+	private static final LuaValue C_MESHLOADED = LuaKeys.of("MeshLoaded");
 	
 	public Mesh() {
 		super("Mesh");
 		
 		this.setLocked(false);
 		
-		this.getmetatable().set(C_CAPSULE.toString(), new ThreeArgFunction() {
+		this.rawset(C_MESHLOADED, new LuaEvent());
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set(C_CAPSULE.toString(), new ThreeArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue radius, LuaValue height) {
-				if ( !myself.eq_b(Mesh.this) )
+				if ( !(myself instanceof Mesh) )
 					return LuaValue.NIL;
 				
-				capsule(radius.tofloat(), height.tofloat());
+				checkInstance(myself, Mesh.class).capsule(radius.tofloat(), height.tofloat());
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set(C_SPHERE.toString(), new TwoArgFunction() {
+		methods.set(C_SPHERE.toString(), new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue radius) {
-				if ( !myself.eq_b(Mesh.this) )
+				if ( !(myself instanceof Mesh) )
 					return LuaValue.NIL;
 				
-				sphere(radius.tofloat());
+				checkInstance(myself, Mesh.class).sphere(radius.tofloat());
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set(C_TEAPOT.toString(), new TwoArgFunction() {
+		methods.set(C_TEAPOT.toString(), new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue radius) {
-				if ( !myself.eq_b(Mesh.this) )
+				if ( !(myself instanceof Mesh) )
 					return LuaValue.NIL;
 				
-				teapot(radius.tofloat());
+				checkInstance(myself, Mesh.class).teapot(radius.tofloat());
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set(C_CUBE.toString(), new TwoArgFunction() {
+		methods.set(C_CUBE.toString(), new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue arg2) {
-				if ( !myself.eq_b(Mesh.this) )
+				if ( !(myself instanceof Mesh) )
 					return LuaValue.NIL;
 				
-				cube(arg2.tofloat());
+				checkInstance(myself, Mesh.class).cube(arg2.tofloat());
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set(C_BLOCK.toString(), new FourArgFunction() {
+		methods.set(C_BLOCK.toString(), new FourArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue arg2, LuaValue arg3, LuaValue arg4) {
-				if ( !myself.eq_b(Mesh.this) )
+				if ( !(myself instanceof Mesh) )
 					return LuaValue.NIL;
 				
-				block(arg2.tofloat(), arg3.tofloat(), arg4.tofloat());
+				checkInstance(myself, Mesh.class).block(arg2.tofloat(), arg3.tofloat(), arg4.tofloat());
 				return LuaValue.NIL;
 			}
 		});
-		
-		this.rawset(C_MESHLOADED, new LuaEvent());
 	}
 	
 	public void teapot(float radius) {
@@ -15,15 +15,16 @@ import org.luaj.vm2.LuaValue;
 import engine.gl.mesh.BufferedMesh;
 import engine.lua.type.LuaConnection;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 
 public class Model extends Instance {
 
-	protected final static LuaValue C_MESH = LuaValue.valueOf("Mesh");
-	protected final static LuaValue C_MATERIAL = LuaValue.valueOf("Material");
-	protected final static LuaValue C_NAME = LuaValue.valueOf("Name");
-	protected final static LuaValue C_PARENT = LuaValue.valueOf("Parent");
-	protected final static LuaValue C_MESHUPDATEEVENT = LuaValue.valueOf("MeshUpdateEvent");
+	protected final static LuaValue C_MESH = LuaKeys.of("Mesh");
+	protected final static LuaValue C_MATERIAL = LuaKeys.of("Material");
+	protected final static LuaValue C_NAME = LuaKeys.of("Name");
+	protected final static LuaValue C_PARENT = LuaKeys.of("Parent");
+	protected final static LuaValue C_MESHUPDATEEVENT = LuaKeys.of("MeshUpdateEvent");
 	
 	private LuaConnection meshConnection;
 	
@@ -36,8 +37,8 @@ public class Model extends Instance {
 		this.rawset(C_MESHUPDATEEVENT, new LuaEvent());
 		
 		this.setInstanceable(true);
-		this.getField(C_NAME).setLocked(false);
-		this.getField(C_PARENT).setLocked(false);
+		this.setFieldLocked(C_NAME, false);
+		this.setFieldLocked(C_PARENT, false);
 	}
 	
 	public LuaEvent meshUpdateEvent() {
@@ -15,17 +15,18 @@ import java.util.List;
 import org.luaj.vm2.LuaValue;
 
 import engine.Game;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class Player extends Instance implements TreeViewable {
 	
-	private static final LuaValue C_CHARACTER = LuaValue.valueOf("Character");
-	private static final LuaValue C_CONNECTION = LuaValue.valueOf("Connection");
-	private static final LuaValue C_CLIENTOWNSPHYSICS = LuaValue.valueOf("ClientOwnsPhysics");
-	private static final LuaValue C_PLAYERSCRIPTS = LuaValue.valueOf("PlayerScripts");
-	private static final LuaValue C_PLAYERGUI = LuaValue.valueOf("PlayerGui");
+	private static final LuaValue C_CHARACTER = LuaKeys.of("Character");
+	private static final LuaValue C_CONNECTION = LuaKeys.of("Connection");
+	private static final LuaValue C_CLIENTOWNSPHYSICS = LuaKeys.of("ClientOwnsPhysics");
+	private static final LuaValue C_PLAYERSCRIPTS = LuaKeys.of("PlayerScripts");
+	private static final LuaValue C_PLAYERGUI = LuaKeys.of("PlayerGui");
 	
 	public Player() {
 		super("Player");
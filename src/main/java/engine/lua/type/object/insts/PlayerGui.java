@@ -16,6 +16,7 @@ import java.util.List;
 import org.luaj.vm2.LuaValue;
 
 import engine.ClientEngine;
+import engine.Game;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.ScriptExecutor;
 import engine.lua.type.object.TreeViewable;
@@ -39,7 +40,8 @@ public class PlayerGui extends Instance implements TreeViewable,ScriptExecutor {
 			LuaValue arg = args[0];
 			if ( arg instanceof Gui ) {
 				Pane gui = ((Gui)arg).root;
-				ClientEngine.renderThread.getClientUI().getChildren().add(gui);
+				if ( !Game.isHeadless() )
+					ClientEngine.renderThread.getClientUI().getChildren().add(gui);
 				guis.add(gui);
 			}
 		});
@@ -48,7 +50,8 @@ public class PlayerGui extends Instance implements TreeViewable,ScriptExecutor {
 			LuaValue arg = args[0];
 			if ( arg instanceof Gui ) {
 				Pane gui = ((Gui)arg).root;
-				ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
+				if ( !Game.isHeadless() )
+					ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
 				guis.remove(gui);
 			}
 		});
@@ -72,7 +75,8 @@ public class PlayerGui extends Instance implements TreeViewable,ScriptExecutor {
 	@Override
 	public void onDestroy() {
 		for (Pane gui : guis ) {
-			ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
+			if ( !Game.isHeadless() )
+				ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
 		}
 		
 		guis.clear();
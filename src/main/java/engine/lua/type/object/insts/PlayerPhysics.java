@@ -21,6 +21,7 @@ import engine.Game;
 import engine.InternalGameThread;
 import engine.lua.lib.Enums;
 import engine.lua.type.LuaFieldFlag;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.PhysicsBase;
 import engine.lua.type.object.TreeViewable;
@@ -30,14 +31,14 @@ import ide.layout.windows.icons.Icons;
 
 public class PlayerPhysics extends PhysicsBase implements TreeViewable {
 
-	private static final LuaValue C_HEIGHT = LuaValue.valueOf("Height");
-	private static final LuaValue C_RADIUS = LuaValue.valueOf("Radius");
-	private static final LuaValue C_STEPHEIGHT = LuaValue.valueOf("StepHeight");
-	private static final LuaValue C_SHAPE = LuaValue.valueOf("Shape");
-	private static final LuaValue C_USECUSTOMMESH = LuaValue.valueOf("UseCustomMesh");
-	private static final LuaValue C_ANGULARFACTOR = LuaValue.valueOf("AngularFactor");
-	private static final LuaValue C_ONGROUND = LuaValue.valueOf("OnGround");
-	private static final LuaValue C_BOUNCINESS = LuaValue.valueOf("Bounciness");
+	private static final LuaValue C_HEIGHT = LuaKeys.of("Height");
+	private static final LuaValue C_RADIUS = LuaKeys.of("Radius");
+	private static final LuaValue C_STEPHEIGHT = LuaKeys.of("StepHeight");
+	private static final LuaValue C_SHAPE = LuaKeys.of("Shape");
+	private static final LuaValue C_USECUSTOMMESH = LuaKeys.of("UseCustomMesh");
+	private static final LuaValue C_ANGULARFACTOR = LuaKeys.of("AngularFactor");
+	private static final LuaValue C_ONGROUND = LuaKeys.of("OnGround");
+	private static final LuaValue C_BOUNCINESS = LuaKeys.of("Bounciness");
 	
 	public PlayerPhysics() {
 		super("PlayerPhysics");
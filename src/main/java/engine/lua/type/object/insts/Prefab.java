@@ -14,12 +14,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.ThreeArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.lib.LuaUtil;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.Asset;
 import engine.lua.type.object.PrefabRenderer;
@@ -31,9 +32,9 @@ import ide.layout.windows.icons.Icons;
 public class Prefab extends Asset implements TreeViewable {
 	private PrefabRenderer prefab;
 	
-	private final static LuaValue C_SCALE = LuaValue.valueOf("Scale");
-	private final static LuaValue C_PREFABS = LuaValue.valueOf("Prefabs");
-	private final static LuaValue C_CENTERORIGIN = LuaValue.valueOf("CenterOrigin");
+	private final static LuaValue C_SCALE = LuaKeys.of("Scale");
+	private final static LuaValue C_PREFABS = LuaKeys.of("Prefabs");
+	private final static LuaValue C_CENTERORIGIN = LuaKeys.of("CenterOrigin");
 	
 	private List<Model> models;
 
@@ -48,24 +49,6 @@ public class Prefab extends Asset implements TreeViewable {
 		prefab = new PrefabRenderer(this);
 		models = new ArrayList<Model>();
 		
-		this.getmetatable().set("GetModels", new ZeroArgFunction() {
-			@Override
-			public LuaValue call() {
-				return LuaUtil.listToTable(getModels());
-			}
-		});
-		
-		this.getmetatable().set("AddModel", new ThreeArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue mesh, LuaValue material) {
-				Model m = new Model();
-				m.set("Mesh", mesh);
-				m.set("Material", material);
-				m.forceSetParent(Prefab.this);
-				return m;
-			}
-		});
-		
 		this.childAddedEvent().connectLua(new OneArgFunction() {
 			@Override
 			public LuaValue call(LuaValue arg) {
@@ -101,6 +84,29 @@ public class Prefab extends Asset implements TreeViewable {
 		});
 	}
 	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("GetModels", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				return LuaUtil.listToTable(checkInstance(myself, Prefab.class).getModels());
+			}
+		});
+		
+		methods.set("AddModel", new ThreeArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue mesh, LuaValue material) {
+				Model m = new Model();
+				m.set("Mesh", mesh);
+				m.set("Material", material);
+				m.forceSetParent(myself);
+				return m;
+			}
+		});
+	}
+	
 	@Override
 	protected void onLuaCreate() {
 		AssetFolder meshes = new AssetFolder();
@@ -12,6 +12,7 @@ package engine.lua.type.object.insts;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Vector3;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.PhysicsBase;
@@ -20,9 +21,9 @@ import ide.layout.windows.icons.Icons;
 
 public class RayResult extends Instance implements TreeViewable {
 
-	protected static final LuaValue C_OBJECT = LuaValue.valueOf("HitObject");
-	protected static final LuaValue C_POSITION = LuaValue.valueOf("HitPosition");
-	protected static final LuaValue C_NORMAL = LuaValue.valueOf("HitNormal");
+	protected static final LuaValue C_OBJECT = LuaKeys.of("HitObject");
+	protected static final LuaValue C_POSITION = LuaKeys.of("HitPosition");
+	protected static final LuaValue C_NORMAL = LuaKeys.of("HitNormal");
 	
 	public RayResult() {
 		super("RayResult");
@@ -47,8 +47,10 @@ public class SceneInternal extends Instance {
 	 * Stores the current game to the internal data structure of this scene.
 	 */
 	public void storeGame() {
-		//this.clearAllChildren();
-		
+		Game.batchHierarchy(this::storeGameInternal);
+	}
+	
+	private void storeGameInternal() {
 		List<Instance> potentialServices = Game.game().getChildrenSafe();
 		for (int i = 0; i < potentialServices.size(); i++) {
 			Instance potentialService = potentialServices.get(i);
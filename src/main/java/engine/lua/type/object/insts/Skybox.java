@@ -12,6 +12,7 @@ package engine.lua.type.object.insts;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
@@ -19,9 +20,9 @@ import ide.layout.windows.icons.Icons;
 
 public class Skybox extends Instance implements TreeViewable {
 
-	private static final LuaValue C_BRIGHTNESS = LuaValue.valueOf("Brightness");
-	private static final LuaValue C_POWER = LuaValue.valueOf("Power");
-	private static final LuaValue C_IMAGE = LuaValue.valueOf("Image");
+	private static final LuaValue C_BRIGHTNESS = LuaKeys.of("Brightness");
+	private static final LuaValue C_POWER = LuaKeys.of("Power");
+	private static final LuaValue C_IMAGE = LuaKeys.of("Image");
 
 	public Skybox() {
 		super("Skybox");
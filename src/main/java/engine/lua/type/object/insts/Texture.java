@@ -14,9 +14,11 @@ import org.luaj.vm2.LuaValue;
 
 import engine.FileFormats;
 import engine.FilePath;
+import engine.Game;
 import engine.gl.Resources;
 import engine.io.FileResource;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.AssetLoadable;
 import engine.lua.type.object.TreeViewable;
 import engine.resources.ResourcesManager;
@@ -28,10 +30,10 @@ public class Texture extends AssetLoadable implements TreeViewable, FileResource
 	private boolean loaded;
 	private String path;
 
-	private static final LuaValue C_TEXTURELOADED = LuaValue.valueOf("TextureLoaded");
-	private static final LuaValue C_SRGB = LuaValue.valueOf("SRGB");
-	private static final LuaValue C_FLIPY = LuaValue.valueOf("FlipY");
-	private static final LuaValue C_TEXTURES = LuaValue.valueOf("Textures");
+	private static final LuaValue C_TEXTURELOADED = LuaKeys.of("TextureLoaded");
+	private static final LuaValue C_SRGB = LuaKeys.of("SRGB");
+	private static final LuaValue C_FLIPY = LuaKeys.of("FlipY");
+	private static final LuaValue C_TEXTURES = LuaKeys.of("Textures");
 
 	public Texture() {
 		super("Texture");
@@ -77,6 +79,10 @@ public class Texture extends AssetLoadable implements TreeViewable, FileResource
 	}
 
 	private void reloadFromFile() {
+		// Nothing to upload to. The file path is kept as data.
+		if (Game.isHeadless())
+			return;
+		
 		String realPath = FilePath.convertToSystem(path);
 		// image = new AsynchronousImage(realPath, this.rawget(C_FLIPY).toboolean());
 		if (this.get(C_SRGB).checkboolean())
@@ -12,12 +12,13 @@ package engine.lua.type.object.insts;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.WeldedStructure;
 
 public class Weld extends Instance {
-	protected final static LuaValue C_INSTANCE_0 = LuaValue.valueOf("Instance0");
-	protected final static LuaValue C_INSTANCE_1 = LuaValue.valueOf("Instance1");
+	protected final static LuaValue C_INSTANCE_0 = LuaKeys.of("Instance0");
+	protected final static LuaValue C_INSTANCE_1 = LuaKeys.of("Instance1");
 	
 	private WeldedStructure structure;
 	
@@ -28,8 +29,8 @@ public class Weld extends Instance {
 		this.defineField(C_INSTANCE_1, LuaValue.NIL, false);
 
 		this.setInstanceable(true);
-		this.getField(C_NAME).setLocked(false);
-		this.getField(C_PARENT).setLocked(false);
+		this.setFieldLocked(C_NAME, false);
+		this.setFieldLocked(C_PARENT, false);
 	}
 
 	@Override
@@ -12,11 +12,14 @@ package engine.lua.type.object.insts.animation;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class Animation extends Instance implements TreeViewable {
+	private static final LuaValue C_SPEED = LuaKeys.of("Speed");
+	private static final LuaValue C_LOOPED = LuaKeys.of("Looped");
 
 	public Animation() {
 		super("Animation");
@@ -25,8 +28,8 @@ public class Animation extends Instance implements TreeViewable {
 		
 		this.getField(LuaValue.valueOf("Archivable")).setLocked(true);
 
-		this.defineField("Speed", LuaValue.valueOf(1.0), false);
-		this.defineField("Looped", LuaValue.valueOf(false), false);
+		this.defineField(C_SPEED, LuaValue.valueOf(1.0), false);
+		this.defineField(C_LOOPED, LuaValue.valueOf(false), false);
 	}
 
 	@Override
@@ -50,11 +53,11 @@ public class Animation extends Instance implements TreeViewable {
 	}
 
 	public float getSpeed() {
-		return this.get("Speed").tofloat();
+		return this.get(C_SPEED).tofloat();
 	}
 
 	public boolean isLooped() {
-		return this.get("Looped").toboolean();
+		return this.get(C_LOOPED).toboolean();
 	}
 
 	/**
@@ -16,6 +16,7 @@ import java.util.List;
 
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.TwoArgFunction;
 
@@ -23,6 +24,7 @@ import engine.Game;
 import engine.InternalGameThread;
 import engine.gl.mesh.animation.AnimatedModel;
 import engine.lua.type.LuaConnection;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.insts.GameObject;
@@ -33,8 +35,8 @@ public class AnimationController extends Instance {
 	protected ArrayList<AnimationTrack> playingAnimations;
 	protected LuaConnection animationUpdator;
 
-	protected final static LuaValue C_LINKED = LuaValue.valueOf("Linked");
-	protected final static LuaValue C_PREFAB = LuaValue.valueOf("Prefab");
+	protected final static LuaValue C_LINKED = LuaKeys.of("Linked");
+	protected final static LuaValue C_PREFAB = LuaKeys.of("Prefab");
 	
 	private LuaConnection linkedConnection = null;
 	private HashMap<String, Matrix4> boneAbsolutePositions;
@@ -49,17 +51,6 @@ public class AnimationController extends Instance {
 		
 		this.playingAnimations = new ArrayList<AnimationTrack>();
 		
-		this.getmetatable().set("LoadAnimation", new TwoArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue arg1) {
-				if ( arg1.isnil() || !(arg1 instanceof Animation) )
-					return LuaValue.NIL;
-				
-				AnimationTrack track = new AnimationTrack(AnimationController.this, (Animation) arg1);
-				return track;
-			}
-		});
-		
 		// Handle animations
 		InternalGameThread.runLater(()->{
 			animationUpdator = Game.runService().heartbeatEvent().connect((args)->{
@@ -88,6 +79,22 @@ public class AnimationController extends Instance {
 			}
 		});
 	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("LoadAnimation", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue arg1) {
+				if ( arg1.isnil() || !(arg1 instanceof Animation) )
+					return LuaValue.NIL;
+				
+				AnimationTrack track = new AnimationTrack(checkInstance(myself, AnimationController.class), (Animation) arg1);
+				return track;
+			}
+		});
+	}
 
 	private void clearAnimations() {
 		playingAnimations.clear();
@@ -141,10 +148,10 @@ public class AnimationController extends Instance {
 		return true;
 	}
 
-	private static final LuaValue C_ANIMATIONDATA = LuaValue.valueOf("AnimationData");
-	private static final LuaValue C_ANIMATIONS = LuaValue.valueOf("Animations");
-	private static final LuaValue C_BONETREE = LuaValue.valueOf("BoneTree");
-	private static final LuaValue C_BONES = LuaValue.valueOf("Bones");
+	private static final LuaValue C_ANIMATIONDATA = LuaKeys.of("AnimationData");
+	private static final LuaValue C_ANIMATIONS = LuaKeys.of("Animations");
+	private static final LuaValue C_BONETREE = LuaKeys.of("BoneTree");
+	private static final LuaValue C_BONES = LuaKeys.of("Bones");
 	
 	private void animate(double delta) {
 		GameObject linked = this.getLinkedInstance();
@@ -13,19 +13,21 @@ package engine.lua.type.object.insts.animation;
 import org.joml.Matrix4f;
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class AnimationKeyframe extends Instance implements TreeViewable {
+	private static final LuaValue C_MATRIX = LuaKeys.of("Matrix");
 
 	public AnimationKeyframe() {
 		super("AnimationKeyframe");
 		this.setInstanceable(false);
 		
 		this.getField(LuaValue.valueOf("Archivable")).setLocked(true);
-		this.defineField("Matrix", new Matrix4(), false);
+		this.defineField(C_MATRIX, new Matrix4(), false);
 	}
 
 	@Override
@@ -49,7 +51,7 @@ public class AnimationKeyframe extends Instance implements TreeViewable {
 	}
 
 	public Matrix4 getMatrix() {
-		LuaValue ret = this.get("Matrix");
+		LuaValue ret = this.get(C_MATRIX);
 		return ret==null?null:(Matrix4)ret;
 	}
 	
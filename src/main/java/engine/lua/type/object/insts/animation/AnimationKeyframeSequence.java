@@ -15,6 +15,7 @@ import java.util.List;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
@@ -23,7 +24,7 @@ public class AnimationKeyframeSequence extends Instance implements TreeViewable
 
 	protected List<AnimationKeyframe> keyframes;
 	
-	private static LuaValue C_TIME = LuaValue.valueOf("Time");
+	private static LuaValue C_TIME = LuaKeys.of("Time");
 	
 	public AnimationKeyframeSequence() {
 		super("AnimationKeyframeSequence");
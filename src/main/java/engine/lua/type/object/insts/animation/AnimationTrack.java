@@ -11,9 +11,11 @@
 package engine.lua.type.object.insts.animation;
 
 import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.OneArgFunction;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 
 public class AnimationTrack extends Instance {
@@ -21,11 +23,11 @@ public class AnimationTrack extends Instance {
 	private AnimationController controller;
 	private AnimationKeyframeSequence nextFrame;
 	
-	private static LuaValue C_ANIMATION = LuaValue.valueOf("Animation");
-	private static LuaValue C_TIMEPOSITION = LuaValue.valueOf("TimePosition");
-	private static LuaValue C_CURRENTKEYFRAME = LuaValue.valueOf("CurrentKeyframe");
-	private static LuaValue C_LENGTH = LuaValue.valueOf("Length");
-	private static LuaValue C_SPEED = LuaValue.valueOf("Speed");
+	private static LuaValue C_ANIMATION = LuaKeys.of("Animation");
+	private static LuaValue C_TIMEPOSITION = LuaKeys.of("TimePosition");
+	private static LuaValue C_CURRENTKEYFRAME = LuaKeys.of("CurrentKeyframe");
+	private static LuaValue C_LENGTH = LuaKeys.of("Length");
+	private static LuaValue C_SPEED = LuaKeys.of("Speed");
 	
 	public AnimationTrack(AnimationController animationController, Animation animation) {
 		super("AnimationTrack");
@@ -44,14 +46,20 @@ public class AnimationTrack extends Instance {
 		this.setInstanceable(false);
 		
 		this.controller = animationController;
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
 		
-		this.getmetatable().set("Play", new ZeroArgFunction() {
+		methods.set("Play", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				if ( controller == null ) {
+			public LuaValue call(LuaValue myself) {
+				AnimationTrack track = checkInstance(myself, AnimationTrack.class);
+				if ( track.controller == null ) {
 					throw new LuaError("Controller not specified for AnimationTrack");
 				}
-				controller.playAnimation(AnimationTrack.this);
+				track.controller.playAnimation(track);
 				return LuaValue.NIL;
 			}
 		});
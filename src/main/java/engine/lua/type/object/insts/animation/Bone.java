@@ -12,6 +12,7 @@ package engine.lua.type.object.insts.animation;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
@@ -20,8 +21,8 @@ import ide.layout.windows.icons.Icons;
 
 public class Bone extends Instance implements TreeViewable {
 
-	protected static final LuaValue C_MESH = LuaValue.valueOf("Mesh");
-	protected static final LuaValue C_OFFSETMATRIX = LuaValue.valueOf("OffsetMatrix");
+	protected static final LuaValue C_MESH = LuaKeys.of("Mesh");
+	protected static final LuaValue C_OFFSETMATRIX = LuaKeys.of("OffsetMatrix");
 	
 	public Bone() {
 		super("Bone");
@@ -12,14 +12,15 @@ package engine.lua.type.object.insts.animation;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class BoneWeight extends Instance implements TreeViewable {
 
-	private static final LuaValue C_VERTEXID = LuaValue.valueOf("VertexId");
-	private static final LuaValue C_WEIGHT = LuaValue.valueOf("Weight");
+	private static final LuaValue C_VERTEXID = LuaKeys.of("VertexId");
+	private static final LuaValue C_WEIGHT = LuaKeys.of("Weight");
 	
 	public BoneWeight() {
 		super("BoneWeight");
@@ -12,6 +12,7 @@ package engine.lua.type.object.insts.animation;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
@@ -19,7 +20,7 @@ import ide.layout.windows.icons.Icons;
 
 public class Bones extends Instance implements TreeViewable {
 	
-	public static final LuaValue C_ROOTINVERSE = LuaValue.valueOf("RootInverse");
+	public static final LuaValue C_ROOTINVERSE = LuaKeys.of("RootInverse");
 	
 	public Bones() {
 		super("Bones");
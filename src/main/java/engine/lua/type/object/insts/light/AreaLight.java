@@ -15,6 +15,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.gl.IPipeline;
 import engine.gl.lights.AreaLightInternal;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Color3;
 import engine.lua.type.data.Vector3;
@@ -25,9 +26,9 @@ import lwjgui.paint.Color;
 
 public class AreaLight extends LightBase<AreaLightInternal> implements TreeViewable {
 
-	private static final LuaValue C_DIRECTION = LuaValue.valueOf("Direction");
-	private static final LuaValue C_SIZEX = LuaValue.valueOf("SizeX");
-	private static final LuaValue C_SIZEY = LuaValue.valueOf("SizeY");
+	private static final LuaValue C_DIRECTION = LuaKeys.of("Direction");
+	private static final LuaValue C_SIZEX = LuaKeys.of("SizeX");
+	private static final LuaValue C_SIZEY = LuaKeys.of("SizeY");
 
 	public AreaLight() {
 		super("AreaLight");
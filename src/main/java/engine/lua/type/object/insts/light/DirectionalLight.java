@@ -16,6 +16,7 @@ import org.luaj.vm2.LuaValue;
 import engine.gl.IPipeline;
 import engine.gl.lights.DirectionalLightInternal;
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Color3;
 import engine.lua.type.data.Vector3;
 import engine.lua.type.object.LightBase;
@@ -25,9 +26,9 @@ import lwjgui.paint.Color;
 
 public class DirectionalLight extends LightBase<DirectionalLightInternal> implements TreeViewable {
 
-	private static final LuaValue C_SHADOWDISTANCE = LuaValue.valueOf("ShadowDistance");
-	private static final LuaValue C_DIRECTION = LuaValue.valueOf("Direction");
-	private static final LuaValue C_SHADOWMAPSIZE = LuaValue.valueOf("ShadowMapSize");
+	private static final LuaValue C_SHADOWDISTANCE = LuaKeys.of("ShadowDistance");
+	private static final LuaValue C_DIRECTION = LuaKeys.of("Direction");
+	private static final LuaValue C_SHADOWMAPSIZE = LuaKeys.of("ShadowMapSize");
 
 	public DirectionalLight() {
 		super("DirectionalLight");
@@ -16,6 +16,7 @@ import org.luaj.vm2.LuaValue;
 import engine.gl.IPipeline;
 import engine.gl.lights.PointLightInternal;
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Color3;
 import engine.lua.type.data.Vector3;
@@ -26,8 +27,8 @@ import lwjgui.paint.Color;
 
 public class PointLight extends LightBase<PointLightInternal> implements TreeViewable {
 
-	private static final LuaValue C_RADIUS = LuaValue.valueOf("Radius");
-	private static final LuaValue C_SHADOWMAPSIZE = LuaValue.valueOf("ShadowMapSize");
+	private static final LuaValue C_RADIUS = LuaKeys.of("Radius");
+	private static final LuaValue C_SHADOWMAPSIZE = LuaKeys.of("ShadowMapSize");
 
 	public PointLight() {
 		super("PointLight");
@@ -16,6 +16,7 @@ import org.luaj.vm2.LuaValue;
 import engine.gl.IPipeline;
 import engine.gl.lights.SpotLightInternal;
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Color3;
@@ -27,11 +28,11 @@ import lwjgui.paint.Color;
 
 public class SpotLight extends LightBase<SpotLightInternal> implements TreeViewable {
 
-	private static final LuaValue C_INNERFOVSCALE = LuaValue.valueOf("InnerFOVScale");
-	private static final LuaValue C_OUTERFOV = LuaValue.valueOf("OuterFOV");
-	private static final LuaValue C_RADIUS = LuaValue.valueOf("Radius");
-	private static final LuaValue C_DIRECTION = LuaValue.valueOf("Direction");
-	private static final LuaValue C_SHADOWMAPSIZE = LuaValue.valueOf("ShadowMapSize");
+	private static final LuaValue C_INNERFOVSCALE = LuaKeys.of("InnerFOVScale");
+	private static final LuaValue C_OUTERFOV = LuaKeys.of("OuterFOV");
+	private static final LuaValue C_RADIUS = LuaKeys.of("Radius");
+	private static final LuaValue C_DIRECTION = LuaKeys.of("Direction");
+	private static final LuaValue C_SHADOWMAPSIZE = LuaKeys.of("ShadowMapSize");
 
 	public SpotLight() {
 		super("SpotLight");
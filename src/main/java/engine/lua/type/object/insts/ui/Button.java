@@ -15,14 +15,15 @@ import org.luaj.vm2.LuaValue;
 
 import engine.Game;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import ide.layout.windows.icons.Icons;
 import lwjgui.scene.Node;
 import lwjgui.scene.control.ButtonBase;
 
 public class Button extends GuiBase {
 
-	protected static final LuaValue C_TEXT = LuaValue.valueOf("Text");
-	protected static final LuaValue C_ACTION = LuaValue.valueOf("Action");
+	protected static final LuaValue C_TEXT = LuaKeys.of("Text");
+	protected static final LuaValue C_ACTION = LuaKeys.of("Action");
 	
 	public Button() {
 		super("Button");
@@ -12,13 +12,14 @@ package engine.lua.type.object.insts.ui;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class CSS extends Instance implements TreeViewable {
 	
-	private static final LuaValue C_SOURCE = LuaValue.valueOf("Source");
+	private static final LuaValue C_SOURCE = LuaKeys.of("Source");
 	
 	public CSS() {
 		super("CSS");
@@ -11,6 +11,7 @@ import engine.lua.lib.EnumType;
 import engine.lua.lib.Enums;
 import engine.lua.type.LuaConnection;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Vector2;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
@@ -20,16 +21,16 @@ import lwjgui.style.Stylesheet;
 
 public abstract class GuiBase extends Instance implements TreeViewable {
 
-	protected static final LuaValue C_CLASSLIST = LuaValue.valueOf("ClassList");
-	protected static final LuaValue C_SIZE = LuaValue.valueOf("Size");
-	protected static final LuaValue C_ALIGNMENT = LuaValue.valueOf("Alignment");
-	protected static final LuaValue C_MOUSETRANSPARENT = LuaValue.valueOf("MouseTransparent");
-	protected static final LuaValue C_CLICKEDEVENT = LuaValue.valueOf("MouseClicked");
-	protected static final LuaValue C_MOUSEENTERED = LuaValue.valueOf("MouseEntered");
-	protected static final LuaValue C_MOUSEEXITED = LuaValue.valueOf("MouseExited");
-	protected static final LuaValue C_MOUSEPRESSED = LuaValue.valueOf("MousePressed");
-	protected static final LuaValue C_MOUSERELEASED = LuaValue.valueOf("MouseReleased");
-	protected static final LuaValue C_CSS = LuaValue.valueOf("CSS");
+	protected static final LuaValue C_CLASSLIST = LuaKeys.of("ClassList");
+	protected static final LuaValue C_SIZE = LuaKeys.of("Size");
+	protected static final LuaValue C_ALIGNMENT = LuaKeys.of("Alignment");
+	protected static final LuaValue C_MOUSETRANSPARENT = LuaKeys.of("MouseTransparent");
+	protected static final LuaValue C_CLICKEDEVENT = LuaKeys.of("MouseClicked");
+	protected static final LuaValue C_MOUSEENTERED = LuaKeys.of("MouseEntered");
+	protected static final LuaValue C_MOUSEEXITED = LuaKeys.of("MouseExited");
+	protected static final LuaValue C_MOUSEPRESSED = LuaKeys.of("MousePressed");
+	protected static final LuaValue C_MOUSERELEASED = LuaKeys.of("MouseReleased");
+	protected static final LuaValue C_CSS = LuaKeys.of("CSS");
 	
 	
 	protected Map<Instance, LuaConnection> uiConnections = new HashMap<>();
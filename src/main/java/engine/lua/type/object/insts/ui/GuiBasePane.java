@@ -12,6 +12,7 @@ package engine.lua.type.object.insts.ui;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Color4;
 import lwjgui.geometry.Pos;
 import lwjgui.paint.Color;
@@ -20,7 +21,7 @@ import lwjgui.scene.layout.Pane;
 
 public abstract class GuiBasePane extends GuiBase {
 	
-	protected static final LuaValue C_BACKGROUNDCOLOR = LuaValue.valueOf("BackgroundColor");
+	protected static final LuaValue C_BACKGROUNDCOLOR = LuaKeys.of("BackgroundColor");
 	
 	public GuiBasePane(String name) {
 		super(name);
@@ -13,6 +13,7 @@ package engine.lua.type.object.insts.ui;
 import org.luaj.vm2.LuaString;
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Color4;
 import ide.layout.windows.icons.Icons;
 import lwjgui.paint.Color;
@@ -20,9 +21,9 @@ import lwjgui.scene.Node;
 
 public class Label extends GuiBase {
 	
-	protected static final LuaValue C_TEXT = LuaValue.valueOf("Text");
-	protected static final LuaValue C_TEXTCOLOR = LuaValue.valueOf("TextColor");
-	protected static final LuaValue C_FONTSIZE = LuaValue.valueOf("FontSize");
+	protected static final LuaValue C_TEXT = LuaKeys.of("Text");
+	protected static final LuaValue C_TEXTCOLOR = LuaKeys.of("TextColor");
+	protected static final LuaValue C_FONTSIZE = LuaKeys.of("FontSize");
 	
 	public Label() {
 		super("Label");
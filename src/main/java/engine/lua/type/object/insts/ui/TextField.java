@@ -16,10 +16,12 @@ import org.luaj.vm2.LuaValue;
 import ide.layout.windows.icons.Icons;
 import lwjgui.scene.Node;
 
+import engine.lua.type.LuaKeys;
+
 public class TextField extends GuiBase {
 
-	protected static final LuaValue C_TEXT = LuaValue.valueOf("Text");
-	protected static final LuaValue C_PROMPT = LuaValue.valueOf("Prompt");
+	protected static final LuaValue C_TEXT = LuaKeys.of("Text");
+	protected static final LuaValue C_PROMPT = LuaKeys.of("Prompt");
 	
 	public TextField() {
 		super("TextField");
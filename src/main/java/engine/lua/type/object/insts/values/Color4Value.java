@@ -12,6 +12,7 @@ package engine.lua.type.object.insts.values;
 
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Color4;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
@@ -19,7 +20,7 @@ import ide.layout.windows.icons.Icons;
 
 public class Color4Value extends ValueBase implements TreeViewable {
 
-	protected static final LuaValue C_VALUE = LuaValue.valueOf("Value");
+	protected static final LuaValue C_VALUE = LuaKeys.of("Value");
 	
 	public Color4Value() {
 		super("Color4Value");
@@ -13,13 +13,14 @@ package engine.lua.type.object.insts.values;
 import org.luaj.vm2.LuaInteger;
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.List;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class ListValue extends ValueBase implements TreeViewable {
 
-	protected static final LuaValue C_VALUE = LuaValue.valueOf("Value");
+	protected static final LuaValue C_VALUE = LuaKeys.of("Value");
 	
 	public ListValue() {
 		super("ListValue");
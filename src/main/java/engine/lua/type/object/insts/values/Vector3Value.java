@@ -13,6 +13,7 @@ package engine.lua.type.object.insts.values;
 import org.joml.Vector3f;
 import org.luaj.vm2.LuaValue;
 
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Matrix4;
 import engine.lua.type.data.Vector3;
 import engine.lua.type.object.Instance;
@@ -24,7 +25,7 @@ import ide.layout.windows.icons.Icons;
 
 public class Vector3Value extends ValueBase implements TreeViewable,Positionable {
 
-	protected static final LuaValue C_VALUE = LuaValue.valueOf("Value");
+	protected static final LuaValue C_VALUE = LuaKeys.of("Value");
 	
 	public Vector3Value() {
 		super("Vector3Value");
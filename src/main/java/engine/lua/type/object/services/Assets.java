@@ -21,9 +21,10 @@ import java.util.Map;
 
 import org.joml.Vector2f;
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.assimp.AIAnimation;
 import org.lwjgl.assimp.AIColor4D;
@@ -40,6 +41,7 @@ import org.lwjgl.system.MemoryStack;
 import engine.Game;
 import engine.gl.mesh.BufferedMesh;
 import engine.gl.mesh.Vertex;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Color3;
 import engine.lua.type.object.AssetLoadable;
 import engine.lua.type.object.Instance;
@@ -61,71 +63,77 @@ import ide.layout.windows.icons.Icons;
 
 public class Assets extends Service implements TreeViewable,SceneStorable {
 
-	public static final LuaValue C_MATERIALS = LuaValue.valueOf("Materials");
-	public static final LuaValue C_MESHES = LuaValue.valueOf("Meshes");
-	public static final LuaValue C_TEXTURES = LuaValue.valueOf("Textures");
-	public static final LuaValue C_PREFABS = LuaValue.valueOf("Prefabs");
-	public static final LuaValue C_AUDIO = LuaValue.valueOf("Audio");
+	public static final LuaValue C_MATERIALS = LuaKeys.of("Materials");
+	public static final LuaValue C_MESHES = LuaKeys.of("Meshes");
+	public static final LuaValue C_TEXTURES = LuaKeys.of("Textures");
+	public static final LuaValue C_PREFABS = LuaKeys.of("Prefabs");
+	public static final LuaValue C_AUDIO = LuaKeys.of("Audio");
 	
 	public Assets() {
 		super("Assets");
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
 		
-		this.getmetatable().set("ImportMesh", new TwoArgFunction() {
+		methods.set("ImportMesh", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue path) {
 				Mesh m = new Mesh();
 				m.set("FilePath", path.toString());
-				m.forceSetParent(meshes());
+				m.forceSetParent(checkInstance(myself, Assets.class).meshes());
 				return m;
 			}
 		});
 		
-		this.getmetatable().set("ImportTexture", new TwoArgFunction() {
+		methods.set("ImportTexture", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue arg1, LuaValue arg3) {
-				return importTexture(arg3.toString(), textures());
+			public LuaValue call(LuaValue myself, LuaValue arg3) {
+				Assets assets = checkInstance(myself, Assets.class);
+				return assets.importTexture(arg3.toString(), assets.textures());
 			}
 		});
 		
-		this.getmetatable().set("ImportPrefab", new TwoArgFunction() {
+		methods.set("ImportPrefab", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue path) {
-				return importPrefab(path.toString(), Game.assets().prefabs());
+				return checkInstance(myself, Assets.class).importPrefab(path.toString(), Game.assets().prefabs());
 			}
 		});
 		
-		this.getmetatable().set("NewMesh", new ZeroArgFunction() {
+		methods.set("NewMesh", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				Mesh t = new Mesh();
-				t.forceSetParent(meshes());
+				t.forceSetParent(checkInstance(myself, Assets.class).meshes());
 				return t;
 			}
 		});
 		
-		this.getmetatable().set("NewTexture", new ZeroArgFunction() {
+		methods.set("NewTexture", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				Texture t = new Texture();
-				t.forceSetParent(textures());
+				t.forceSetParent(checkInstance(myself, Assets.class).textures());
 				return t;
 			}
 		});
 		
-		this.getmetatable().set("NewMaterial", new ZeroArgFunction() {
+		methods.set("NewMaterial", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				Material m = new Material();
-				m.forceSetParent(materials());
+				m.forceSetParent(checkInstance(myself, Assets.class).materials());
 				return m;
 			}
 		});
 		
-		this.getmetatable().set("NewPrefab", new ZeroArgFunction() {
+		methods.set("NewPrefab", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
+			public LuaValue call(LuaValue myself) {
 				Prefab p = new Prefab();
-				p.forceSetParent(prefabs());
+				p.forceSetParent(checkInstance(myself, Assets.class).prefabs());
 				return p;
 			}
 		});
@@ -215,7 +223,7 @@ public class Assets extends Service implements TreeViewable,SceneStorable {
 	 */
 	public List<Material> getMaterials() {
 		List<Material> assets = new ArrayList<>();
-		List<Instance> d = this.getDescendantsUnsafe();
+		List<Instance> d = this.getDescendants();
 		
 		for (int i = 0; i < d.size(); i++) {
 			Instance t = d.get(i);
@@ -233,7 +241,7 @@ public class Assets extends Service implements TreeViewable,SceneStorable {
 	 */
 	public List<AssetLoadable> getTextures() {
 		List<AssetLoadable> assets = new ArrayList<AssetLoadable>();
-		List<Instance> d = this.getDescendantsUnsafe();
+		List<Instance> d = this.getDescendants();
 		
 		for (int i = 0; i < d.size(); i++) {
 			Instance t = d.get(i);
@@ -251,7 +259,7 @@ public class Assets extends Service implements TreeViewable,SceneStorable {
 	 */
 	public List<AssetLoadable> getMeshes() {
 		List<AssetLoadable> assets = new ArrayList<AssetLoadable>();
-		List<Instance> d = this.getDescendantsUnsafe();
+		List<Instance> d = this.getDescendants();
 		
 		for (int i = 0; i < d.size(); i++) {
 			Instance t = d.get(i);
@@ -269,7 +277,7 @@ public class Assets extends Service implements TreeViewable,SceneStorable {
 	 */
 	public List<AssetLoadable> getAudio() {
 		List<AssetLoadable> assets = new ArrayList<AssetLoadable>();
-		List<Instance> d = this.getDescendantsUnsafe();
+		List<Instance> d = this.getDescendants();
 		
 		for (int i = 0; i < d.size(); i++) {
 			Instance t = d.get(i);
@@ -26,6 +26,7 @@ import engine.lua.lib.LuaUtil;
 import engine.lua.network.InternalClient;
 import engine.lua.network.InternalServer;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.Service;
 import engine.lua.type.object.TreeViewable;
@@ -38,10 +39,10 @@ public class Connections extends Service implements TreeViewable,GameSubscriber
 	private InternalClient internalClient;
 	private boolean enabled;
 	
-	private static final LuaValue C_DEFAULTPORT = LuaValue.valueOf("DefaultPort");
-	private static final LuaValue C_LOCALCONNECTION = LuaValue.valueOf("LocalConnection");
-	private static final LuaValue C_ONCONNECT = LuaValue.valueOf("OnConnect");
-	private static final LuaValue C_ONDISCONNECT = LuaValue.valueOf("OnDisconnect");
+	private static final LuaValue C_DEFAULTPORT = LuaKeys.of("DefaultPort");
+	private static final LuaValue C_LOCALCONNECTION = LuaKeys.of("LocalConnection");
+	private static final LuaValue C_ONCONNECT = LuaKeys.of("OnConnect");
+	private static final LuaValue C_ONDISCONNECT = LuaKeys.of("OnDisconnect");
 	
 	public Connections() {
 		super("Connections");
@@ -52,7 +53,34 @@ public class Connections extends Service implements TreeViewable,GameSubscriber
 		this.rawset(C_ONCONNECT, new LuaEvent());
 		this.rawset(C_ONDISCONNECT, new LuaEvent());
 		
-		this.getmetatable().set("ConnectTo", new VarArgFunction() {
+		((LuaEvent)this.rawget("ChildAdded")).connectLua(new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue object) {
+				if ( object instanceof Connection ) {
+					((LuaEvent)Connections.this.get(C_ONCONNECT)).fire( object );
+				}
+				return LuaValue.NIL;
+			}
+		});
+		
+		((LuaEvent)this.rawget("ChildRemoved")).connectLua(new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue object) {
+				if ( object instanceof Connection ) {
+					((LuaEvent)Connections.this.get(C_ONDISCONNECT)).fire( object );
+				}
+				return LuaValue.NIL;
+			}
+		});
+		
+		Game.getGame().subscribe(this);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("ConnectTo", new VarArgFunction() {
 			@Override
 			public Varargs invoke(Varargs args) {
 				LuaValue username = args.arg(2);
@@ -73,41 +101,20 @@ public class Connections extends Service implements TreeViewable,GameSubscriber
 				}
 				
 				String ipf = ip.toString();
-				int portf = Connections.this.get(C_DEFAULTPORT).toint();
+				Connections connections = (Connections)args.arg1();
+				int portf = connections.get(C_DEFAULTPORT).toint();
 				
-				return LuaValue.valueOf(connect(ipf, portf, username.toString(), (LuaTable) data));
+				return LuaValue.valueOf(connections.connect(ipf, portf, username.toString(), (LuaTable) data));
 			}
 		});
 		
-		this.getmetatable().set("GetConnectionsFromIP", new TwoArgFunction() {
+		methods.set("GetConnectionsFromIP", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue ip) {
-				List<Connection> c = getConnectionsFromIP(ip.toString());
+				List<Connection> c = checkInstance(myself, Connections.class).getConnectionsFromIP(ip.toString());
 				return LuaUtil.listToTable(c);
 			}
 		});
-		
-		((LuaEvent)this.rawget("ChildAdded")).connectLua(new OneArgFunction() {
-			@Override
-			public LuaValue call(LuaValue object) {
-				if ( object instanceof Connection ) {
-					((LuaEvent)Connections.this.get(C_ONCONNECT)).fire( object );
-				}
-				return LuaValue.NIL;
-			}
-		});
-		
-		((LuaEvent)this.rawget("ChildRemoved")).connectLua(new OneArgFunction() {
-			@Override
-			public LuaValue call(LuaValue object) {
-				if ( object instanceof Connection ) {
-					((LuaEvent)Connections.this.get(C_ONDISCONNECT)).fire( object );
-				}
-				return LuaValue.NIL;
-			}
-		});
-		
-		Game.getGame().subscribe(this);
 	}
 
 	@Override
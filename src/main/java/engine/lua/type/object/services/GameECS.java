@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
@@ -35,6 +36,7 @@ public class GameECS extends Instance {
 	
 	public GameECS() {
 		super("Game");
+		this.enableDescendantIndex();
 		
 		// On load event
 		this.rawset("Loaded", new LuaEvent());
@@ -47,32 +49,6 @@ public class GameECS extends Instance {
 		this.defineField(LuaValue.valueOf("Running"), LuaValue.valueOf(false), true);
 		this.defineField(LuaValue.valueOf("IsServer"), LuaValue.valueOf(false), true);
 		
-		// GetService convenience method
-		getmetatable().set("LoadScene", new TwoArgFunction() {
-			@Override
-			public LuaValue call(LuaValue myself, LuaValue scene) {
-				if ( scene.isnil() )
-					return LuaValue.NIL;
-				
-				if ( !(scene instanceof Scene) )
-					return LuaValue.NIL;
-				
-				loadScene((Scene)scene);
-				return LuaValue.NIL;
-			}
-		});
-		
-		// GetService convenience method
-		getmetatable().set("GetService", new TwoArgFunction() {
-			@Override
-			public LuaValue call(LuaValue arg, LuaValue arg2) {
-				Service service = Game.getService(arg2.toString());
-				if ( service == null )
-					return LuaValue.NIL;
-				return service;
-			}
-		});
-		
 		this.descendantRemovedEvent().connectLua(new OneArgFunction() {
 			@Override
 			public LuaValue call(LuaValue object) {
@@ -122,6 +98,37 @@ public class GameECS extends Instance {
 		setInstanceable(false);
 	}
 	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		// GetService convenience method
+		methods.set("LoadScene", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue scene) {
+				if ( scene.isnil() )
+					return LuaValue.NIL;
+				
+				if ( !(scene instanceof Scene) )
+					return LuaValue.NIL;
+				
+				checkInstance(myself, GameECS.class).loadScene((Scene)scene);
+				return LuaValue.NIL;
+			}
+		});
+		
+		// GetService convenience method
+		methods.set("GetService", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue arg, LuaValue arg2) {
+				Service service = Game.getService(arg2.toString());
+				if ( service == null )
+					return LuaValue.NIL;
+				return service;
+			}
+		});
+	}
+	
 	/*@Deprecated
 	public Map<Long, Instance> getInstanceMapOld() {
 		Map<Long, Instance> map = new HashMap<>();
@@ -197,32 +204,34 @@ public class GameECS extends Instance {
 	}
 	
 	public void extractScene(SceneInternal internal) {
-		List<Instance> services = internal.getChildrenSafe();
-		for (int i = 0; i < services.size(); i++) {
-			Instance service = services.get(i);
-			Instance toService = Game.getService(service.getName());
-			if ( toService == null )
-				continue;
-			
-			// Move children into service
-			List<Instance> servChild = service.getChildrenSafe();
-			for (int j = 0; j < servChild.size(); j++) {
-				Instance child = servChild.get(j);
-				child.forceSetParent(toService);
-			}
-			
-			// Copy fields over
-			LuaField[] fields = service.getFields();
-			for (int j = 0; j < fields.length; j++) {
-				LuaField field = fields[j];
-				if ( field.hasFlag(LuaFieldFlag.CORE_FIELD) )
+		Game.batchHierarchy(()->{
+			List<Instance> services = internal.getChildrenSafe();
+			for (int i = 0; i < services.size(); i++) {
+				Instance service = services.get(i);
+				Instance toService = Game.getService(service.getName());
+				if ( toService == null )
 					continue;
 				
-				toService.rawset(field.getName(), service.get(field.getName()));
+				// Move children into service
+				List<Instance> servChild = service.getChildrenSafe();
+				for (int j = 0; j < servChild.size(); j++) {
+					Instance child = servChild.get(j);
+					child.forceSetParent(toService);
+				}
+				
+				// Copy fields over
+				LuaField[] fields = service.getFields();
+				for (int j = 0; j < fields.length; j++) {
+					LuaField field = fields[j];
+					if ( field.hasFlag(LuaFieldFlag.CORE_FIELD) )
+						continue;
+					
+					toService.rawset(field.getName(), service.get(field.getName()));
+				}
 			}
-		}
-		
-		// Make sure external scripts are added
-		Load.loadExternalObjects(Game.saveFile);
+			
+			// Make sure external scripts are added
+			Load.loadExternalObjects(Game.saveFile);
+		});
 	}
 }
\ No newline at end of file
@@ -10,11 +10,16 @@
 
 package engine.lua.type.object.services;
 
+import java.util.List;
+
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
-import org.luaj.vm2.lib.ZeroArgFunction;
+import org.luaj.vm2.lib.OneArgFunction;
 import engine.lua.history.HistoryChange;
 import engine.lua.history.HistorySnapshot;
 import engine.lua.history.HistoryStack;
+import engine.lua.type.DataModel;
+import engine.lua.type.PropertyChange;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.Service;
 
@@ -26,34 +31,39 @@ public class HistoryService extends Service {
 		this.setLocked(true);
 		
 		this.historyStack = new HistoryStack();
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
 		
-		this.getmetatable().set("Undo", new ZeroArgFunction() {
+		methods.set("Undo", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				undo();
+			public LuaValue call(LuaValue myself) {
+				checkInstance(myself, HistoryService.class).undo();
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set("GetCanUndo", new ZeroArgFunction() {
+		methods.set("GetCanUndo", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(historyStack.canUndo());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(checkInstance(myself, HistoryService.class).historyStack.canUndo());
 			}
 		});
 		
-		this.getmetatable().set("Redo", new ZeroArgFunction() {
+		methods.set("Redo", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				redo();
+			public LuaValue call(LuaValue myself) {
+				checkInstance(myself, HistoryService.class).redo();
 				return LuaValue.NIL;
 			}
 		});
 		
-		this.getmetatable().set("GetCanRedo", new ZeroArgFunction() {
+		methods.set("GetCanRedo", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				return LuaValue.valueOf(historyStack.canRedo());
+			public LuaValue call(LuaValue myself) {
+				return LuaValue.valueOf(checkInstance(myself, HistoryService.class).historyStack.canRedo());
 			}
 		});
 	}
@@ -90,6 +100,31 @@ public class HistoryService extends Service {
 		this.pushChange(snapshot);
 	}
 	
+	/**
+	 * Push a batch of coalesced changes (see {@link DataModel#flushChanges()}) as a single HistorySnapshot.
+	 * @param changes
+	 */
+	public void pushChanges(List<PropertyChange> changes) {
+		HistorySnapshot snapshot = new HistorySnapshot();
+		for (int i = 0; i < changes.size(); i++) {
+			PropertyChange change = changes.get(i);
+			if ( this.checkEquals(change.getOldValue(), change.getValue()) )
+				continue;
+			
+			snapshot.changes.add(new HistoryChange(
+					historyStack.getObjectReference(change.getInstance()),
+					change.getField(),
+					change.getOldValue(),
+					change.getValue()
+			));
+		}
+		
+		if ( snapshot.changes.size() == 0 )
+			return;
+		
+		this.pushChange(snapshot);
+	}
+	
 	/**
 	 * Push a History Snapshot to the stack.
 	 * @param snapshot
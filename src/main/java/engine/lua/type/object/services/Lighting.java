@@ -13,9 +13,11 @@ package engine.lua.type.object.services;
 import org.luaj.vm2.LuaValue;
 
 import engine.ClientEngine;
+import engine.Game;
 import engine.InternalGameThread;
 import engine.gl.IPipeline;
 import engine.lua.type.LuaConnection;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.NumberClampPreferred;
 import engine.lua.type.data.Color3;
 import engine.lua.type.object.Instance;
@@ -29,11 +31,11 @@ import ide.layout.windows.icons.Icons;
 
 public class Lighting extends Service implements TreeViewable,SceneStorable {
 
-	private static final LuaValue C_AMBIENT = LuaValue.valueOf("Ambient");
-	private static final LuaValue C_EXPOSURE = LuaValue.valueOf("Exposure");
-	private static final LuaValue C_SATURATION = LuaValue.valueOf("Saturation");
-	private static final LuaValue C_GAMMA = LuaValue.valueOf("Gamma");
-	private static final LuaValue C_SKYBOX = LuaValue.valueOf("Skybox");
+	private static final LuaValue C_AMBIENT = LuaKeys.of("Ambient");
+	private static final LuaValue C_EXPOSURE = LuaKeys.of("Exposure");
+	private static final LuaValue C_SATURATION = LuaKeys.of("Saturation");
+	private static final LuaValue C_GAMMA = LuaKeys.of("Gamma");
+	private static final LuaValue C_SKYBOX = LuaKeys.of("Skybox");
 
 	public Lighting() {
 		super("Lighting");
@@ -98,6 +100,10 @@ public class Lighting extends Service implements TreeViewable,SceneStorable {
 	}
 	
 	private LuaValue onSetSkybox(LuaValue value) {
+		// No pipeline to show it in
+		if ( Game.isHeadless() )
+			return value;
+		
 		IPipeline pp = ClientEngine.renderThread.getPipeline();
 		
 		if ( value.isnil() ) {
@@ -13,13 +13,14 @@ package engine.lua.type.object.services;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
-import org.luaj.vm2.lib.ZeroArgFunction;
 
 import engine.lua.lib.LuaUtil;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.Service;
 import engine.lua.type.object.TreeViewable;
@@ -28,10 +29,10 @@ import ide.layout.windows.icons.Icons;
 
 public class Players extends Service implements TreeViewable {
 	
-	private static final LuaValue C_LOCALPLAYER = LuaValue.valueOf("LocalPlayer");
-	private static final LuaValue C_PLAYERADDED = LuaValue.valueOf("PlayerAdded");
-	private static final LuaValue C_PLAYERREMOVED = LuaValue.valueOf("PlayerRemoved");
-	private static final LuaValue C_PLAYER = LuaValue.valueOf("Player");
+	private static final LuaValue C_LOCALPLAYER = LuaKeys.of("LocalPlayer");
+	private static final LuaValue C_PLAYERADDED = LuaKeys.of("PlayerAdded");
+	private static final LuaValue C_PLAYERREMOVED = LuaKeys.of("PlayerRemoved");
+	private static final LuaValue C_PLAYER = LuaKeys.of("Player");
 
 	public Players() {
 		super("Players");
@@ -41,29 +42,6 @@ public class Players extends Service implements TreeViewable {
 		this.rawset(C_PLAYERADDED.tostring(),	new LuaEvent());
 		this.rawset(C_PLAYERREMOVED.tostring(),	new LuaEvent());
 		
-		this.getmetatable().set("GetPlayers", new ZeroArgFunction() {
-			@Override
-			public LuaValue call() {
-				return LuaUtil.listToTable(getPlayers());
-			}
-		});
-		
-		this.getmetatable().set("GetPlayerFromCharacter", new TwoArgFunction() {
-
-			@Override
-			public LuaValue call(LuaValue arg1, LuaValue character) {
-				if ( character.isnil() || !(character instanceof Instance) )
-					return LuaValue.NIL;
-				
-				Player player = getPlayerFromCharacter((Instance) character);
-				if ( player == null )
-					return LuaValue.NIL;
-				
-				return player;
-			}
-			
-		});
-		
 		// Fire player added when a player is added
 		this.childAddedEvent().connectLua(new OneArgFunction() {
 			@Override
@@ -82,6 +60,34 @@ public class Players extends Service implements TreeViewable {
 			}
 		});
 	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("GetPlayers", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				return LuaUtil.listToTable(checkInstance(myself, Players.class).getPlayers());
+			}
+		});
+		
+		methods.set("GetPlayerFromCharacter", new TwoArgFunction() {
+
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue character) {
+				if ( character.isnil() || !(character instanceof Instance) )
+					return LuaValue.NIL;
+				
+				Player player = checkInstance(myself, Players.class).getPlayerFromCharacter((Instance) character);
+				if ( player == null )
+					return LuaValue.NIL;
+				
+				return player;
+			}
+			
+		});
+	}
 
 	@Override
 	protected LuaValue onValueSet(LuaValue key, LuaValue value) {
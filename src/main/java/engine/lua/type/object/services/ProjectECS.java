@@ -16,6 +16,7 @@ import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.OneArgFunction;
 
 import engine.Game;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 
 public class ProjectECS extends Instance {
@@ -71,10 +72,10 @@ public class ProjectECS extends Instance {
 		return true;
 	}
 
-	private static final LuaValue C_SCENES = LuaValue.valueOf("Scenes");
-	private static final LuaValue C_ASSETS = LuaValue.valueOf("Assets");
-	private static final LuaValue C_STORAGE = LuaValue.valueOf("Storage");
-	private static final LuaValue C_SCRIPTSERVICE = LuaValue.valueOf("ScriptService");
+	private static final LuaValue C_SCENES = LuaKeys.of("Scenes");
+	private static final LuaValue C_ASSETS = LuaKeys.of("Assets");
+	private static final LuaValue C_STORAGE = LuaKeys.of("Storage");
+	private static final LuaValue C_SCRIPTSERVICE = LuaKeys.of("ScriptService");
 
 	public Scenes scenes() {
 		LuaValue t = this.get(C_SCENES);
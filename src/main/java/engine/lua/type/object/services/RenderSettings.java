@@ -16,20 +16,21 @@ import engine.ClientEngine;
 import engine.Game;
 import engine.gl.RenderingSettings;
 import engine.lua.lib.EnumType;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.TreeViewable;
 import ide.layout.windows.icons.Icons;
 
 public class RenderSettings extends Instance implements TreeViewable {
 
-	private static final LuaValue C_SHADOWMAPSIZE = LuaValue.valueOf("ShadowMapSize");
-	private static final LuaValue C_TEXTURESIZE = LuaValue.valueOf("TextureSize");
-	private static final LuaValue C_ANTIALIASING = LuaValue.valueOf("AntiAliasing");
-	private static final LuaValue C_SHADOWSENABLED = LuaValue.valueOf("ShadowsEnabled");
-	private static final LuaValue C_MOTIONBLUR = LuaValue.valueOf("MotionBlur");
-	private static final LuaValue C_DEPTHOFFIELD = LuaValue.valueOf("DepthOfField");
-	private static final LuaValue C_SSRENABLED = LuaValue.valueOf("Reflections");
-	private static final LuaValue C_AOENABLED = LuaValue.valueOf("AmbientOcclusion");
+	private static final LuaValue C_SHADOWMAPSIZE = LuaKeys.of("ShadowMapSize");
+	private static final LuaValue C_TEXTURESIZE = LuaKeys.of("TextureSize");
+	private static final LuaValue C_ANTIALIASING = LuaKeys.of("AntiAliasing");
+	private static final LuaValue C_SHADOWSENABLED = LuaKeys.of("ShadowsEnabled");
+	private static final LuaValue C_MOTIONBLUR = LuaKeys.of("MotionBlur");
+	private static final LuaValue C_DEPTHOFFIELD = LuaKeys.of("DepthOfField");
+	private static final LuaValue C_SSRENABLED = LuaKeys.of("Reflections");
+	private static final LuaValue C_AOENABLED = LuaKeys.of("AmbientOcclusion");
 	
 	private RenderingSettings settings;
 	
@@ -62,6 +63,9 @@ public class RenderSettings extends Instance implements TreeViewable {
 			Instance ss = Game.core();
 			if ( !this.getParent().eq_b(ss) )
 				this.forceSetParent(ss);
+			if ( Game.isHeadless() )
+				return;
+			
 			this.settings = ClientEngine.renderThread.getPipeline().getRenderSettings();
 			this.settings.shadowsEnabled = this.getShadowsEnabled();
 			this.settings.ssrEnabled = this.getSSREnabled();
@@ -13,15 +13,16 @@ package engine.lua.type.object.services;
 import org.luaj.vm2.LuaValue;
 
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Service;
 
 public class RunService extends Service {
 
-	private static final LuaValue C_HEARTBEAT = LuaValue.valueOf("Heartbeat");
-	private static final LuaValue C_RENDERSTEPPED = LuaValue.valueOf("RenderStepped");
-	private static final LuaValue C_RENDERPOST = LuaValue.valueOf("RenderPost");
-	private static final LuaValue C_RENDERPRE = LuaValue.valueOf("RenderPre");
-	private static final LuaValue C_PHYSICSSTEPPED = LuaValue.valueOf("PhysicsStepped");
+	private static final LuaValue C_HEARTBEAT = LuaKeys.of("Heartbeat");
+	private static final LuaValue C_RENDERSTEPPED = LuaKeys.of("RenderStepped");
+	private static final LuaValue C_RENDERPOST = LuaKeys.of("RenderPost");
+	private static final LuaValue C_RENDERPRE = LuaKeys.of("RenderPre");
+	private static final LuaValue C_PHYSICSSTEPPED = LuaKeys.of("PhysicsStepped");
 
 	public RunService() {
 		super("RunService");
@@ -11,6 +11,7 @@
 package engine.lua.type.object.services;
 
 import org.luaj.vm2.LuaValue;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Service;
 import engine.lua.type.object.TreeViewable;
 import engine.lua.type.object.insts.Scene;
@@ -18,8 +19,8 @@ import ide.layout.windows.icons.Icons;
 
 public class Scenes extends Service implements TreeViewable {
 
-	private static final LuaValue C_STARTINGSCENE = LuaValue.valueOf("StartingScene");
-	private static final LuaValue C_CURRENTSCENE = LuaValue.valueOf("CurrentScene");
+	private static final LuaValue C_STARTINGSCENE = LuaKeys.of("StartingScene");
+	private static final LuaValue C_CURRENTSCENE = LuaKeys.of("CurrentScene");
 	
 	public Scenes() {
 		super("Scenes");
@@ -10,8 +10,21 @@
 
 package engine.lua.type.object.services;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
+import org.luaj.vm2.lib.ThreeArgFunction;
+import org.luaj.vm2.lib.TwoArgFunction;
 
+import engine.lua.ScriptActor;
+import engine.lua.lib.ScriptProfiler;
+import engine.lua.type.LuaKeys;
+import engine.lua.type.NumberClampPreferred;
+import engine.lua.type.ScriptThread;
 import engine.lua.type.object.SceneStorable;
 import engine.lua.type.object.ScriptExecutor;
 import engine.lua.type.object.Service;
@@ -20,8 +33,105 @@ import ide.layout.windows.icons.Icons;
 
 public class ScriptService extends Service implements TreeViewable,ScriptExecutor,SceneStorable {
 
+	private static final LuaValue C_SCRIPTTIMEOUT = LuaKeys.of("ScriptTimeout");
+
 	public ScriptService() {
 		super("ScriptService");
+		
+		// Seconds a script may run without yielding before it is stopped. 0 disables the limit.
+		this.defineField(C_SCRIPTTIMEOUT.toString(), LuaValue.valueOf(ScriptThread.DEFAULT_BUDGET), false);
+		this.getField(C_SCRIPTTIMEOUT).setClamp(new NumberClampPreferred(0, 600, 0, 60));
+	}
+	
+	/**
+	 * Returns the wall-clock time scripts may run for without yielding, unless they set their own Timeout. 0 if unlimited.
+	 * @return
+	 */
+	public double getScriptTimeout() {
+		return this.get(C_SCRIPTTIMEOUT).todouble();
+	}
+	
+	public void setScriptTimeout(double seconds) {
+		this.set(C_SCRIPTTIMEOUT, LuaValue.valueOf(seconds));
+	}
+
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("CreateActor", new ThreeArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue source, LuaValue name) {
+				return ScriptActor.create(source.checkjstring(), name.optjstring("Actor")).getHandle();
+			}
+		});
+		
+		methods.set("StartProfiling", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue interval) {
+				if ( interval.isnil() )
+					ScriptProfiler.start();
+				else
+					ScriptProfiler.start(interval.checkdouble());
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("StopProfiling", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				ScriptProfiler.stop();
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("ResetProfile", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				ScriptProfiler.reset();
+				return LuaValue.NIL;
+			}
+		});
+		
+		methods.set("GetProfile", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself) {
+				return getProfile();
+			}
+		});
+		
+		methods.set("SaveProfile", new TwoArgFunction() {
+			@Override
+			public LuaValue call(LuaValue myself, LuaValue path) {
+				try {
+					ScriptProfiler.writeCollapsed(new File(path.checkjstring()));
+				} catch (IOException e) {
+					LuaValue.error("Could not save profile: " + e.getMessage());
+				}
+				return LuaValue.NIL;
+			}
+		});
+	}
+	
+	/**
+	 * Returns the profiler's samples per script, function and line as a lua array, most expensive first.
+	 * @return
+	 */
+	public static LuaTable getProfile() {
+		List<ScriptProfiler.Entry> lines = ScriptProfiler.getLines();
+		LuaTable table = new LuaTable();
+		for (int i = 0; i < lines.size(); i++) {
+			ScriptProfiler.Entry entry = lines.get(i);
+			LuaTable line = new LuaTable();
+			line.set("Script", entry.getScript());
+			line.set("Function", entry.getFunction());
+			line.set("Line", entry.getLine());
+			line.set("Time", entry.getTime());
+			line.set("Instructions", entry.getInstructions());
+			line.set("Samples", entry.getSamples());
+			table.set(i+1, line);
+		}
+		return table;
 	}
 
 	@Override
@@ -32,6 +32,10 @@ public class SoundService extends Service implements TreeViewable {
 	public SoundService() {
 		super("SoundService");
 		
+		// Never touch OpenAL without a sound device. Sounds played on a headless game are dropped.
+		if ( Game.isHeadless() )
+			return;
+		
 		this.internalSound = new InternalSoundService();
 		this.internalSound.startSoundSystem();
 		
@@ -95,6 +99,9 @@ public class SoundService extends Service implements TreeViewable {
 	 * @return
 	 */
 	public String playSound2D(AudioSource audioSource, float volumeMultiplier, float pitchMultiplier) {
+		if ( this.internalSound == null )
+			return null;
+		
 		Vector3D position = this.internalSound.getSoundSystem().getListenerData().position;
 		Vector3 p = new Vector3(position.x, position.y, position.z);
 		return this.playSound3D(audioSource, p, volumeMultiplier, pitchMultiplier, 1024.0f, 1.0f);
@@ -110,7 +117,7 @@ public class SoundService extends Service implements TreeViewable {
 	 * @return
 	 */
 	public String playSound3D(AudioSource audioSource, Vector3 position, float volumeMultiplier, float pitchMultiplier, float range, float emitterSize) {
-		if ( audioSource.getAbsoluteFilePath().length() == 0 )
+		if ( this.internalSound == null || audioSource.getAbsoluteFilePath().length() == 0 )
 			return null;
 		
 		// Play sound
@@ -129,6 +136,9 @@ public class SoundService extends Service implements TreeViewable {
 	 * @param source
 	 */
 	public void stopSound(String source) {
+		if ( this.internalSound == null )
+			return;
+		
 		this.internalSound.getSoundSystem().stop(source);
 	}
 }
@@ -15,6 +15,7 @@ import java.util.List;
 import org.luaj.vm2.LuaValue;
 
 import engine.Game;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.SceneStorable;
 import engine.lua.type.object.Service;
@@ -24,8 +25,8 @@ import ide.layout.windows.icons.Icons;
 
 public class StarterPlayer extends Service implements TreeViewable,SceneStorable {
 
-	private static final LuaValue C_STARTERPLAYERSCRIPTS = LuaValue.valueOf("StarterPlayerScripts");
-	private static final LuaValue C_STARTERPLAYERGUI = LuaValue.valueOf("StarterPlayerGui");
+	private static final LuaValue C_STARTERPLAYERSCRIPTS = LuaKeys.of("StarterPlayerScripts");
+	private static final LuaValue C_STARTERPLAYERGUI = LuaKeys.of("StarterPlayerGui");
 	
 	public StarterPlayer() {
 		super("StarterPlayer");
@@ -64,7 +64,8 @@ public class StarterPlayerGui extends Instance implements TreeViewable {
 			
 			if ( arg instanceof Gui ) {
 				Pane gui = ((Gui)arg).root;
-				ClientEngine.renderThread.getClientUI().getChildren().add(gui);
+				if ( !Game.isHeadless() )
+					ClientEngine.renderThread.getClientUI().getChildren().add(gui);
 				guis.add(gui);
 				
 				if ( Game.isRunning() )
@@ -79,7 +80,8 @@ public class StarterPlayerGui extends Instance implements TreeViewable {
 			LuaValue arg = args[0];
 			if ( arg instanceof Gui ) {
 				Pane gui = ((Gui)arg).root;
-				ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
+				if ( !Game.isHeadless() )
+					ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
 				guis.remove(gui);
 			}
 		});
@@ -120,7 +122,8 @@ public class StarterPlayerGui extends Instance implements TreeViewable {
 	@Override
 	public void onDestroy() {
 		for (Pane gui : guis ) {
-			ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
+			if ( !Game.isHeadless() )
+				ClientEngine.renderThread.getClientUI().getChildren().remove(gui);
 		}
 		
 		guis.clear();
@@ -13,7 +13,9 @@ package engine.lua.type.object.services;
 import java.util.HashMap;
 
 import org.joml.Vector3f;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.OneArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.ZeroArgFunction;
 import org.lwjgl.glfw.GLFW;
@@ -22,6 +24,7 @@ import engine.ClientEngine;
 import engine.Game;
 import engine.lua.lib.LuaTableReadOnly;
 import engine.lua.type.LuaEvent;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Vector2;
 import engine.lua.type.data.Vector3;
 import engine.lua.type.object.Service;
@@ -36,11 +39,11 @@ public class UserInputService extends Service implements TreeViewable {
 	private HashMap<Integer,Boolean> keysDown = new HashMap<Integer,Boolean>();
 	private HashMap<Integer,Boolean> mouseDown = new HashMap<Integer,Boolean>();
 
-	public static final LuaValue C_INPUTBEGAN = LuaValue.valueOf("InputBegan");
-	public static final LuaValue C_INPUTENDED = LuaValue.valueOf("InputEnded");
-	public static final LuaValue C_MOUSEPRESSED = LuaValue.valueOf("MousePressed");
-	public static final LuaValue C_MOUSERELEASED = LuaValue.valueOf("MouseReleased");
-	private static final LuaValue C_LOCKMOUSE = LuaValue.valueOf("LockMouse");
+	public static final LuaValue C_INPUTBEGAN = LuaKeys.of("InputBegan");
+	public static final LuaValue C_INPUTENDED = LuaKeys.of("InputEnded");
+	public static final LuaValue C_MOUSEPRESSED = LuaKeys.of("MousePressed");
+	public static final LuaValue C_MOUSERELEASED = LuaKeys.of("MouseReleased");
+	private static final LuaValue C_LOCKMOUSE = LuaKeys.of("LockMouse");
 	
 	public static boolean lockMouse;
 	
@@ -54,61 +57,71 @@ public class UserInputService extends Service implements TreeViewable {
 		this.rawset(C_MOUSEPRESSED, new LuaEvent());
 		this.rawset(C_MOUSERELEASED, new LuaEvent());
 		
-		this.getmetatable().set("IsMouseLocked", new ZeroArgFunction() {
+		this.setLocked(false);
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
+		methods.set("IsMouseLocked", new ZeroArgFunction() {
 			@Override
 			public LuaValue call() {
+				if ( Game.isHeadless() )
+					return LuaValue.FALSE;
 				return LuaValue.valueOf(ClientEngine.renderThread.getWindow().getMouseHandler().isGrabbed());
 			}
 		});
 		
-		this.getmetatable().set("GetMovementVector", new TwoArgFunction() {
+		methods.set("GetMovementVector", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue arg1, LuaValue freeCam) {
-				return getMovementVector(freeCam.toboolean());
+			public LuaValue call(LuaValue myself, LuaValue freeCam) {
+				return checkInstance(myself, UserInputService.class).getMovementVector(freeCam.toboolean());
 			}
 		});
 		
-		this.getmetatable().set("GetForwardVector", new TwoArgFunction() {
+		methods.set("GetForwardVector", new TwoArgFunction() {
 			@Override
-			public LuaValue call(LuaValue arg1, LuaValue freeCam) {
-				return getForwardVector(freeCam.toboolean());
+			public LuaValue call(LuaValue myself, LuaValue freeCam) {
+				return checkInstance(myself, UserInputService.class).getForwardVector(freeCam.toboolean());
 			}
 		});
 		
-		this.getmetatable().set("IsKeyDown", new TwoArgFunction() {
+		methods.set("IsKeyDown", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue arg2) {
-				return isKeyDown(arg2.toint())?LuaValue.TRUE:LuaValue.FALSE;
+				return checkInstance(myself, UserInputService.class).isKeyDown(arg2.toint())?LuaValue.TRUE:LuaValue.FALSE;
 			}
 		});
 		
-		this.getmetatable().set("IsModifierDown", new ZeroArgFunction() {
+		methods.set("IsModifierDown", new OneArgFunction() {
 			@Override
-			public LuaValue call() {
-				boolean isCtrlDown = isKeyDown(GLFW.GLFW_KEY_LEFT_SUPER)
-									|| isKeyDown(GLFW.GLFW_KEY_RIGHT_SUPER)
-									|| isKeyDown(GLFW.GLFW_KEY_LEFT_CONTROL)
-									|| isKeyDown(GLFW.GLFW_KEY_RIGHT_CONTROL);
+			public LuaValue call(LuaValue myself) {
+				UserInputService input = checkInstance(myself, UserInputService.class);
+				boolean isCtrlDown = input.isKeyDown(GLFW.GLFW_KEY_LEFT_SUPER)
+									|| input.isKeyDown(GLFW.GLFW_KEY_RIGHT_SUPER)
+									|| input.isKeyDown(GLFW.GLFW_KEY_LEFT_CONTROL)
+									|| input.isKeyDown(GLFW.GLFW_KEY_RIGHT_CONTROL);
 				return LuaValue.valueOf(isCtrlDown);
 			}
 		});
 		
-		this.getmetatable().set("IsMouseButtonDown", new TwoArgFunction() {
+		methods.set("IsMouseButtonDown", new TwoArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue arg2) {
-				return isMouseDown(arg2.toint())?LuaValue.TRUE:LuaValue.FALSE;
+				return checkInstance(myself, UserInputService.class).isMouseDown(arg2.toint())?LuaValue.TRUE:LuaValue.FALSE;
 			}
 		});
 		
-		this.getmetatable().set("GetMouseDelta", new ZeroArgFunction() {
+		methods.set("GetMouseDelta", new ZeroArgFunction() {
 			@Override
 			public LuaValue call() {
+				if ( Game.isHeadless() )
+					return new Vector2();
 				MouseHandler mh = ClientEngine.renderThread.getWindow().getMouseHandler();
 				return new Vector2(mh.getDX(), mh.getDY());
 			}
 		});
-		
-		this.setLocked(false);
 	}
 	
 	public LuaEvent inputBeganEvent() {
@@ -200,6 +213,9 @@ public class UserInputService extends Service implements TreeViewable {
 	}
 	
 	public boolean isKeyDown(int key) {
+		if ( Game.isHeadless() )
+			return false;
+		
 		KeyboardHandler kh = ClientEngine.renderThread.getWindow().getKeyboardHandler();
 		boolean system = kh.isKeyPressed(key);
 		if ( !system )
@@ -209,6 +225,9 @@ public class UserInputService extends Service implements TreeViewable {
 	}
 	
 	public boolean isMouseDown(int mouse) {
+		if ( Game.isHeadless() )
+			return false;
+		
 		MouseHandler mh = ClientEngine.renderThread.getWindow().getMouseHandler();
 		boolean system = mh.isButtonPressed(mouse);
 		if ( !system )
@@ -247,9 +266,9 @@ public class UserInputService extends Service implements TreeViewable {
 }
 
 class InputObjectKey extends LuaTableReadOnly {
-	private static final LuaValue C_KEYCODE = LuaValue.valueOf("KeyCode");
-	private static final LuaValue C_USERINPUTTYPE = LuaValue.valueOf("UserInputType");
-	private static final LuaValue C_KEYBOARD = LuaValue.valueOf("Keyboard");
+	private static final LuaValue C_KEYCODE = LuaKeys.of("KeyCode");
+	private static final LuaValue C_USERINPUTTYPE = LuaKeys.of("UserInputType");
+	private static final LuaValue C_KEYBOARD = LuaKeys.of("Keyboard");
 	
 	public InputObjectKey(int keyCode) {
 		this.rawset(C_KEYCODE, LuaValue.valueOf(keyCode));
@@ -258,9 +277,9 @@ class InputObjectKey extends LuaTableReadOnly {
 }
 
 class InputObjectMouse extends LuaTableReadOnly {
-	private static final LuaValue C_BUTTON = LuaValue.valueOf("Button");
-	private static final LuaValue C_USERINPUTTYPE = LuaValue.valueOf("UserInputType");
-	private static final LuaValue C_MOUSE = LuaValue.valueOf("Mouse");
+	private static final LuaValue C_BUTTON = LuaKeys.of("Button");
+	private static final LuaValue C_USERINPUTTYPE = LuaKeys.of("UserInputType");
+	private static final LuaValue C_MOUSE = LuaKeys.of("Mouse");
 	
 	public InputObjectMouse(int keyCode) {
 		this.rawset(C_BUTTON, LuaValue.valueOf(keyCode));
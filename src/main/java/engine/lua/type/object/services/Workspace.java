@@ -11,7 +11,6 @@
 package engine.lua.type.object.services;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.luaj.vm2.LuaTable;
@@ -24,6 +23,7 @@ import engine.InternalGameThread;
 import engine.lua.lib.Enums;
 import engine.lua.lib.FourArgFunction;
 import engine.lua.lib.LuaUtil;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.data.Ray;
 import engine.lua.type.data.Vector3;
 import engine.lua.type.object.Instance;
@@ -42,11 +42,10 @@ import ide.layout.windows.icons.Icons;
 
 public class Workspace extends Service implements RenderableWorld,TreeViewable,Tickable,ScriptExecutor,SceneStorable  {
 	private static PhysicsWorld physicsWorld;
-	private List<Instance> descendants = Collections.synchronizedList(new ArrayList<Instance>());
 
-	private static final LuaValue C_GRAVITY = LuaValue.valueOf("Gravity");
-	private static final LuaValue C_CURRENTCAMERA = LuaValue.valueOf("CurrentCamera");
-	private static final LuaValue C_RAYIGNORETYPE = LuaValue.valueOf("RayIgnoreType");
+	private static final LuaValue C_GRAVITY = LuaKeys.of("Gravity");
+	private static final LuaValue C_CURRENTCAMERA = LuaKeys.of("CurrentCamera");
+	private static final LuaValue C_RAYIGNORETYPE = LuaKeys.of("RayIgnoreType");
 
 	public Workspace() {
 		super("Workspace");
@@ -54,8 +53,27 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 		this.defineField(C_CURRENTCAMERA.toString(), new Camera(), false);
 		this.defineField(C_GRAVITY.toString(), LuaValue.valueOf(16), false);
 		
+		// Setup physics world
+		if ( physicsWorld == null )
+			physicsWorld = new PhysicsWorld();
+		
+		// Make sure camera is inside workspace :wink:
+		InternalGameThread.runLater(()->{
+			Camera camera = this.getCurrentCamera();
+			if ( camera == null )
+				return;
+			
+			if ( camera.getParent().isnil() )
+				camera.forceSetParent(this);
+		});
+	}
+	
+	@Override
+	protected void onRegisterMethods(LuaTable methods) {
+		super.onRegisterMethods(methods);
+		
 		// RayTest( Ray, [ExclusionList], [RayIgnoreType])
-		this.getmetatable().set("RayTest", new FourArgFunction() {
+		methods.set("RayTest", new FourArgFunction() {
 			@Override
 			public LuaValue call(LuaValue myself, LuaValue ray, LuaValue exclusionList, LuaValue rayTypeEnum) {
 				try {
@@ -85,7 +103,7 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 							if ( root instanceof PhysicsBase )
 								descendents.add(root);
 							
-							List<Instance> desc = root.getDescendantsUnsafe();
+							List<Instance> desc = root.getDescendants();
 							for (int j = 0; j < desc.size(); j++) {
 								Instance t = desc.get(j);
 								if ( t instanceof PhysicsBase ) {
@@ -103,13 +121,13 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 						// Perform ray exclusion test
 						Ray r = (Ray)ray;
 						ClosestRayResultCallback callback = physicsWorld.rayTestExcluding(r.getOrigin().getInternal(), r.getDirection().getInternal(), excluding);
-						return getRayResult(callback);
+						return checkInstance(myself, Workspace.class).getRayResult(callback);
 					} else {
 						
 						// Perform standard ray test
 						Ray r = (Ray)ray;
 						ClosestRayResultCallback callback = physicsWorld.rayTestClosest(r.getOrigin().getInternal(), r.getDirection().getInternal());
-						return getRayResult(callback);
+						return checkInstance(myself, Workspace.class).getRayResult(callback);
 					}
 				} catch(Exception e) {
 					e.printStackTrace();
@@ -117,34 +135,6 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 				return LuaValue.NIL;
 			}
 		});
-		
-		// Setup physics world
-		if ( physicsWorld == null )
-			physicsWorld = new PhysicsWorld();
-		
-		// Remove from CUSTOM descendAnts array
-		this.descendantRemovedEvent().connect((args)->{
-			synchronized(descendants) {
-				descendants.remove((Instance) args[0]);
-			}
-		});
-		
-		// Add to CUSTOM descendAnts array
-		this.descendantAddedEvent().connect((args)->{
-			synchronized(descendants) {
-				descendants.add((Instance) args[0]);
-			}
-		});
-		
-		// Make sure camera is inside workspace :wink:
-		InternalGameThread.runLater(()->{
-			Camera camera = this.getCurrentCamera();
-			if ( camera == null )
-				return;
-			
-			if ( camera.getParent().isnil() )
-				camera.forceSetParent(this);
-		});
 	}
 	
 	protected RayResult getRayResult(ClosestRayResultCallback callback) {
@@ -185,17 +175,8 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 		if ( physicsWorld != null )
 			physicsWorld.tick();
 		
-		synchronized(descendants) {
-			for (int i = 0; i < descendants.size(); i++) {
-				if ( i >= descendants.size() )
-					continue;
-				Instance d = descendants.get(i);
-				if ( d == null )
-					continue;
-
-				d.internalTick();
-			}
-		}
+		// Only physics objects do per-tick work
+		this.forEachDescendantOfClass(PhysicsBase.class, PhysicsBase::internalTick);
 	}
 
 	@Override
@@ -222,9 +203,6 @@ public class Workspace extends Service implements RenderableWorld,TreeViewable,T
 		if ( physicsWorld != null )
 			physicsWorld.destroy();
 		physicsWorld = null;
-		
-		// This no longer has descendants
-		descendants.clear();
 	}
 	
 	@Override
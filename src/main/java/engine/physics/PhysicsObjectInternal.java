@@ -27,6 +27,7 @@ import com.badlogic.gdx.physics.bullet.dynamics.btRigidBody;
 import engine.Game;
 import engine.InternalGameThread;
 import engine.gl.mesh.BufferedMesh;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.PhysicsBase;
 import engine.lua.type.object.insts.GameObject;
 import engine.lua.type.object.insts.Mesh;
@@ -187,9 +188,9 @@ public class PhysicsObjectInternal {
 		b.setWorldTransform(transform);
 	}
 
-	private static final LuaValue C_LINKED = LuaValue.valueOf("Linked");
-	private static final LuaValue C_WORLDMATRIX = LuaValue.valueOf("WorldMatrix");
-	private static final LuaValue C_PREFAB = LuaValue.valueOf("Prefab");
+	private static final LuaValue C_LINKED = LuaKeys.of("Linked");
+	private static final LuaValue C_WORLDMATRIX = LuaKeys.of("WorldMatrix");
+	private static final LuaValue C_PREFAB = LuaKeys.of("Prefab");
 
 	private static final Matrix4f IDENTITY = new Matrix4f().identity();
 
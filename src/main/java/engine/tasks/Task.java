@@ -10,19 +10,46 @@
 
 package engine.tasks;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 public abstract class Task<T> {
 
-	private boolean done, internalDone;
-	private T value;
+	private static final int PENDING = 0, RUNNING = 1, DONE = 2, CANCELLED = 3;
+
+	private final AtomicInteger state = new AtomicInteger(PENDING);
+	private volatile boolean done;
+	private volatile T value;
+	private volatile TaskPriority priority = TaskPriority.NORMAL;
 	private OnFinished<T> onFinished;
+	private List<Runnable> continuations;
 	private Thread thread;
 
 	private Object lock = new Object();
 
+	/**
+	 * Returns whether the task finished running, or was cancelled.
+	 * @return
+	 */
 	public boolean isDone() {
 		return done;
 	}
 
+	/**
+	 * Returns whether {@link #cancel()} was called before the task finished.
+	 * @return
+	 */
+	public boolean isCancelled() {
+		return state.get() == CANCELLED;
+	}
+
+	/**
+	 * Waits for the task to finish and returns its value. Returns null if it was cancelled.
+	 * @return
+	 */
 	public T get() {
 		if (!done) {
 			if (Thread.currentThread().equals(thread)) {
@@ -31,7 +58,8 @@ public abstract class Task<T> {
 			}
 			synchronized (lock) {
 				try {
-					lock.wait();
+					while (!done)
+						lock.wait();
 				} catch (InterruptedException e) {
 					e.printStackTrace();
 				}
@@ -40,29 +68,77 @@ public abstract class Task<T> {
 		return value;
 	}
 
+	/**
+	 * Waits up to the supplied time for the task to finish. Returns null if it did not, or was cancelled.
+	 * @param timeout
+	 * @param unit
+	 * @return
+	 */
+	public T get(long timeout, TimeUnit unit) {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (lock) {
+			try {
+				long left;
+				while (!done && (left = deadline - System.nanoTime()) > 0)
+					TimeUnit.NANOSECONDS.timedWait(lock, left);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+		return value;
+	}
+
 	public void onCompleted(T value) {
 	}
 
+	/**
+	 * Cancels the task. A task that has not started yet never runs. A running task keeps running until it checks
+	 * {@link #isCancelled()}. Tasks continuing from this one are cancelled too.
+	 * @return false if the task had already finished.
+	 */
+	public boolean cancel() {
+		while (true) {
+			int s = state.get();
+			if (s == DONE || s == CANCELLED)
+				return false;
+
+			if (state.compareAndSet(s, CANCELLED)) {
+				// A running task finishes itself
+				if (s == PENDING)
+					finish();
+				return true;
+			}
+		}
+	}
+
 	/**
 	 * <b>INTERNAL METHOD</b>
 	 */
 	public boolean callI() {
-		if (!internalDone) {
-			value = call();
-			internalDone = true;
+		if (!state.compareAndSet(PENDING, RUNNING))
+			return done;
+
+		thread = Thread.currentThread();
+		T result;
+		try {
+			result = call();
+		} finally {
+			thread = null;
 		}
-		if (completed()) {
-			done = true;
-			synchronized (lock) {
-				lock.notifyAll();
-			}
-			onCompleted(value);
-			if (onFinished != null)
-				onFinished.onFinished(value);
+
+		// Cancelled while running: the result is dropped
+		if (!state.compareAndSet(RUNNING, DONE)) {
+			finish();
 			return true;
-		} else {
-			return false;
 		}
+
+		value = result;
+		finish();
+		onCompleted(value);
+		if (onFinished != null)
+			onFinished.onFinished(value);
+		runContinuations();
+		return true;
 	}
 
 	public Task<T> setOnFinished(OnFinished<T> onFinished) {
@@ -70,8 +146,97 @@ public abstract class Task<T> {
 		return this;
 	}
 
-	private boolean completed() {
-		return true;
+	public TaskPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the order this task runs in relative to other queued tasks. Has to be set before the task is submitted.
+	 * @param priority
+	 * @return
+	 */
+	public Task<T> setPriority(TaskPriority priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	/**
+	 * Runs the function with this task's value on the main (update) thread, once this task finishes.
+	 * @param function
+	 * @return the task running the function. Cancelled if this task is.
+	 */
+	public <R> Task<R> thenOnMainThread(Function<T, R> function) {
+		Task<R> next = continuation(function);
+		whenDone(() -> TaskManager.submitMainThread(next));
+		return next;
+	}
+
+	/**
+	 * Runs the function with this task's value on a background thread, once this task finishes.
+	 * @param function
+	 * @return the task running the function. Cancelled if this task is.
+	 */
+	public <R> Task<R> thenOnBackgroundThread(Function<T, R> function) {
+		Task<R> next = continuation(function);
+		whenDone(() -> TaskManager.submitBackgroundThread(next));
+		return next;
+	}
+
+	/**
+	 * Runs the action on the thread that finishes this task, or right away if it already finished.
+	 * The action runs whether the task completed or was cancelled.
+	 * @param action
+	 */
+	public void whenDone(Runnable action) {
+		synchronized (lock) {
+			if (!done) {
+				if (continuations == null)
+					continuations = new ArrayList<>(1);
+				continuations.add(action);
+				return;
+			}
+		}
+		action.run();
+	}
+
+	private <R> Task<R> continuation(Function<T, R> function) {
+		Task<R> next = new Task<R>() {
+			@Override
+			protected R call() {
+				return function.apply(Task.this.value);
+			}
+		};
+		next.setPriority(priority);
+
+		// Cancelling the chain before it runs
+		whenDone(() -> {
+			if (isCancelled())
+				next.cancel();
+		});
+		return next;
+	}
+
+	private void finish() {
+		synchronized (lock) {
+			done = true;
+			lock.notifyAll();
+		}
+
+		if (state.get() == CANCELLED)
+			runContinuations();
+	}
+
+	private void runContinuations() {
+		List<Runnable> actions;
+		synchronized (lock) {
+			actions = continuations;
+			continuations = null;
+		}
+		if (actions == null)
+			return;
+
+		for (int i = 0; i < actions.size(); i++)
+			actions.get(i).run();
 	}
 
 	protected abstract T call();
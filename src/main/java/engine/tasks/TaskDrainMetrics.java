@@ -0,0 +1,84 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.tasks;
+
+/**
+ * Numbers about the last drains of a thread's task queue. Written by the draining thread, readable from any thread.
+ */
+public class TaskDrainMetrics {
+	private volatile int lastTasks;
+	private volatile long lastNanos;
+	private volatile int remaining;
+	private volatile long maxNanos;
+	private volatile long totalTasks;
+	private volatile long overBudgetDrains;
+
+	void record(int tasks, long nanos, int remaining, boolean overBudget) {
+		this.lastTasks = tasks;
+		this.lastNanos = nanos;
+		this.remaining = remaining;
+		this.maxNanos = Math.max(maxNanos, nanos);
+		this.totalTasks += tasks;
+		if (overBudget)
+			this.overBudgetDrains++;
+	}
+
+	/**
+	 * Returns the amount of tasks run by the last drain.
+	 * @return
+	 */
+	public int getLastTasks() {
+		return lastTasks;
+	}
+
+	/**
+	 * Returns how long the last drain took.
+	 * @return
+	 */
+	public long getLastNanos() {
+		return lastNanos;
+	}
+
+	/**
+	 * Returns the longest drain so far.
+	 * @return
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Returns the amount of tasks left in the queue after the last drain. These roll over to the next one.
+	 * @return
+	 */
+	public int getQueueDepth() {
+		return remaining;
+	}
+
+	public long getTotalTasks() {
+		return totalTasks;
+	}
+
+	/**
+	 * Returns the amount of drains that ran out of budget before the queue was empty.
+	 * @return
+	 */
+	public long getOverBudgetDrains() {
+		return overBudgetDrains;
+	}
+
+	/**
+	 * Clears the max drain time.
+	 */
+	public void resetMax() {
+		maxNanos = 0;
+	}
+}
@@ -12,29 +12,40 @@ package engine.tasks;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TaskManager {
 
-	private static Queue<Task<?>> tasksMainThread = new ConcurrentLinkedQueue<>(),
-			tasksBackgroundThread = new ConcurrentLinkedQueue<>();
+	private static final int BACKGROUND_THREADS = 4;
+	private static final int GL_THREADS = 2;
+
+	private static TaskQueue tasksMainThread = new TaskQueue(0),
+			tasksBackgroundThread = new TaskQueue(BACKGROUND_THREADS);
 
-	private static Queue<Task<?>> tasksRenderThread = new ConcurrentLinkedQueue<>(),
-			tasksGLBackgroundThread = new ConcurrentLinkedQueue<>();
+	private static TaskQueue tasksRenderThread = new TaskQueue(0),
+			tasksGLBackgroundThread = new TaskQueue(GL_THREADS);
 
 	private static List<TaskRunnerThread> backgroundThreads;
 	private static List<TaskRunnerGLThread> glThreads;
 
-	private static Object backgroundThreadsLock = new Object(), glThreadsLock = new Object();
+	/**
+	 * Per-drain budgets of the main and render thread. Whatever does not fit rolls over to the next tick or frame.
+	 */
+	private static volatile long mainThreadBudgetNanos = 4000000, renderThreadBudgetNanos = 4000000;
+	private static volatile int mainThreadBudgetTasks = Integer.MAX_VALUE, renderThreadBudgetTasks = Integer.MAX_VALUE;
 
-	private static final int BACKGROUND_THREADS = 4;
-	private static final int GL_THREADS = 2;
+	/**
+	 * Whether there are render threads to run render thread tasks. See {@link #setRenderThreadsEnabled(boolean)}.
+	 */
+	private static volatile boolean renderThreads = true;
+
+	private static final TaskDrainMetrics mainThreadMetrics = new TaskDrainMetrics(),
+			renderThreadMetrics = new TaskDrainMetrics();
 
 	public static void init() {
 		backgroundThreads = new ArrayList<>();
 		for (int i = 0; i < BACKGROUND_THREADS; i++) {
-			TaskRunnerThread t = new TaskRunnerThread(tasksBackgroundThread, backgroundThreadsLock);
+			TaskRunnerThread t = new TaskRunnerThread(tasksBackgroundThread, i);
 			t.setName("Background Thread " + i);
 			t.start();
 			backgroundThreads.add(t);
@@ -42,28 +53,23 @@ public class TaskManager {
 	}
 
 	public static void addTaskMainThread(Runnable task) {
+		addTaskMainThread(task, TaskPriority.NORMAL);
+	}
+
+	public static void addTaskMainThread(Runnable task, TaskPriority priority) {
 		if (task == null)
 			return;
-		submitMainThread(new Task<Void>() {
-			@Override
-			protected Void call() {
-				task.run();
-				return null;
-			}
-
-		});
+		submitMainThread(wrap(task).setPriority(priority));
 	}
 
 	public static void addTaskBackgroundThread(Runnable task) {
+		addTaskBackgroundThread(task, TaskPriority.NORMAL);
+	}
+
+	public static void addTaskBackgroundThread(Runnable task, TaskPriority priority) {
 		if (task == null)
 			return;
-		submitBackgroundThread(new Task<Void>() {
-			@Override
-			protected Void call() {
-				task.run();
-				return null;
-			}
-		});
+		submitBackgroundThread(wrap(task).setPriority(priority));
 	}
 
 	public static <T> Task<T> submitMainThread(Task<T> t) {
@@ -79,58 +85,55 @@ public class TaskManager {
 			return null;
 
 		tasksBackgroundThread.add(t);
-		synchronized (backgroundThreadsLock) {
-			backgroundThreadsLock.notify();
-		}
 		return t;
 	}
 
+	/**
+	 * Runs queued main thread tasks until the queue is empty or the main thread budget is used up. See {@link #setMainThreadBudget(long, int)}.
+	 */
 	public static void updateMainThread() {
-		while (!tasksMainThread.isEmpty())
-			tasksMainThread.poll().callI();
+		drain(tasksMainThread, mainThreadBudgetNanos, mainThreadBudgetTasks, mainThreadMetrics);
 	}
 
 	public static void stopMainThread() {
-		while (!tasksMainThread.isEmpty())
-			tasksMainThread.poll().callI();
+		drain(tasksMainThread, Long.MAX_VALUE, Integer.MAX_VALUE, mainThreadMetrics);
 	}
 
 	public static void stopBackgroundThreads() {
 		for (TaskRunnerThread thread : backgroundThreads)
 			thread.setRunning(false);
-		synchronized (backgroundThreadsLock) {
-			backgroundThreadsLock.notifyAll();
-		}
+		tasksBackgroundThread.wakeAll();
 	}
 
 	public static void addTaskRenderThread(Runnable task) {
+		addTaskRenderThread(task, TaskPriority.NORMAL);
+	}
+
+	public static void addTaskRenderThread(Runnable task, TaskPriority priority) {
 		if (task == null)
 			return;
-		submitRenderThread(new Task<Void>() {
-			@Override
-			protected Void call() {
-				task.run();
-				return null;
-			}
-		});
+		submitRenderThread(wrap(task).setPriority(priority));
 	}
 
 	public static void addTaskRenderBackgroundThread(Runnable task) {
+		addTaskRenderBackgroundThread(task, TaskPriority.NORMAL);
+	}
+
+	public static void addTaskRenderBackgroundThread(Runnable task, TaskPriority priority) {
 		if (task == null)
 			return;
-		submitRenderBackgroundThread(new Task<Void>() {
-			@Override
-			protected Void call() {
-				task.run();
-				return null;
-			}
-		});
+		submitRenderBackgroundThread(wrap(task).setPriority(priority));
 	}
 
 	public static <T> Task<T> submitRenderThread(Task<T> t) {
 		if (t == null)
 			return null;
 
+		if (!renderThreads) {
+			t.cancel();
+			return t;
+		}
+
 		tasksRenderThread.add(t);
 		return t;
 	}
@@ -139,29 +142,95 @@ public class TaskManager {
 		if (t == null)
 			return null;
 
-		tasksGLBackgroundThread.add(t);
-		synchronized (glThreadsLock) {
-			glThreadsLock.notify();
+		if (!renderThreads) {
+			t.cancel();
+			return t;
 		}
+
+		tasksGLBackgroundThread.add(t);
 		return t;
 	}
 
+	/**
+	 * Runs queued render thread tasks until the queue is empty or the render thread budget is used up. See {@link #setRenderThreadBudget(long, int)}.
+	 */
 	public static void updateRenderThread() {
-		while (!tasksRenderThread.isEmpty())
-			tasksRenderThread.poll().callI();
+		drain(tasksRenderThread, renderThreadBudgetNanos, renderThreadBudgetTasks, renderThreadMetrics);
 	}
 
 	public static void stopRenderThread() {
-		while (!tasksRenderThread.isEmpty())
-			tasksRenderThread.poll().callI();
+		drain(tasksRenderThread, Long.MAX_VALUE, Integer.MAX_VALUE, renderThreadMetrics);
+	}
+
+	/**
+	 * Sets how much of a tick {@link #updateMainThread()} may spend on tasks. {@link TaskPriority#CRITICAL} tasks always run.
+	 * @param nanos time budget. Long.MAX_VALUE for none.
+	 * @param tasks task count budget. Integer.MAX_VALUE for none.
+	 */
+	public static void setMainThreadBudget(long nanos, int tasks) {
+		mainThreadBudgetNanos = nanos;
+		mainThreadBudgetTasks = tasks;
+	}
+
+	/**
+	 * Sets how much of a frame {@link #updateRenderThread()} may spend on tasks. {@link TaskPriority#CRITICAL} tasks always run.
+	 * @param nanos time budget. Long.MAX_VALUE for none.
+	 * @param tasks task count budget. Integer.MAX_VALUE for none.
+	 */
+	public static void setRenderThreadBudget(long nanos, int tasks) {
+		renderThreadBudgetNanos = nanos;
+		renderThreadBudgetTasks = tasks;
+	}
+
+	/**
+	 * Sets whether render and GL background tasks are accepted. When disabled (headless), they are cancelled on submit instead of
+	 * queueing forever, so {@link Task#get()} on them returns null instead of blocking.
+	 * @param enabled
+	 */
+	public static void setRenderThreadsEnabled(boolean enabled) {
+		renderThreads = enabled;
+	}
+
+	public static TaskDrainMetrics getMainThreadMetrics() {
+		return mainThreadMetrics;
+	}
+
+	public static TaskDrainMetrics getRenderThreadMetrics() {
+		return renderThreadMetrics;
+	}
+
+	public static int getMainThreadQueueSize() {
+		return tasksMainThread.size();
+	}
+
+	public static int getRenderThreadQueueSize() {
+		return tasksRenderThread.size();
+	}
+
+	/**
+	 * Runs tasks from the queue, highest priority first, until it is empty or the budget is used up. After that only critical tasks are run.
+	 */
+	private static void drain(TaskQueue queue, long budgetNanos, int budgetTasks, TaskDrainMetrics metrics) {
+		long start = System.nanoTime();
+		TaskPriority lowest = TaskPriority.LOW;
+		int count = 0;
+
+		Task<?> task;
+		while ((task = queue.poll(lowest)) != null) {
+			task.callI();
+			count++;
+
+			if (lowest != TaskPriority.CRITICAL && (count >= budgetTasks || System.nanoTime() - start >= budgetNanos))
+				lowest = TaskPriority.CRITICAL;
+		}
+
+		metrics.record(count, System.nanoTime() - start, queue.size(), lowest == TaskPriority.CRITICAL && !queue.isEmpty());
 	}
 
 	public static void stopGLThreads() {
 		for (TaskRunnerGLThread thread : glThreads)
 			thread.setRunning(false);
-		synchronized (glThreadsLock) {
-			glThreadsLock.notifyAll();
-		}
+		tasksGLBackgroundThread.wakeAll();
 		for (TaskRunnerGLThread thread : glThreads) {
 			try {
 				thread.join();
@@ -175,11 +244,58 @@ public class TaskManager {
 	public static void switchToSharedContext(long parent) {
 		glThreads = new ArrayList<>();
 		for (int i = 0; i < GL_THREADS; i++) {
-			TaskRunnerGLThread t = new TaskRunnerGLThread(tasksGLBackgroundThread, glThreadsLock, parent);
+			TaskRunnerGLThread t = new TaskRunnerGLThread(tasksGLBackgroundThread, i, parent);
 			t.setName("GL Background Thread " + i);
 			t.start();
 			glThreads.add(t);
 		}
 	}
 
+	/**
+	 * Returns a task that finishes once every supplied task has finished. It is cancelled if any of them was cancelled.<br>
+	 * It does not run on any thread of its own; chain work after it with {@link Task#thenOnMainThread(java.util.function.Function)}.
+	 * @param tasks
+	 * @return
+	 */
+	public static Task<Void> whenAll(Task<?>... tasks) {
+		Task<Void> all = wrap(() -> {});
+		AtomicInteger left = new AtomicInteger(tasks.length);
+		Runnable done = () -> {
+			if (left.decrementAndGet() != 0)
+				return;
+
+			for (Task<?> task : tasks) {
+				if (task.isCancelled()) {
+					all.cancel();
+					return;
+				}
+			}
+			all.callI();
+		};
+
+		if (tasks.length == 0)
+			all.callI();
+		for (Task<?> task : tasks)
+			task.whenDone(done);
+		return all;
+	}
+
+	/**
+	 * Returns the amount of tasks waiting for a background thread.
+	 * @return
+	 */
+	public static int getBackgroundQueueSize() {
+		return tasksBackgroundThread.size();
+	}
+
+	private static Task<Void> wrap(Runnable task) {
+		return new Task<Void>() {
+			@Override
+			protected Void call() {
+				task.run();
+				return null;
+			}
+		};
+	}
+
 }
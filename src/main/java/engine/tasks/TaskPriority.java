@@ -0,0 +1,33 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.tasks;
+
+/**
+ * Order in which queued tasks run. A task only runs once no task of a higher priority is waiting in the same queue.
+ */
+public enum TaskPriority {
+	/**
+	 * Must run as soon as possible, e.g. work the current frame waits on.
+	 */
+	CRITICAL,
+
+	/**
+	 * Work for what is visible, e.g. textures and meshes in view.
+	 */
+	HIGH,
+
+	NORMAL,
+
+	/**
+	 * Work nothing is waiting on yet, e.g. preloading off-screen assets.
+	 */
+	LOW;
+}
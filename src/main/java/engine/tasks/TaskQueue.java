@@ -0,0 +1,176 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.tasks;
+
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Priority queue of tasks, shared by a pool of {@link TaskRunnerThread}s.<br>
+ * Tasks submitted from outside the pool go to a shared queue per priority. Tasks submitted by a worker of the pool go to that
+ * worker's own deque, and a worker that runs out of work steals from the other end of another worker's deque.
+ * Higher priorities are always drained first, from every source, before a lower priority is looked at.
+ */
+public class TaskQueue {
+	private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+
+	private final Queue<Task<?>>[] shared;
+	private final Deque<Task<?>>[][] local;
+	private final Object lock = new Object();
+	private final AtomicInteger size = new AtomicInteger();
+	private volatile int idle;
+
+	/**
+	 * Creates a queue.
+	 * @param workers amount of worker threads that take from this queue. 0 for a queue drained by a single thread through {@link #poll()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public TaskQueue(int workers) {
+		shared = new Queue[PRIORITIES.length];
+		for (int i = 0; i < shared.length; i++)
+			shared[i] = new ConcurrentLinkedQueue<>();
+
+		local = new Deque[workers][PRIORITIES.length];
+		for (int i = 0; i < workers; i++) {
+			for (int j = 0; j < PRIORITIES.length; j++)
+				local[i][j] = new ConcurrentLinkedDeque<>();
+		}
+	}
+
+	/**
+	 * Queues the task at its priority, and wakes up an idle worker.
+	 * @param task
+	 */
+	public void add(Task<?> task) {
+		int priority = task.getPriority().ordinal();
+
+		size.incrementAndGet();
+		Thread thread = Thread.currentThread();
+		if (thread instanceof TaskRunnerThread && ((TaskRunnerThread) thread).tasks == this)
+			local[((TaskRunnerThread) thread).index][priority].addFirst(task);
+		else
+			shared[priority].add(task);
+
+		if (idle > 0) {
+			synchronized (lock) {
+				lock.notify();
+			}
+		}
+	}
+
+	/**
+	 * Returns the next task to run, or null. For queues without workers.
+	 * @return
+	 */
+	public Task<?> poll() {
+		return poll(-1, TaskPriority.LOW);
+	}
+
+	/**
+	 * Returns the next task of at least the supplied priority, or null. For queues without workers.
+	 * @param lowest lowest priority to return.
+	 * @return
+	 */
+	public Task<?> poll(TaskPriority lowest) {
+		return poll(-1, lowest);
+	}
+
+	/**
+	 * Returns the next task for the worker: its own work first, then shared work, then work stolen from another worker.
+	 * @param worker index of the worker, or -1.
+	 * @return the task, or null if there is nothing to do.
+	 */
+	public Task<?> poll(int worker) {
+		return poll(worker, TaskPriority.LOW);
+	}
+
+	private Task<?> poll(int worker, TaskPriority lowest) {
+		for (int p = 0; p <= lowest.ordinal(); p++) {
+			Task<?> task;
+			if (worker >= 0 && (task = local[worker][p].pollFirst()) != null)
+				return taken(task);
+
+			if ((task = shared[p].poll()) != null)
+				return taken(task);
+
+			for (int i = 1; i <= local.length; i++) {
+				int victim = (worker + i) % local.length;
+				if ((task = local[victim][p].pollLast()) != null)
+					return taken(task);
+			}
+		}
+		return null;
+	}
+
+	private Task<?> taken(Task<?> task) {
+		size.decrementAndGet();
+		return task;
+	}
+
+	/**
+	 * Returns the next task for the worker. Waits until there is one, unless the worker stops running.
+	 * @param worker
+	 * @return the task, or null if the worker stopped.
+	 */
+	public Task<?> take(TaskRunnerThread worker) {
+		while (worker.running) {
+			Task<?> task = poll(worker.index);
+			if (task != null)
+				return task;
+
+			synchronized (lock) {
+				idle++;
+				try {
+					// Anything added after poll() but before idle went up is seen here
+					if (worker.running && isEmpty())
+						lock.wait();
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				} finally {
+					idle--;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Wakes up every waiting worker, e.g. so they see they should stop running.
+	 */
+	public void wakeAll() {
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+
+	public boolean isEmpty() {
+		for (int p = 0; p < PRIORITIES.length; p++) {
+			if (!shared[p].isEmpty())
+				return false;
+			for (int i = 0; i < local.length; i++) {
+				if (!local[i][p].isEmpty())
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the amount of queued tasks, including cancelled ones that were not taken yet.
+	 * @return
+	 */
+	public int size() {
+		return Math.max(0, size.get());
+	}
+}
@@ -24,8 +24,6 @@ import static org.lwjgl.opengl.GL11C.GL_FALSE;
 import static org.lwjgl.opengl.GL11C.GL_TRUE;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
-import java.util.Queue;
-
 import org.lwjgl.opengl.GL;
 
 import engine.util.GLCompat;
@@ -34,8 +32,8 @@ public class TaskRunnerGLThread extends TaskRunnerThread {
 
 	private long window;
 
-	public TaskRunnerGLThread(Queue<Task<?>> tasks, Object threadsLock, long parentWindow) {
-		super(tasks, threadsLock);
+	public TaskRunnerGLThread(TaskQueue tasks, int index, long parentWindow) {
+		super(tasks, index);
 		glfwDefaultWindowHints();
 		glfwWindowHint(GLFW_VISIBLE, GL_FALSE);
 		glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
@@ -51,20 +49,7 @@ public class TaskRunnerGLThread extends TaskRunnerThread {
 	public void run() {
 		glfwMakeContextCurrent(window);
 		GL.createCapabilities(true);
-		while (running) {
-			if (!tasks.isEmpty()) {
-				Task<?> task = tasks.poll();
-				if (task != null)
-					task.callI();
-			} else
-				synchronized (threadsLock) {
-					try {
-						threadsLock.wait();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-		}
+		super.run();
 		GL.setCapabilities(null);
 		glfwMakeContextCurrent(NULL);
 	}
@@ -10,34 +10,27 @@
 
 package engine.tasks;
 
-import java.util.Queue;
-
 public class TaskRunnerThread extends Thread implements ITaskRunnerThread {
 
-	protected Queue<Task<?>> tasks;
-	protected Object threadsLock;
-	protected boolean running = true;
+	protected TaskQueue tasks;
+	protected int index;
+	protected volatile boolean running = true;
 
-	public TaskRunnerThread(Queue<Task<?>> tasks, Object threadsLock) {
+	/**
+	 * @param tasks queue to take tasks from.
+	 * @param index index of this worker in the queue's pool.
+	 */
+	public TaskRunnerThread(TaskQueue tasks, int index) {
 		this.tasks = tasks;
-		this.threadsLock = threadsLock;
+		this.index = index;
 	}
 
 	@Override
 	public void run() {
 		while (running) {
-			if (!tasks.isEmpty()) {
-				Task<?> task = tasks.poll();
-				if (task != null)
-					task.callI();
-			} else
-				synchronized (threadsLock) {
-					try {
-						threadsLock.wait();
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
+			Task<?> task = tasks.take(this);
+			if (task != null)
+				task.callI();
 		}
 	}
 
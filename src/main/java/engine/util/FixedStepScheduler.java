@@ -0,0 +1,208 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.util;
+
+/**
+ * Splits real time into simulation steps of a fixed length.<br>
+ * Each frame, {@link #advance()} adds the time since the last frame to an accumulator and returns how many steps to run.
+ * At most {@link #getMaxSteps()} are returned per frame; what happens to the rest is decided by the {@link Policy}, so a slow
+ * frame can never snowball into slower and slower frames. The time left in the accumulator is exposed as {@link #getAlpha()}, for
+ * rendering between the last two steps.<br>
+ * Time comes from a {@link Clock}. Pass a {@link ManualClock} to step the scheduler deterministically, without sleeping.
+ */
+public class FixedStepScheduler {
+	private static final long NANOS_IN_SECOND = 1000L * 1000L * 1000L;
+
+	private final Clock clock;
+	private final long stepNanos;
+	private int maxSteps;
+	private Policy policy;
+
+	private long lastTime;
+	private long accumulator;
+	private long ticks;
+	private long droppedNanos;
+	private long behindFrames;
+
+	/**
+	 * Source of time, in nanoseconds.
+	 */
+	public interface Clock {
+		public long nanoTime();
+	}
+
+	/**
+	 * Wall clock. Reads {@link System#nanoTime()}.
+	 */
+	public static final Clock SYSTEM_CLOCK = ()->System.nanoTime();
+
+	/**
+	 * Clock that only moves when told to.
+	 */
+	public static class ManualClock implements Clock {
+		private long time;
+
+		@Override
+		public long nanoTime() {
+			return time;
+		}
+
+		public void advance(long nanos) {
+			time += nanos;
+		}
+
+		public void advanceSeconds(double seconds) {
+			time += (long)(seconds * NANOS_IN_SECOND);
+		}
+	}
+
+	/**
+	 * What to do with the time left over when a frame is more than {@link #getMaxSteps()} steps behind.
+	 */
+	public enum Policy {
+		/**
+		 * Throw away the time that was not simulated. The simulation skips ahead to real time, and is never behind for more than a frame.
+		 */
+		DROP,
+
+		/**
+		 * Keep up to one more frame's worth of steps and catch up on it over the next frames. Short hitches are caught up on,
+		 * a simulation that is slower than real time runs in slow motion rather than falling further behind.
+		 */
+		SLOW_MOTION;
+	}
+
+	/**
+	 * Creates a scheduler driven by the wall clock.
+	 * @param stepsPerSecond
+	 * @param maxSteps
+	 * @param policy
+	 */
+	public FixedStepScheduler(int stepsPerSecond, int maxSteps, Policy policy) {
+		this(stepsPerSecond, maxSteps, policy, SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Creates a scheduler.
+	 * @param stepsPerSecond amount of steps per simulated second.
+	 * @param maxSteps most steps returned by a single {@link #advance()}.
+	 * @param policy what to do when more steps are due.
+	 * @param clock source of time.
+	 */
+	public FixedStepScheduler(int stepsPerSecond, int maxSteps, Policy policy, Clock clock) {
+		if ( stepsPerSecond <= 0 )
+			throw new IllegalArgumentException("Steps per second must be positive");
+
+		this.clock = clock;
+		this.stepNanos = NANOS_IN_SECOND / stepsPerSecond;
+		this.policy = policy;
+		this.lastTime = clock.nanoTime();
+		setMaxSteps(maxSteps);
+	}
+
+	/**
+	 * Adds the time since the last call to the accumulator, and returns the amount of steps to run now.
+	 * @return
+	 */
+	public int advance() {
+		long now = clock.nanoTime();
+		long elapsed = Math.max(0, now - lastTime);
+		lastTime = now;
+		accumulator += elapsed;
+
+		long due = accumulator / stepNanos;
+		int steps = (int) Math.min(due, maxSteps);
+		accumulator -= steps * stepNanos;
+
+		// Behind
+		if ( due > steps ) {
+			behindFrames++;
+
+			long keep = policy == Policy.SLOW_MOTION ? maxSteps * stepNanos + accumulator % stepNanos : accumulator % stepNanos;
+			if ( accumulator > keep ) {
+				droppedNanos += accumulator - keep;
+				accumulator = keep;
+			}
+		}
+
+		ticks += steps;
+		return steps;
+	}
+
+	/**
+	 * Forgets the time since the last {@link #advance()} and any time left in the accumulator. Use after a long pause (loading) that should not be caught up on.
+	 */
+	public void reset() {
+		lastTime = clock.nanoTime();
+		accumulator = 0;
+	}
+
+	/**
+	 * Returns how far real time is past the last step, as a fraction of a step. Render state interpolated by this is smooth even when the
+	 * frame rate and step rate differ.
+	 * @return a value in [0, 1) unless frames are behind under {@link Policy#SLOW_MOTION}.
+	 */
+	public float getAlpha() {
+		return (float) ((double) accumulator / stepNanos);
+	}
+
+	/**
+	 * Returns the length of a step in seconds.
+	 * @return
+	 */
+	public float getStepSeconds() {
+		return (float) ((double) stepNanos / NANOS_IN_SECOND);
+	}
+
+	public long getStepNanos() {
+		return stepNanos;
+	}
+
+	/**
+	 * Returns the amount of steps returned by {@link #advance()} so far.
+	 * @return
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Returns the total real time that was not simulated, because of the policy.
+	 * @return
+	 */
+	public long getDroppedNanos() {
+		return droppedNanos;
+	}
+
+	/**
+	 * Returns the amount of frames that had more steps due than {@link #getMaxSteps()}.
+	 * @return
+	 */
+	public long getBehindFrames() {
+		return behindFrames;
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	public void setMaxSteps(int maxSteps) {
+		this.maxSteps = Math.max(1, maxSteps);
+	}
+
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	public void setPolicy(Policy policy) {
+		this.policy = policy;
+	}
+}
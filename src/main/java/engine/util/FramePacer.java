@@ -0,0 +1,153 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+import engine.util.FixedStepScheduler.Clock;
+
+/**
+ * Holds a loop to a fixed frame rate. Replaces the sleep(1)/yield loops of {@link Sync}.<br>
+ * Most of the wait is parked with {@link LockSupport#parkNanos(long)}. Parking wakes up late by a platform dependent amount, so the
+ * pacer measures how late every park was and stops parking early by that much (plus its variance), then spins for the last stretch.
+ * Frames end within a few microseconds of their deadline, without burning a core for the whole wait.<br>
+ * {@link Mode#NONE} does no waiting at all, for loops driven by an external clock (headless servers, tests).
+ * Both the clock and the way of parking can be replaced, so the pacing can be simulated deterministically.
+ */
+public class FramePacer {
+	private static final long NANOS_IN_SECOND = 1000L * 1000L * 1000L;
+
+	/**
+	 * Spin at least this long before each deadline.
+	 */
+	private static final long SPIN_NANOS = 200000;
+
+	/**
+	 * Weight of the newest measurement in the oversleep averages.
+	 */
+	private static final double OVERSLEEP_WEIGHT = 0.1;
+
+	public enum Mode {
+		/**
+		 * Park, then spin until the frame deadline.
+		 */
+		PACED,
+
+		/**
+		 * Return right away. Frames run as fast as the loop allows, or as fast as an external clock drives them.
+		 */
+		NONE;
+	}
+
+	/**
+	 * Waits without holding the CPU. May return late, and (rarely) early.
+	 */
+	public interface Sleeper {
+		public void park(long nanos);
+	}
+
+	public static final Sleeper PARK = (nanos)->LockSupport.parkNanos(nanos);
+
+	private final Clock clock;
+	private final Sleeper sleeper;
+	private Mode mode;
+
+	private long nextFrame;
+	private double oversleepMean;
+	private double oversleepDeviation;
+	private long frames;
+
+	public FramePacer() {
+		this(Mode.PACED);
+	}
+
+	public FramePacer(Mode mode) {
+		this(mode, FixedStepScheduler.SYSTEM_CLOCK, PARK);
+	}
+
+	/**
+	 * Creates a pacer.
+	 * @param mode
+	 * @param clock source of time.
+	 * @param sleeper how to wait for the bulk of a frame.
+	 */
+	public FramePacer(Mode mode, Clock clock, Sleeper sleeper) {
+		this.mode = mode;
+		this.clock = clock;
+		this.sleeper = sleeper;
+		this.nextFrame = clock.nanoTime();
+	}
+
+	/**
+	 * Waits until the end of the current frame at the supplied frame rate.
+	 * A loop that falls more than a frame behind starts counting again from now, rather than running frames back to back to catch up.
+	 * @param fps frames per second. 0 or less does not wait.
+	 */
+	public void sync(int fps) {
+		frames++;
+		if (mode == Mode.NONE || fps <= 0) {
+			nextFrame = clock.nanoTime();
+			return;
+		}
+
+		long period = NANOS_IN_SECOND / fps;
+		nextFrame += period;
+
+		long now = clock.nanoTime();
+		if (now - nextFrame > period) {
+			nextFrame = now;
+			return;
+		}
+
+		// Park for the bulk of the wait
+		while (true) {
+			long margin = SPIN_NANOS + getOversleepEstimate();
+			long park = nextFrame - now - margin;
+			if (park <= 0)
+				break;
+
+			sleeper.park(park);
+			long after = clock.nanoTime();
+			measure(after - now - park);
+			now = after;
+		}
+
+		// Spin the rest
+		while (now < nextFrame)
+			now = clock.nanoTime();
+	}
+
+	/**
+	 * Returns how late parking is expected to wake up, in nanoseconds. Parking stops this much (and the spin time) early.
+	 * @return
+	 */
+	public long getOversleepEstimate() {
+		return Math.max(0, (long) (oversleepMean + 2 * oversleepDeviation));
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	private void measure(long oversleep) {
+		double diff = oversleep - oversleepMean;
+		oversleepMean += diff * OVERSLEEP_WEIGHT;
+		oversleepDeviation += (Math.abs(diff) - oversleepDeviation) * OVERSLEEP_WEIGHT;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package engine.util;
+
+import java.util.List;
+
+/**
+ * Hashed timer wheel. Time is split into ticks of a fixed length, and each timer is stored in the slot of the tick it expires on.
+ * Scheduling and cancelling are O(1); advancing only visits the slots of the ticks that passed.<br>
+ * Not driven by a thread of its own. Call {@link #advance(long, List)} from whatever loop owns the wheel.
+ */
+public class TimerWheel {
+	private final Timer[] slots;
+	private final int mask;
+	private final long tickNanos;
+	private final long startNanos;
+	private long currentTick;
+	private int size;
+
+	/**
+	 * A pending timer. Runs its action once when it expires, unless it was cancelled first.
+	 */
+	public static class Timer {
+		private final Runnable action;
+		private long deadlineTick;
+		private Timer prev;
+		private Timer next;
+		private boolean scheduled;
+
+		public Timer(Runnable action) {
+			this.action = action;
+		}
+
+		public void run() {
+			action.run();
+		}
+
+		public boolean isScheduled() {
+			return scheduled;
+		}
+	}
+
+	/**
+	 * Creates a timer wheel.
+	 * @param slots amount of slots. Rounded up to a power of two.
+	 * @param tickNanos length of one tick in nanoseconds.
+	 * @param startNanos time that tick 0 starts at.
+	 */
+	public TimerWheel(int slots, long tickNanos, long startNanos) {
+		int size = Integer.highestOneBit(Math.max(1, slots-1)) << 1;
+		this.slots = new Timer[size];
+		this.mask = size-1;
+		this.tickNanos = tickNanos;
+		this.startNanos = startNanos;
+	}
+
+	/**
+	 * Schedules the timer to expire on the first tick that starts at or after the deadline, and never earlier than the next tick.
+	 * @param timer
+	 * @param deadlineNanos
+	 */
+	public synchronized void schedule(Timer timer, long deadlineNanos) {
+		if ( timer.scheduled )
+			unlink(timer);
+
+		long tick = ceilDiv(deadlineNanos - startNanos, tickNanos);
+		timer.deadlineTick = Math.max(currentTick+1, tick);
+
+		int slot = (int) (timer.deadlineTick & mask);
+		timer.prev = null;
+		timer.next = slots[slot];
+		if ( timer.next != null )
+			timer.next.prev = timer;
+		slots[slot] = timer;
+		timer.scheduled = true;
+		size++;
+	}
+
+	/**
+	 * Removes the timer from the wheel. Returns false if it already expired or was never scheduled.
+	 * @param timer
+	 * @return
+	 */
+	public synchronized boolean cancel(Timer timer) {
+		if ( !timer.scheduled )
+			return false;
+
+		unlink(timer);
+		return true;
+	}
+
+	/**
+	 * Moves the wheel forward to the supplied time, adding every expired timer to the list (in no particular order).
+	 * Expired timers are not run here, so the caller can run them without holding the wheel's lock.
+	 * @param nowNanos
+	 * @param expired
+	 */
+	public synchronized void advance(long nowNanos, List<Timer> expired) {
+		long targetTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+		if ( targetTick <= currentTick )
+			return;
+
+		// Every slot will be visited anyway, so visit each one once
+		if ( targetTick - currentTick >= slots.length ) {
+			for (int i = 0; i < slots.length; i++) {
+				expireSlot(i, targetTick, expired);
+			}
+			currentTick = targetTick;
+			return;
+		}
+
+		while ( currentTick < targetTick ) {
+			currentTick++;
+			expireSlot((int) (currentTick & mask), currentTick, expired);
+		}
+	}
+
+	/**
+	 * Returns the amount of timers currently scheduled.
+	 * @return
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Cancels every timer.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < slots.length; i++) {
+			Timer t = slots[i];
+			while ( t != null ) {
+				Timer next = t.next;
+				t.scheduled = false;
+				t.prev = null;
+				t.next = null;
+				t = next;
+			}
+			slots[i] = null;
+		}
+		size = 0;
+	}
+
+	private void expireSlot(int slot, long tick, List<Timer> expired) {
+		Timer t = slots[slot];
+		while ( t != null ) {
+			Timer next = t.next;
+			if ( t.deadlineTick <= tick ) {
+				unlink(t);
+				expired.add(t);
+			}
+			t = next;
+		}
+	}
+
+	private void unlink(Timer timer) {
+		if ( timer.prev != null )
+			timer.prev.next = timer.next;
+		else
+			slots[(int) (timer.deadlineTick & mask)] = timer.next;
+
+		if ( timer.next != null )
+			timer.next.prev = timer.prev;
+
+		timer.prev = null;
+		timer.next = null;
+		timer.scheduled = false;
+		size--;
+	}
+
+	private static long ceilDiv(long a, long b) {
+		return -Math.floorDiv(-a, b);
+	}
+}
@@ -10,8 +10,14 @@
 
 package ide.layout;
 
+import java.io.File;
+import java.io.IOException;
+
 import org.json.simple.JSONObject;
 import org.luaj.vm2.LuaValue;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.util.nfd.NativeFileDialog;
 
 import engine.ClientEngine;
 import engine.ClientLocalRunner;
@@ -20,6 +26,7 @@ import engine.Game;
 import engine.InternalGameThread;
 import engine.io.Load;
 import engine.io.Save;
+import engine.lua.lib.ScriptProfiler;
 import engine.lua.type.object.services.Core;
 import engine.util.JVMUtil;
 import ide.IDE;
@@ -285,6 +292,39 @@ public class IdeLayout {
 			menuEdit.getItems().add(endTest);
 		});
 		menuEdit.getItems().add(internalTest);
+		
+		// Separator!
+		menuEdit.getItems().add(new SeparatorMenuItem());
+		
+		// Script profiler
+		MenuItem profileStart = new MenuItem("Start Script Profiler");
+		profileStart.setOnAction( event -> {
+			ScriptProfiler.reset();
+			ScriptProfiler.start();
+		});
+		menuEdit.getItems().add(profileStart);
+		
+		MenuItem profileSave = new MenuItem("Stop Script Profiler & Save...");
+		profileSave.setOnAction( event -> {
+			ScriptProfiler.stop();
+			
+			MemoryStack stack = MemoryStack.stackPush();
+			PointerBuffer outPath = stack.mallocPointer(1);
+			int result = NativeFileDialog.NFD_SaveDialog("txt", new File("").getAbsolutePath(), outPath);
+			if ( result == NativeFileDialog.NFD_OKAY ) {
+				String path = outPath.getStringUTF8(0);
+				if ( !path.endsWith(".txt") )
+					path = path + ".txt";
+				
+				try {
+					ScriptProfiler.writeCollapsed(new File(path));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			stack.pop();
+		});
+		menuEdit.getItems().add(profileSave);
 	}
 
 	private void fileMenu(MenuBar menuBar) {
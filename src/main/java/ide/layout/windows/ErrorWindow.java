@@ -10,6 +10,7 @@
 
 package ide.layout.windows;
 
+import engine.Game;
 import lwjgui.geometry.Pos;
 import lwjgui.scene.Window;
 import lwjgui.scene.WindowHandle;
@@ -34,6 +35,10 @@ public class ErrorWindow {
 
 	public ErrorWindow(String string, boolean fatal) {
 		fatalError = fatal;
+		if (Game.isHeadless()) {
+			System.err.println((fatal ? "Fatal error: " : "Error: ") + string);
+			return;
+		}
 		errorLWJGUI(string);
 	}
 
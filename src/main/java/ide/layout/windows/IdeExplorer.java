@@ -24,6 +24,7 @@ import org.luaj.vm2.LuaValue;
 
 import engine.Game;
 import engine.lua.type.LuaConnection;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.object.Instance;
 import engine.lua.type.object.PhysicsBase;
 import engine.lua.type.object.ScriptBase;
@@ -81,8 +82,8 @@ public class IdeExplorer extends IdePane {
 	private ScrollPane scroller;
 	private SortedTreeView<Instance> tree;
 
-	private static final LuaValue C_NAME = LuaValue.valueOf("Name");
-	private static final LuaValue C_PARENT = LuaValue.valueOf("Parent");
+	private static final LuaValue C_NAME = LuaKeys.of("Name");
+	private static final LuaValue C_PARENT = LuaKeys.of("Parent");
 	
 	private Map<Instance, TreeItem<Instance>> instanceToTreeItemMap;
 	private Map<TreeItem<Instance>, TreeBase<Instance>> treeItemToParentTreeItemMap;
@@ -290,7 +291,7 @@ public class IdeExplorer extends IdePane {
 	}
 	
 	private void buildDescendents(Instance parent, boolean sort) {
-		List<Instance> gameDescendents = parent.getDescendantsUnsafe();
+		List<Instance> gameDescendents = parent.getDescendants();
 		for (int i = 0; i < gameDescendents.size(); i++) {
 			if ( i >= gameDescendents.size() )
 				continue;
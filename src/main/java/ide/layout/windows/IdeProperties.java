@@ -33,6 +33,7 @@ import engine.lua.lib.LuaTableReadOnly;
 import engine.lua.type.Clamp;
 import engine.lua.type.LuaField;
 import engine.lua.type.LuaFieldFlag;
+import engine.lua.type.LuaKeys;
 import engine.lua.type.LuaValuetype;
 import engine.lua.type.NumberClamp;
 import engine.lua.type.NumberClampPreferred;
@@ -178,6 +179,11 @@ public class IdeProperties extends IdePane implements GameSubscriber,InstancePro
 	public void gameUpdateEvent(boolean important) {
 		update(important);
 	}
+
+	@Override
+	public void hierarchyUpdateEvent() {
+		update(true);
+	}
 	
 	@Override
 	public void onPropertyChange(Instance instance, LuaValue property, LuaValue value) {
@@ -197,7 +203,7 @@ public class IdeProperties extends IdePane implements GameSubscriber,InstancePro
 			return null;
 		
 		// Calculate editable
-		boolean editable = luaField.canModify();
+		boolean editable = instance.canModifyField(luaField.getName());
 		if ( (field.equals("Name") || field.equals("Parent")) && instance.isLocked() )
 			editable = false;
 		
@@ -440,7 +446,7 @@ public class IdeProperties extends IdePane implements GameSubscriber,InstancePro
 		}
 	}
 	
-	private final static LuaValue C_ENUM = LuaValue.valueOf("Enum");
+	private final static LuaValue C_ENUM = LuaKeys.of("Enum");
 	
 	static class EnumPropertyModifier extends PropertyModifier {
 		public EnumPropertyModifier(Instance instance, String field, LuaValue value, boolean editable) {
@@ -870,7 +876,7 @@ public class IdeProperties extends IdePane implements GameSubscriber,InstancePro
 				t2.setBackground(t1.getBackground());
 				
 				// Make cell 1 text color match cell 2
-				boolean editable = inst.getField(field).canModify();
+				boolean editable = inst.canModifyField(field);
 				if ( t2 instanceof PropertyModifierTemp )
 					fieldLabel.setTextFill(((PropertyModifierTemp) t2).label.getTextFill());
 				if ( !editable )
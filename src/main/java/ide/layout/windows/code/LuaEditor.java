@@ -126,6 +126,7 @@ public class LuaEditor extends AutoSyntaxCodeEditor {
 											"print",
 											"tick",
 											"spawn",
+											"delay",
 											"tostring",
 											"Enum",
 											"_G",
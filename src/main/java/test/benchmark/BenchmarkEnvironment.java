@@ -0,0 +1,76 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.Game;
+import engine.lua.LuaEngine;
+import engine.lua.type.object.services.GameECS;
+import engine.lua.type.object.services.ProjectECS;
+import engine.tasks.TaskManager;
+
+/**
+ * Minimal window-less engine setup shared by the benchmarks in this package.
+ */
+public class BenchmarkEnvironment {
+	private static boolean initialized;
+	
+	/**
+	 * Turns on lua and loads a blank project. No window or render thread is created.
+	 */
+	public static void init() {
+		if ( initialized )
+			return;
+		initialized = true;
+		
+		new Game();
+		TaskManager.init();
+		LuaEngine.initialize();
+		Game.setGame(new GameECS());
+		Game.setProject(new ProjectECS());
+		Game.load();
+		TaskManager.updateMainThread();
+	}
+	
+	/**
+	 * Returns the currently used heap (in bytes) after asking the JVM to collect garbage.
+	 * @return
+	 */
+	public static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				//
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/**
+	 * Runs the runnable the desired amount of times and returns the average time per run in nanoseconds.
+	 * @param iterations
+	 * @param runnable
+	 * @return
+	 */
+	public static double time(int iterations, Runnable runnable) {
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			runnable.run();
+		}
+		return (System.nanoTime() - start) / (double)iterations;
+	}
+	
+	public static void report(String name, double nanos) {
+		System.out.println(String.format("%-48s %12.1f ns", name, nanos));
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.util.FixedStepScheduler;
+import engine.util.FixedStepScheduler.ManualClock;
+import engine.util.FixedStepScheduler.Policy;
+
+/**
+ * Drives the fixed step scheduler from a manual clock: ten simulated seconds at 144 frames per second, with a 250ms hitch every second.
+ * Runs instantly and prints the same numbers every time.
+ */
+public class FixedStepSchedulerBenchmark {
+	private static final int FRAMES = 1440;
+	private static final long FRAME_NANOS = 1000000000L / 144;
+	private static final long HITCH_NANOS = 250000000L;
+
+	public static void main(String[] args) {
+		for (Policy policy : Policy.values()) {
+			run(policy);
+		}
+
+		// Cost of the bookkeeping alone
+		ManualClock clock = new ManualClock();
+		FixedStepScheduler scheduler = new FixedStepScheduler(60, 5, Policy.DROP, clock);
+		for (int i = 0; i < 3; i++) {
+			BenchmarkEnvironment.report("advance()", BenchmarkEnvironment.time(1000000, ()->{
+				clock.advance(FRAME_NANOS);
+				scheduler.advance();
+			}));
+		}
+
+		System.exit(0);
+	}
+
+	private static void run(Policy policy) {
+		ManualClock clock = new ManualClock();
+		FixedStepScheduler scheduler = new FixedStepScheduler(60, 5, policy, clock);
+
+		int mostSteps = 0;
+		for (int i = 0; i < FRAMES; i++) {
+			clock.advance(FRAME_NANOS);
+			if ( i % 144 == 0 )
+				clock.advance(HITCH_NANOS);
+
+			mostSteps = Math.max(mostSteps, scheduler.advance());
+		}
+
+		System.out.println(policy + ": " + scheduler.getTicks() + " ticks, most in a frame " + mostSteps
+				+ ", " + scheduler.getBehindFrames() + " frames behind, " + (scheduler.getDroppedNanos() / 1000000) + "ms dropped"
+				+ ", alpha " + scheduler.getAlpha());
+	}
+}
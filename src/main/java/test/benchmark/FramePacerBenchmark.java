@@ -0,0 +1,124 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import engine.util.FixedStepScheduler.Clock;
+import engine.util.FramePacer;
+import engine.util.FramePacer.Sleeper;
+import engine.util.Sync;
+
+/**
+ * Frame pacing jitter.<br>
+ * First on a timing model: a simulated clock whose parks wake up late by a random amount (with occasional millisecond spikes, as on a
+ * loaded Linux box) over 10k frames at 60 fps. The model runs instantly and gives the same numbers every time.<br>
+ * Then on the real clock, {@link FramePacer} against the old {@link Sync}, for a few seconds each.
+ */
+public class FramePacerBenchmark {
+	private static final int FPS = 60;
+	private static final int MODEL_FRAMES = 10000;
+	private static final int REAL_FRAMES = 600;
+	private static final int REAL_FPS = 200;
+
+	/**
+	 * Simulated platform. Parking oversleeps by 50us plus an exponential tail averaging 150us, and by 1-2ms one time in a hundred.
+	 * Every clock read costs 50ns, so spinning advances time.
+	 */
+	private static class Model implements Clock, Sleeper {
+		private final Random random = new Random(1);
+		private long time;
+		private long parked;
+		private long spun;
+
+		@Override
+		public long nanoTime() {
+			time += 50;
+			spun += 50;
+			return time;
+		}
+
+		@Override
+		public void park(long nanos) {
+			long late = 50000 + (long) (-Math.log(1 - random.nextDouble()) * 150000);
+			if (random.nextInt(100) == 0)
+				late += 1000000 + random.nextInt(1000000);
+			time += nanos + late;
+			parked += nanos + late;
+		}
+
+		/**
+		 * Some work, taking 2-8ms.
+		 */
+		public void work() {
+			time += 2000000 + random.nextInt(6000000);
+		}
+	}
+
+	public static void main(String[] args) {
+		Model model = new Model();
+		FramePacer pacer = new FramePacer(FramePacer.Mode.PACED, model, model);
+		long[] intervals = new long[MODEL_FRAMES];
+		long last = model.nanoTime();
+		for (int i = 0; i < MODEL_FRAMES; i++) {
+			model.work();
+			pacer.sync(FPS);
+			long now = model.nanoTime();
+			intervals[i] = now - last;
+			last = now;
+		}
+		report("model, FramePacer", intervals, 1000000000L / FPS);
+		System.out.println(String.format("  %.1f%% of wait time parked, oversleep estimate %.1fus", 100.0 * model.parked / (model.parked + model.spun),
+				pacer.getOversleepEstimate() / 1000.0));
+
+		// Real clock
+		for (int i = 0; i < 2; i++) {
+			FramePacer realPacer = new FramePacer();
+			report("real, FramePacer", measure(() -> realPacer.sync(REAL_FPS)), 1000000000L / REAL_FPS);
+
+			Sync sync = new Sync();
+			report("real, Sync", measure(() -> sync.sync(REAL_FPS)), 1000000000L / REAL_FPS);
+		}
+
+		System.exit(0);
+	}
+
+	private static long[] measure(Runnable sync) {
+		long[] intervals = new long[REAL_FRAMES];
+		long last = System.nanoTime();
+		for (int i = 0; i < REAL_FRAMES; i++) {
+			sync.run();
+			long now = System.nanoTime();
+			intervals[i] = now - last;
+			last = now;
+		}
+		return intervals;
+	}
+
+	/**
+	 * Prints the distribution of the difference between each frame's length and the target length.
+	 */
+	private static void report(String name, long[] intervals, long period) {
+		long[] jitter = new long[intervals.length - 1];
+		double sum = 0;
+		for (int i = 1; i < intervals.length; i++) {
+			jitter[i - 1] = Math.abs(intervals[i] - period);
+			sum += intervals[i];
+		}
+		Arrays.sort(jitter);
+
+		int n = jitter.length;
+		System.out.println(String.format("%-20s mean frame %7.3fms   jitter p50 %7.1fus   p90 %7.1fus   p99 %7.1fus   max %8.1fus", name,
+				sum / n / 1.0e6, jitter[n / 2] / 1.0e3, jitter[(int) (n * 0.9)] / 1.0e3, jitter[(int) (n * 0.99)] / 1.0e3,
+				jitter[n - 1] / 1.0e3));
+	}
+}
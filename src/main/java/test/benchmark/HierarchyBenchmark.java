@@ -0,0 +1,86 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.Game;
+import engine.lua.type.object.Instance;
+import engine.lua.type.object.insts.Folder;
+
+/**
+ * Measures building, moving and destroying deep and wide trees of Instances.
+ */
+public class HierarchyBenchmark {
+	private static final int RUNS = 5;
+	private static final int WIDE = 1000;
+	private static final int DEEP = 200;
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		// Warm up
+		for (int i = 0; i < 2; i++) {
+			runWide();
+			runDeep();
+		}
+
+		for (int i = 0; i < RUNS; i++) {
+			runWide();
+			runDeep();
+		}
+
+		System.exit(0);
+	}
+
+	/**
+	 * One root with many direct children.
+	 */
+	private static void runWide() {
+		final Instance root = new Folder();
+
+		BenchmarkEnvironment.report("wide build ("+WIDE+")", BenchmarkEnvironment.time(1, ()->{
+			for (int i = 0; i < WIDE; i++) {
+				new Folder().forceSetParent(root);
+			}
+		}));
+
+		measureMoveAndDestroy("wide", root);
+	}
+
+	/**
+	 * A single chain of nested children.
+	 */
+	private static void runDeep() {
+		final Instance root = new Folder();
+
+		BenchmarkEnvironment.report("deep build ("+DEEP+")", BenchmarkEnvironment.time(1, ()->{
+			Instance current = root;
+			for (int i = 0; i < DEEP; i++) {
+				Instance child = new Folder();
+				child.forceSetParent(current);
+				current = child;
+			}
+		}));
+
+		measureMoveAndDestroy("deep", root);
+	}
+
+	private static void measureMoveAndDestroy(String name, Instance root) {
+		final Instance holder = new Folder();
+		holder.forceSetParent(Game.workspace());
+
+		BenchmarkEnvironment.report(name + " move into workspace", BenchmarkEnvironment.time(1, ()->root.forceSetParent(holder)));
+		BenchmarkEnvironment.report(name + " getDescendants", BenchmarkEnvironment.time(100, ()->holder.getDescendants()));
+		BenchmarkEnvironment.report(name + " move out of workspace", BenchmarkEnvironment.time(1, ()->root.forceSetParent(Game.game())));
+		BenchmarkEnvironment.report(name + " destroy", BenchmarkEnvironment.time(1, ()->root.destroy()));
+
+		holder.destroy();
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.lua.type.object.Instance;
+import engine.lua.type.object.insts.Folder;
+import engine.lua.type.object.insts.GameObject;
+
+/**
+ * Measures construction cost and retained heap per Instance.
+ */
+public class InstanceBenchmark {
+	private static final int WARMUP = 2000;
+	private static final int COUNT = 50000;
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+		
+		// Warm up
+		for (int i = 0; i < WARMUP; i++) {
+			new GameObject();
+			new Folder();
+		}
+		
+		BenchmarkEnvironment.report("new Folder()", BenchmarkEnvironment.time(COUNT, ()->new Folder()));
+		BenchmarkEnvironment.report("new GameObject()", BenchmarkEnvironment.time(COUNT, ()->new GameObject()));
+		
+		// Retained bytes per GameObject
+		Instance[] retained = new Instance[COUNT];
+		long before = BenchmarkEnvironment.usedMemory();
+		for (int i = 0; i < COUNT; i++) {
+			retained[i] = new GameObject();
+		}
+		long after = BenchmarkEnvironment.usedMemory();
+		System.out.println(String.format("%-48s %12d bytes", "Retained per GameObject", (after - before) / COUNT));
+		System.out.println(retained.length + " instances retained");
+		
+		System.exit(0);
+	}
+}
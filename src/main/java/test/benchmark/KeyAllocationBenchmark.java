@@ -0,0 +1,85 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.Game;
+import engine.lua.type.LuaKeys;
+import engine.lua.type.object.Instance;
+import engine.lua.type.object.insts.Folder;
+import engine.lua.type.object.insts.GameObject;
+
+/**
+ * Counts the bytes allocated by field lookups and by a steady-state workspace tick.<br>
+ * Name lookups through {@link LuaKeys} (and the String overloads, which use it) should allocate nothing.
+ * <code>LuaValue.valueOf(String)</code> is measured for comparison.
+ */
+public class KeyAllocationBenchmark {
+	private static final int OBJECTS = 500;
+	private static final int LOOKUPS = 100000;
+	private static final int TICKS = 1000;
+
+	private static final LuaValue C_POSITION = LuaKeys.of("Position");
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if ( !bean.isThreadAllocatedMemorySupported() ) {
+			System.out.println("Thread allocation counters are not supported by this JVM.");
+			System.exit(0);
+		}
+		bean.setThreadAllocatedMemoryEnabled(true);
+
+		// Steady-state scene
+		Instance folder = new Folder();
+		for (int i = 0; i < OBJECTS; i++) {
+			new GameObject().forceSetParent(folder);
+		}
+		folder.forceSetParent(Game.workspace());
+		final GameObject object = (GameObject) folder.getChildren().get(0);
+
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			measure(bean, LOOKUPS, ()->object.get(C_POSITION));
+			measure(bean, LOOKUPS, ()->object.get("Position"));
+			measure(bean, LOOKUPS, ()->object.get(LuaValue.valueOf("Position")));
+			measure(bean, TICKS, ()->Game.workspace().tick());
+		}
+
+		report("get(interned key)", measure(bean, LOOKUPS, ()->object.get(C_POSITION)));
+		report("get(String)", measure(bean, LOOKUPS, ()->object.get("Position")));
+		report("get(LuaValue.valueOf(String))", measure(bean, LOOKUPS, ()->object.get(LuaValue.valueOf("Position"))));
+		report("workspace tick, " + OBJECTS + " objects", measure(bean, TICKS, ()->Game.workspace().tick()));
+		System.out.println(LuaKeys.size() + " interned keys");
+
+		System.exit(0);
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread per run.
+	 */
+	private static double measure(com.sun.management.ThreadMXBean bean, int iterations, Runnable runnable) {
+		long id = Thread.currentThread().getId();
+		long start = bean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < iterations; i++) {
+			runnable.run();
+		}
+		return (bean.getThreadAllocatedBytes(id) - start) / (double)iterations;
+	}
+
+	private static void report(String name, double bytes) {
+		System.out.println(String.format("%-48s %12.1f bytes", name, bytes));
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import engine.lua.LuaChunkCache;
+import engine.lua.LuaEngine;
+
+/**
+ * Measures loading many script sources by compiling them, from the memory cache, and from the disk cache.
+ */
+public class LuaChunkCacheBenchmark {
+	private static final int SCRIPTS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkEnvironment.init();
+
+		final String[] sources = new String[SCRIPTS];
+		for (int i = 0; i < SCRIPTS; i++) {
+			sources[i] = "local script=_G.last_script;\n"
+					+ "local count = " + i + "\n"
+					+ "local function step(delta)\n"
+					+ "	for j = 1, 10 do count = count + delta * j end\n"
+					+ "	if count > 100 then count = 0 end\n"
+					+ "	return count\n"
+					+ "end\n"
+					+ "game:GetService(\"RunService\").Heartbeat:Connect(step)\n";
+		}
+
+		File directory = Files.createTempDirectory("luachunks").toFile();
+		LuaChunkCache.setDiskCacheDirectory(directory);
+
+		// Warm up. Also fills the disk cache.
+		compileAll(sources);
+		loadAll(sources);
+
+		for (int i = 0; i < 5; i++) {
+			BenchmarkEnvironment.report("compile "+SCRIPTS+" scripts", BenchmarkEnvironment.time(1, ()->compileAll(sources)));
+			BenchmarkEnvironment.report("load "+SCRIPTS+" scripts from memory", BenchmarkEnvironment.time(1, ()->loadAll(sources)));
+			BenchmarkEnvironment.report("load "+SCRIPTS+" scripts from disk", BenchmarkEnvironment.time(1, ()->{
+				LuaChunkCache.clear();
+				loadAll(sources);
+			}));
+		}
+
+		for (File file : directory.listFiles())
+			file.delete();
+		directory.delete();
+
+		System.exit(0);
+	}
+
+	private static void compileAll(String[] sources) {
+		for (int i = 0; i < sources.length; i++)
+			LuaEngine.globals.load(sources[i], "Script");
+	}
+
+	private static void loadAll(String[] sources) {
+		for (int i = 0; i < sources.length; i++)
+			LuaChunkCache.load(LuaEngine.globals, sources[i], "Script");
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+import engine.lua.CompiledChunkLoader;
+
+/**
+ * Compares the interpreter against luajc compiled chunks on a few representative script workloads.
+ */
+public class LuaCompileBenchmark {
+	private static final String[][] WORKLOADS = new String[][] {
+		{ "recursive calls",
+			"local function fib(n) if n < 2 then return n end return fib(n-1) + fib(n-2) end "
+			+ "return fib(24)" },
+		{ "table sieve",
+			"local n = 200000 local sieve = {} for i = 2, n do sieve[i] = true end "
+			+ "for i = 2, n do if sieve[i] then for j = i*i, n, i do sieve[j] = false end end end "
+			+ "local count = 0 for i = 2, n do if sieve[i] then count = count + 1 end end return count" },
+		{ "vector math",
+			"local x, y, z, vx, vy, vz = 0, 10, 0, 1, 0, 0.5 "
+			+ "for i = 1, 500000 do "
+			+ "  local d = math.sqrt(x*x + y*y + z*z) + 0.001 "
+			+ "  vx = vx - x / (d*d*d) * 0.01 vy = vy - y / (d*d*d) * 0.01 vz = vz - z / (d*d*d) * 0.01 "
+			+ "  x = x + vx * 0.01 y = y + vy * 0.01 z = z + vz * 0.01 "
+			+ "end return x + y + z" },
+		{ "grid pathfinding",
+			"local size = 120 local walls = {} "
+			+ "for i = 1, size*size do walls[i] = (i % 7 == 0) and (i % 3 ~= 0) end "
+			+ "local dist = {} local queue = {1} local head = 1 dist[1] = 0 "
+			+ "while head <= #queue do "
+			+ "  local cell = queue[head] head = head + 1 "
+			+ "  local cx, cy = (cell-1) % size, math.floor((cell-1) / size) "
+			+ "  for _, o in ipairs({{1,0},{-1,0},{0,1},{0,-1}}) do "
+			+ "    local nx, ny = cx + o[1], cy + o[2] "
+			+ "    if nx >= 0 and ny >= 0 and nx < size and ny < size then "
+			+ "      local n = ny*size + nx + 1 "
+			+ "      if not walls[n] and dist[n] == nil then dist[n] = dist[cell] + 1 queue[#queue+1] = n end "
+			+ "    end "
+			+ "  end "
+			+ "end return dist[size*size]" },
+		{ "string building",
+			"local parts = {} for i = 1, 50000 do parts[#parts+1] = string.format('%d:%s', i, tostring(i*2)) end "
+			+ "return #table.concat(parts, ',')" },
+	};
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		Globals interpreted = JsePlatform.standardGlobals();
+		Globals compiled = JsePlatform.standardGlobals();
+		CompiledChunkLoader loader = new CompiledChunkLoader();
+		compiled.loader = loader;
+
+		for (String[] workload : WORKLOADS) {
+			LuaValue a = interpreted.load(workload[1], "benchmark");
+			LuaValue b = compiled.load(workload[1], "benchmark");
+
+			// Warm up
+			for (int i = 0; i < 3; i++) {
+				a.call();
+				b.call();
+			}
+
+			BenchmarkEnvironment.report(workload[0] + ", interpreted", BenchmarkEnvironment.time(5, ()->a.call()));
+			BenchmarkEnvironment.report(workload[0] + ", compiled", BenchmarkEnvironment.time(5, ()->b.call()));
+		}
+
+		if ( !loader.isAvailable() )
+			System.out.println("luajc was not available. Both modes ran on the interpreter.");
+		else
+			System.out.println("compiled chunks: " + loader.getCompiledCount() + ", fell back: " + loader.getFallbackCount());
+
+		System.exit(0);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.LuaEngine;
+import engine.lua.type.LuaEvent;
+import engine.lua.type.ScriptScheduler;
+
+/**
+ * Measures the cost of firing a LuaEvent with java and lua listeners connected.<br>
+ * Then fires a listener that waits, and counts the java threads left alive once every wait has ended.
+ */
+public class LuaEventBenchmark {
+	private static final int[] LISTENERS = new int[] { 1, 100, 10000 };
+	private static final int FIRES = 100;
+	private static final int YIELDING_FIRES = 2000;
+
+	private static int calls;
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		LuaValue luaListener = LuaEngine.globals.load("return function(delta) end").call();
+
+		// Warm up
+		for (int i = 0; i < 2; i++) {
+			for (int amount : LISTENERS) {
+				runJava(amount, false);
+				runLua(luaListener, amount, false);
+			}
+		}
+
+		for (int amount : LISTENERS) {
+			runJava(amount, true);
+			runLua(luaListener, amount, true);
+		}
+
+		runYielding(LuaEngine.globals.load("return function(delta) wait() end").call());
+
+		System.exit(0);
+	}
+
+	private static void runJava(int amount, boolean report) {
+		final LuaEvent event = new LuaEvent();
+		for (int i = 0; i < amount; i++) {
+			event.connect((args)->{
+				calls++;
+			});
+		}
+
+		double time = BenchmarkEnvironment.time(FIRES, ()->event.fire(LuaValue.valueOf(1)));
+		if ( report )
+			BenchmarkEnvironment.report("fire java listeners ("+amount+")", time);
+	}
+
+	private static void runLua(LuaValue function, int amount, boolean report) {
+		final LuaEvent event = new LuaEvent();
+		for (int i = 0; i < amount; i++) {
+			event.connectLua(function);
+		}
+
+		double time = BenchmarkEnvironment.time(FIRES, ()->event.fire(LuaValue.valueOf(1)));
+		if ( report )
+			BenchmarkEnvironment.report("fire lua listeners ("+amount+")", time);
+	}
+
+	private static void runYielding(LuaValue function) {
+		final LuaEvent event = new LuaEvent();
+		event.connectLua(function);
+
+		int threadsBefore = Thread.activeCount();
+		for (int i = 0; i < YIELDING_FIRES; i++) {
+			event.fire(LuaValue.valueOf(1));
+		}
+		int threadsWaiting = Thread.activeCount() - threadsBefore;
+
+		// Let every wait end
+		ScriptScheduler scheduler = ScriptScheduler.main();
+		while ( scheduler.getWaitingCount() > 0 || scheduler.getQueuedCount() > 0 ) {
+			scheduler.step();
+			sleep(16);
+		}
+		sleep(100);
+
+		System.out.println("java threads alive after "+YIELDING_FIRES+" yielding listeners: "+threadsWaiting+" while waiting, "
+				+(Thread.activeCount()-threadsBefore)+" after");
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			//
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.LuaEngine;
+
+/**
+ * Lays out 500 GameObjects from lua with six properties each, through per-field sets and through the bulk property APIs.
+ */
+public class PropertyBulkBenchmark {
+	private static final String PER_FIELD = "local folder = Instance.new('Folder')\n"
+			+ "for i = 1, 500 do\n"
+			+ "	local obj = Instance.new('GameObject')\n"
+			+ "	obj.Name = 'Part' .. i\n"
+			+ "	obj.Position = Vector3.new(i, 0, 0)\n"
+			+ "	obj.Transparency = 0.5\n"
+			+ "	obj.Static = true\n"
+			+ "	obj.Archivable = false\n"
+			+ "	obj.Parent = folder\n"
+			+ "end\n"
+			+ "folder:Destroy()";
+
+	private static final String SET_PROPERTIES = "local folder = Instance.new('Folder')\n"
+			+ "for i = 1, 500 do\n"
+			+ "	Instance.new('GameObject', { Name = 'Part' .. i, Position = Vector3.new(i, 0, 0), Transparency = 0.5, Static = true, Archivable = false, Parent = folder })\n"
+			+ "end\n"
+			+ "folder:Destroy()";
+
+	private static final String NEW_MANY = "local folder = Instance.new('Folder')\n"
+			+ "Instance.newMany('GameObject', 500, { Name = 'Part', Position = Vector3.new(1, 0, 0), Transparency = 0.5, Static = true, Archivable = false, Parent = folder })\n"
+			+ "folder:Destroy()";
+
+	private static final String GET_PER_FIELD = "local obj = Instance.new('GameObject')\n"
+			+ "local sum = 0\n"
+			+ "for i = 1, 500 do\n"
+			+ "	local a, b, c, d, e, f = obj.Name, obj.Position, obj.Transparency, obj.Static, obj.Archivable, obj.Parent\n"
+			+ "	sum = sum + c\n"
+			+ "end";
+
+	private static final String GET_PROPERTIES = "local obj = Instance.new('GameObject')\n"
+			+ "local names = { 'Name', 'Position', 'Transparency', 'Static', 'Archivable', 'Parent' }\n"
+			+ "local sum = 0\n"
+			+ "for i = 1, 500 do\n"
+			+ "	local p = obj:GetProperties(names)\n"
+			+ "	sum = sum + p.Transparency\n"
+			+ "end";
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		LuaValue perField = LuaEngine.globals.load(PER_FIELD, "PerField");
+		LuaValue setProperties = LuaEngine.globals.load(SET_PROPERTIES, "SetProperties");
+		LuaValue newMany = LuaEngine.globals.load(NEW_MANY, "NewMany");
+		LuaValue getPerField = LuaEngine.globals.load(GET_PER_FIELD, "GetPerField");
+		LuaValue getProperties = LuaEngine.globals.load(GET_PROPERTIES, "GetProperties");
+
+		// Warm up
+		for (int i = 0; i < 20; i++) {
+			perField.call();
+			setProperties.call();
+			newMany.call();
+			getPerField.call();
+			getProperties.call();
+		}
+
+		for (int i = 0; i < 3; i++) {
+			BenchmarkEnvironment.report("500 objects, per field", BenchmarkEnvironment.time(50, ()->perField.call()));
+			BenchmarkEnvironment.report("500 objects, Instance.new(type, properties)", BenchmarkEnvironment.time(50, ()->setProperties.call()));
+			BenchmarkEnvironment.report("500 objects, Instance.newMany", BenchmarkEnvironment.time(50, ()->newMany.call()));
+			BenchmarkEnvironment.report("500 reads of 6 fields, per field", BenchmarkEnvironment.time(50, ()->getPerField.call()));
+			BenchmarkEnvironment.report("500 reads of 6 fields, GetProperties", BenchmarkEnvironment.time(50, ()->getProperties.call()));
+		}
+
+		System.exit(0);
+	}
+}
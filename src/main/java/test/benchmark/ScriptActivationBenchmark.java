@@ -0,0 +1,63 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.Game;
+import engine.lua.type.object.Instance;
+import engine.lua.type.object.insts.Folder;
+import engine.lua.type.object.insts.script.Script;
+
+/**
+ * Measures reparent throughput while many scripts are loaded in the game.
+ */
+public class ScriptActivationBenchmark {
+	private static final int SCRIPTS = 5000;
+	private static final int MOVES = 1000;
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		// Load scripts into the workspace. The game is not running, so none of them execute.
+		Instance scripts = new Folder();
+		scripts.forceSetParent(Game.workspace());
+		for (int i = 0; i < SCRIPTS; i++) {
+			Script script = new Script();
+			script.setSource("");
+			script.forceSetParent(scripts);
+		}
+
+		final Instance a = new Folder();
+		final Instance b = new Folder();
+		a.forceSetParent(Game.workspace());
+		b.forceSetParent(Game.workspace());
+		final Instance moving = new Folder();
+		new Folder().forceSetParent(moving);
+
+		// Warm up
+		move(moving, a, b);
+
+		for (int i = 0; i < 5; i++) {
+			BenchmarkEnvironment.report("reparent with "+SCRIPTS+" scripts ("+MOVES+")", BenchmarkEnvironment.time(1, ()->move(moving, a, b)));
+			BenchmarkEnvironment.report("move script subtree ("+SCRIPTS+")", BenchmarkEnvironment.time(1, ()->{
+				scripts.forceSetParent(Game.storage());
+				scripts.forceSetParent(Game.workspace());
+			}));
+		}
+
+		System.exit(0);
+	}
+
+	private static void move(Instance moving, Instance a, Instance b) {
+		for (int i = 0; i < MOVES; i++) {
+			moving.forceSetParent((i % 2 == 0) ? a : b);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.ScriptActor;
+
+/**
+ * Measures how a fixed amount of CPU bound script work scales when it is spread over 1 to N script actors.
+ */
+public class ScriptActorBenchmark {
+	private static final int JOBS = 64;
+	private static final int JOB_SIZE = 200000;
+	private static final String SOURCE = "local function job(n) local s = 0 for i = 1, n do s = s + (i * i) % 7 end return s end\n"
+			+ "actor:OnMessage(function(id, n) actor:Send(id, job(n)) end)";
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("cores: " + cores);
+
+		// Warm up
+		run(1);
+
+		// 1, 2, 4... and finally every core
+		for (int actors = 1; ; actors *= 2) {
+			final int amount = Math.min(actors, cores);
+			BenchmarkEnvironment.report(JOBS+" jobs on "+amount+" actors", BenchmarkEnvironment.time(1, ()->run(amount)));
+			if ( amount == cores )
+				break;
+		}
+
+		System.exit(0);
+	}
+
+	private static void run(int amount) {
+		final AtomicInteger received = new AtomicInteger();
+		ScriptActor[] actors = new ScriptActor[amount];
+		for (int i = 0; i < amount; i++) {
+			actors[i] = ScriptActor.create(SOURCE, "Worker");
+			actors[i].messageEvent().connect((args)->received.incrementAndGet());
+		}
+
+		// First step runs the source, which registers the handlers
+		ScriptActor.stepAll();
+		for (int i = 0; i < amount; i++) {
+			while ( actors[i].isStepping() )
+				Thread.yield();
+		}
+
+		for (int i = 0; i < JOBS; i++)
+			actors[i % amount].send(LuaValue.varargsOf(LuaValue.valueOf(i), LuaValue.valueOf(JOB_SIZE)));
+
+		while ( received.get() < JOBS ) {
+			ScriptActor.stepAll();
+			Thread.yield();
+		}
+
+		ScriptActor.stopAll();
+	}
+}
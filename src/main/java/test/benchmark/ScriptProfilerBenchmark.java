@@ -0,0 +1,58 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.LuaEngine;
+import engine.lua.lib.ScriptProfiler;
+import engine.lua.type.ScriptThread;
+
+/**
+ * Measures the cost of the script profiler on a lua workload with function calls, and prints the hottest lines it found.
+ */
+public class ScriptProfilerBenchmark {
+	private static final String SOURCE = "local function dist(x, y, z) return math.sqrt(x*x + y*y + z*z) end\n"
+			+ "local function step(t)\n"
+			+ "	local sum = 0\n"
+			+ "	for i = 1, 100 do sum = sum + dist(i, t, i * 0.5) end\n"
+			+ "	return sum\n"
+			+ "end\n"
+			+ "local total = 0\n"
+			+ "for t = 1, 5000 do total = total + step(t) end\n"
+			+ "return total";
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		LuaValue chunk = LuaEngine.globals.load(SOURCE, "ProfilerBenchmark");
+		Runnable run = ()->new ScriptThread(LuaEngine.globals, chunk, null).resume(LuaValue.NONE);
+
+		// Warm up
+		for (int i = 0; i < 3; i++)
+			run.run();
+
+		for (int i = 0; i < 5; i++) {
+			BenchmarkEnvironment.report("profiler off", BenchmarkEnvironment.time(5, run));
+
+			ScriptProfiler.start();
+			BenchmarkEnvironment.report("profiler on", BenchmarkEnvironment.time(5, run));
+			ScriptProfiler.stop();
+		}
+
+		for (ScriptProfiler.Entry entry : ScriptProfiler.getLines()) {
+			System.out.println(entry.getScript() + " " + entry.getFunction() + ":" + entry.getLine() + " " + entry.getTime() + "s " + entry.getInstructions() + " instructions");
+		}
+		System.out.println(ScriptProfiler.toCollapsed());
+
+		System.exit(0);
+	}
+}
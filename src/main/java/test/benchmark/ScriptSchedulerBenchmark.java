@@ -0,0 +1,74 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import engine.lua.LuaEngine;
+import engine.lua.type.ScriptScheduler;
+
+/**
+ * Measures scheduler tick overhead with many scripts waiting at once.
+ */
+public class ScriptSchedulerBenchmark {
+	private static final int SCRIPTS = 10000;
+	private static final int STEPS = 300;
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		int threadsBefore = Thread.activeCount();
+		for (int i = 0; i < SCRIPTS; i++) {
+			LuaEngine.runLua("while true do wait() end");
+		}
+
+		// Start every script
+		ScriptScheduler.main().step();
+
+		long worst = 0;
+		long total = 0;
+		for (int i = 0; i < STEPS; i++) {
+			long start = System.nanoTime();
+			ScriptScheduler.main().step();
+			long time = System.nanoTime() - start;
+			total += time;
+			worst = Math.max(worst, time);
+
+			sleepTick();
+		}
+
+		BenchmarkEnvironment.report("step with "+SCRIPTS+" waiting scripts (avg)", total / (double)STEPS);
+		BenchmarkEnvironment.report("step with "+SCRIPTS+" waiting scripts (worst)", worst);
+		System.out.println("waiting: " + ScriptScheduler.main().getWaitingCount());
+		System.out.println("runnable threads: " + countRunnable() + " (java threads alive: " + (Thread.activeCount()-threadsBefore) + ")");
+
+		ScriptScheduler.main().clear();
+		System.exit(0);
+	}
+
+	/**
+	 * Threads that are actually competing for the CPU. Suspended coroutines park their thread, so they do not count.
+	 */
+	private static int countRunnable() {
+		int amount = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if ( thread.getState() == Thread.State.RUNNABLE )
+				amount++;
+		}
+		return amount;
+	}
+
+	private static void sleepTick() {
+		try {
+			Thread.sleep(16);
+		} catch (InterruptedException e) {
+			//
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.tasks.TaskDrainMetrics;
+import engine.tasks.TaskManager;
+import engine.tasks.TaskPriority;
+
+/**
+ * Queues a burst of 5000 main thread callbacks (as a large import would) and drains it one tick at a time,
+ * once without a budget and once with the default 4ms budget. Prints the worst tick and how many ticks the burst was spread over.
+ */
+public class TaskDrainBenchmark {
+	private static final int CALLBACKS = 5000;
+	private static final long CALLBACK_NANOS = 50000;
+
+	public static void main(String[] args) {
+		run("unbudgeted", Long.MAX_VALUE);
+		run("4ms budget", 4000000);
+		System.exit(0);
+	}
+
+	private static void run(String name, long budgetNanos) {
+		TaskManager.setMainThreadBudget(budgetNanos, Integer.MAX_VALUE);
+		TaskDrainMetrics metrics = TaskManager.getMainThreadMetrics();
+		metrics.resetMax();
+		long overBudget = metrics.getOverBudgetDrains();
+
+		final AtomicInteger critical = new AtomicInteger();
+		for (int i = 0; i < CALLBACKS; i++) {
+			TaskManager.addTaskMainThread(() -> work());
+
+			// Input handling and the like, which must never wait a tick
+			if (i % 500 == 0)
+				TaskManager.addTaskMainThread(() -> critical.incrementAndGet(), TaskPriority.CRITICAL);
+		}
+
+		int ticks = 0;
+		long firstCritical = -1;
+		while (TaskManager.getMainThreadQueueSize() > 0) {
+			TaskManager.updateMainThread();
+			ticks++;
+			if (firstCritical < 0 && critical.get() == CALLBACKS / 500)
+				firstCritical = ticks;
+		}
+
+		System.out.println(String.format("%-12s %5d ticks, worst tick %8.2fms, %d/%d critical tasks ran by tick %d, %d ticks over budget",
+				name, ticks, metrics.getMaxNanos() / 1.0e6, critical.get(), CALLBACKS / 500, firstCritical, metrics.getOverBudgetDrains() - overBudget));
+	}
+
+	private static void work() {
+		long end = System.nanoTime() + CALLBACK_NANOS;
+		while (System.nanoTime() < end)
+			;
+	}
+}
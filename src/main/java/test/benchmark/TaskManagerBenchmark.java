@@ -0,0 +1,134 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import engine.tasks.Task;
+import engine.tasks.TaskManager;
+import engine.tasks.TaskPriority;
+
+/**
+ * Stress test for the background task pool. Submits 100k tasks of mixed priorities in one burst, cancels part of the low priority ones,
+ * and prints the queue latency (submit to start) percentiles per priority.<br>
+ * One task in a hundred fans out into more tasks from its worker, which the other workers have to steal.
+ */
+public class TaskManagerBenchmark {
+	private static final int TASKS = 100000;
+	private static final int FAN_OUT = 8;
+	private static final long WORK_NANOS = 2000;
+
+	public static void main(String[] args) {
+		TaskManager.init();
+
+		for (int i = 0; i < 3; i++) {
+			run(new Random(i));
+		}
+
+		TaskManager.stopBackgroundThreads();
+		System.exit(0);
+	}
+
+	private static void run(Random random) {
+		final long[] submitted = new long[TASKS];
+		final long[] started = new long[TASKS];
+		final TaskPriority[] priorities = new TaskPriority[TASKS];
+		final AtomicInteger spawned = new AtomicInteger();
+		final AtomicInteger children = new AtomicInteger();
+		@SuppressWarnings("unchecked")
+		Task<Void>[] tasks = new Task[TASKS];
+
+		long start = System.nanoTime();
+		for (int i = 0; i < TASKS; i++) {
+			final int id = i;
+			final boolean fanOut = random.nextInt(100) == 0;
+			priorities[i] = pick(random.nextInt(100));
+			tasks[i] = new Task<Void>() {
+				@Override
+				protected Void call() {
+					started[id] = System.nanoTime();
+					if (fanOut) {
+						spawned.addAndGet(FAN_OUT);
+						for (int j = 0; j < FAN_OUT; j++)
+							TaskManager.addTaskBackgroundThread(() -> {
+								work();
+								children.incrementAndGet();
+							});
+					}
+					work();
+					return null;
+				}
+			};
+			tasks[i].setPriority(priorities[i]);
+			submitted[i] = System.nanoTime();
+			TaskManager.submitBackgroundThread(tasks[i]);
+		}
+
+		// Scrolled out of view before they ran
+		List<Task<?>> kept = new ArrayList<>();
+		int cancelled = 0;
+		for (int i = 0; i < TASKS; i++) {
+			if (i % 3 == 0 && priorities[i] == TaskPriority.LOW && tasks[i].cancel())
+				cancelled++;
+			else
+				kept.add(tasks[i]);
+		}
+
+		// Continuations: wait for everything, then hop to the "main thread"
+		Task<Long> total = TaskManager.whenAll(kept.toArray(new Task[kept.size()])).thenOnMainThread((v) -> System.nanoTime() - start);
+		while (!total.isDone() || children.get() < spawned.get()) {
+			TaskManager.updateMainThread();
+			Thread.yield();
+		}
+
+		System.out.println(String.format("%d tasks, %d cancelled, %d fanned out from workers, %.1fms", TASKS, cancelled, children.get(),
+				total.get() / 1.0e6));
+		for (TaskPriority priority : TaskPriority.values()) {
+			report(priority, submitted, started, priorities);
+		}
+	}
+
+	private static void report(TaskPriority priority, long[] submitted, long[] started, TaskPriority[] priorities) {
+		long[] latencies = new long[TASKS];
+		int count = 0;
+		for (int i = 0; i < TASKS; i++) {
+			if (priorities[i] == priority && started[i] != 0)
+				latencies[count++] = started[i] - submitted[i];
+		}
+		if (count == 0)
+			return;
+
+		Arrays.sort(latencies, 0, count);
+		System.out.println(String.format("  %-8s %6d ran   p50 %8.2fms   p90 %8.2fms   p99 %8.2fms   max %8.2fms", priority, count,
+				latencies[count / 2] / 1.0e6, latencies[(int) (count * 0.9)] / 1.0e6, latencies[(int) (count * 0.99)] / 1.0e6,
+				latencies[count - 1] / 1.0e6));
+	}
+
+	private static TaskPriority pick(int roll) {
+		if (roll < 2)
+			return TaskPriority.CRITICAL;
+		if (roll < 15)
+			return TaskPriority.HIGH;
+		if (roll < 60)
+			return TaskPriority.NORMAL;
+		return TaskPriority.LOW;
+	}
+
+	private static void work() {
+		long end = System.nanoTime() + WORK_NANOS;
+		while (System.nanoTime() < end)
+			;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.luaj.vm2.LuaValue;
+
+import engine.lua.type.ChildWaiter;
+import engine.lua.type.object.Instance;
+import engine.lua.type.object.insts.Folder;
+
+/**
+ * Measures the cost of pending child waiters on parenting, and how long a blocked WaitForChild takes to wake up.<br>
+ * Waiters are checked only when a child is added or renamed, so a parent with many pending waiters and no new children costs nothing.
+ */
+public class WaitForChildBenchmark {
+	private static final int WAITERS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkEnvironment.init();
+
+		final Folder parent = new Folder();
+		final Folder other = new Folder();
+		final AtomicInteger completed = new AtomicInteger();
+		for (int i = 0; i < WAITERS; i++) {
+			parent.addChildWaiter(new ChildWaiter("Wait" + i, null) {
+				@Override
+				protected void onComplete(Instance child) {
+					completed.incrementAndGet();
+				}
+			});
+		}
+		System.out.println(parent.getChildWaiterCount() + " pending waiters");
+
+		// Moving an unrelated child in and out, against every pending waiter
+		final Folder child = new Folder();
+		child.forceSetName("Unrelated");
+		for (int i = 0; i < 3; i++) {
+			BenchmarkEnvironment.report("Parent change, " + WAITERS + " waiters", BenchmarkEnvironment.time(10000, ()->{
+				child.forceSetParent(parent);
+				child.forceSetParent(other);
+			}));
+		}
+
+		// Satisfy them all
+		long start = System.nanoTime();
+		for (int i = 0; i < WAITERS; i++) {
+			Folder f = new Folder();
+			f.forceSetName("Wait" + i);
+			f.forceSetParent(parent);
+		}
+		BenchmarkEnvironment.report("Complete " + WAITERS + " waiters", (double)(System.nanoTime() - start));
+		System.out.println(completed.get() + " completed, " + parent.getChildWaiterCount() + " pending");
+
+		// Wake up latency of a blocked WaitForChild
+		for (int i = 0; i < 5; i++) {
+			final Folder late = new Folder();
+			late.forceSetName("Late" + i);
+			final long[] added = new long[1];
+			Thread t = new Thread(()->{
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					//
+				}
+				added[0] = System.nanoTime();
+				late.forceSetParent(parent);
+			});
+			t.start();
+			parent.waitForChild(LuaValue.valueOf("Late" + i), LuaValue.valueOf(1));
+			BenchmarkEnvironment.report("WaitForChild wake up", (double)(System.nanoTime() - added[0]));
+			t.join();
+		}
+
+		System.exit(0);
+	}
+}
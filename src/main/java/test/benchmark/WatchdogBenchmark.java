@@ -0,0 +1,69 @@
+/*
+ *
+ * Copyright (C) 2015-2020 Anarchy Engine Open Source Contributors (see CONTRIBUTORS.md)
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at https://mozilla.org/MPL/2.0/.
+ *
+ */
+
+package test.benchmark;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.compiler.LuaC;
+import org.luaj.vm2.lib.DebugLib;
+import org.luaj.vm2.lib.PackageLib;
+import org.luaj.vm2.lib.TwoArgFunction;
+import org.luaj.vm2.lib.jse.JseBaseLib;
+
+import engine.lua.lib.PreventInfiniteInstructions;
+import engine.lua.type.ScriptThread;
+
+/**
+ * Measures a tight lua arithmetic loop without a debug library, with the plain debug library, and under the instruction watchdog.
+ */
+public class WatchdogBenchmark {
+	private static final String SOURCE = "local x = 0 for i = 1, 2000000 do x = (x + i * 3) % 1000003 end return x";
+
+	public static void main(String[] args) {
+		BenchmarkEnvironment.init();
+
+		Runnable none = load(null);
+		Runnable debug = load(new DebugLib());
+		Runnable watchdog = load(new PreventInfiniteInstructions());
+
+		// Warm up
+		for (int i = 0; i < 3; i++) {
+			none.run();
+			debug.run();
+			watchdog.run();
+		}
+
+		for (int i = 0; i < 5; i++) {
+			BenchmarkEnvironment.report("arithmetic loop, no debug library", BenchmarkEnvironment.time(5, none));
+			BenchmarkEnvironment.report("arithmetic loop, debug library", BenchmarkEnvironment.time(5, debug));
+			BenchmarkEnvironment.report("arithmetic loop, watchdog", BenchmarkEnvironment.time(5, watchdog));
+		}
+
+		System.exit(0);
+	}
+
+	/**
+	 * Returns a runnable that runs the loop in its own coroutine, the same way scripts run.
+	 */
+	private static Runnable load(TwoArgFunction debugLib) {
+		Globals globals = new Globals();
+		globals.load(new JseBaseLib());
+		globals.load(new PackageLib());
+		if ( debugLib != null )
+			globals.load(debugLib);
+		LoadState.install(globals);
+		LuaC.install(globals);
+
+		LuaValue chunk = globals.load(SOURCE, "benchmark");
+		return ()->new ScriptThread(globals, chunk, null).resume(LuaValue.NONE);
+	}
+}